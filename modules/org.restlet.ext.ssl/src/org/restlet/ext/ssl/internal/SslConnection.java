@@ -355,6 +355,11 @@ public class SslConnection<T extends Connector> extends Connection<T> {
         getSslEngine().beginHandshake();
     }
 
+    @Override
+    protected boolean isQuiet() {
+        return super.isQuiet() && !isSslHandshaking();
+    }
+
     /**
      * Indicates if the SSL handshake is going on.
      * 
@@ -364,6 +369,15 @@ public class SslConnection<T extends Connector> extends Connection<T> {
         return getSslHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING;
     }
 
+    /**
+     * Returns false as bytes need to be encrypted before being written to the
+     * socket channel.
+     */
+    @Override
+    public boolean isTransferable() {
+        return false;
+    }
+
     /**
      * Notifies that the SSL handshake is finished. Application data can now be
      * exchanged.
@@ -418,7 +432,8 @@ public class SslConnection<T extends Connector> extends Connection<T> {
                                 "Unable to handle SSL handshake", e);
                     }
 
-                    getHelper().getController().wakeup();
+                    activate();
+                    getController().wakeup();
                 }
             });
         }
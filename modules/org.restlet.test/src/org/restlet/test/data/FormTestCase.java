@@ -34,10 +34,16 @@
 package org.restlet.test.data;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Parameter;
 import org.restlet.engine.util.FormReader;
+import org.restlet.representation.StringRepresentation;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -82,4 +88,49 @@ public class FormTestCase extends RestletTestCase {
         assertNull(form.getFirstValue("unknownParam"));
     }
 
+    public void testStreaming() throws IOException {
+        StringBuilder sb = new StringBuilder("a=1&big=");
+
+        for (int i = 0; i < 10000; i++) {
+            sb.append("0123456789");
+        }
+
+        sb.append("&b%20c=x%26y&flag&a=2");
+        String text = sb.toString();
+
+        // Skip the unwanted parameters
+        Set<String> names = new HashSet<String>(Arrays.asList("a", "b c",
+                "flag"));
+        FormReader reader = new FormReader(new StringRepresentation(text,
+                MediaType.APPLICATION_WWW_FORM));
+        Parameter param = reader.readNextParameter(names);
+        assertEquals(new Parameter("a", "1"), param);
+        param = reader.readNextParameter(names);
+        assertEquals(new Parameter("b c", "x&y"), param);
+        param = reader.readNextParameter(names);
+        assertEquals(new Parameter("flag", null), param);
+        param = reader.readNextParameter(names);
+        assertEquals(new Parameter("a", "2"), param);
+        assertNull(reader.readNextParameter(names));
+        assertEquals(text.length(), reader.getByteCount());
+
+        // Read a single parameter
+        reader = new FormReader(new StringRepresentation(text,
+                MediaType.APPLICATION_WWW_FORM));
+        assertEquals("x&y", reader.readFirstParameter("b c").getValue());
+
+        // Cap the number of bytes read
+        reader = new FormReader(new StringRepresentation(text,
+                MediaType.APPLICATION_WWW_FORM));
+        reader.setMaxBytes(1000);
+        assertEquals(new Parameter("a", "1"), reader.readNextParameter());
+
+        try {
+            reader.readNextParameter();
+            fail("The maximum number of bytes should have been exceeded");
+        } catch (IOException ioe) {
+            // As expected
+        }
+    }
+
 }
@@ -351,8 +351,8 @@ public class MediaTypeTestCase extends RestletTestCase {
         assertEquals("x-restlet-test", newType.getSubType());
         assertEquals("application/x-restlet-test", newType.getName());
 
-        // Should not have got registered by call to valueOf() alone
-        assertNotSame(newType, MediaType.valueOf("application/x-restlet-test"));
+        // Should have been interned but not registered by call to valueOf()
+        assertSame(newType, MediaType.valueOf("application/x-restlet-test"));
 
         final MediaType registeredType = MediaType.register(
                 "application/x-restlet-test", "Restlet testcase");
@@ -371,6 +371,14 @@ public class MediaTypeTestCase extends RestletTestCase {
                 .valueOf("application/atom+xml; name=value");
         assertEquals("application/atom+xml; name=value", mediaType.toString());
         assertEquals(MediaType.APPLICATION_ATOM, mediaType.getParent());
+
+        // Unusual names don't prevent later names from being interned
+        for (int i = 0; i < 2000; i++) {
+            MediaType.valueOf("application/x-restlet-unique; i=" + i);
+        }
+
+        MediaType lateType = MediaType.valueOf("application/x-restlet-late");
+        assertSame(lateType, MediaType.valueOf("application/x-restlet-late"));
     }
 
     @SuppressWarnings("unchecked")
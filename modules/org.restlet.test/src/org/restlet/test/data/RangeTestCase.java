@@ -34,6 +34,7 @@
 package org.restlet.test.data;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -44,6 +45,7 @@ import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.CharacterSet;
 import org.restlet.data.Form;
 import org.restlet.data.LocalReference;
 import org.restlet.data.MediaType;
@@ -53,11 +55,15 @@ import org.restlet.data.Protocol;
 import org.restlet.data.Range;
 import org.restlet.data.Status;
 import org.restlet.data.Tag;
+import org.restlet.engine.application.MultipartRangeRepresentation;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.engine.util.SystemUtils;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.Directory;
 import org.restlet.routing.Router;
+import org.restlet.service.RangeService;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -165,6 +171,9 @@ public class RangeTestCase extends RestletTestCase {
     // Sample string.
     private static String str1000;
 
+    /** Application used for the tests. */
+    private TestRangeApplication application;
+
     /** Component used for the tests. */
     private Component component;
 
@@ -174,7 +183,8 @@ public class RangeTestCase extends RestletTestCase {
         component = new Component();
         component.getServers().add(Protocol.HTTP, TEST_PORT);
         component.getClients().add(Protocol.FILE);
-        component.getDefaultHost().attach(new TestRangeApplication());
+        application = new TestRangeApplication();
+        component.getDefaultHost().attach(application);
         component.start();
 
         StringBuilder sb = new StringBuilder();
@@ -311,6 +321,133 @@ public class RangeTestCase extends RestletTestCase {
         client.stop();
     }
 
+    /**
+     * Tests requests for multiple ranges.
+     * 
+     * @throws Exception
+     */
+    public void testMultipleRanges() throws Exception {
+        BioUtils.delete(testDir, true);
+        testDir.mkdirs();
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+
+        String content = sb.toString();
+        FileOutputStream fos = new FileOutputStream(new File(testDir,
+                "ranges.txt"));
+        fos.write(content.getBytes("US-ASCII"));
+        fos.close();
+
+        Client client = new Client(Protocol.HTTP);
+        String uri = "http://localhost:" + TEST_PORT + "/testPut/ranges.txt";
+
+        // Distant ranges, including a suffix range
+        Request request = new Request(Method.GET, uri);
+        request.setRanges(Arrays.asList(new Range(500, 10), new Range(0, 10),
+                new Range(Range.INDEX_LAST, 5)));
+        Response response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertTrue(MediaType.MULTIPART_BYTERANGES.equals(response.getEntity()
+                .getMediaType(), true));
+        String boundary = response.getEntity().getMediaType().getParameters()
+                .getFirstValue("boundary");
+        assertNotNull(boundary);
+        String text = response.getEntity().getText();
+        int first = text.indexOf("Content-Range: bytes 0-9/1000\r\n\r\n"
+                + content.substring(0, 10) + "\r\n--" + boundary + "\r\n");
+        int second = text.indexOf("Content-Range: bytes 500-509/1000\r\n\r\n"
+                + content.substring(500, 510) + "\r\n--" + boundary + "\r\n");
+        int third = text.indexOf("Content-Range: bytes 995-999/1000\r\n\r\n"
+                + content.substring(995) + "\r\n--" + boundary + "--\r\n");
+        assertTrue(text.startsWith("--" + boundary + "\r\nContent-Type: text/plain"));
+        assertTrue((first > 0) && (second > first) && (third > second));
+        assertTrue(text.endsWith("--" + boundary + "--\r\n"));
+
+        // Overlapping and close ranges are coalesced
+        request = new Request(Method.GET, uri);
+        request.setRanges(Arrays.asList(new Range(0, 10), new Range(5, 10),
+                new Range(40, 10)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(0, response.getEntity().getRange().getIndex());
+        assertEquals(50, response.getEntity().getRange().getSize());
+        assertEquals(content.substring(0, 50), response.getEntity().getText());
+
+        // Unsatisfiable ranges
+        request = new Request(Method.GET, uri);
+        request.setRanges(Arrays.asList(new Range(2000, 10), new Range(3000,
+                10)));
+        response = client.handle(request);
+        assertEquals(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE,
+                response.getStatus());
+
+        try {
+            // Too many ranges
+            application.getRangeService().setMaxRanges(1);
+            request = new Request(Method.GET, uri);
+            request.setRanges(Arrays.asList(new Range(0, 10), new Range(500,
+                    10)));
+            response = client.handle(request);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals(content, response.getEntity().getText());
+
+            // Counted as requested, even if they would be coalesced
+            application.getRangeService().setMaxRanges(2);
+            request = new Request(Method.GET, uri);
+            request.setRanges(Arrays.asList(new Range(0, 10), new Range(5, 10),
+                    new Range(40, 10)));
+            response = client.handle(request);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals(content, response.getEntity().getText());
+        } finally {
+            application.getRangeService().setMaxRanges(
+                    RangeService.DEFAULT_MAX_RANGES);
+        }
+
+        client.stop();
+    }
+
+    /**
+     * Tests the multipart entity with a file and a stream source.
+     * 
+     * @throws Exception
+     */
+    public void testMultipartRangeRepresentation() throws Exception {
+        BioUtils.delete(testDir, true);
+        testDir.mkdirs();
+        File file = new File(testDir, "multipart.txt");
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("0123456789abcdefghij".getBytes("US-ASCII"));
+        fos.close();
+
+        List<Range> ranges = Arrays.asList(new Range(2, 3), new Range(15, 5));
+        Representation fileRepresentation = new FileRepresentation(file,
+                MediaType.TEXT_PLAIN);
+        fileRepresentation.setCharacterSet(CharacterSet.UTF_8);
+        Representation fromFile = new MultipartRangeRepresentation(
+                fileRepresentation, ranges);
+        Representation fromStream = new MultipartRangeRepresentation(
+                new StringRepresentation("0123456789abcdefghij"), ranges);
+        assertNull(fromFile.getRange());
+        assertTrue(MediaType.MULTIPART_BYTERANGES.equals(
+                fromFile.getMediaType(), true));
+
+        String text = fromFile.getText();
+        assertEquals(fromFile.getSize(), text.length());
+        assertTrue(text.contains("Content-Range: bytes 2-4/20\r\n\r\n234\r\n"));
+        assertTrue(text.contains("Content-Range: bytes 15-19/20\r\n\r\nfghij\r\n"));
+
+        String boundary = fromFile.getMediaType().getParameters()
+                .getFirstValue("boundary");
+        String otherBoundary = fromStream.getMediaType().getParameters()
+                .getFirstValue("boundary");
+        assertEquals(text.replace(boundary, otherBoundary),
+                fromStream.getText());
+    }
+
     /**
      * Tests partial Put requests.
      * 
@@ -36,6 +36,7 @@ package org.restlet.test.data;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.restlet.data.CharacterSet;
 import org.restlet.data.Form;
 import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
@@ -139,6 +140,52 @@ public class ReferenceTestCase extends RestletTestCase {
         reference.setSegments(segments); // must not produce NPE
     }
 
+    /**
+     * Percent-encoding tests.
+     */
+    public void testEncoding() throws Exception {
+        String plain = "abc-XYZ_0.9";
+        assertSame(plain, Reference.decode(plain));
+        assertSame(plain, Reference.encode(plain));
+
+        String text = "a b*c~d/\u00e9\u20ac\ud83d\ude00+%";
+        String encoded = "a%20b%2Ac~d%2F%C3%A9%E2%82%AC%F0%9F%98%80%2B%25";
+        assertEquals(encoded, Reference.encode(text));
+        assertEquals("a+b*c%7Ed%2F%C3%A9%E2%82%AC%F0%9F%98%80%2B%25",
+                Reference.encode(text, false));
+        assertEquals(text, Reference.decode(encoded));
+        assertEquals("a b", Reference.decode("a+b"));
+
+        for (CharacterSet characterSet : new CharacterSet[] {
+                CharacterSet.UTF_8, CharacterSet.ISO_8859_1 }) {
+            for (boolean queryString : new boolean[] { true, false }) {
+                String expected = java.net.URLEncoder.encode(text,
+                        characterSet.getName());
+
+                if (queryString) {
+                    expected = expected.replace("+", "%20")
+                            .replace("*", "%2A").replace("%7E", "~");
+                }
+
+                assertEquals(expected,
+                        Reference.encode(text, queryString, characterSet));
+                assertEquals(java.net.URLDecoder.decode(expected,
+                        characterSet.getName()), Reference.decode(expected,
+                        characterSet));
+            }
+        }
+
+        // Malformed sequences are reported like before
+        for (String malformed : new String[] { "%", "a%4", "%zz", "%-1" }) {
+            try {
+                Reference.decode(malformed);
+                fail("Malformed escape sequence not detected: " + malformed);
+            } catch (IllegalArgumentException iae) {
+                // As expected
+            }
+        }
+    }
+
     /**
      * Equality tests.
      */
@@ -462,6 +509,44 @@ public class ReferenceTestCase extends RestletTestCase {
                 "http://host.com/dir/sub", null, null);
     }
 
+    /**
+     * Tests that the cached parsed views of a reference are returned as
+     * independent copies and refreshed after changes.
+     */
+    public void testParsedViews() {
+        Reference ref = new Reference("http://host:8182/a/b?x=1&y=2");
+        ref.setBaseRef("http://host:8182/a");
+
+        assertEquals("/a/b", ref.getPath());
+        assertEquals("/b", ref.getRemainingPart(false, false));
+        assertEquals("/b?x=1&y=2", ref.getRemainingPart());
+        assertEquals(8182, ref.getHostPort());
+
+        // Returned lists and forms are independent copies
+        List<String> segments = ref.getSegments();
+        segments.add("c");
+        assertEquals(2, ref.getSegments().size());
+
+        Form form = ref.getQueryAsForm();
+        form.add("z", "3");
+        form.get(0).setValue("0");
+        assertEquals(2, ref.getQueryAsForm().size());
+        assertEquals("1", ref.getQueryAsForm().getFirstValue("x"));
+
+        // Cached views are refreshed after changes
+        ref.setPath("/a/c/d");
+        ref.setQuery("w=4");
+        ref.setHostPort(8080);
+        ref.setBaseRef("http://host:8080/a/c");
+
+        assertEquals("/a/c/d", ref.getPath());
+        assertEquals(3, ref.getSegments().size());
+        assertEquals("4", ref.getQueryAsForm().getFirstValue("w"));
+        assertEquals(8080, ref.getHostPort());
+        assertEquals("/d", ref.getRemainingPart(false, false));
+        assertEquals("/d?w=4", ref.getRemainingPart());
+    }
+
     /**
      * Test port getting/setting.
      */
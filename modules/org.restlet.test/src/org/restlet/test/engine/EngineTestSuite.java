@@ -37,9 +37,16 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.restlet.test.engine.connector.AsynchroneTestCase;
+import org.restlet.test.engine.connector.ClientPipeliningTestCase;
+import org.restlet.test.engine.connector.FileTransferTestCase;
+import org.restlet.test.engine.connector.HostConnectionPoolTestCase;
 import org.restlet.test.engine.connector.HttpInboundRequestTestCase;
+import org.restlet.test.engine.connector.ServerSelectorControllerTestCase;
+import org.restlet.test.engine.connector.WorkerModeTestCase;
 import org.restlet.test.engine.io.BioUtilsTestCase;
 import org.restlet.test.engine.io.BufferTestCase;
+import org.restlet.test.engine.io.LineBufferTestCase;
+import org.restlet.test.engine.io.ReadableDeflatingChannelTestCase;
 import org.restlet.test.engine.io.ReaderInputStreamTestCase;
 import org.restlet.test.engine.util.Base64TestCase;
 
@@ -66,13 +73,22 @@ public class EngineTestSuite extends TestSuite {
         addTestSuite(AnnotationUtilsTestCase.class);
         addTestSuite(Base64TestCase.class);
         addTestSuite(BufferTestCase.class);
+        addTestSuite(LineBufferTestCase.class);
+        addTestSuite(ReadableDeflatingChannelTestCase.class);
         addTestSuite(BioUtilsTestCase.class);
         addTestSuite(CookiesTestCase.class);
         addTestSuite(ContentTypeTestCase.class);
         addTestSuite(HeaderTestCase.class);
+        addTestSuite(HeaderCacheTestCase.class);
+        addTestSuite(FileCacheTestCase.class);
         addTestSuite(HttpCallTestCase.class);
         addTestSuite(AsynchroneTestCase.class);
         addTestSuite(HttpInboundRequestTestCase.class);
+        addTestSuite(ServerSelectorControllerTestCase.class);
+        addTestSuite(WorkerModeTestCase.class);
+        addTestSuite(ClientPipeliningTestCase.class);
+        addTestSuite(HostConnectionPoolTestCase.class);
+        addTestSuite(FileTransferTestCase.class);
         addTestSuite(ImmutableDateTestCase.class);
         addTestSuite(UnclosableInputStreamTestCase.class);
         addTestSuite(UnclosableOutputStreamTestCase.class);
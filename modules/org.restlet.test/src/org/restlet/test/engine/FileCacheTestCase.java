@@ -0,0 +1,127 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+package org.restlet.test.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.FileCache;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link FileCache} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileCacheTestCase extends RestletTestCase {
+
+    private File testDir;
+
+    private void create(File file) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("test".getBytes("US-ASCII"));
+        fos.close();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "FileCacheTestCase" + new Date().getTime());
+        new File(this.testDir, "sub").mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BioUtils.delete(this.testDir, true);
+        super.tearDown();
+    }
+
+    public void testInvalidate() throws Exception {
+        File sub = new File(this.testDir, "sub");
+        File a = new File(sub, "a.txt");
+        File b = new File(sub, "b.txt");
+        File c = new File(this.testDir, "c.txt");
+        create(a);
+        create(c);
+
+        FileCache cache = new FileCache(60000);
+        assertTrue(cache.exists(a));
+        assertFalse(cache.exists(b));
+        assertTrue(cache.exists(c));
+        assertTrue(cache.isDirectory(sub));
+        assertTrue(cache.isDirectory(this.testDir));
+        assertEquals(5, cache.getMisses());
+
+        // Changes made outside of the cache are visible after invalidation
+        create(b);
+        assertFalse(cache.exists(b));
+        cache.invalidate(b);
+        assertTrue(cache.exists(b));
+        assertEquals(6, cache.getMisses());
+
+        // Siblings and ancestors are checked again, other entries are kept
+        assertTrue(cache.exists(a));
+        assertTrue(cache.isDirectory(sub));
+        assertTrue(cache.isDirectory(this.testDir));
+        assertEquals(9, cache.getMisses());
+        assertTrue(cache.exists(c));
+        assertEquals(9, cache.getMisses());
+    }
+
+    public void testMaxEntries() throws Exception {
+        File a = new File(this.testDir, "a.txt");
+        File b = new File(this.testDir, "b.txt");
+        File c = new File(this.testDir, "c.txt");
+
+        FileCache cache = new FileCache(60000, 2);
+        cache.exists(a);
+        cache.exists(b);
+        cache.exists(c);
+        assertEquals(3, cache.getMisses());
+        cache.exists(c);
+        assertEquals(1, cache.getHits());
+        cache.exists(a);
+        cache.exists(b);
+        assertTrue(cache.getMisses() > 3);
+
+        // Evicted entries are no longer indexed
+        create(c);
+        cache.invalidate(c);
+        assertTrue(cache.exists(c));
+    }
+
+}
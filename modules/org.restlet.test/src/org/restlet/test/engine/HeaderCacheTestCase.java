@@ -0,0 +1,89 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Dimension;
+import org.restlet.data.MediaType;
+import org.restlet.engine.header.HeaderCache;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link HeaderCache} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeaderCacheTestCase extends RestletTestCase {
+
+    public void testContentType() {
+        String value = HeaderCache.getContentType(MediaType.APPLICATION_JSON,
+                CharacterSet.UTF_8);
+        assertEquals("application/json; charset=UTF-8", value);
+        assertSame(value, HeaderCache.getContentType(
+                MediaType.APPLICATION_JSON, CharacterSet.UTF_8));
+        assertEquals("text/plain",
+                HeaderCache.getContentType(MediaType.TEXT_PLAIN, null));
+        assertEquals("text/plain; charset=ISO-8859-1",
+                HeaderCache.getContentType(MediaType.TEXT_PLAIN,
+                        CharacterSet.ISO_8859_1));
+    }
+
+    public void testDimensions() {
+        assertNull(HeaderCache.getDimensions(new ArrayList<Dimension>()));
+        assertEquals("Accept-Charset, Accept-Encoding",
+                HeaderCache.getDimensions(Arrays.asList(
+                        Dimension.CHARACTER_SET, Dimension.ENCODING)));
+        assertEquals("Accept-Encoding, Accept-Charset",
+                HeaderCache.getDimensions(Arrays.asList(Dimension.ENCODING,
+                        Dimension.CHARACTER_SET)));
+        assertEquals("*", HeaderCache.getDimensions(Arrays.asList(
+                Dimension.ENCODING, Dimension.TIME)));
+    }
+
+    public void testLine() throws Exception {
+        byte[] line = HeaderCache.getLine(HeaderConstants.HEADER_CONTENT_TYPE,
+                "application/json");
+        assertEquals("Content-Type: application/json\r\n", new String(line,
+                "ISO-8859-1"));
+        assertSame(line, HeaderCache.getLine(
+                HeaderConstants.HEADER_CONTENT_TYPE, "application/json"));
+        assertNull(HeaderCache.getLine(HeaderConstants.HEADER_DATE,
+                "Tue, 15 Nov 1994 08:12:31 GMT"));
+    }
+
+}
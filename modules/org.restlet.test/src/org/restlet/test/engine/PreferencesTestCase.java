@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.restlet.data.ClientInfo;
 import org.restlet.data.MediaType;
 import org.restlet.data.Preference;
 import org.restlet.engine.header.PreferenceReader;
@@ -78,6 +79,57 @@ public class PreferencesTestCase extends RestletTestCase {
         }
     }
 
+    /**
+     * Tests the sharing of parsed preferences between client infos.
+     */
+    public void testCachedParsing() {
+        String header = "text/html;level=1;q=0.8, application/x-restlet-pref";
+        ClientInfo clientInfo1 = new ClientInfo();
+        ClientInfo clientInfo2 = new ClientInfo();
+        PreferenceReader.addMediaTypes(header, clientInfo1);
+        PreferenceReader.addMediaTypes(header, clientInfo2);
+
+        List<Preference<MediaType>> prefs1 = clientInfo1
+                .getAcceptedMediaTypes();
+        List<Preference<MediaType>> prefs2 = clientInfo2
+                .getAcceptedMediaTypes();
+        assertEquals(2, prefs1.size());
+        assertEquals(2, prefs2.size());
+        assertEquals("level", prefs1.get(0).getMetadata().getParameters()
+                .get(0).getName());
+        assertEquals(0.8F, prefs1.get(0).getQuality());
+        assertEquals(1.0F, prefs1.get(1).getQuality());
+
+        // The metadata are shared, not the preferences
+        assertSame(prefs1.get(0).getMetadata(), prefs2.get(0).getMetadata());
+        assertSame(prefs1.get(1).getMetadata(), prefs2.get(1).getMetadata());
+        assertNotSame(prefs1.get(0), prefs2.get(0));
+
+        prefs1.get(0).setQuality(0.1F);
+        prefs1.clear();
+        assertEquals(0.8F, prefs2.get(0).getQuality());
+
+        ClientInfo clientInfo3 = new ClientInfo();
+        PreferenceReader.addMediaTypes(header, clientInfo3);
+        assertEquals(2, clientInfo3.getAcceptedMediaTypes().size());
+        assertEquals(0.8F, clientInfo3.getAcceptedMediaTypes().get(0)
+                .getQuality());
+
+        // Unique headers don't prevent later headers from being cached
+        for (int i = 0; i < 1000; i++) {
+            PreferenceReader.addMediaTypes("text/x-unique-" + i,
+                    new ClientInfo());
+        }
+
+        String lateHeader = "text/plain;format=late";
+        ClientInfo clientInfo4 = new ClientInfo();
+        ClientInfo clientInfo5 = new ClientInfo();
+        PreferenceReader.addMediaTypes(lateHeader, clientInfo4);
+        PreferenceReader.addMediaTypes(lateHeader, clientInfo5);
+        assertSame(clientInfo4.getAcceptedMediaTypes().get(0).getMetadata(),
+                clientInfo5.getAcceptedMediaTypes().get(0).getMetadata());
+    }
+
     /**
      * Tests the preferences parsing.
      */
@@ -0,0 +1,387 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.connector.HttpClientHelper;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test for the pipelining of requests by the internal HTTP client.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientPipeliningTestCase extends RestletTestCase {
+
+    /**
+     * Raw HTTP server recording the requests received on each connection. The
+     * response to the first request is only written once a second request
+     * has been received, or after a delay.
+     */
+    private static class RawServer extends Thread {
+
+        /** Indicates if the first connection is closed after one response. */
+        private final boolean closing;
+
+        /** The paths of the requests received, per connection. */
+        private final List<List<String>> connections;
+
+        /** Counted down once the first request has been received. */
+        private final CountDownLatch firstReceived;
+
+        /** Indicates if the second request was received before a response. */
+        private volatile boolean pipelined;
+
+        /** The server socket. */
+        private final ServerSocket serverSocket;
+
+        public RawServer(boolean closing) throws IOException {
+            this.closing = closing;
+            this.connections = new CopyOnWriteArrayList<List<String>>();
+            this.firstReceived = new CountDownLatch(1);
+            this.serverSocket = new ServerSocket(0);
+            setDaemon(true);
+        }
+
+        public void close() throws IOException {
+            this.serverSocket.close();
+        }
+
+        public int getPort() {
+            return this.serverSocket.getLocalPort();
+        }
+
+        /**
+         * Reads the head of a request and returns its path.
+         * 
+         * @param in
+         *            The input stream.
+         * @return The path or null if the connection was closed.
+         * @throws IOException
+         */
+        private String readPath(InputStream in) throws IOException {
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            String result = null;
+            int end = 0;
+            int b = in.read();
+
+            while ((b != -1) && (end < 4)) {
+                head.write(b);
+                end = ((b == '\r') || (b == '\n')) ? end + 1 : 0;
+
+                if (end < 4) {
+                    b = in.read();
+                }
+            }
+
+            if (end == 4) {
+                result = head.toString("US-ASCII").split(" ")[1];
+            }
+
+            return result;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean first = true;
+
+                while (true) {
+                    Socket socket = this.serverSocket.accept();
+                    List<String> paths = new CopyOnWriteArrayList<String>();
+                    this.connections.add(paths);
+
+                    try {
+                        InputStream in = socket.getInputStream();
+                        OutputStream out = socket.getOutputStream();
+                        String path = readPath(in);
+
+                        if (first && (path != null)) {
+                            first = false;
+                            paths.add(path);
+                            this.firstReceived.countDown();
+                            socket.setSoTimeout(10000);
+                            String next = null;
+
+                            try {
+                                next = readPath(in);
+                            } catch (SocketTimeoutException ste) {
+                                // Not pipelined
+                            }
+
+                            socket.setSoTimeout(0);
+                            this.pipelined = (next != null);
+                            write(out, path);
+
+                            if (this.closing && (next != null)) {
+                                paths.add(next);
+                                next = null;
+                            }
+
+                            path = next;
+                        }
+
+                        while (path != null) {
+                            paths.add(path);
+                            write(out, path);
+                            path = readPath(in);
+                        }
+                    } finally {
+                        socket.close();
+                    }
+                }
+            } catch (IOException e) {
+                // Server socket closed
+            }
+        }
+
+        /**
+         * Writes a response whose entity is the request path.
+         * 
+         * @param out
+         *            The output stream.
+         * @param path
+         *            The request path.
+         * @throws IOException
+         */
+        private void write(OutputStream out, String path) throws IOException {
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n"
+                    + "Content-Length: " + path.length() + "\r\n\r\n" + path)
+                    .getBytes("US-ASCII"));
+            out.flush();
+        }
+    }
+
+    private Client client;
+
+    private Server server;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.server = new Server(new Context(), Protocol.HTTP, 0,
+                new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        response.setEntity("Hello "
+                                + request.getResourceRef().getPath(),
+                                MediaType.TEXT_PLAIN);
+                    }
+                });
+        this.server.start();
+
+        this.client = new Client(new Context(), Protocol.HTTP);
+        this.client.getContext().getParameters()
+                .add("pipeliningConnections", "true");
+        this.client.getContext().getParameters()
+                .add("maxConnectionsPerHost", "2");
+        this.client.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.client.stop();
+        this.server.stop();
+        this.client = null;
+        this.server = null;
+        super.tearDown();
+    }
+
+    public void testConcurrentRequests() throws Exception {
+        final int threads = 8;
+        final int requests = 10;
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < requests; i++) {
+                            String path = "/t" + thread + "/" + i;
+                            Response response = client.handle(new Request(
+                                    Method.GET, "http://localhost:"
+                                            + server.getActualPort() + path));
+
+                            if (!Status.SUCCESS_OK
+                                    .equals(response.getStatus())
+                                    || !("Hello " + path).equals(response
+                                            .getEntity().getText())) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        assertTrue(latch.await(60, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+    }
+
+    /**
+     * Returns the entity of a successful response, or its status.
+     * 
+     * @param response
+     *            The response.
+     * @return The entity or the status.
+     */
+    private String getText(Response response) {
+        String result = response.getStatus().toString();
+
+        if (Status.SUCCESS_OK.equals(response.getStatus())) {
+            try {
+                result = response.getEntity().getText();
+            } catch (IOException e) {
+                result = e.getMessage();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sends a request in a new thread, then a second one once the first one
+     * has been received by the raw server. Each entity is read as soon as its
+     * response is received, as the next response can only be read afterwards.
+     * 
+     * @param server
+     *            The raw server.
+     * @return The entities of the first and second responses, or their
+     *         status if not successful.
+     * @throws Exception
+     */
+    private List<String> handlePipelined(RawServer server) throws Exception {
+        final String uri = "http://localhost:" + server.getPort();
+        final List<String> first = new CopyOnWriteArrayList<String>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                first.add(getText(client.handle(new Request(Method.GET, uri
+                        + "/a"))));
+            }
+        };
+        thread.start();
+        assertTrue(server.firstReceived.await(10, TimeUnit.SECONDS));
+        String second = getText(client.handle(new Request(Method.GET, uri
+                + "/b")));
+        thread.join(30000);
+        List<String> result = new ArrayList<String>();
+        result.addAll(first);
+        result.add(second);
+        return result;
+    }
+
+    public void testPipelinable() throws Exception {
+        HttpClientHelper helper = new HttpClientHelper(null);
+        assertTrue(helper.isPipelinable(new Request(Method.GET,
+                "http://localhost/")));
+        assertTrue(helper.isPipelinable(new Request(Method.DELETE,
+                "http://localhost/")));
+        assertFalse(helper.isPipelinable(new Request(Method.POST,
+                "http://localhost/")));
+        assertFalse(helper.isPipelinable(new Request(Method.PUT,
+                "http://localhost/", new StringRepresentation("entity"))));
+    }
+
+    public void testPipelinedWrite() throws Exception {
+        RawServer server = new RawServer(false);
+        server.start();
+
+        try {
+            List<String> responses = handlePipelined(server);
+            assertEquals(2, responses.size());
+            assertEquals("/a", responses.get(0));
+            assertEquals("/b", responses.get(1));
+
+            // The second request was written before the first response
+            assertTrue(server.pipelined);
+            assertEquals(1, server.connections.size());
+            assertEquals("/b", server.connections.get(0).get(1));
+        } finally {
+            server.close();
+        }
+    }
+
+    public void testServerClose() throws Exception {
+        RawServer server = new RawServer(true);
+        server.start();
+
+        try {
+            List<String> responses = handlePipelined(server);
+            assertEquals(2, responses.size());
+            assertEquals("/a", responses.get(0));
+            assertEquals("/b", responses.get(1));
+
+            // The pipelined request was sent again on a new connection
+            assertTrue(server.pipelined);
+            assertEquals(2, server.connections.size());
+            assertEquals("/b", server.connections.get(0).get(1));
+            assertEquals("/b", server.connections.get(1).get(0));
+        } finally {
+            server.close();
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.restlet.Application;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Protocol;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.FileRepresentation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test for the direct transfer of file entities and small entities by
+ * the internal HTTP server.
+ * 
+ * @author Jerome Louvel
+ */
+public class FileTransferTestCase extends RestletTestCase {
+
+    private byte[] content;
+
+    private File file;
+
+    private Server server;
+
+    /**
+     * Reads the content sent by the server for a given URI.
+     * 
+     * @param path
+     *            The resource path.
+     * @param range
+     *            The optional range header value.
+     * @return The content sent by the server.
+     */
+    private byte[] get(String path, String range) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:" + server.getActualPort() + path)
+                .openConnection();
+
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+
+        InputStream is = connection.getInputStream();
+        byte[] result = new byte[connection.getContentLength()];
+        int offset = 0;
+        int read = 0;
+
+        while ((offset < result.length)
+                && ((read = is.read(result, offset, result.length - offset)) != -1)) {
+            offset += read;
+        }
+
+        is.close();
+        assertEquals(result.length, offset);
+        return result;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.content = new byte[3 * 1024 * 1024 + 17];
+
+        for (int i = 0; i < content.length; i++) {
+            this.content[i] = (byte) (i % 251);
+        }
+
+        this.file = File.createTempFile("fileTransfer", ".bin");
+        FileOutputStream fos = new FileOutputStream(this.file);
+        fos.write(this.content);
+        fos.close();
+
+        Application application = new Application() {
+            @Override
+            public Restlet createInboundRoot() {
+                return new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        String path = request.getResourceRef().getPath();
+
+                        if ("/string".equals(path)) {
+                            response.setEntity(new StringRepresentation(
+                                    "{\"hello\": \"world\"}",
+                                    MediaType.APPLICATION_JSON));
+                        } else if ("/bytes".equals(path)) {
+                            response.setEntity(new ByteArrayRepresentation(
+                                    content, 10, 200,
+                                    MediaType.APPLICATION_OCTET_STREAM));
+                        } else {
+                            response.setEntity(new FileRepresentation(file,
+                                    MediaType.APPLICATION_OCTET_STREAM));
+                        }
+                    }
+                };
+            }
+        };
+        this.server = new Server(Protocol.HTTP, 0, application);
+        this.server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.server.stop();
+        this.file.delete();
+        this.server = null;
+        this.file = null;
+        this.content = null;
+        super.tearDown();
+    }
+
+    public void testRanges() throws Exception {
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 100, 1100),
+                get("/file", "bytes=100-1099")));
+        assertTrue(Arrays.equals(
+                Arrays.copyOfRange(content, content.length - 17,
+                        content.length), get("/file", "bytes=-17")));
+        assertTrue(Arrays.equals(
+                Arrays.copyOfRange(content, 2000000, content.length),
+                get("/file", "bytes=2000000-")));
+    }
+
+    public void testSmallEntities() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"hello\": \"world\"}",
+                    new String(get("/string", null), "ISO-8859-1"));
+            assertTrue(Arrays.equals(Arrays.copyOfRange(content, 10, 210),
+                    get("/bytes", null)));
+        }
+    }
+
+    public void testTransfer() throws Exception {
+        assertTrue(Arrays.equals(content, get("/file", null)));
+        assertTrue(Arrays.equals(content, get("/file", null)));
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.net.InetSocketAddress;
+
+import org.restlet.engine.connector.HostConnectionPool;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the {@link HostConnectionPool} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class HostConnectionPoolTestCase extends RestletTestCase {
+
+    public void testReserve() {
+        HostConnectionPool pool = new HostConnectionPool(
+                new InetSocketAddress("localhost", 8182), -1);
+        assertTrue(pool.reserve(2));
+        assertTrue(pool.reserve(2));
+        assertFalse(pool.reserve(2));
+        assertEquals(2, pool.getConnectionsCount());
+        assertEquals(2, pool.getActiveCount());
+        assertNull(pool.checkout());
+        pool.unreserve();
+        assertTrue(pool.reserve(-1));
+        assertEquals(2, pool.getConnectionsCount());
+    }
+
+    public void testRetire() {
+        HostConnectionPool pool = new HostConnectionPool(
+                new InetSocketAddress("localhost", 8182), -1);
+        assertTrue(pool.reserve(-1));
+        assertFalse(pool.retire());
+        assertFalse(pool.isRetired());
+
+        pool.unreserve();
+        assertTrue(pool.retire());
+        assertTrue(pool.isRetired());
+        assertEquals(0, pool.getConnectionsCount());
+        assertFalse(pool.reserve(-1));
+        assertFalse(pool.retire());
+    }
+
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.Protocol;
+import org.restlet.engine.Engine;
+import org.restlet.engine.connector.HttpServerHelper;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the worker modes of the internal connectors.
+ * 
+ * @author Jerome Louvel
+ */
+public class WorkerModeTestCase extends RestletTestCase {
+
+    /**
+     * Server helper exposing the worker service of the "virtual" mode with a
+     * given number of permits, whatever the JVM version.
+     */
+    private static class VirtualHelper extends HttpServerHelper {
+
+        /** The permits limiting the concurrent calls. */
+        private final Semaphore permits;
+
+        public VirtualHelper(int maxVirtualThreads) {
+            super(null);
+            this.permits = new Semaphore(maxVirtualThreads);
+        }
+
+        @Override
+        public ThreadPoolExecutor createVirtualWorkerService() {
+            return super.createVirtualWorkerService();
+        }
+
+        @Override
+        protected Semaphore getWorkerPermits() {
+            return this.permits;
+        }
+    }
+
+    /**
+     * Indicates if the given thread is a virtual thread.
+     * 
+     * @param thread
+     *            The thread to test.
+     * @return True if the thread is a virtual thread.
+     */
+    private static boolean isVirtual(Thread thread) throws Exception {
+        boolean result = false;
+
+        if (Engine.isVirtualThreadSupported()) {
+            result = (Boolean) Thread.class.getMethod("isVirtual").invoke(
+                    thread);
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts a server in the given worker mode and checks its worker service.
+     * 
+     * @param workerMode
+     *            The worker mode.
+     * @param virtual
+     *            Indicates if virtual worker threads are expected.
+     */
+    private void testWorkerMode(String workerMode, boolean virtual)
+            throws Exception {
+        Server server = new Server(new Context(), Protocol.HTTP, 0,
+                new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                    }
+                });
+        server.getContext().getParameters().add("workerMode", workerMode);
+        server.getContext().getParameters().add("minThreads", "2");
+        server.start();
+
+        try {
+            HttpServerHelper hsh = (HttpServerHelper) server.getContext()
+                    .getAttributes().get("org.restlet.engine.helper");
+            assertEquals(virtual, hsh.isVirtualWorkers());
+
+            ThreadPoolExecutor workerService = hsh.getWorkerService();
+            assertNotNull(workerService);
+
+            if (virtual) {
+                assertEquals(0, workerService.getCorePoolSize());
+                assertEquals(Integer.MAX_VALUE,
+                        workerService.getMaximumPoolSize());
+            } else {
+                assertEquals(hsh.getMinThreads(),
+                        workerService.getCorePoolSize());
+                assertEquals(hsh.getMaxThreads(),
+                        workerService.getMaximumPoolSize());
+            }
+
+            Thread worker = workerService.submit(new Callable<Thread>() {
+                public Thread call() throws Exception {
+                    return Thread.currentThread();
+                }
+            }).get(5, TimeUnit.SECONDS);
+            assertEquals(virtual, isVirtual(worker));
+        } finally {
+            server.stop();
+        }
+    }
+
+    public void testPoolMode() throws Exception {
+        testWorkerMode("pool", false);
+    }
+
+    public void testVirtualMode() throws Exception {
+        // Falls back to the pool mode on older JVMs
+        testWorkerMode("virtual", Engine.isVirtualThreadSupported());
+    }
+
+    public void testVirtualWorkerLimit() throws Exception {
+        VirtualHelper helper = new VirtualHelper(2);
+        ThreadPoolExecutor workerService = helper.createVirtualWorkerService();
+        final AtomicInteger rejected = new AtomicInteger();
+        workerService
+                .setRejectedExecutionHandler(new RejectedExecutionHandler() {
+                    public void rejectedExecution(Runnable r,
+                            ThreadPoolExecutor executor) {
+                        rejected.incrementAndGet();
+                    }
+                });
+
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            public void run() {
+                started.countDown();
+
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+
+        try {
+            workerService.execute(task);
+            workerService.execute(task);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(0, helper.getWorkerPermits().availablePermits());
+
+            // Rejected before any thread is created
+            workerService.execute(task);
+            assertEquals(1, rejected.get());
+            assertEquals(2, workerService.getPoolSize());
+
+            // Permits are given back once the calls complete
+            release.countDown();
+
+            for (int i = 0; (i < 50)
+                    && (helper.getWorkerPermits().availablePermits() < 2); i++) {
+                Thread.sleep(100);
+            }
+
+            assertEquals(2, helper.getWorkerPermits().availablePermits());
+            assertTrue(workerService.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return Boolean.TRUE;
+                }
+            }).get(5, TimeUnit.SECONDS));
+            assertEquals(1, rejected.get());
+        } finally {
+            release.countDown();
+            workerService.shutdownNow();
+        }
+    }
+
+}
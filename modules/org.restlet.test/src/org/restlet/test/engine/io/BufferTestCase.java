@@ -34,8 +34,10 @@
 package org.restlet.test.engine.io;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.restlet.engine.io.Buffer;
+import org.restlet.engine.io.BufferPool;
 import org.restlet.engine.io.BufferState;
 import org.restlet.test.RestletTestCase;
 
@@ -73,4 +75,34 @@ public class BufferTestCase extends RestletTestCase {
         buffer.drain(sb, BufferState.FILLING);
         assertEquals("Remaining buffer", "ijklmnopqrstuvwxyz", sb.toString());
     }
+
+    public void testRelease() throws IOException {
+        BufferPool pool = new BufferPool(1024, true, 4);
+        Buffer buffer = new Buffer(pool);
+        assertTrue(buffer.isReleased());
+        assertTrue(buffer.isEmpty());
+        assertEquals(1024, buffer.capacity());
+
+        buffer.fill("abcdef");
+        assertFalse(buffer.isReleased());
+        ByteBuffer borrowed = buffer.getBytes();
+        assertTrue(borrowed.isDirect());
+        assertEquals(1024, borrowed.capacity());
+
+        // Can't be released while not empty
+        buffer.release();
+        assertFalse(buffer.isReleased());
+
+        buffer.flip();
+        StringBuilder sb = new StringBuilder();
+        buffer.drain(sb, BufferState.FILLING);
+        assertEquals("abcdef", sb.toString());
+        buffer.release();
+        assertTrue(buffer.isReleased());
+        assertTrue(buffer.isFilling());
+
+        // The same byte buffer is lent again
+        buffer.fill("ghi");
+        assertSame(borrowed, buffer.getBytes());
+    }
 }
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.LazyHeader;
+import org.restlet.engine.io.BufferState;
+import org.restlet.engine.io.LineBuffer;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link LineBuffer} and {@link LazyHeader} classes.
+ * 
+ * @author Jerome Louvel
+ */
+public class LineBufferTestCase extends RestletTestCase {
+
+    private static ByteBuffer bytes(String value, boolean direct) {
+        ByteBuffer result = direct ? ByteBuffer.allocateDirect(value.length())
+                : ByteBuffer.allocate(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            result.put((byte) value.charAt(i));
+        }
+
+        result.flip();
+        return result;
+    }
+
+    private void testDrain(boolean direct) throws IOException {
+        LineBuffer line = new LineBuffer(4);
+        ByteBuffer source = bytes("GET / HTTP/1.1\r\nHost: loc", direct);
+        BufferState state = line.drain(source, BufferState.IDLE);
+        assertEquals(BufferState.DRAINING, state);
+        assertEquals("GET / HTTP/1.1", line.getLine());
+        assertSame("GET", line.getString(0, 3, "POST", "GET"));
+
+        line.nextLine();
+        state = line.drain(source, BufferState.IDLE);
+        assertEquals(BufferState.FILLING, state);
+
+        // Line end split across two reads
+        state = line.drain(bytes("alhost\r", direct), state);
+        assertEquals(BufferState.FILLED, state);
+        state = line.drain(bytes("\n\r\n", direct), state);
+        assertEquals(BufferState.DRAINING, state);
+        assertEquals("Host: localhost", line.getLine());
+        assertEquals(14, line.getLineStart());
+    }
+
+    public void testDrainArray() throws IOException {
+        testDrain(false);
+    }
+
+    public void testDrainDirect() throws IOException {
+        testDrain(true);
+    }
+
+    public void testIndexOfSpace() throws IOException {
+        LineBuffer line = new LineBuffer(32);
+        line.drain(bytes("HTTP/1.1\t200 OK\r\n", false), BufferState.IDLE);
+        assertEquals(8, line.indexOfSpace(0));
+        assertEquals(12, line.indexOfSpace(9));
+        assertEquals(-1, line.indexOfSpace(13));
+    }
+
+    public void testLazyHeader() throws IOException {
+        byte[] source = "Content-Type: text/plainx-custom: abc"
+                .getBytes("ISO-8859-1");
+        assertSame(HeaderConstants.HEADER_CONTENT_TYPE,
+                LazyHeader.getName(source, 0, 12));
+        assertEquals("x-custom", LazyHeader.getName(source, 24, 32));
+
+        LazyHeader header = new LazyHeader("Content-Type", source, 14, 24);
+        assertEquals("text/plain", header.getValue());
+        assertSame(header.getValue(), header.getValue());
+        header.setValue("text/html");
+        assertEquals("text/html", header.getValue());
+
+        assertSame("content-length",
+                LazyHeader.getName("content-length".getBytes("ISO-8859-1"),
+                        0, 14));
+    }
+
+    public void testMissingLineFeed() {
+        LineBuffer line = new LineBuffer(16);
+
+        try {
+            line.drain(bytes("abc\rd", false), BufferState.IDLE);
+            fail("Line feed should be required");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    public void testShare() throws IOException {
+        LineBuffer line = new LineBuffer(16);
+        line.drain(bytes("abc\r\n", false), BufferState.IDLE);
+        byte[] shared = line.share();
+        line.clear();
+        line.drain(bytes("def\r\n", false), BufferState.IDLE);
+        assertNotSame(shared, line.getBytes());
+        assertEquals("abc", LineBuffer.getString(shared, 0, 3));
+
+        // Unshared bytes are reused
+        byte[] reused = line.getBytes();
+        line.clear();
+        line.drain(bytes("ghi\r\n", false), BufferState.IDLE);
+        assertSame(reused, line.getBytes());
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.restlet.data.Encoding;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.ReadableDeflatingChannel;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link ReadableDeflatingChannel} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class ReadableDeflatingChannelTestCase extends RestletTestCase {
+
+    /**
+     * Source channel that has no bytes available every other read, like a non
+     * blocking channel.
+     */
+    private static class SlowChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel source;
+
+        private boolean available;
+
+        public SlowChannel(byte[] content) {
+            this.source = Channels.newChannel(new ByteArrayInputStream(
+                    content));
+            this.available = false;
+        }
+
+        public void close() throws IOException {
+            this.source.close();
+        }
+
+        public boolean isOpen() {
+            return this.source.isOpen();
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            this.available = !this.available;
+
+            if (!this.available) {
+                return 0;
+            }
+
+            ByteBuffer slice = ByteBuffer.allocate(Math.min(100,
+                    dst.remaining()));
+            int result = this.source.read(slice);
+
+            if (result > 0) {
+                slice.flip();
+                dst.put(slice);
+            }
+
+            return result;
+        }
+    }
+
+    private static byte[] getContent(int length) {
+        byte[] result = new byte[length];
+        Random random = new Random(length);
+
+        for (int i = 0; i < length; i++) {
+            // Mix compressible and random bytes
+            result[i] = (byte) (((i / 1000) % 2 == 0) ? 'a' + (i % 7) : random
+                    .nextInt());
+        }
+
+        return result;
+    }
+
+    private static byte[] readAll(ReadableByteChannel channel, int bufferSize)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        int zeroReads = 0;
+        int count;
+
+        while ((count = channel.read(buffer)) != -1) {
+            if (count == 0) {
+                assertTrue(++zeroReads < 100000);
+            }
+
+            buffer.flip();
+            baos.write(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+        }
+
+        channel.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        InputStream gis = new GZIPInputStream(new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        BioUtils.copy(gis, baos);
+        return baos.toByteArray();
+    }
+
+    public void testDeflate() throws IOException {
+        for (int length : new int[] { 0, 1, 1000, 50000 }) {
+            byte[] content = getContent(length);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            DeflaterOutputStream dos = new DeflaterOutputStream(expected);
+            dos.write(content);
+            dos.finish();
+
+            for (int bufferSize : new int[] { 1, 7, 8192 }) {
+                byte[] actual = readAll(new ReadableDeflatingChannel(
+                        Channels.newChannel(new ByteArrayInputStream(content)),
+                        false), bufferSize);
+                assertTrue(Arrays.equals(expected.toByteArray(), actual));
+            }
+        }
+    }
+
+    public void testEncodeRepresentation() throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 2000; i++) {
+            sb.append("Line ").append(i).append('\n');
+        }
+
+        String text = sb.toString();
+        EncodeRepresentation encoded = new EncodeRepresentation(
+                Encoding.GZIP, new StringRepresentation(text));
+        assertTrue(encoded.getChannel() instanceof ReadableDeflatingChannel);
+        assertEquals(text,
+                new String(gunzip(readAll(encoded.getChannel(), 4096)),
+                        "US-ASCII"));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        BioUtils.copy(encoded.getStream(), baos);
+        assertEquals(text,
+                new String(gunzip(baos.toByteArray()), "US-ASCII"));
+    }
+
+    public void testGzip() throws IOException {
+        for (int length : new int[] { 0, 1, 1000, 50000 }) {
+            byte[] content = getContent(length);
+
+            for (int bufferSize : new int[] { 1, 7, 8192 }) {
+                byte[] actual = readAll(new ReadableDeflatingChannel(
+                        Channels.newChannel(new ByteArrayInputStream(content)),
+                        true), bufferSize);
+                assertTrue(Arrays.equals(content, gunzip(actual)));
+            }
+
+            // Source without bytes available every other read
+            byte[] actual = readAll(new ReadableDeflatingChannel(
+                    new SlowChannel(content), true), 512);
+            assertTrue(Arrays.equals(content, gunzip(actual)));
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.representation;
+
+import org.restlet.data.MediaType;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test case for the {@link ByteArrayRepresentation} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class ByteArrayRepresentationTestCase extends RestletTestCase {
+
+    public void testByteBuffer() throws Exception {
+        byte[] bytes = "abcdefgh".getBytes("US-ASCII");
+        ByteArrayRepresentation bar = new ByteArrayRepresentation(bytes, 2, 4);
+        java.nio.ByteBuffer buffer = bar.getByteBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(4, buffer.remaining());
+        assertEquals('c', buffer.get());
+
+        // The buffer is independent of the content stream
+        assertEquals("cdef", bar.getText());
+        assertEquals(4, bar.getByteBuffer().remaining());
+    }
+
+    public void testSize() throws Exception {
+        byte[] bytes = "abcdefgh".getBytes("US-ASCII");
+        assertEquals(8, new ByteArrayRepresentation(bytes).getSize());
+        assertEquals(4, new ByteArrayRepresentation(bytes, 2, 4).getSize());
+        assertEquals(4, new ByteArrayRepresentation(bytes, 2, 4,
+                MediaType.TEXT_PLAIN).getSize());
+        assertEquals(8, new ByteArrayRepresentation(bytes,
+                MediaType.TEXT_PLAIN).getSize());
+
+        // An explicit expected size is kept
+        assertEquals(Representation.UNKNOWN_SIZE, new ByteArrayRepresentation(
+                bytes, 2, 4, MediaType.TEXT_PLAIN, Representation.UNKNOWN_SIZE)
+                .getSize());
+    }
+
+}
@@ -33,8 +33,15 @@
 
 package org.restlet.test.representation;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.restlet.data.MediaType;
 import org.restlet.data.Range;
 import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.test.RestletTestCase;
 
@@ -67,4 +74,55 @@ public class RangeRepresentationTestCase extends RestletTestCase {
         assertEquals("67890", rr.getText());
     }
 
+    public void testFileChannel() throws Exception {
+        File file = File.createTempFile("rangeRepresentation", ".txt");
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("1234567890".getBytes());
+        fos.close();
+
+        try {
+            FileRepresentation fr = new FileRepresentation(file,
+                    MediaType.TEXT_PLAIN);
+            RangeRepresentation rr = new RangeRepresentation(fr);
+            rr.setRange(new Range(2, 5));
+            assertEquals("34567", read(rr.getChannel()));
+
+            rr.setRange(new Range(Range.INDEX_LAST, 3));
+            assertEquals("890", read(rr.getChannel()));
+
+            rr.setRange(new Range(5, Range.SIZE_MAX));
+            assertEquals("67890", read(rr.getChannel()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Reads the whole content of a channel.
+     * 
+     * @param channel
+     *            The channel to read.
+     * @return The content read.
+     */
+    private String read(ReadableByteChannel channel) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        ByteBuffer bb = ByteBuffer.allocate(4);
+
+        try {
+            while (channel.read(bb) != -1) {
+                bb.flip();
+
+                while (bb.hasRemaining()) {
+                    sb.append((char) bb.get());
+                }
+
+                bb.clear();
+            }
+        } finally {
+            channel.close();
+        }
+
+        return sb.toString();
+    }
+
 }
@@ -34,20 +34,28 @@
 package org.restlet.test.resource;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Date;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.restlet.Application;
+import org.restlet.Client;
 import org.restlet.Component;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.Encoding;
 import org.restlet.data.Language;
 import org.restlet.data.LocalReference;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
+import org.restlet.data.Preference;
 import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
@@ -226,10 +234,94 @@ public class DirectoryTestCase extends RestletTestCase {
         // Test the access to the sub directories.
         testDirectoryDeeplyAccessible(application, application.getDirectory());
 
+        // Test the pre-compressed siblings
+        testDirectoryPrecompressed(application, application.getDirectory());
+
         // Now, let's stop the component!
         clientComponent.stop();
     }
 
+    public void testDirectoryMetadataCache() throws Exception {
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "DirectoryTestCase/cache" + new Date().getTime());
+        this.testDir.mkdirs();
+
+        Component clientComponent = new Component();
+        Client client = clientComponent.getClients().add(Protocol.FILE);
+        client.getContext().getParameters().add("metadataTimeToLive",
+                "60000");
+        MyApplication application = new MyApplication(this.testDir);
+        application.getDirectory().setModifiable(true);
+        clientComponent.getDefaultHost().attach("", application);
+        clientComponent.start();
+
+        try {
+            // Missing files are cached too
+            Response response = handle(application, this.webSiteURL,
+                    this.baseFileUrl, Method.GET, null, "cache 1");
+            assertEquals(Status.CLIENT_ERROR_NOT_FOUND, response.getStatus());
+
+            // Changes made via the connector invalidate the cache
+            response = handle(application, this.webSiteURL, this.baseFileUrl,
+                    Method.PUT, new StringRepresentation("version 1"),
+                    "cache 2");
+            assertTrue(response.getStatus().isSuccess());
+            response = handle(application, this.webSiteURL, this.baseFileUrl,
+                    Method.GET, null, "cache 3");
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("version 1", response.getEntity().getText());
+            Tag tag = response.getEntity().getTag();
+            assertNotNull(tag);
+            assertTrue(tag.isWeak());
+
+            // Conditional requests are answered from the cached metadata
+            Request request = new Request(Method.GET, this.baseFileUrl);
+            request.getResourceRef().setBaseRef(this.webSiteURL);
+            request.getConditions().getNoneMatch().add(tag);
+            response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+
+            // Changes made outside of the connector are visible after the
+            // time to live only
+            File file = new File(this.testDir, "fichier.txt");
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write("version 2 changed outside".getBytes("US-ASCII"));
+            fos.close();
+            file.setLastModified(file.lastModified() + 60000);
+            request = new Request(Method.GET, this.baseFileUrl);
+            request.getResourceRef().setBaseRef(this.webSiteURL);
+            request.getConditions().getNoneMatch().add(tag);
+            response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+
+            response = handle(application, this.webSiteURL, this.baseFileUrl,
+                    Method.PUT, new StringRepresentation("version 3"),
+                    "cache 4");
+            assertTrue(response.getStatus().isSuccess());
+            request = new Request(Method.GET, this.baseFileUrl);
+            request.getResourceRef().setBaseRef(this.webSiteURL);
+            request.getConditions().getNoneMatch().add(tag);
+            response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("version 3", response.getEntity().getText());
+            assertFalse(tag.equals(response.getEntity().getTag()));
+
+            // Deletions are visible immediately
+            response = handle(application, this.webSiteURL, this.baseFileUrl,
+                    Method.DELETE, null, "cache 5");
+            assertTrue(response.getStatus().isSuccess());
+            response = handle(application, this.webSiteURL, this.baseFileUrl,
+                    Method.GET, null, "cache 6");
+            assertEquals(Status.CLIENT_ERROR_NOT_FOUND, response.getStatus());
+        } finally {
+            clientComponent.stop();
+            BioUtils.delete(this.testDir, true);
+        }
+    }
+
     /**
      * Helper
      * 
@@ -266,6 +358,65 @@ public class DirectoryTestCase extends RestletTestCase {
         assertEquals(Status.CLIENT_ERROR_NOT_FOUND, response.getStatus());
     }
 
+    /**
+     * Helper
+     * 
+     * @param application
+     * @param directory
+     * @throws IOException
+     */
+    private void testDirectoryPrecompressed(MyApplication application,
+            Directory directory) throws IOException {
+        String text = "body { color: black; }";
+        File cssFile = new File(this.testDir, "style.css");
+        FileOutputStream fos = new FileOutputStream(cssFile);
+        fos.write(text.getBytes("US-ASCII"));
+        fos.close();
+        File gzFile = new File(this.testDir, "style.css.gz");
+        GZIPOutputStream gzos = new GZIPOutputStream(new FileOutputStream(
+                gzFile));
+        gzos.write(text.getBytes("US-ASCII"));
+        gzos.close();
+        gzFile.setLastModified(cssFile.lastModified());
+
+        directory.setPrecompressedServed(true);
+        Request request = new Request(Method.GET,
+                this.webSiteURL.concat("style.css"));
+        request.getResourceRef().setBaseRef(this.webSiteURL);
+        request.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<Encoding>(Encoding.GZIP));
+        Response response = new Response(request);
+        application.handle(request, response);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(MediaType.TEXT_CSS, response.getEntity().getMediaType());
+        assertEquals(Encoding.GZIP, response.getEntity().getEncodings().get(0));
+        assertEquals(gzFile.length(), response.getEntity().getSize());
+        assertEquals(text, BioUtils.toString(new GZIPInputStream(response
+                .getEntity().getStream())));
+
+        // Clients not accepting the GZip encoding get the original file
+        response = handle(application, this.webSiteURL,
+                this.webSiteURL.concat("style.css"), Method.GET, null,
+                "precompressed 1");
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertTrue(response.getEntity().getEncodings().isEmpty()
+                || Encoding.IDENTITY.equals(response.getEntity()
+                        .getEncodings().get(0)));
+        assertEquals(text, response.getEntity().getText());
+
+        // Outdated siblings are ignored
+        gzFile.setLastModified(cssFile.lastModified() - 60000);
+        request = new Request(Method.GET, this.webSiteURL.concat("style.css"));
+        request.getResourceRef().setBaseRef(this.webSiteURL);
+        request.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<Encoding>(Encoding.GZIP));
+        response = new Response(request);
+        application.handle(request, response);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(text, response.getEntity().getText());
+        directory.setPrecompressedServed(false);
+    }
+
     /**
      * Helper
      * 
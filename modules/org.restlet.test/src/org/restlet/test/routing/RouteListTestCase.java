@@ -33,6 +33,9 @@
 
 package org.restlet.test.routing;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.routing.Route;
@@ -95,6 +98,63 @@ public class RouteListTestCase extends RestletTestCase {
         assertSame(first, list.getNext(null, null, 1f));
     }
 
+    public void testGetNextConcurrently() throws Exception {
+        final RouteList list = new RouteList();
+        final MockScoringRoute[] routes = new MockScoringRoute[4];
+
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = new MockScoringRoute(5);
+            list.add(routes[i]);
+        }
+
+        final int threads = 8;
+        final int calls = 10000;
+        final AtomicInteger misses = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < calls; i++) {
+                            if (list.getNext(null, null, 1f) == null) {
+                                misses.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        // Structural changes while dispatching
+        for (int i = 0; i < 100; i++) {
+            list.add(new MockScoringRoute(0));
+            list.remove(list.size() - 1);
+        }
+
+        latch.await();
+        assertEquals(0, misses.get());
+    }
+
+    public void testGetNextSkipping() {
+        final RouteList list = new RouteList();
+        final Route first = new MockScoringRoute(5);
+        final Route third = new MockScoringRoute(5);
+
+        list.add(first);
+        list.add(new MockScoringRoute(0));
+        list.add(third);
+
+        assertSame(first, list.getNext(null, null, 1f));
+        assertSame(third, list.getNext(null, null, 1f));
+        assertSame(first, list.getNext(null, null, 1f));
+        assertSame(third, list.getNext(null, null, 1f));
+        assertNull(list.getNext(null, null, 6f));
+    }
+
     public void testGetRandom() {
         final RouteList list = new RouteList();
 
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.routing;
+
+import java.util.List;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.data.Reference;
+import org.restlet.resource.Finder;
+import org.restlet.routing.Route;
+import org.restlet.routing.Router;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
+import org.restlet.routing.Variable;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the indexed routing of the {@link Router} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class RouterIndexTestCase extends RestletTestCase {
+
+    private static final String[] URIS = { "", "/", "/users", "/users/",
+            "/users/123", "/users/123/", "/users/123/orders",
+            "/users/123/orders/9", "/users/a+b/orders", "/users/123?x=1",
+            "/users?q=1", "/items/12", "/items/ab", "/items/12/parts",
+            "/files/a/b/c.txt", "/files", "/aab", "/a+b", "/x/y/z", "/%7Efoo",
+            "/users/123/orders?sort=asc", "/v1/users/1/v/2" };
+
+    private Router createRouter() {
+        Router router = new Router();
+        Restlet target = new Finder();
+        router.attach("/users", target);
+        router.attach("/users/{id}", target);
+        router.attach("/users/{id}/orders", target);
+        router.attach("/users/{id}/orders/{order}", target);
+        router.attach("/users/{id}{suffix}/orders", target);
+        router.attach("/items/{item}", target).getTemplate().getVariables()
+                .put("item", new Variable(Variable.TYPE_DIGIT));
+        router.attach("/items/{item}/parts", target);
+        router.attach("/files/{path}", target).getTemplate().getVariables()
+                .put("path", new Variable(Variable.TYPE_URI_PATH));
+        router.attach("/a+b", target);
+        router.attach("/{a}/{b}/{a}", target);
+        router.attach("/v1/{x}/{y}/v/{z}", target);
+        router.attach("/users?q={q}", target).setMatchingQuery(true);
+        router.attach("/~foo", target);
+        router.attach("/%7Efoo", target);
+        router.attach("/users", target, Template.MODE_STARTS_WITH);
+        router.attach("", target);
+        router.getRoutes().add(new TemplateRoute(router, "/x/{y}", target) {
+            @Override
+            public float score(Request request, Response response) {
+                return 1.0F;
+            }
+        });
+        return router;
+    }
+
+    private void assertSameRoutes(Router router) {
+        for (String uri : URIS) {
+            Request request = new Request(Method.GET, "http://localhost/base"
+                    + uri);
+            request.getResourceRef().setBaseRef("http://localhost/base");
+            Response response = new Response(request);
+            float score = router.getRequiredScore();
+
+            assertSame(uri, router.getRoutes().getFirst(request, response,
+                    score), router.getRoutes().getFirst(request, response,
+                    score, true));
+            assertSame(uri, router.getRoutes().getBest(request, response,
+                    score), router.getRoutes().getBest(request, response,
+                    score, true));
+            assertSame(uri, router.getRoutes().getLast(request, response,
+                    score), router.getRoutes().getLast(request, response,
+                    score, true));
+        }
+    }
+
+    public void testCandidates() {
+        Router router = new Router();
+        Restlet target = new Finder();
+        Route users = router.attach("/users/{id}", target);
+        Route items = router.attach("/items/{id}", target);
+        Route all = router.attach("/{any}/{id}", target);
+
+        Request request = new Request(Method.GET, new Reference(
+                "http://localhost/users/1"));
+        request.getResourceRef().setBaseRef("http://localhost");
+        List<Route> candidates = router.getRoutes().getIndex()
+                .getCandidates(request);
+        assertEquals(2, candidates.size());
+        assertSame(users, candidates.get(0));
+        assertSame(all, candidates.get(1));
+        assertFalse(candidates.contains(items));
+    }
+
+    public void testSameRoutes() {
+        Router router = createRouter();
+        assertSameRoutes(router);
+
+        // Structural changes are taken into account
+        router.getRoutes().remove(0);
+        router.getRoutes().add(0,
+                new TemplateRoute(router, "/files", new Finder()));
+        assertSameRoutes(router);
+
+        router.getRoutes().clear();
+        assertSameRoutes(router);
+    }
+
+    public void testRouter() {
+        Router router = createRouter();
+        router.setIndexing(true);
+        Request request = new Request(Method.GET,
+                "http://localhost/base/users/123/orders");
+        request.getResourceRef().setBaseRef("http://localhost/base");
+        Response response = new Response(request);
+        assertSame(router.getRoutes().get(2), router.getNext(request, response));
+
+        router.setRoutingMode(Router.MODE_BEST_MATCH);
+        assertSame(router.getRoutes().get(2), router.getNext(request, response));
+    }
+}
@@ -51,6 +51,108 @@ import org.restlet.test.RestletTestCase;
  */
 public class ConnegServiceTestCase extends RestletTestCase {
 
+    public void testCache() {
+        MetadataService metadataService = new MetadataService();
+        ConnegService connegService = new ConnegService();
+        connegService.setStrict(true);
+
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(new Variant(MediaType.APPLICATION_XML));
+        variants.add(new Variant(MediaType.APPLICATION_JSON));
+
+        Request request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+
+        Variant preferedVariant = connegService.getPreferredVariant(variants,
+                request, metadataService);
+        assertSame(variants.get(1), preferedVariant);
+        assertEquals(0, connegService.getCacheHits());
+        assertEquals(1, connegService.getCacheMisses());
+
+        // Same preferences and an equivalent list of variants
+        List<Variant> otherVariants = new ArrayList<Variant>();
+        otherVariants.add(new Variant(MediaType.APPLICATION_XML));
+        otherVariants.add(new Variant(MediaType.APPLICATION_JSON));
+        Request otherRequest = new Request();
+        otherRequest.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+
+        preferedVariant = connegService.getPreferredVariant(otherVariants,
+                otherRequest, metadataService);
+        assertSame(otherVariants.get(1), preferedVariant);
+        assertEquals(1, connegService.getCacheHits());
+        assertEquals(1, connegService.getCacheMisses());
+
+        // Different preferences
+        otherRequest.getClientInfo().getAcceptedMediaTypes().clear();
+        otherRequest.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_XML));
+        preferedVariant = connegService.getPreferredVariant(otherVariants,
+                otherRequest, metadataService);
+        assertSame(otherVariants.get(0), preferedVariant);
+        assertEquals(2, connegService.getCacheMisses());
+
+        // Negative results are cached too
+        otherRequest.getClientInfo().getAcceptedMediaTypes().clear();
+        otherRequest.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.TEXT_HTML));
+        assertNull(connegService.getPreferredVariant(otherVariants,
+                otherRequest, metadataService));
+        assertNull(connegService.getPreferredVariant(otherVariants,
+                otherRequest, metadataService));
+        assertEquals(2, connegService.getCacheHits());
+        assertEquals(3, connegService.getCacheMisses());
+
+        // Changing the variants changes the result
+        otherVariants.add(new Variant(MediaType.TEXT_HTML));
+        preferedVariant = connegService.getPreferredVariant(otherVariants,
+                otherRequest, metadataService);
+        assertSame(otherVariants.get(2), preferedVariant);
+        assertEquals(4, connegService.getCacheMisses());
+
+        // Disabled cache
+        connegService.clearCache();
+        connegService.setCacheSize(0);
+        preferedVariant = connegService.getPreferredVariant(variants,
+                request, metadataService);
+        assertSame(variants.get(1), preferedVariant);
+        assertEquals(0, connegService.getCacheHits());
+        assertEquals(0, connegService.getCacheMisses());
+    }
+
+    public void testCacheSize() {
+        MetadataService metadataService = new MetadataService();
+        ConnegService connegService = new ConnegService();
+        connegService.setCacheSize(1);
+
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(new Variant(MediaType.APPLICATION_XML));
+        variants.add(new Variant(MediaType.APPLICATION_JSON));
+
+        Request jsonRequest = new Request();
+        jsonRequest.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+        Request xmlRequest = new Request();
+        xmlRequest.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_XML));
+
+        assertSame(variants.get(1), connegService.getPreferredVariant(
+                variants, jsonRequest, metadataService));
+        assertSame(variants.get(0), connegService.getPreferredVariant(
+                variants, xmlRequest, metadataService));
+
+        // The first result was evicted
+        assertSame(variants.get(1), connegService.getPreferredVariant(
+                variants, jsonRequest, metadataService));
+        assertEquals(0, connegService.getCacheHits());
+        assertEquals(3, connegService.getCacheMisses());
+
+        assertSame(variants.get(1), connegService.getPreferredVariant(
+                variants, jsonRequest, metadataService));
+        assertEquals(1, connegService.getCacheHits());
+    }
+
     public void testStrict() {
         List<Variant> variants = new ArrayList<Variant>();
         Variant variant = new Variant(MediaType.APPLICATION_XML);
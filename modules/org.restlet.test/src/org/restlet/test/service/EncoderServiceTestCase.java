@@ -0,0 +1,303 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Date;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Reference;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.EncodeCache;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.application.Encoder;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the encoder service.
+ * 
+ * @author Jerome Louvel
+ */
+public class EncoderServiceTestCase extends RestletTestCase {
+
+    private static final String TEXT;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 500; i++) {
+            sb.append("Line ").append(i).append(" of the cached entity\n");
+        }
+
+        TEXT = sb.toString();
+    }
+
+    private static byte[] getBytes(Representation representation)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        representation.write(baos);
+        return baos.toByteArray();
+    }
+
+    private static String gunzip(Representation representation)
+            throws IOException {
+        return BioUtils.toString(new GZIPInputStream(representation
+                .getStream()));
+    }
+
+    private static Representation newEntity(Date modificationDate) {
+        Representation result = new StringRepresentation(TEXT);
+        result.setModificationDate(modificationDate);
+        return result;
+    }
+
+    public void testCache() throws IOException {
+        EncodeCache cache = new EncodeCache();
+        Reference ref = new Reference("http://localhost/cached");
+        Date date = new Date(1000000000000L);
+
+        Representation first = cache.encode(ref, Encoding.GZIP,
+                newEntity(date));
+        assertNotNull(first);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(Encoding.GZIP, first.getEncodings().get(0));
+        assertEquals(date, first.getModificationDate());
+        assertEquals(getBytes(first).length, first.getSize());
+        assertEquals(TEXT, gunzip(first));
+
+        // Same entity, served from memory
+        Representation second = cache.encode(ref, Encoding.GZIP,
+                newEntity(date));
+        assertEquals(1, cache.getHits());
+        assertEquals(first.getSize(), cache.getMemorySize());
+        assertEquals(first.getSize(), second.getSize());
+        assertEquals(TEXT, gunzip(second));
+
+        // Other encoding, date, resource or tag
+        cache.encode(ref, Encoding.DEFLATE, newEntity(date));
+        cache.encode(ref, Encoding.GZIP, newEntity(new Date()));
+        cache.encode(new Reference("http://localhost/other"), Encoding.GZIP,
+                newEntity(date));
+        Representation tagged = newEntity(date);
+        tagged.setTag(new Tag("v2"));
+        cache.encode(ref, Encoding.GZIP, tagged);
+        assertEquals(1, cache.getHits());
+        assertEquals(5, cache.getMisses());
+
+        // Entities that can't be identified or aren't worth caching
+        assertNull(cache.encode(ref, Encoding.GZIP, new StringRepresentation(
+                TEXT)));
+        Representation weak = new StringRepresentation(TEXT);
+        weak.setTag(new Tag("v1", true));
+        assertNull(cache.encode(ref, Encoding.GZIP, weak));
+        assertNull(cache.encode(ref, Encoding.ZIP, newEntity(date)));
+        cache.setMaxEntrySize(100);
+        assertNull(cache.encode(ref, Encoding.GZIP, newEntity(date)));
+
+        cache.clear();
+        assertEquals(0, cache.getMemorySize());
+    }
+
+    public void testDiskCache() throws IOException {
+        File directory = new File(System.getProperty("java.io.tmpdir"),
+                "EncoderServiceTestCase" + new Date().getTime());
+
+        try {
+            // Nothing is kept in memory
+            EncodeCache cache = new EncodeCache(0, directory, 1024 * 1024);
+            Reference ref = new Reference("http://localhost/cached");
+            Date date = new Date(1000000000000L);
+
+            Representation first = cache.encode(ref, Encoding.GZIP,
+                    newEntity(date));
+            assertEquals(0, cache.getMemorySize());
+            assertEquals(first.getSize(), cache.getDiskSize());
+            assertEquals(1, directory.list().length);
+
+            Representation second = cache.encode(ref, Encoding.GZIP,
+                    newEntity(date));
+            assertEquals(1, cache.getHits());
+            assertEquals(first.getSize(), second.getSize());
+            assertEquals(TEXT, gunzip(second));
+
+            // A hit can still be read once its file has been evicted
+            Representation third = cache.encode(ref, Encoding.GZIP,
+                    newEntity(date));
+            cache.clear();
+            assertEquals(first.getSize(), third.getSize());
+            assertEquals(TEXT, gunzip(third));
+
+            // Clearing also deletes the files
+            cache.clear();
+            assertEquals(0, directory.list().length);
+            assertNotNull(cache.encode(ref, Encoding.GZIP, newEntity(date)));
+            assertEquals(2, cache.getMisses());
+        } finally {
+            BioUtils.delete(directory, true);
+        }
+    }
+
+    public void testEncoder() throws IOException {
+        EncoderService encoderService = new EncoderService();
+        encoderService.setCache(new EncodeCache());
+        Encoder encoder = new Encoder(null, false, true, encoderService);
+        encoder.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity(newEntity(new Date(1000000000000L)));
+            }
+        });
+
+        for (int i = 0; i < 2; i++) {
+            Request request = new Request(Method.GET, "http://localhost/res");
+            request.getClientInfo().getAcceptedEncodings()
+                    .add(new Preference<Encoding>(Encoding.GZIP));
+            Response response = encoder.handle(request);
+            assertTrue(response.getEntity() instanceof EncodeRepresentation);
+            assertEquals(Encoding.GZIP, response.getEntity().getEncodings()
+                    .get(0));
+            assertEquals(TEXT, gunzip(response.getEntity()));
+        }
+
+        assertEquals(1, encoderService.getCache().getHits());
+        assertEquals(1, encoderService.getCache().getMisses());
+
+        // Only the miss was encoded, by the service's encoder
+        assertEquals(1, encoderService.getEncodedCount());
+        assertEquals(encoderService.getEncodedOutputSize(), encoderService
+                .getCache().getMemorySize());
+    }
+
+    public void testPolicy() throws IOException {
+        final float[] load = { 0.5F };
+        EncoderService encoderService = new EncoderService() {
+            @Override
+            public float getLoad() {
+                return load[0];
+            }
+        };
+        Representation entity = new StringRepresentation(TEXT);
+
+        // Compression level
+        assertEquals(Deflater.DEFAULT_COMPRESSION,
+                encoderService.getLevel(entity));
+        encoderService.setFastSize(1000);
+        assertEquals(Deflater.BEST_SPEED, encoderService.getLevel(entity));
+        encoderService.setFastSize(EncoderService.ANY_SIZE);
+        load[0] = 1.5F;
+        assertEquals(Deflater.BEST_SPEED, encoderService.getLevel(entity));
+
+        // Load spikes, once enabled
+        load[0] = 3F;
+        assertTrue(encoderService.select(entity));
+        encoderService.setMaxLoad(2F);
+        assertTrue(encoderService.canEncode(entity));
+        assertFalse(encoderService.select(entity));
+        assertEquals(1, encoderService.getSkippedForLoad());
+        load[0] = 0.5F;
+
+        // Size
+        assertFalse(encoderService.canEncode(new StringRepresentation("Hi")));
+        assertEquals(0, encoderService.getSkippedForSize());
+        assertFalse(encoderService.select(new StringRepresentation("Hi")));
+        assertEquals(1, encoderService.getSkippedForSize());
+
+        // Measured sizes
+        Encoder encoder = new Encoder(null, false, true, encoderService);
+        Request request = new Request(Method.GET, "http://localhost/res");
+        request.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<Encoding>(Encoding.DEFLATE));
+        Representation encoded = encoder.encode(request.getClientInfo(),
+                entity);
+        byte[] bytes = getBytes(encoded);
+        assertEquals(1, encoderService.getEncodedCount());
+        assertEquals(TEXT.length(), encoderService.getEncodedInputSize());
+        assertEquals(bytes.length, encoderService.getEncodedOutputSize());
+        assertEquals((float) bytes.length / TEXT.length(),
+                encoderService.getRatio(MediaType.TEXT_PLAIN), 0.0001F);
+
+        // Through the channel too
+        ReadableByteChannel channel = encoder.encode(request.getClientInfo(),
+                entity).getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        while (channel.read(buffer) != -1) {
+            buffer.clear();
+        }
+
+        channel.close();
+        assertEquals(2, encoderService.getEncodedCount());
+
+        // Poorly compressible media types are only sampled
+        Representation binary = new StringRepresentation(TEXT,
+                MediaType.APPLICATION_OCTET_STREAM);
+        encoderService.onEncoded(MediaType.APPLICATION_OCTET_STREAM, 1000,
+                990);
+        int encodable = 0;
+
+        for (int i = 0; i < 32; i++) {
+            assertTrue(encoderService.canEncode(binary));
+        }
+
+        assertEquals(0, encoderService.getSkippedForRatio());
+
+        for (int i = 0; i < 32; i++) {
+            if (encoderService.select(binary)) {
+                encodable++;
+            }
+        }
+
+        assertEquals(2, encodable);
+        assertEquals(30, encoderService.getSkippedForRatio());
+        assertTrue(encoderService.select(entity));
+    }
+
+}
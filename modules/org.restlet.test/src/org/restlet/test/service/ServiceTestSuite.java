@@ -43,7 +43,9 @@ public class ServiceTestSuite {
 
         // $JUnit-BEGIN$
         suite.addTestSuite(ConnegServiceTestCase.class);
+        suite.addTestSuite(EncoderServiceTestCase.class);
         suite.addTestSuite(MetadataServiceTestCase.class);
+        suite.addTestSuite(TaskServiceTestCase.class);
         // $JUnit-END$
 
         return suite;
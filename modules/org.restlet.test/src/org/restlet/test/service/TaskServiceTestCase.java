@@ -0,0 +1,94 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Application;
+import org.restlet.engine.Engine;
+import org.restlet.service.TaskService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the task service.
+ * 
+ * @author Jerome Louvel
+ */
+public class TaskServiceTestCase extends RestletTestCase {
+
+    private void testThreadLocals(String workerMode) throws Exception {
+        final Application application = new Application();
+        final Application[] current = new Application[1];
+        final CountDownLatch latch = new CountDownLatch(2);
+        TaskService ts = new TaskService();
+        ts.setWorkerMode(workerMode);
+        ts.setShutdownAllowed(true);
+        Application.setCurrent(application);
+
+        try {
+            ts.execute(new Runnable() {
+                public void run() {
+                    current[0] = Application.getCurrent();
+                    latch.countDown();
+                }
+            });
+
+            ts.schedule(new Runnable() {
+                public void run() {
+                    latch.countDown();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertSame(application, current[0]);
+        } finally {
+            Application.setCurrent(null);
+            ts.shutdown();
+        }
+
+        assertTrue(ts.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    public void testPoolMode() throws Exception {
+        testThreadLocals("pool");
+    }
+
+    public void testVirtualMode() throws Exception {
+        TaskService ts = new TaskService();
+        ts.setWorkerMode("virtual");
+        assertEquals(Engine.isVirtualThreadSupported(), ts.isVirtualWorkers());
+        testThreadLocals("virtual");
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Uniform;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.resource.ClientResource;
+import org.restlet.routing.Route;
+import org.restlet.routing.Router;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.RetryPolicy;
+
+/**
+ * Test case for the {@link RetryPolicy} class and its usage by routers and
+ * client resources.
+ * 
+ * @author Jerome Louvel
+ */
+public class RetryPolicyTestCase extends RestletTestCase {
+
+    /** The executor service scheduling the retry attempts. */
+    private ScheduledExecutorService executorService;
+
+    /**
+     * Creates a context providing the executor service.
+     * 
+     * @return The context.
+     */
+    private Context createContext() {
+        Context result = new Context();
+        result.setExecutorService(this.executorService);
+        return result;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.executorService = Executors.newScheduledThreadPool(1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.executorService.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testBudget() {
+        RetryPolicy policy = new RetryPolicy(2D, 0D, 1000L, 2);
+        Request request1 = new Request(Method.GET, "http://host1/path");
+        Request request2 = new Request(Method.GET, "http://host2/path");
+
+        assertTrue(policy.acquire(request1));
+        assertTrue(policy.acquire(request1));
+        assertFalse(policy.acquire(request1));
+        assertTrue(policy.acquire(request2));
+        assertEquals(2, policy.getPendingCount(request1));
+
+        policy.release(request1);
+        assertTrue(policy.acquire(request1));
+        policy.release(request2);
+        policy.release(request2);
+        assertEquals(0, policy.getPendingCount(request2));
+
+        // Hosts without pending retries are forgotten
+        assertEquals(1, policy.getPendingHostsCount());
+        policy.release(request1);
+        policy.release(request1);
+        assertEquals(0, policy.getPendingHostsCount());
+        assertTrue(policy.acquire(request1));
+        assertEquals(1, policy.getPendingCount(request1));
+    }
+
+    public void testClientResourceAsynchronous() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Status[] received = new Status[1];
+
+        ClientResource resource = new ClientResource(createContext(),
+                "http://localhost/test");
+        resource.setRetryDelay(10L);
+        resource.setRetryAttempts(3);
+        resource.setRetryPolicy(new RetryPolicy(2D, 0.5D, 1000L, 4));
+        resource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                // Simulates an asynchronous connector
+                if (calls.incrementAndGet() < 3) {
+                    response.setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+                } else {
+                    response.setStatus(Status.SUCCESS_OK);
+                }
+
+                request.getOnResponse().handle(request, response);
+            }
+        });
+        resource.setOnResponse(new Uniform() {
+            public void handle(Request request, Response response) {
+                received[0] = response.getStatus();
+                latch.countDown();
+            }
+        });
+
+        resource.get();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, calls.get());
+        assertEquals(Status.SUCCESS_OK, received[0]);
+    }
+
+    public void testClientResourceBudget() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy(1D, 0D, 1000L, 1);
+
+        ClientResource resource = new ClientResource(createContext(),
+                "http://localhost/test");
+        resource.setRetryDelay(1L);
+        resource.setRetryPolicy(policy);
+        resource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                calls.incrementAndGet();
+                response.setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+            }
+        });
+
+        // Exhausts the budget of the host
+        assertTrue(policy.acquire(new Request(Method.GET,
+                "http://localhost/other")));
+        resource.handleOutbound(resource.createRequest());
+        assertEquals(1, calls.get());
+
+        policy.release(new Request(Method.GET, "http://localhost/other"));
+        resource.handleOutbound(resource.createRequest());
+        assertEquals(1 + 1 + resource.getRetryAttempts(), calls.get());
+    }
+
+    public void testDelay() {
+        RetryPolicy policy = new RetryPolicy(2D, 0D, 1000L, 0);
+        assertEquals(100L, policy.getDelay(100L, 1));
+        assertEquals(200L, policy.getDelay(100L, 2));
+        assertEquals(400L, policy.getDelay(100L, 3));
+        assertEquals(1000L, policy.getDelay(100L, 10));
+
+        policy.setJitter(0.5D);
+
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.getDelay(100L, 2);
+            assertTrue((delay >= 100L) && (delay <= 200L));
+        }
+    }
+
+    public void testRouterAsynchronous() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final Thread[] handler = new Thread[1];
+
+        Router router = new Router(createContext());
+        router.setMaxAttempts(3);
+        router.setRetryDelay(10L);
+        router.setRetryPolicy(new RetryPolicy());
+        router.getRoutes().add(new Route(router, new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                handler[0] = Thread.currentThread();
+                response.setStatus(Status.SUCCESS_ACCEPTED);
+            }
+        }) {
+            @Override
+            public float score(Request request, Response response) {
+                // Only matches on the third attempt
+                return (attempts.incrementAndGet() < 3) ? 0F : 1F;
+            }
+        });
+
+        Request request = new Request(Method.GET, "http://localhost/test") {
+            @Override
+            public void commit(Response response) {
+                latch.countDown();
+            }
+        };
+        Response response = new Response(request);
+        router.handle(request, response);
+
+        assertFalse(response.isAutoCommitting());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+        assertEquals(Status.SUCCESS_ACCEPTED, response.getStatus());
+        assertNotSame(caller, handler[0]);
+    }
+
+    public void testRouterNotFound() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Router router = new Router(createContext());
+        router.setMaxAttempts(2);
+        router.setRetryDelay(1L);
+        router.setRetryPolicy(new RetryPolicy());
+
+        Request request = new Request(Method.GET, "http://localhost/test") {
+            @Override
+            public void commit(Response response) {
+                latch.countDown();
+            }
+        };
+        Response response = new Response(request);
+        router.handle(request, response);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Status.CLIENT_ERROR_NOT_FOUND, response.getStatus());
+    }
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.restlet.data.Parameter;
+import org.restlet.engine.header.Header;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.Series;
+
+/**
+ * Test case for series, with and without name index.
+ * 
+ * @author Jerome Louvel
+ */
+public class SeriesTestCase extends RestletTestCase {
+
+    private static final String[] NAMES = { "Accept", "accept", "ACCEPT",
+            "Host", "host", "Cookie", "Content-Type", "X-Custom", "x-custom",
+            "Missing" };
+
+    /**
+     * Asserts that both series return the same lookup results.
+     */
+    private void assertLookups(Series<Parameter> expected,
+            Series<Parameter> actual) {
+        assertEquals(expected, actual);
+
+        for (String name : NAMES) {
+            for (boolean ignoreCase : new boolean[] { false, true }) {
+                assertEquals(expected.getFirst(name, ignoreCase),
+                        actual.getFirst(name, ignoreCase));
+                assertEquals(expected.getValues(name, ",", ignoreCase),
+                        actual.getValues(name, ",", ignoreCase));
+                assertTrue(Arrays.equals(
+                        expected.getValuesArray(name, ignoreCase),
+                        actual.getValuesArray(name, ignoreCase)));
+            }
+        }
+    }
+
+    public void testIndexedLookups() {
+        Series<Header> headers = new Series<Header>(Header.class);
+        headers.setIndexed(true);
+
+        for (int i = 0; i < 20; i++) {
+            headers.add("X-Header-" + i, Integer.toString(i));
+        }
+
+        headers.add("Accept", "text/html");
+        headers.add("ACCEPT", "text/plain");
+        assertEquals("text/html", headers.getFirstValue("accept", true));
+        assertNull(headers.getFirstValue("accept"));
+        assertEquals("text/html,text/plain", headers.getValues("Accept"));
+        assertEquals(2, headers.subList("accept", true).size());
+
+        // Modifications through an iterator update the index
+        for (Iterator<Header> iter = headers.iterator(); iter.hasNext();) {
+            if ("Accept".equals(iter.next().getName())) {
+                iter.remove();
+            }
+        }
+
+        assertEquals("text/plain", headers.getFirstValue("accept", true));
+
+        headers.set("accept", "*/*", true);
+        assertEquals("*/*", headers.getFirstValue("Accept", true));
+        assertEquals(21, headers.size());
+
+        headers.removeAll("X-HEADER-3", true);
+        assertNull(headers.getFirst("X-Header-3"));
+        headers.add(0, new Header("X-Header-3", "first"));
+        assertEquals("first", headers.getFirstValue("x-header-3", true));
+        headers.clear();
+        assertNull(headers.getFirst("X-Header-4"));
+    }
+
+    public void testRandomModifications() {
+        Random random = new Random(42);
+        Series<Parameter> plain = new Series<Parameter>(Parameter.class);
+        Series<Parameter> indexed = new Series<Parameter>(Parameter.class);
+        indexed.setIndexed(true);
+
+        for (int i = 0; i < 2000; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            String value = Integer.toString(i);
+            boolean ignoreCase = random.nextBoolean();
+
+            switch (random.nextInt(8)) {
+            case 0:
+            case 1:
+            case 2:
+                plain.add(name, value);
+                indexed.add(name, value);
+                break;
+            case 3:
+                assertEquals(plain.removeAll(name, ignoreCase),
+                        indexed.removeAll(name, ignoreCase));
+                break;
+            case 4:
+                assertEquals(plain.removeFirst(name, ignoreCase),
+                        indexed.removeFirst(name, ignoreCase));
+                break;
+            case 5:
+                plain.set(name, value, ignoreCase);
+                indexed.set(name, value, ignoreCase);
+                break;
+            case 6:
+                int position = random.nextInt(plain.size() + 1);
+                plain.add(position, new Parameter(name, value));
+                indexed.add(position, new Parameter(name, value));
+                break;
+            case 7:
+                if (!plain.isEmpty()) {
+                    position = random.nextInt(plain.size());
+                    plain.remove(position);
+                    indexed.remove(position);
+                }
+                break;
+            }
+
+            assertLookups(plain, indexed);
+        }
+    }
+}
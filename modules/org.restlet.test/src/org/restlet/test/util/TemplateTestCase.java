@@ -90,6 +90,34 @@ public class TemplateTestCase extends RestletTestCase {
         assertEquals("123/456", variables3.get("v1"));
     }
 
+    public void testSegmentMatching() {
+        Template template = new Template("/users/{id}/orders/{order}",
+                Template.MODE_EQUALS, Variable.TYPE_URI_SEGMENT, "", true,
+                false);
+
+        Map<String, Object> variables1 = new HashMap<String, Object>();
+        String string1 = "/users/a%20b/orders/12";
+        assertEquals(string1.length(), template.parse(string1, variables1));
+        assertEquals("a%20b", variables1.get("id"));
+        assertEquals("12", variables1.get("order"));
+
+        assertEquals(-1, template.match("/users//orders/12"));
+        assertEquals(-1, template.match("/users/1/orders/12/"));
+        assertEquals(-1, template.match("/users/1%2/orders/12"));
+
+        template.setMatchingMode(Template.MODE_STARTS_WITH);
+        assertEquals(18, template.match("/users/1/orders/12?x=1"));
+
+        // The greedy variable includes the dot, as with regular expressions
+        Template extension = new Template("/files/{name}.txt",
+                Template.MODE_EQUALS, Variable.TYPE_URI_SEGMENT, "", true,
+                false);
+        Map<String, Object> variables2 = new HashMap<String, Object>();
+        String string2 = "/files/a.b.txt";
+        assertEquals(string2.length(), extension.parse(string2, variables2));
+        assertEquals("a.b", variables2.get("name"));
+    }
+
     public void testVariableNames() throws Exception {
         Template tpl = new Template(
                 "http://{userId}.restlet.com/invoices/{invoiceId}");
@@ -59,6 +59,20 @@ public final class MediaType extends Metadata {
      */
     private static final String _TSPECIALS = "()<>@,;:/[]?=\\\"";
 
+    // [ifndef gwt] member
+    /**
+     * The media types parsed by {@link #valueOf(String)} that aren't
+     * registered. Up to {@link #_PARSED_TYPES_MAX} entries are interned.<br>
+     * Keep the underscore for the ordering.
+     */
+    private static final java.util.concurrent.ConcurrentMap<String, MediaType> _parsedTypes = new java.util.concurrent.ConcurrentHashMap<String, MediaType>();
+
+    /**
+     * The maximum number of interned parsed media types.<br>
+     * Keep the underscore for the ordering.
+     */
+    private static final int _PARSED_TYPES_MAX = 1024;
+
     /**
      * The known media types registered with {@link #register(String, String)},
      * retrievable using {@link #valueOf(String)}.<br>
@@ -578,6 +592,10 @@ public final class MediaType extends Metadata {
     public static final MediaType MULTIPART_ALL = register("multipart/*",
             "All multipart data");
 
+    // [ifndef gwt] member
+    public static final MediaType MULTIPART_BYTERANGES = register(
+            "multipart/byteranges", "Multipart byte ranges");
+
     // [ifndef gwt] member
     public static final MediaType MULTIPART_FORM_DATA = register(
             "multipart/form-data", "Multipart form data");
@@ -838,9 +856,45 @@ public final class MediaType extends Metadata {
         return getTypes().get(name);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Returns the interned media type parsed from a name that isn't
+     * registered. An arbitrary media type is evicted when the maximum number
+     * of interned media types is reached, so that lookups never lock.
+     * 
+     * @param name
+     *            The name.
+     * @return The interned media type.
+     */
+    private static MediaType getParsedType(String name) {
+        MediaType result = _parsedTypes.get(name);
+
+        if (result == null) {
+            java.util.Iterator<String> names = _parsedTypes.keySet()
+                    .iterator();
+
+            while ((_parsedTypes.size() >= _PARSED_TYPES_MAX)
+                    && names.hasNext()) {
+                names.next();
+                names.remove();
+            }
+
+            result = new MediaType(name);
+            MediaType existing = _parsedTypes.putIfAbsent(name, result);
+
+            if (existing != null) {
+                result = existing;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the media type associated to a name. If an existing constant
-     * exists then it is returned, otherwise a new instance is created.
+     * exists then it is returned, otherwise a new instance is created. As media
+     * types are immutable, the instances created for the most recently used
+     * names are interned and shared.
      * 
      * @param name
      *            The name.
@@ -851,6 +905,13 @@ public final class MediaType extends Metadata {
 
         if ((name != null) && !name.equals("")) {
             result = getTypes().get(name);
+
+            // [ifndef gwt]
+            if (result == null) {
+                result = getParsedType(name);
+            }
+            // [enddef]
+
             if (result == null) {
                 result = new MediaType(name);
             }
@@ -1119,7 +1180,9 @@ public final class MediaType extends Metadata {
      * @see #isCompatible(Metadata)
      */
     public boolean includes(Metadata included, boolean ignoreParameters) {
-        boolean result = equals(ALL) || equals(included);
+        // Interned media types are compared by identity first
+        boolean result = (this == ALL) || (this == included) || equals(ALL)
+                || equals(included);
 
         if (!result && (included instanceof MediaType)) {
             MediaType includedMediaType = (MediaType) included;
@@ -150,8 +150,9 @@ public abstract class Metadata {
      * @see #includes(Metadata)
      */
     public boolean isCompatible(Metadata otherMetadata) {
-        return (otherMetadata != null)
-                && (includes(otherMetadata) || otherMetadata.includes(this));
+        return (otherMetadata == this)
+                || ((otherMetadata != null) && (includes(otherMetadata) || otherMetadata
+                        .includes(this)));
     }
 
     /**
@@ -94,6 +94,15 @@ import org.restlet.engine.Edition;
  * various reference properties (URI components).
  * </p>
  * <p>
+ * In addition, an immutable parsed form of this string is lazily created. It
+ * computes the offsets of the authority, path and query components once and
+ * caches the extracted components, the path segments, the decoded query
+ * parameters and the remaining part relative to the base reference. This way,
+ * the routers and URI templates evaluating the resource reference of a call
+ * share the same parsing work. This parsed form is replaced as soon as the
+ * reference is modified.
+ * </p>
+ * <p>
  * When you modify a specific component of the URI reference, via the setPath()
  * method for example, the internal string is simply regenerated by updating
  * only the relevant part. We try as much as possible to protect the bytes given
@@ -123,6 +132,436 @@ import org.restlet.engine.Edition;
  */
 public class Reference {
 
+    /**
+     * Immutable parsed form of a reference string. The offsets of the
+     * components are computed once when created. The extracted components and
+     * the derived views are lazily cached, so that the successive calls of
+     * the accessors during the handling of a call, for example by routers and
+     * templates, don't scan the reference again.
+     */
+    private static final class Parsed {
+
+        /**
+         * Cached remaining part, computed against a given base reference
+         * string.
+         */
+        private static final class Remaining {
+
+            /** The base reference string. */
+            private final String base;
+
+            /** The remaining part. */
+            private final String value;
+
+            /**
+             * Constructor.
+             * 
+             * @param base
+             *            The base reference string.
+             * @param value
+             *            The remaining part.
+             */
+            private Remaining(String base, String value) {
+                this.base = base;
+                this.value = value;
+            }
+        }
+
+        /** Empty list of segments. */
+        private static final String[] NO_SEGMENTS = new String[0];
+
+        /**
+         * Returns the index of a character in a range of a string.
+         * 
+         * @param string
+         *            The string to search.
+         * @param character
+         *            The character to search.
+         * @param start
+         *            The start index.
+         * @param end
+         *            The end index (exclusive).
+         * @return The index of the character or -1.
+         */
+        private static int indexOf(String string, char character, int start,
+                int end) {
+            int result = string.indexOf(character, start);
+            return (result < end) ? result : -1;
+        }
+
+        /** The end index of the authority or -1. */
+        private final int authorityEnd;
+
+        /** The start index of the authority or -1. */
+        private final int authorityStart;
+
+        /** The fragment separator index. */
+        private final int fragmentIndex;
+
+        /** The end index of the path or -1. */
+        private final int pathEnd;
+
+        /** The start index of the path or -1. */
+        private final int pathStart;
+
+        /** The query separator index. */
+        private final int queryIndex;
+
+        /** The parsed reference string. */
+        private final String ref;
+
+        /** The scheme separator index. */
+        private final int schemeIndex;
+
+        /** The cached authority. */
+        private volatile String authority;
+
+        /** The cached host domain. */
+        private volatile String hostDomain;
+
+        /** The cached host port. */
+        private volatile Integer hostPort;
+
+        /** The cached path. */
+        private volatile String path;
+
+        /** The cached query. */
+        private volatile String query;
+
+        /** The cached decoded query parameters, as name and value pairs. */
+        private volatile String[] queryParameters;
+
+        /** The cached remaining part including the query. */
+        private volatile Remaining remainingPart;
+
+        /** The cached remaining part without the query. */
+        private volatile Remaining remainingPath;
+
+        /** The cached scheme. */
+        private volatile String scheme;
+
+        /** The cached path segments. */
+        private volatile String[] segments;
+
+        /**
+         * Constructor.
+         * 
+         * @param ref
+         *            The reference string to parse.
+         */
+        private Parsed(String ref) {
+            this.ref = ref;
+
+            if (ref != null) {
+                // Same logic as the updateIndexes() method
+                int firstSlashIndex = ref.indexOf('/');
+                int scheme = ref.indexOf(':');
+
+                if ((firstSlashIndex != -1) && (scheme > firstSlashIndex)) {
+                    scheme = -1;
+                }
+
+                int query = ref.indexOf('?');
+                int fragment = ref.indexOf('#');
+
+                if ((query != -1) && (fragment != -1) && (query > fragment)) {
+                    query = -1;
+                }
+
+                if ((query != -1) && (scheme > query)) {
+                    scheme = -1;
+                }
+
+                if ((fragment != -1) && (scheme > fragment)) {
+                    scheme = -1;
+                }
+
+                this.schemeIndex = scheme;
+                this.queryIndex = query;
+                this.fragmentIndex = fragment;
+
+                // Compute the bounds of the relative part or of the scheme
+                // specific part
+                int partStart;
+                int partEnd;
+
+                if (scheme == -1) {
+                    partStart = 0;
+                    partEnd = (query != -1) ? query
+                            : ((fragment != -1) ? fragment : ref.length());
+                } else {
+                    partStart = scheme + 1;
+                    partEnd = (fragment != -1) ? fragment : ref.length();
+                }
+
+                // Compute the bounds of the authority and of the path, with
+                // the same logic as the getAuthority() and getPath() methods
+                if (ref.startsWith("//", partStart) && (partEnd - partStart >= 2)) {
+                    int slash = indexOf(ref, '/', partStart + 2, partEnd);
+                    int question = indexOf(ref, '?', partStart, partEnd);
+                    this.authorityStart = partStart + 2;
+
+                    if (slash != -1) {
+                        this.authorityEnd = slash;
+                        this.pathStart = (question != -1) ? Math.min(slash,
+                                question) : slash;
+                        this.pathEnd = (question != -1) ? question : partEnd;
+                    } else {
+                        this.authorityEnd = (question != -1) ? question
+                                : partEnd;
+                        this.pathStart = -1;
+                        this.pathEnd = -1;
+                    }
+                } else {
+                    int question = indexOf(ref, '?', partStart, partEnd);
+                    this.authorityStart = -1;
+                    this.authorityEnd = -1;
+                    this.pathStart = partStart;
+                    this.pathEnd = (question != -1) ? question : partEnd;
+                }
+            } else {
+                this.schemeIndex = -1;
+                this.queryIndex = -1;
+                this.fragmentIndex = -1;
+                this.authorityStart = -1;
+                this.authorityEnd = -1;
+                this.pathStart = -1;
+                this.pathEnd = -1;
+            }
+        }
+
+        /**
+         * Returns the authority component.
+         * 
+         * @return The authority component or null.
+         */
+        private String getAuthority() {
+            String result = this.authority;
+
+            if ((result == null) && (this.authorityStart != -1)) {
+                result = this.ref.substring(this.authorityStart,
+                        this.authorityEnd);
+                this.authority = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the host domain, computed by a given reference.
+         * 
+         * @param reference
+         *            The reference computing the host domain.
+         * @return The host domain or null.
+         */
+        private String getHostDomain(Reference reference) {
+            String result = this.hostDomain;
+
+            if ((result == null) && (this.authorityStart != -1)) {
+                result = reference.parseHostDomain(getAuthority());
+                this.hostDomain = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the host port, computed by a given reference.
+         * 
+         * @param reference
+         *            The reference computing the host port.
+         * @return The host port or -1.
+         */
+        private int getHostPort(Reference reference) {
+            Integer result = this.hostPort;
+
+            if (result == null) {
+                result = reference.parseHostPort(getAuthority());
+                this.hostPort = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the path component.
+         * 
+         * @return The path component or null.
+         */
+        private String getPath() {
+            String result = this.path;
+
+            if ((result == null) && (this.pathStart != -1)) {
+                result = this.ref.substring(this.pathStart, this.pathEnd);
+                this.path = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the query component.
+         * 
+         * @return The query component or null.
+         */
+        private String getQuery() {
+            String result = this.query;
+
+            if ((result == null) && (this.queryIndex != -1)) {
+                // Same logic as the getQuery() method
+                if (this.fragmentIndex == -1) {
+                    result = this.ref.substring(this.queryIndex + 1);
+                } else if (this.queryIndex < this.fragmentIndex) {
+                    result = this.ref.substring(this.queryIndex + 1,
+                            this.fragmentIndex);
+                }
+
+                this.query = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns a new form with the decoded query parameters.
+         * 
+         * @return A new form with the decoded query parameters.
+         */
+        private Form getQueryAsForm() {
+            String[] parameters = this.queryParameters;
+
+            if (parameters == null) {
+                Form form = new Form(getQuery());
+                parameters = new String[2 * form.size()];
+
+                for (int i = 0; i < form.size(); i++) {
+                    parameters[2 * i] = form.get(i).getName();
+                    parameters[2 * i + 1] = form.get(i).getValue();
+                }
+
+                this.queryParameters = parameters;
+            }
+
+            Form result = new Form(parameters.length / 2);
+
+            for (int i = 0; i < parameters.length; i += 2) {
+                result.add(parameters[i], parameters[i + 1]);
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the remaining part relatively to a base reference string.
+         * 
+         * @param base
+         *            The base reference string.
+         * @param query
+         *            True if the query part should be returned.
+         * @return The remaining part or null.
+         */
+        private String getRemainingPart(String base, boolean query) {
+            Remaining remaining = query ? this.remainingPart
+                    : this.remainingPath;
+
+            if ((remaining == null)
+                    || ((remaining.base != base) && ((base == null) || !base
+                            .equals(remaining.base)))) {
+                String all = query ? ((this.fragmentIndex != -1) ? this.ref
+                        .substring(0, this.fragmentIndex) : this.ref)
+                        : ((this.queryIndex != -1) ? this.ref.substring(0,
+                                this.queryIndex)
+                                : ((this.fragmentIndex != -1) ? this.ref
+                                        .substring(0, this.fragmentIndex)
+                                        : this.ref));
+                String value = null;
+
+                if (base == null) {
+                    value = all;
+                } else if (all.startsWith(base)) {
+                    value = all.substring(base.length());
+                }
+
+                remaining = new Remaining(base, value);
+
+                if (query) {
+                    this.remainingPart = remaining;
+                } else {
+                    this.remainingPath = remaining;
+                }
+            }
+
+            return remaining.value;
+        }
+
+        /**
+         * Returns the scheme component.
+         * 
+         * @return The scheme component or null.
+         */
+        private String getScheme() {
+            String result = this.scheme;
+
+            if ((result == null) && (this.schemeIndex != -1)) {
+                result = this.ref.substring(0, this.schemeIndex);
+                this.scheme = result;
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns a new list of path segments.
+         * 
+         * @return A new list of path segments.
+         */
+        private List<String> getSegments() {
+            String[] cached = this.segments;
+
+            if (cached == null) {
+                List<String> result = new ArrayList<String>();
+                String path = getPath();
+                int start = -2; // The index of the slash starting the segment
+                char current;
+
+                if (path != null) {
+                    for (int i = 0; i < path.length(); i++) {
+                        current = path.charAt(i);
+
+                        if (current == '/') {
+                            if (start != -2) {
+                                // End of a segment
+                                result.add(path.substring(start + 1, i));
+                            }
+
+                            start = i;
+                        } else if (start == -2) {
+                            // Starting a new segment for a relative path
+                            start = -1;
+                        }
+                    }
+
+                    if (start != -2) {
+                        // Add the last segment
+                        result.add(path.substring(start + 1));
+                    }
+                }
+
+                cached = result.isEmpty() ? NO_SEGMENTS : result
+                        .toArray(new String[result.size()]);
+                this.segments = cached;
+            }
+
+            List<String> result = new ArrayList<String>(cached.length);
+
+            for (String segment : cached) {
+                result.add(segment);
+            }
+
+            return result;
+        }
+    }
+
     /** Helps to map characters and their validity as URI characters. */
     private static final boolean[] charValidityMap = new boolean[127];
 
@@ -172,8 +611,8 @@ public class Reference {
         String result = null;
         // [ifndef gwt]
         try {
-            result = (characterSet == null) ? toDecode : java.net.URLDecoder
-                    .decode(toDecode, characterSet.getName());
+            result = org.restlet.engine.util.ReferenceUtils.decode(toDecode,
+                    characterSet);
         } catch (UnsupportedEncodingException uee) {
             Context.getCurrentLogger()
                     .log(Level.WARNING,
@@ -253,8 +692,8 @@ public class Reference {
 
         // [ifndef gwt]
         try {
-            result = (characterSet == null) ? toEncode : java.net.URLEncoder
-                    .encode(toEncode, characterSet.getName());
+            result = org.restlet.engine.util.ReferenceUtils.encode(toEncode,
+                    queryString, characterSet);
         } catch (UnsupportedEncodingException uee) {
             Context.getCurrentLogger()
                     .log(Level.WARNING,
@@ -271,13 +710,13 @@ public class Reference {
         // System.err
         // .println("Unable to encode the string with the UTF-8 character set.");
         // }
+        //
+        // if (queryString) {
+        // result = result.replace("+", "%20").replace("*", "%2A")
+        // .replace("%7E", "~");
+        // }
         // [enddef]
 
-        if (queryString) {
-            result = result.replace("+", "%20").replace("*", "%2A")
-                    .replace("%7E", "~");
-        }
-
         return result;
     }
 
@@ -524,6 +963,9 @@ public class Reference {
     /** The base reference for relative references. */
     private volatile Reference baseRef;
 
+    /** The parsed form of the internal reference, lazily created. */
+    private volatile Parsed parsed;
+
     /** The fragment separator index. */
     private volatile int fragmentIndex;
 
@@ -883,26 +1325,7 @@ public class Reference {
      * @return The authority component for hierarchical identifiers.
      */
     public String getAuthority() {
-        final String part = isRelative() ? getRelativePart()
-                : getSchemeSpecificPart();
-
-        if ((part != null) && part.startsWith("//")) {
-            int index = part.indexOf('/', 2);
-
-            if (index != -1) {
-                return part.substring(2, index);
-            }
-
-            index = part.indexOf('?');
-            if (index != -1) {
-                return part.substring(2, index);
-            }
-
-            return part.substring(2);
-
-        }
-
-        return null;
+        return getParsed().getAuthority();
     }
 
     /**
@@ -1070,39 +1493,7 @@ public class Reference {
      *         identifiers.
      */
     public String getHostDomain() {
-        String result = null;
-        final String authority = getAuthority();
-
-        if (authority != null) {
-            // We must prevent the case where the userinfo part contains ':'
-            // and the case of IPV6 addresses
-            int indexUI = authority.indexOf('@'); // user info
-            int indexIPV6 = authority.indexOf(']'); // IPV6
-            int indexP = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
-                    : indexIPV6);
-
-            if (indexUI != -1) {
-                // User info found
-                if (indexP != -1) {
-                    // Port found
-                    result = authority.substring(indexUI + 1, indexP);
-                } else {
-                    // No port found
-                    result = authority.substring(indexUI + 1);
-                }
-            } else {
-                // No user info found
-                if (indexP != -1) {
-                    // Port found
-                    result = authority.substring(0, indexP);
-                } else {
-                    // No port found
-                    result = authority;
-                }
-            }
-        }
-
-        return result;
+        return getParsed().getHostDomain(this);
     }
 
     /**
@@ -1152,31 +1543,7 @@ public class Reference {
      *         identifiers or -1 if the port number does not exist.
      */
     public int getHostPort() {
-        int result = -1;
-        final String authority = getAuthority();
-
-        if (authority != null) {
-            // We must prevent the case where the userinfo part contains ':'
-            // and the case of IPV6 addresses
-            int indexUI = authority.indexOf('@'); // user info
-            int indexIPV6 = authority.indexOf(']'); // IPV6
-            int index = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
-                    : indexIPV6);
-
-            if (index != -1) {
-                try {
-                    result = Integer.parseInt(authority.substring(index + 1));
-                } catch (NumberFormatException nfe) {
-                    Context.getCurrentLogger().log(
-                            Level.WARNING,
-                            "Can't parse hostPort : [hostRef,requestUri]=["
-                                    + getBaseRef() + "," + this.internalRef
-                                    + "]");
-                }
-            }
-        }
-
-        return result;
+        return getParsed().getHostPort(this);
     }
 
     /**
@@ -1363,6 +1730,24 @@ public class Reference {
         return result;
     }
 
+    /**
+     * Returns the parsed form of the internal reference, creating it when the
+     * internal reference has changed.
+     * 
+     * @return The parsed form of the internal reference.
+     */
+    private Parsed getParsed() {
+        final String ref = this.internalRef;
+        Parsed result = this.parsed;
+
+        if ((result == null) || (result.ref != ref)) {
+            result = new Parsed(ref);
+            this.parsed = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the path component for hierarchical identifiers. If not path is
      * available it returns null.<br>
@@ -1371,45 +1756,7 @@ public class Reference {
      * @return The path component for hierarchical identifiers.
      */
     public String getPath() {
-        String result = null;
-        String part = isRelative() ? getRelativePart()
-                : getSchemeSpecificPart();
-
-        if (part != null) {
-            if (part.startsWith("//")) {
-                // Authority found
-                int index1 = part.indexOf('/', 2);
-
-                if (index1 != -1) {
-                    // Path found
-                    int index2 = part.indexOf('?');
-
-                    if (index2 != -1) {
-                        // Query found
-                        result = part.substring(Math.min(index1, index2),
-                                index2);
-                    } else {
-                        // No query found
-                        result = part.substring(index1);
-                    }
-                } else {
-                    // Path must be empty in this case
-                }
-            } else {
-                // No authority found
-                int index = part.indexOf('?');
-
-                if (index != -1) {
-                    // Query found
-                    result = part.substring(0, index);
-                } else {
-                    // No query found
-                    result = part;
-                }
-            }
-        }
-
-        return result;
+        return getParsed().getPath();
     }
 
     /**
@@ -1433,24 +1780,7 @@ public class Reference {
      * @return The query component or null.
      */
     public String getQuery() {
-        if (hasQuery()) {
-            // Query found
-            if (hasFragment()) {
-                if (this.queryIndex < this.fragmentIndex) {
-                    // Fragment found and query sign not inside fragment
-                    return this.internalRef.substring(this.queryIndex + 1,
-                            this.fragmentIndex);
-                }
-
-                return null;
-            }
-
-            // No fragment found
-            return this.internalRef.substring(this.queryIndex + 1);
-        }
-
-        // No query found
-        return null;
+        return getParsed().getQuery();
     }
 
     /**
@@ -1472,7 +1802,7 @@ public class Reference {
      * @return The optional query component as a form.
      */
     public Form getQueryAsForm() {
-        return new Form(getQuery());
+        return getParsed().getQueryAsForm();
     }
 
     /**
@@ -1759,16 +2089,16 @@ public class Reference {
      */
     public String getRemainingPart(boolean decode, boolean query) {
         String result = null;
-        final String all = toString(query, false);
+        Reference baseRef = getBaseRef();
 
-        if (getBaseRef() != null) {
-            final String base = getBaseRef().toString(query, false);
+        if (baseRef != null) {
+            final String base = baseRef.toString(query, false);
 
-            if ((base != null) && all.startsWith(base)) {
-                result = all.substring(base.length());
+            if (base != null) {
+                result = getParsed().getRemainingPart(base, query);
             }
         } else {
-            result = all;
+            result = getParsed().getRemainingPart(null, query);
         }
 
         return decode ? decode(result) : result;
@@ -1781,13 +2111,7 @@ public class Reference {
      * @return The scheme component.
      */
     public String getScheme() {
-        if (hasScheme()) {
-            // Scheme found
-            return this.internalRef.substring(0, this.schemeIndex);
-        }
-
-        // No scheme found
-        return null;
+        return getParsed().getScheme();
     }
 
     /**
@@ -1858,42 +2182,7 @@ public class Reference {
      * @return The segments of a hierarchical path.
      */
     public List<String> getSegments() {
-        final List<String> result = new ArrayList<String>();
-        final String path = getPath();
-        int start = -2; // The index of the slash starting the segment
-        char current;
-
-        if (path != null) {
-            for (int i = 0; i < path.length(); i++) {
-                current = path.charAt(i);
-
-                if (current == '/') {
-                    if (start == -2) {
-                        // Beginning of an absolute path or sequence of two
-                        // separators
-                        start = i;
-                    } else {
-                        // End of a segment
-                        result.add(path.substring(start + 1, i));
-                        start = i;
-                    }
-                } else {
-                    if (start == -2) {
-                        // Starting a new segment for a relative path
-                        start = -1;
-                    } else {
-                        // Looking for the next character
-                    }
-                }
-            }
-
-            if (start != -2) {
-                // Add the last segment
-                result.add(path.substring(start + 1));
-            }
-        }
-
-        return result;
+        return getParsed().getSegments();
     }
 
     /**
@@ -2304,6 +2593,82 @@ public class Reference {
         return this;
     }
 
+    /**
+     * Extracts the host domain name from an authority component.
+     * 
+     * @param authority
+     *            The authority component.
+     * @return The host domain name or null.
+     */
+    private String parseHostDomain(String authority) {
+        String result = null;
+
+        if (authority != null) {
+            // We must prevent the case where the userinfo part contains ':'
+            // and the case of IPV6 addresses
+            int indexUI = authority.indexOf('@'); // user info
+            int indexIPV6 = authority.indexOf(']'); // IPV6
+            int indexP = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
+                    : indexIPV6);
+
+            if (indexUI != -1) {
+                // User info found
+                if (indexP != -1) {
+                    // Port found
+                    result = authority.substring(indexUI + 1, indexP);
+                } else {
+                    // No port found
+                    result = authority.substring(indexUI + 1);
+                }
+            } else {
+                // No user info found
+                if (indexP != -1) {
+                    // Port found
+                    result = authority.substring(0, indexP);
+                } else {
+                    // No port found
+                    result = authority;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Extracts the port number from an authority component.
+     * 
+     * @param authority
+     *            The authority component.
+     * @return The port number or -1 if the port number does not exist.
+     */
+    private int parseHostPort(String authority) {
+        int result = -1;
+
+        if (authority != null) {
+            // We must prevent the case where the userinfo part contains ':'
+            // and the case of IPV6 addresses
+            int indexUI = authority.indexOf('@'); // user info
+            int indexIPV6 = authority.indexOf(']'); // IPV6
+            int index = authority.indexOf(':', (indexIPV6 == -1) ? indexUI
+                    : indexIPV6);
+
+            if (index != -1) {
+                try {
+                    result = Integer.parseInt(authority.substring(index + 1));
+                } catch (NumberFormatException nfe) {
+                    Context.getCurrentLogger().log(
+                            Level.WARNING,
+                            "Can't parse hostPort : [hostRef,requestUri]=["
+                                    + getBaseRef() + "," + this.internalRef
+                                    + "]");
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Removes the last segement from the output builder.
      * 
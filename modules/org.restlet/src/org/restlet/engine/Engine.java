@@ -103,6 +103,10 @@ public class Engine {
     /** The registered engine. */
     private static volatile Engine instance = null;
 
+    // [ifndef gwt] member
+    /** The JDK factory of virtual threads, null if not supported. */
+    private static final java.util.concurrent.ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+
     // [ifdef jse,android,osgi] member
     /** The org.restlet log level . */
     private static volatile boolean logConfigured = false;
@@ -142,6 +146,38 @@ public class Engine {
         instance = null;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Creates a new standalone thread, running on a virtual thread if requested
+     * and supported by the JVM, or on a regular platform thread otherwise.
+     * 
+     * @param runnable
+     *            The runnable task to execute.
+     * @param name
+     *            The thread name or null for a default one.
+     * @param virtual
+     *            True if a virtual thread should be created.
+     * @return The thread ready to run the given runnable task.
+     * @see #isVirtualThreadSupported()
+     */
+    public static Thread createThread(Runnable runnable, String name,
+            boolean virtual) {
+        Thread result = null;
+
+        if (virtual && isVirtualThreadSupported()) {
+            result = virtualThreadFactory.newThread(runnable);
+
+            if (name != null) {
+                result.setName(name);
+            }
+        } else {
+            result = (name == null) ? new Thread(runnable) : new Thread(
+                    runnable, name);
+        }
+
+        return result;
+    }
+
     // [ifndef gwt] method
     /**
      * Creates a new standalone thread with local Restlet thread variable
@@ -156,13 +192,33 @@ public class Engine {
      */
     public static Thread createThreadWithLocalVariables(
             final Runnable runnable, String name) {
+        return createThreadWithLocalVariables(runnable, name, false);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Creates a new standalone thread with local Restlet thread variable
+     * properly set. The thread is virtual if requested and supported by the
+     * JVM.
+     * 
+     * @param runnable
+     *            The runnable task to execute.
+     * @param name
+     *            The thread name.
+     * @param virtual
+     *            True if a virtual thread should be created.
+     * @return The thread with proper variables ready to run the given runnable
+     *         task.
+     */
+    public static Thread createThreadWithLocalVariables(
+            final Runnable runnable, String name, boolean virtual) {
         // Save the thread local variables
         final org.restlet.Application currentApplication = org.restlet.Application.getCurrent();
         final Context currentContext = Context.getCurrent();
         final Integer currentVirtualHost = org.restlet.routing.VirtualHost.getCurrent();
         final Response currentResponse = Response.getCurrent();
 
-        return new Thread(new Runnable() {
+        return createThread(new Runnable() {
 
             @Override
             public void run() {
@@ -180,7 +236,29 @@ public class Engine {
                 }
             }
 
-        }, name);
+        }, name, virtual);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Looks up the JDK factory of virtual threads, available since Java SE 21.
+     * Reflection is used to stay compatible with older JVMs.
+     * 
+     * @return The factory of virtual threads or null if not supported.
+     */
+    private static java.util.concurrent.ThreadFactory createVirtualThreadFactory() {
+        java.util.concurrent.ThreadFactory result = null;
+
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            result = (java.util.concurrent.ThreadFactory) Class
+                    .forName("java.lang.Thread$Builder").getMethod("factory")
+                    .invoke(builder);
+        } catch (Throwable t) {
+            // Virtual threads aren't supported or enabled by this JVM
+        }
+
+        return result;
     }
 
     // [ifndef gwt] method
@@ -358,6 +436,17 @@ public class Engine {
         return Engine.restletLogLevel;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Indicates if virtual threads are supported by the JVM, which is the case
+     * since Java SE 21.
+     * 
+     * @return True if virtual threads are supported by the JVM.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return virtualThreadFactory != null;
+    }
+
     // [ifndef gwt] method
     /**
      * Returns the class object for the given name using the engine classloader.
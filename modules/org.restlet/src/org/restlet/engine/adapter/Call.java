@@ -138,11 +138,13 @@ public abstract class Call {
         this.requestHeaders = new Series<Header>(Header.class);
         // [ifdef gwt] instruction uncomment
         // this.requestHeaders = new org.restlet.engine.util.HeaderSeries();
+        this.requestHeaders.setIndexed(true);
         this.requestUri = null;
         // [ifndef gwt] instruction
         this.responseHeaders = new Series<Header>(Header.class);
         // [ifdef gwt] instruction uncomment
         // this.responseHeaders = new org.restlet.engine.util.HeaderSeries();
+        this.responseHeaders.setIndexed(true);
         this.serverAddress = null;
         this.serverPort = -1;
         this.statusCode = 200;
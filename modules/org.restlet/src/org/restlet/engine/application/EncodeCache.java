@@ -0,0 +1,668 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.Encoding;
+import org.restlet.data.Reference;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.NioUtils;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Bounded cache of encoded entities. Only the GZip and Deflate encodings of
+ * entities that can be identified are cached, that is entities with a known
+ * size, that are not transient and that have either a strong tag or a
+ * modification date. The key also includes the resource reference, the media
+ * type, the character set, the languages and the size of the entity, so that
+ * a new version of the entity doesn't hit a stale entry.<br>
+ * <br>
+ * The encoded bytes are kept in memory within a global budget. If a directory
+ * is set, they are also written to disk where a second, larger budget
+ * applies. Entries are evicted in least recently used order.
+ * 
+ * @author Jerome Louvel
+ * @see org.restlet.service.EncoderService#setCache(EncodeCache)
+ */
+public class EncodeCache {
+
+    /**
+     * Encoded representation whose bytes come from the cache, either from
+     * memory or from a file. The file is opened while the cache is locked, so
+     * that a concurrent eviction can't remove it before it is read.
+     */
+    private static class CachedRepresentation extends EncodeRepresentation {
+
+        /** The encoded bytes or null if they are stored in a file. */
+        private final byte[] bytes;
+
+        /** The file containing the encoded bytes or null. */
+        private final File file;
+
+        /** The size of the encoded bytes. */
+        private final long size;
+
+        /** The stream opened on the file and not read yet or null. */
+        private volatile InputStream stream;
+
+        /**
+         * Constructor for bytes kept in memory.
+         * 
+         * @param encoding
+         *            The applied encoding.
+         * @param wrappedRepresentation
+         *            The original representation.
+         * @param bytes
+         *            The encoded bytes.
+         */
+        public CachedRepresentation(Encoding encoding,
+                Representation wrappedRepresentation, byte[] bytes) {
+            super(encoding, wrappedRepresentation);
+            this.bytes = bytes;
+            this.file = null;
+            this.size = bytes.length;
+        }
+
+        /**
+         * Constructor for bytes stored in a file.
+         * 
+         * @param encoding
+         *            The applied encoding.
+         * @param wrappedRepresentation
+         *            The original representation.
+         * @param file
+         *            The file containing the encoded bytes.
+         * @param stream
+         *            The stream already opened on the file.
+         * @param size
+         *            The size of the encoded bytes.
+         */
+        public CachedRepresentation(Encoding encoding,
+                Representation wrappedRepresentation, File file,
+                InputStream stream, long size) {
+            super(encoding, wrappedRepresentation);
+            this.bytes = null;
+            this.file = file;
+            this.size = size;
+            this.stream = stream;
+        }
+
+        @Override
+        public long getAvailableSize() {
+            return this.size;
+        }
+
+        @Override
+        public ReadableByteChannel getChannel() throws IOException {
+            return NioUtils.getChannel(getStream());
+        }
+
+        @Override
+        public long getSize() {
+            return this.size;
+        }
+
+        @Override
+        public InputStream getStream() throws IOException {
+            InputStream result = null;
+
+            if (this.bytes != null) {
+                result = new ByteArrayInputStream(this.bytes);
+            } else {
+                // The first read uses the stream opened under the lock
+                result = this.stream;
+                this.stream = null;
+
+                if (result == null) {
+                    result = new FileInputStream(this.file);
+                }
+            }
+
+            return result;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public boolean isTransient() {
+            return false;
+        }
+
+        @Override
+        public void release() {
+            InputStream unread = this.stream;
+            this.stream = null;
+
+            if (unread != null) {
+                try {
+                    unread.close();
+                } catch (IOException ioe) {
+                    // Ignore
+                }
+            }
+
+            super.release();
+        }
+
+        @Override
+        public void write(OutputStream outputStream) throws IOException {
+            if (this.bytes != null) {
+                outputStream.write(this.bytes);
+            } else {
+                BioUtils.copy(getStream(), outputStream);
+            }
+        }
+    }
+
+    /** The default maximum size of a cached entity, before encoding. */
+    public static final long DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+    /** The default maximum size of the encoded bytes kept in memory. */
+    public static final long DEFAULT_MAX_MEMORY_SIZE = 4 * 1024 * 1024;
+
+    /** The default maximum size of the encoded bytes written to disk. */
+    public static final long DEFAULT_MAX_DISK_SIZE = 64 * 1024 * 1024;
+
+    /** The directory where encoded bytes are written or null. */
+    private final File directory;
+
+    /** The sizes of the disk entries in access order. */
+    private final Map<String, Long> diskEntries;
+
+    /** The current size of the disk entries. */
+    private long diskSize;
+
+    /** The number of cache hits. */
+    private final AtomicLong hits;
+
+    /** The maximum size of the disk entries. */
+    private final long maxDiskSize;
+
+    /** The maximum size of a cached entity, before encoding. */
+    private volatile long maxEntrySize;
+
+    /** The maximum size of the memory entries. */
+    private final long maxMemorySize;
+
+    /** The memory entries in access order. */
+    private final Map<String, byte[]> memoryEntries;
+
+    /** The current size of the memory entries. */
+    private long memorySize;
+
+    /** The number of cache misses. */
+    private final AtomicLong misses;
+
+    /**
+     * Default constructor. Only caches in memory, within the
+     * {@link #DEFAULT_MAX_MEMORY_SIZE} budget.
+     */
+    public EncodeCache() {
+        this(DEFAULT_MAX_MEMORY_SIZE);
+    }
+
+    /**
+     * Constructor. Only caches in memory.
+     * 
+     * @param maxMemorySize
+     *            The maximum size of the encoded bytes kept in memory.
+     */
+    public EncodeCache(long maxMemorySize) {
+        this(maxMemorySize, null, 0);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxMemorySize
+     *            The maximum size of the encoded bytes kept in memory.
+     * @param directory
+     *            The directory where encoded bytes are written or null.
+     * @param maxDiskSize
+     *            The maximum size of the encoded bytes written to disk.
+     */
+    public EncodeCache(long maxMemorySize, File directory, long maxDiskSize) {
+        this.directory = directory;
+        this.diskEntries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        this.hits = new AtomicLong();
+        this.maxDiskSize = (directory == null) ? 0 : maxDiskSize;
+        this.maxEntrySize = DEFAULT_MAX_ENTRY_SIZE;
+        this.maxMemorySize = maxMemorySize;
+        this.memoryEntries = new LinkedHashMap<String, byte[]>(16, 0.75f,
+                true);
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Removes all the entries, including the files written to disk.
+     */
+    public void clear() {
+        synchronized (this) {
+            this.memoryEntries.clear();
+            this.memorySize = 0;
+
+            for (String key : this.diskEntries.keySet()) {
+                getFile(key).delete();
+            }
+
+            this.diskEntries.clear();
+            this.diskSize = 0;
+        }
+    }
+
+    /**
+     * Returns an encoded version of the given representation, served from the
+     * cache when available, otherwise encoded and stored.
+     * 
+     * @param resourceRef
+     *            The reference of the resource that returned the
+     *            representation or null.
+     * @param encoding
+     *            The encoding to apply.
+     * @param representation
+     *            The representation to encode.
+     * @return The encoded representation or null if it can't be cached.
+     */
+    public Representation encode(Reference resourceRef, Encoding encoding,
+            Representation representation) {
+        return encode(resourceRef, new EncodeRepresentation(encoding,
+                representation));
+    }
+
+    /**
+     * Returns an encoded version of the wrapped representation, served from the
+     * cache when available. Otherwise, the given encode representation is
+     * written and stored, so that its compression level and its
+     * {@link EncodeRepresentation#onEncoded(long, long)} callback apply.
+     * 
+     * @param resourceRef
+     *            The reference of the resource that returned the
+     *            representation or null.
+     * @param encodeRepresentation
+     *            The encode representation wrapping the representation.
+     * @return The encoded representation or null if it can't be cached.
+     */
+    public Representation encode(Reference resourceRef,
+            EncodeRepresentation encodeRepresentation) {
+        Representation result = null;
+        Encoding encoding = encodeRepresentation.getEncoding();
+        Representation representation = encodeRepresentation
+                .getWrappedRepresentation();
+        String key = getKey(resourceRef, encoding, representation);
+
+        if (key != null) {
+            byte[] bytes = null;
+            InputStream fileStream = null;
+            long fileSize = 0;
+
+            synchronized (this) {
+                bytes = this.memoryEntries.get(key);
+                Long size = (bytes == null) ? this.diskEntries.get(key) : null;
+
+                if (size != null) {
+                    try {
+                        // Pin the file before an eviction can delete it
+                        fileStream = new FileInputStream(getFile(key));
+                        fileSize = size.longValue();
+                    } catch (FileNotFoundException fnfe) {
+                        // Deleted behind our back
+                        remove(key);
+                    }
+                }
+            }
+
+            if (bytes != null) {
+                this.hits.incrementAndGet();
+                result = new CachedRepresentation(encoding, representation,
+                        bytes);
+            } else if (fileStream != null) {
+                this.hits.incrementAndGet();
+                result = new CachedRepresentation(encoding, representation,
+                        getFile(key), fileStream, fileSize);
+            } else {
+                this.misses.incrementAndGet();
+
+                try {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                            (int) Math.min(representation.getSize(), 8192));
+                    encodeRepresentation.write(baos);
+                    bytes = baos.toByteArray();
+                    put(key, bytes);
+                    result = new CachedRepresentation(encoding,
+                            representation, bytes);
+                } catch (IOException ioe) {
+                    Context.getCurrentLogger().log(Level.FINE,
+                            "Unable to cache the encoded entity", ioe);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the directory where encoded bytes are written or null.
+     * 
+     * @return The directory where encoded bytes are written or null.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the current size of the encoded bytes written to disk.
+     * 
+     * @return The current size of the encoded bytes written to disk.
+     */
+    public synchronized long getDiskSize() {
+        return this.diskSize;
+    }
+
+    /**
+     * Returns the file storing an entry on disk, named after the SHA-1 digest
+     * of its key.
+     * 
+     * @param key
+     *            The entry key.
+     * @return The file storing the entry.
+     */
+    private File getFile(String key) {
+        String name = null;
+
+        try {
+            name = BioUtils.toHexString(MessageDigest.getInstance("SHA-1")
+                    .digest(key.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            name = Integer.toHexString(key.hashCode());
+        } catch (UnsupportedEncodingException e) {
+            name = Integer.toHexString(key.hashCode());
+        }
+
+        return new File(getDirectory(), name);
+    }
+
+    /**
+     * Returns the number of cache hits.
+     * 
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the cache key of an encoded representation.
+     * 
+     * @param resourceRef
+     *            The reference of the resource that returned the
+     *            representation or null.
+     * @param encoding
+     *            The encoding to apply.
+     * @param representation
+     *            The representation to encode.
+     * @return The cache key or null if the representation can't be cached.
+     */
+    protected String getKey(Reference resourceRef, Encoding encoding,
+            Representation representation) {
+        String result = null;
+
+        if ((representation != null)
+                && (Encoding.GZIP.equals(encoding) || Encoding.DEFLATE
+                        .equals(encoding))
+                && (representation.getSize() >= 0)
+                && (representation.getSize() <= getMaxEntrySize())
+                && (representation.getRange() == null)
+                && !representation.isTransient()
+                && representation.isAvailable()
+                && (((representation.getTag() != null) && !representation
+                        .getTag().isWeak()) || (representation
+                        .getModificationDate() != null))) {
+            Reference ref = resourceRef;
+
+            if (ref == null) {
+                ref = representation.getLocationRef();
+            }
+
+            if (ref != null) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(encoding.getName()).append('\n');
+                sb.append(ref.toString()).append('\n');
+                sb.append(representation.getMediaType()).append('\n');
+                sb.append(representation.getCharacterSet()).append('\n');
+                sb.append(representation.getLanguages()).append('\n');
+                sb.append(representation.getEncodings()).append('\n');
+
+                if (representation.getTag() != null) {
+                    sb.append(representation.getTag().format());
+                }
+
+                sb.append('\n');
+
+                if (representation.getModificationDate() != null) {
+                    sb.append(representation.getModificationDate().getTime());
+                }
+
+                sb.append('\n').append(representation.getSize());
+                result = sb.toString();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum size of the encoded bytes written to disk.
+     * 
+     * @return The maximum size of the encoded bytes written to disk.
+     */
+    public long getMaxDiskSize() {
+        return this.maxDiskSize;
+    }
+
+    /**
+     * Returns the maximum size of a cached entity, before encoding.
+     * 
+     * @return The maximum size of a cached entity, before encoding.
+     */
+    public long getMaxEntrySize() {
+        return this.maxEntrySize;
+    }
+
+    /**
+     * Returns the maximum size of the encoded bytes kept in memory.
+     * 
+     * @return The maximum size of the encoded bytes kept in memory.
+     */
+    public long getMaxMemorySize() {
+        return this.maxMemorySize;
+    }
+
+    /**
+     * Returns the current size of the encoded bytes kept in memory.
+     * 
+     * @return The current size of the encoded bytes kept in memory.
+     */
+    public synchronized long getMemorySize() {
+        return this.memorySize;
+    }
+
+    /**
+     * Returns the number of cache misses.
+     * 
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Stores encoded bytes in memory and, if a directory was set, on disk.
+     * 
+     * @param key
+     *            The entry key.
+     * @param bytes
+     *            The encoded bytes.
+     */
+    private void put(String key, byte[] bytes) {
+        if (bytes.length <= getMaxMemorySize()) {
+            synchronized (this) {
+                byte[] previous = this.memoryEntries.put(key, bytes);
+
+                if (previous != null) {
+                    this.memorySize -= previous.length;
+                }
+
+                this.memorySize += bytes.length;
+
+                for (Iterator<byte[]> iter = this.memoryEntries.values()
+                        .iterator(); (this.memorySize > getMaxMemorySize())
+                        && iter.hasNext();) {
+                    this.memorySize -= iter.next().length;
+                    iter.remove();
+                }
+            }
+        }
+
+        if ((getDirectory() != null) && (bytes.length <= getMaxDiskSize())) {
+            // Write the file outside of the lock, then rename it
+            File file = getFile(key);
+            File tempFile = new File(getDirectory(), file.getName() + ".tmp"
+                    + Thread.currentThread().getId());
+            OutputStream os = null;
+            boolean written = false;
+
+            try {
+                getDirectory().mkdirs();
+                os = new FileOutputStream(tempFile);
+                os.write(bytes);
+                os.close();
+                os = null;
+                file.delete();
+                written = tempFile.renameTo(file);
+            } catch (IOException ioe) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to write the encoded entity to disk", ioe);
+            } finally {
+                if (os != null) {
+                    try {
+                        os.close();
+                    } catch (IOException ioe) {
+                        // Ignore
+                    }
+                }
+
+                if (!written) {
+                    tempFile.delete();
+                }
+            }
+
+            if (written) {
+                synchronized (this) {
+                    Long previous = this.diskEntries.put(key,
+                            Long.valueOf(bytes.length));
+
+                    if (previous != null) {
+                        this.diskSize -= previous.longValue();
+                    }
+
+                    this.diskSize += bytes.length;
+
+                    for (Iterator<Map.Entry<String, Long>> iter = this.diskEntries
+                            .entrySet().iterator(); (this.diskSize > getMaxDiskSize())
+                            && iter.hasNext();) {
+                        Map.Entry<String, Long> entry = iter.next();
+                        this.diskSize -= entry.getValue().longValue();
+                        getFile(entry.getKey()).delete();
+                        iter.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes an entry from memory and disk.
+     * 
+     * @param key
+     *            The entry key.
+     */
+    private synchronized void remove(String key) {
+        byte[] bytes = this.memoryEntries.remove(key);
+
+        if (bytes != null) {
+            this.memorySize -= bytes.length;
+        }
+
+        Long size = this.diskEntries.remove(key);
+
+        if (size != null) {
+            this.diskSize -= size.longValue();
+            getFile(key).delete();
+        }
+    }
+
+    /**
+     * Sets the maximum size of a cached entity, before encoding.
+     * 
+     * @param maxEntrySize
+     *            The maximum size of a cached entity, before encoding.
+     */
+    public void setMaxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+}
@@ -43,6 +43,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
@@ -52,6 +53,7 @@ import org.restlet.data.Disposition;
 import org.restlet.data.Encoding;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.engine.io.NioUtils;
+import org.restlet.engine.io.ReadableDeflatingChannel;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperList;
 import org.restlet.util.WrapperRepresentation;
@@ -63,6 +65,39 @@ import org.restlet.util.WrapperRepresentation;
  * @author Jerome Louvel
  */
 public class EncodeRepresentation extends WrapperRepresentation {
+    /**
+     * GZip output stream using a given compression level and giving access to
+     * its deflater.
+     */
+    private static class LevelGzipOutputStream extends GZIPOutputStream {
+
+        /**
+         * Constructor.
+         * 
+         * @param outputStream
+         *            The output stream.
+         * @param level
+         *            The compression level.
+         */
+        public LevelGzipOutputStream(OutputStream outputStream, int level)
+                throws IOException {
+            super(outputStream);
+
+            if (level != Deflater.DEFAULT_COMPRESSION) {
+                this.def.setLevel(level);
+            }
+        }
+
+        /**
+         * Returns the deflater.
+         * 
+         * @return The deflater.
+         */
+        public Deflater getDeflater() {
+            return this.def;
+        }
+    }
+
     /**
      * Returns the list of supported encodings.
      * 
@@ -82,6 +117,9 @@ public class EncodeRepresentation extends WrapperRepresentation {
     /** The applied encodings. */
     private volatile List<Encoding> encodings;
 
+    /** The compression level of the GZip and Deflate encodings. */
+    private volatile int level;
+
     /**
      * Constructor.
      * 
@@ -96,6 +134,7 @@ public class EncodeRepresentation extends WrapperRepresentation {
         this.canEncode = getSupportedEncodings().contains(encoding);
         this.encodings = null;
         this.encoding = encoding;
+        this.level = Deflater.DEFAULT_COMPRESSION;
     }
 
     /**
@@ -130,20 +169,41 @@ public class EncodeRepresentation extends WrapperRepresentation {
     }
 
     /**
-     * Returns a readable byte channel. If it is supported by a file a read-only
-     * instance of FileChannel is returned.
+     * Returns a readable byte channel. The GZip and Deflate encodings are
+     * applied while the channel is read, without relying on a separate writer
+     * thread.
      * 
      * @return A readable byte channel.
      */
     @Override
     public ReadableByteChannel getChannel() throws IOException {
         if (canEncode()) {
+            if (isDeflating()) {
+                ReadableByteChannel wrappedChannel = getWrappedRepresentation()
+                        .getChannel();
+
+                if (wrappedChannel != null) {
+                    return newDeflatingChannel(wrappedChannel);
+                }
+            } else if (this.encoding.equals(Encoding.IDENTITY)) {
+                return getWrappedRepresentation().getChannel();
+            }
+
             return NioUtils.getChannel(this);
         } else {
             return getWrappedRepresentation().getChannel();
         }
     }
 
+    /**
+     * Returns the encoding to apply.
+     * 
+     * @return The encoding to apply.
+     */
+    public Encoding getEncoding() {
+        return this.encoding;
+    }
+
     /**
      * Returns the applied encodings.
      * 
@@ -217,6 +277,16 @@ public class EncodeRepresentation extends WrapperRepresentation {
         return this.encodings;
     }
 
+    /**
+     * Returns the compression level of the GZip and Deflate encodings. By
+     * default, it is {@link Deflater#DEFAULT_COMPRESSION}.
+     * 
+     * @return The compression level.
+     */
+    public int getLevel() {
+        return this.level;
+    }
+
     @Override
     public Reader getReader() throws IOException {
         if (canEncode()) {
@@ -250,6 +320,17 @@ public class EncodeRepresentation extends WrapperRepresentation {
     @Override
     public InputStream getStream() throws IOException {
         if (canEncode()) {
+            if (isDeflating()) {
+                ReadableByteChannel wrappedChannel = NioUtils
+                        .getChannel(getWrappedRepresentation().getStream());
+
+                if (wrappedChannel != null) {
+                    return NioUtils.getStream(newDeflatingChannel(wrappedChannel));
+                }
+            } else if (this.encoding.equals(Encoding.IDENTITY)) {
+                return getWrappedRepresentation().getStream();
+            }
+
             return BioUtils.getStream(this);
         } else {
             return getWrappedRepresentation().getStream();
@@ -265,15 +346,73 @@ public class EncodeRepresentation extends WrapperRepresentation {
         }
     }
 
+    /**
+     * Indicates if the encoding is based on the Deflate algorithm, that is if
+     * it is either GZip or Deflate.
+     * 
+     * @return True if the encoding is based on the Deflate algorithm.
+     */
+    private boolean isDeflating() {
+        return this.encoding.equals(Encoding.GZIP)
+                || this.encoding.equals(Encoding.DEFLATE);
+    }
+
+    /**
+     * Returns a channel compressing the given wrapped channel.
+     * 
+     * @param wrappedChannel
+     *            The wrapped channel.
+     * @return The compressing channel.
+     */
+    private ReadableByteChannel newDeflatingChannel(
+            ReadableByteChannel wrappedChannel) {
+        return new ReadableDeflatingChannel(wrappedChannel,
+                this.encoding.equals(Encoding.GZIP), getLevel()) {
+            @Override
+            protected void onEnd(long inputSize, long outputSize) {
+                onEncoded(inputSize, outputSize);
+            }
+        };
+    }
+
+    /**
+     * Callback invoked when the GZip or Deflate encoding is done. Does
+     * nothing by default.
+     * 
+     * @param inputSize
+     *            The number of bytes read from the wrapped representation.
+     * @param outputSize
+     *            The number of encoded bytes.
+     */
+    protected void onEncoded(long inputSize, long outputSize) {
+    }
+
+    /**
+     * Sets the compression level of the GZip and Deflate encodings.
+     * 
+     * @param level
+     *            The compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
     @Override
     public void write(OutputStream outputStream) throws IOException {
         if (canEncode()) {
             DeflaterOutputStream encoderOutputStream = null;
+            Deflater deflater = null;
 
             if (this.encoding.equals(Encoding.GZIP)) {
-                encoderOutputStream = new GZIPOutputStream(outputStream);
+                LevelGzipOutputStream stream = new LevelGzipOutputStream(
+                        outputStream, getLevel());
+                deflater = stream.getDeflater();
+                encoderOutputStream = stream;
             } else if (this.encoding.equals(Encoding.DEFLATE)) {
-                encoderOutputStream = new DeflaterOutputStream(outputStream);
+                deflater = new Deflater(getLevel());
+                encoderOutputStream = new DeflaterOutputStream(outputStream,
+                        deflater);
             } else if (this.encoding.equals(Encoding.ZIP)) {
                 @SuppressWarnings("resource")
                 final ZipOutputStream stream = new ZipOutputStream(outputStream);
@@ -297,6 +436,19 @@ public class EncodeRepresentation extends WrapperRepresentation {
                 getWrappedRepresentation().write(encoderOutputStream);
                 encoderOutputStream.flush();
                 encoderOutputStream.finish();
+
+                if (deflater != null) {
+                    // The GZip header and trailer take 18 bytes
+                    onEncoded(deflater.getBytesRead(),
+                            deflater.getBytesWritten()
+                                    + (this.encoding.equals(Encoding.GZIP) ? 18
+                                            : 0));
+
+                    if (this.encoding.equals(Encoding.DEFLATE)) {
+                        // Not ended by the stream as it was provided
+                        deflater.end();
+                    }
+                }
             } else {
                 getWrappedRepresentation().write(outputStream);
             }
@@ -95,8 +95,8 @@ public class Encoder extends Filter {
     }
 
     /**
-     * Allows filtering after its handling by the target Restlet. Does nothing
-     * by default.
+     * Allows filtering after its handling by the target Restlet. Encodes the
+     * response entity if needed, reusing the encoder service's cache if any.
      * 
      * @param request
      *            The request to filter.
@@ -108,8 +108,20 @@ public class Encoder extends Filter {
         // Check if encoding of the response entity is needed
         if (isEncodingResponse()
                 && getEncoderService().canEncode(response.getEntity())) {
-            response.setEntity(encode(request.getClientInfo(),
-                    response.getEntity()));
+            Representation result = encode(request.getClientInfo(),
+                    response.getEntity());
+            EncodeCache cache = getEncoderService().getCache();
+
+            if ((cache != null) && (result instanceof EncodeRepresentation)) {
+                Representation cached = cache.encode(request.getResourceRef(),
+                        (EncodeRepresentation) result);
+
+                if (cached != null) {
+                    result = cached;
+                }
+            }
+
+            response.setEntity(result);
         }
     }
 
@@ -136,14 +148,16 @@ public class Encoder extends Filter {
     }
 
     /**
-     * Encodes a given representation if an encoding is supported by the client.
+     * Encodes a given representation if an encoding is supported by the client
+     * and if the encoder service selects it. The compression level is given by
+     * the encoder service, which is notified of the encoded sizes.
      * 
      * @param client
      *            The client preferences to use.
      * @param representation
      *            The representation to encode.
      * @return The encoded representation or the original one if no encoding
-     *         supported by the client.
+     *         supported by the client or if the encoding was skipped.
      */
     public Representation encode(ClientInfo client,
             Representation representation) {
@@ -151,7 +165,23 @@ public class Encoder extends Filter {
         Encoding bestEncoding = getBestEncoding(client);
 
         if (bestEncoding != null) {
-            result = new EncodeRepresentation(bestEncoding, representation);
+            final EncoderService service = getEncoderService();
+
+            if (service == null) {
+                result = new EncodeRepresentation(bestEncoding, representation);
+            } else if (service.select(representation)) {
+                // Report the sizes to the service, to measure compressibility
+                EncodeRepresentation encodeRepresentation = new EncodeRepresentation(
+                        bestEncoding, representation) {
+                    @Override
+                    protected void onEncoded(long inputSize, long outputSize) {
+                        service.onEncoded(getMediaType(), inputSize,
+                                outputSize);
+                    }
+                };
+                encodeRepresentation.setLevel(service.getLevel(representation));
+                result = encodeRepresentation;
+            }
         }
 
         return result;
@@ -0,0 +1,432 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Digest;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Parameter;
+import org.restlet.data.Range;
+import org.restlet.engine.header.ContentType;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.RangeWriter;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.NioUtils;
+import org.restlet.engine.util.StringUtils;
+import org.restlet.representation.Representation;
+import org.restlet.util.Series;
+import org.restlet.util.WrapperRepresentation;
+
+// [excludes gwt]
+/**
+ * Representation that exposes several ranges of the content of a wrapped
+ * representation as a "multipart/byteranges" entity. The ranges must be
+ * sorted, must not overlap and must be within the known size of the wrapped
+ * representation.<br>
+ * <br>
+ * The content of the ranges is read from the wrapped representation while the
+ * entity is written, without buffering it. If the wrapped representation
+ * provides a file channel, each range is read at its own position, otherwise
+ * the content is read sequentially, skipping the bytes between the ranges.
+ * 
+ * @author Jerome Louvel
+ */
+public class MultipartRangeRepresentation extends WrapperRepresentation {
+
+    /**
+     * Channel reading the parts, alternating their headers and the content of
+     * their range.
+     */
+    private class PartsChannel implements ReadableByteChannel {
+
+        /** The current position inside the current header or range. */
+        private long position;
+
+        /** The index of the current part. */
+        private int part;
+
+        /** Indicates if the header of the current part is being read. */
+        private boolean readingHeader;
+
+        /** The buffer used to skip the bytes between ranges. */
+        private ByteBuffer skipBuffer;
+
+        /** The source channel. */
+        private final ReadableByteChannel source;
+
+        /** The current position in the source channel. */
+        private long sourcePosition;
+
+        /**
+         * Constructor.
+         * 
+         * @param source
+         *            The source channel.
+         */
+        public PartsChannel(ReadableByteChannel source) {
+            this.source = source;
+            this.sourcePosition = 0;
+            this.part = 0;
+            this.position = 0;
+            this.readingHeader = true;
+        }
+
+        public void close() throws IOException {
+            this.source.close();
+        }
+
+        public boolean isOpen() {
+            return this.source.isOpen();
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            int result = 0;
+            boolean tryAgain = true;
+
+            while (tryAgain && dst.hasRemaining()
+                    && (this.part < headers.length)) {
+                if (this.readingHeader) {
+                    byte[] header = headers[this.part];
+                    int length = (int) Math.min(dst.remaining(), header.length
+                            - this.position);
+                    dst.put(header, (int) this.position, length);
+                    this.position += length;
+                    result += length;
+
+                    if (this.position == header.length) {
+                        this.position = 0;
+
+                        if (this.part < starts.length) {
+                            this.readingHeader = false;
+                        } else {
+                            // Closing delimiter written
+                            this.part++;
+                        }
+                    }
+                } else {
+                    long remaining = ends[this.part] - starts[this.part]
+                            - this.position;
+                    int count = 0;
+
+                    if (remaining > 0) {
+                        int limit = dst.limit();
+
+                        if (dst.remaining() > remaining) {
+                            dst.limit(dst.position() + (int) remaining);
+                        }
+
+                        try {
+                            count = readRange(dst, starts[this.part]
+                                    + this.position);
+                        } finally {
+                            dst.limit(limit);
+                        }
+
+                        if (count == -1) {
+                            throw new IOException(
+                                    "The wrapped representation ended before the end of the range");
+                        } else if (count == 0) {
+                            tryAgain = false;
+                        } else {
+                            this.position += count;
+                            result += count;
+                            remaining -= count;
+                        }
+                    }
+
+                    if (remaining == 0) {
+                        this.position = 0;
+                        this.part++;
+                        this.readingHeader = true;
+                    }
+                }
+            }
+
+            if ((result == 0) && (this.part >= headers.length)) {
+                result = -1;
+            }
+
+            return result;
+        }
+
+        /**
+         * Reads bytes of the wrapped representation at a given index.
+         * 
+         * @param dst
+         *            The destination buffer, limited to the range.
+         * @param index
+         *            The index of the first byte to read.
+         * @return The number of bytes read or -1 if the end was reached.
+         * @throws IOException
+         */
+        private int readRange(ByteBuffer dst, long index) throws IOException {
+            int result = 0;
+
+            if (this.source instanceof FileChannel) {
+                result = ((FileChannel) this.source).read(dst, index);
+            } else {
+                // Skip the bytes before the index
+                boolean skipped = true;
+
+                while (skipped && (this.sourcePosition < index)) {
+                    if (this.skipBuffer == null) {
+                        this.skipBuffer = ByteBuffer.allocate(4096);
+                    }
+
+                    this.skipBuffer.clear();
+
+                    if (this.skipBuffer.remaining() > (index - this.sourcePosition)) {
+                        this.skipBuffer
+                                .limit((int) (index - this.sourcePosition));
+                    }
+
+                    int skippedCount = this.source.read(this.skipBuffer);
+
+                    if (skippedCount > 0) {
+                        this.sourcePosition += skippedCount;
+                    } else {
+                        // Nothing available for now or end reached
+                        skipped = false;
+                        result = skippedCount;
+                    }
+                }
+
+                if (skipped) {
+                    result = this.source.read(dst);
+
+                    if (result > 0) {
+                        this.sourcePosition += result;
+                    }
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /** The indexes of the ends of the ranges, exclusive. */
+    private final long[] ends;
+
+    /** The headers of the parts, followed by the closing delimiter. */
+    private final byte[][] headers;
+
+    /** The multipart media type, with its boundary. */
+    private final MediaType mediaType;
+
+    /** The total size of the multipart entity. */
+    private final long size;
+
+    /** The indexes of the starts of the ranges. */
+    private final long[] starts;
+
+    /**
+     * Constructor.
+     * 
+     * @param wrappedRepresentation
+     *            The wrapped representation with a complete content and a
+     *            known size.
+     * @param ranges
+     *            The sorted, non overlapping ranges with an absolute index and
+     *            a finite size.
+     */
+    public MultipartRangeRepresentation(Representation wrappedRepresentation,
+            List<Range> ranges) {
+        super(wrappedRepresentation);
+
+        if (wrappedRepresentation.getRange() != null) {
+            throw new IllegalArgumentException(
+                    "The wrapped representation must not have a range set.");
+        }
+
+        long totalSize = wrappedRepresentation.getSize();
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        Series<Parameter> parameters = new Series<Parameter>(Parameter.class);
+        parameters.add("boundary", boundary);
+        this.mediaType = new MediaType(MediaType.MULTIPART_BYTERANGES.getName(),
+                parameters);
+
+        String contentType = (wrappedRepresentation.getMediaType() == null) ? null
+                : ContentType.writeHeader(wrappedRepresentation);
+        this.starts = new long[ranges.size()];
+        this.ends = new long[ranges.size()];
+        this.headers = new byte[ranges.size() + 1][];
+        long count = 0;
+
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            this.starts[i] = range.getIndex();
+            this.ends[i] = range.getIndex() + range.getSize();
+
+            StringBuilder sb = new StringBuilder();
+
+            if (i > 0) {
+                sb.append("\r\n");
+            }
+
+            sb.append("--").append(boundary).append("\r\n");
+
+            if (contentType != null) {
+                sb.append(HeaderConstants.HEADER_CONTENT_TYPE).append(": ")
+                        .append(contentType).append("\r\n");
+            }
+
+            sb.append(HeaderConstants.HEADER_CONTENT_RANGE).append(": ")
+                    .append(RangeWriter.write(range, totalSize))
+                    .append("\r\n\r\n");
+            this.headers[i] = StringUtils.getLatin1Bytes(sb.toString());
+            count += this.headers[i].length + range.getSize();
+        }
+
+        this.headers[ranges.size()] = StringUtils.getLatin1Bytes("\r\n--"
+                + boundary + "--\r\n");
+        this.size = count + this.headers[ranges.size()].length;
+    }
+
+    @Override
+    public long getAvailableSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns a channel with the content of the parts.
+     */
+    @Override
+    public ReadableByteChannel getChannel() throws IOException {
+        return new PartsChannel(getWrappedRepresentation().getChannel());
+    }
+
+    /**
+     * Returns null, as the character set only applies to each part.
+     * 
+     * @return Null.
+     */
+    @Override
+    public CharacterSet getCharacterSet() {
+        return null;
+    }
+
+    /**
+     * Returns null, as the digest of the wrapped representation doesn't apply.
+     * 
+     * @return Null.
+     */
+    @Override
+    public Digest getDigest() {
+        return null;
+    }
+
+    /**
+     * Returns an empty list, as only representations without encodings are
+     * exposed by parts.
+     * 
+     * @return An empty list.
+     */
+    @Override
+    public List<Encoding> getEncodings() {
+        return new ArrayList<Encoding>();
+    }
+
+    /**
+     * Returns the "multipart/byteranges" media type, with its boundary.
+     * 
+     * @return The "multipart/byteranges" media type.
+     */
+    @Override
+    public MediaType getMediaType() {
+        return this.mediaType;
+    }
+
+    /**
+     * Returns null, as the ranges are described by each part.
+     * 
+     * @return Null.
+     */
+    @Override
+    public Range getRange() {
+        return null;
+    }
+
+    @Override
+    public Reader getReader() throws IOException {
+        return BioUtils.getReader(getStream(), getCharacterSet());
+    }
+
+    @Override
+    public long getSize() {
+        return this.size;
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+        return NioUtils.getStream(getChannel());
+    }
+
+    @Override
+    public String getText() throws IOException {
+        return BioUtils.getText(this);
+    }
+
+    @Override
+    public void write(java.io.Writer writer) throws IOException {
+        OutputStream os = BioUtils.getStream(writer, getCharacterSet());
+        write(os);
+        os.flush();
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        BioUtils.copy(getStream(), outputStream);
+    }
+
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        OutputStream os = NioUtils.getStream(writableChannel);
+        write(os);
+        os.flush();
+    }
+
+}
@@ -33,11 +33,18 @@
 
 package org.restlet.engine.application;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.Encoding;
 import org.restlet.data.Range;
 import org.restlet.data.Status;
+import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 import org.restlet.service.RangeService;
 
@@ -50,6 +57,71 @@ import org.restlet.service.RangeService;
  */
 public class RangeFilter extends Filter {
 
+    /**
+     * The maximum gap between two ranges for them to be coalesced, roughly the
+     * overhead of a new part.
+     */
+    private static final long MAX_GAP = 80;
+
+    /**
+     * Returns the requested ranges with absolute indexes and finite sizes,
+     * sorted, without the unsatisfiable ones, and with the ranges that overlap
+     * or are separated by less than {@link #MAX_GAP} bytes coalesced.
+     * 
+     * @param ranges
+     *            The requested ranges.
+     * @param size
+     *            The size of the entity.
+     * @return The coalesced ranges.
+     */
+    private static List<Range> getCoalescedRanges(List<Range> ranges, long size) {
+        List<Range> absoluteRanges = new ArrayList<Range>();
+
+        for (Range range : ranges) {
+            long start;
+            long end;
+
+            if (range.getIndex() == Range.INDEX_LAST) {
+                start = (range.getSize() == Range.SIZE_MAX) ? 0 : Math.max(0,
+                        size - range.getSize());
+                end = size;
+            } else {
+                start = range.getIndex();
+                end = (range.getSize() == Range.SIZE_MAX) ? size : Math.min(
+                        size, range.getIndex() + range.getSize());
+            }
+
+            if (start < end) {
+                absoluteRanges.add(new Range(start, end - start));
+            }
+        }
+
+        Collections.sort(absoluteRanges, new Comparator<Range>() {
+            public int compare(Range range1, Range range2) {
+                return (range1.getIndex() < range2.getIndex()) ? -1 : ((range1
+                        .getIndex() == range2.getIndex()) ? 0 : 1);
+            }
+        });
+
+        List<Range> result = new ArrayList<Range>();
+        Range last = null;
+
+        for (Range range : absoluteRanges) {
+            if ((last != null)
+                    && (range.getIndex() <= last.getIndex() + last.getSize()
+                            + MAX_GAP)) {
+                long end = Math.max(last.getIndex() + last.getSize(),
+                        range.getIndex() + range.getSize());
+                last.setSize(end - last.getIndex());
+            } else {
+                last = range;
+                result.add(range);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Constructor.
      * 
@@ -80,12 +152,13 @@ public class RangeFilter extends Filter {
                             // properly ranged.
                         }
                     } else {
-                        // At this time, list of ranges are not supported.
-                        if (request.getRanges().size() == 1
+                        boolean rangeValid = !request.getRanges().isEmpty()
                                 && (!request.getConditions().hasSomeRange() || request
                                         .getConditions()
                                         .getRangeStatus(response.getEntity())
-                                        .isSuccess())) {
+                                        .isSuccess());
+
+                        if (request.getRanges().size() == 1 && rangeValid) {
                             Range requestedRange = request.getRanges().get(0);
 
                             if ((!response.getEntity().hasKnownSize())
@@ -116,14 +189,9 @@ public class RangeFilter extends Filter {
                                         response.getEntity(), requestedRange));
                                 response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
                             }
-                        } else if (request.getRanges().size() > 1) {
-                            // Return a server error as this feature isn't
-                            // supported yet
-                            response.setStatus(Status.SERVER_ERROR_NOT_IMPLEMENTED);
-                            getLogger()
-                                    .warning(
-                                            "Multiple ranges are not supported at this time.");
-                            response.setEntity(null);
+                        } else if ((request.getRanges().size() > 1)
+                                && rangeValid && !rangedEntity) {
+                            handleRanges(request, response);
                         }
                     }
                 } else {
@@ -142,4 +210,49 @@ public class RangeFilter extends Filter {
         return getApplication().getRangeService();
     }
 
+    /**
+     * Serves several ranges of the response entity. Ranges are coalesced and
+     * served as a "multipart/byteranges" entity, or as a single range if only
+     * one remains. The full entity is kept if too many ranges are requested,
+     * before any of them is resolved, or if its size is unknown or if it is
+     * encoded.
+     * 
+     * @param request
+     *            The request to filter.
+     * @param response
+     *            The response to filter.
+     */
+    private void handleRanges(Request request, Response response) {
+        Representation entity = response.getEntity();
+        boolean identity = true;
+
+        for (Encoding encoding : entity.getEncodings()) {
+            identity = identity && Encoding.IDENTITY.equals(encoding);
+        }
+
+        if (request.getRanges().size() > getRangeService().getMaxRanges()) {
+            getLogger().fine(
+                    "Too many ranges requested, returning the full entity.");
+        } else if (entity.hasKnownSize() && identity) {
+            List<Range> ranges = getCoalescedRanges(request.getRanges(),
+                    entity.getSize());
+
+            if (ranges.isEmpty()) {
+                response.setStatus(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setEntity(null);
+            } else if (ranges.size() == 1) {
+                response.setEntity(new RangeRepresentation(entity, ranges
+                        .get(0)));
+                response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+            } else {
+                response.setEntity(new MultipartRangeRepresentation(entity,
+                        ranges));
+                response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+            }
+        } else {
+            getLogger()
+                    .fine("Multiple ranges can only be served for entities with a known size and no encoding, returning the full entity.");
+        }
+    }
+
 }
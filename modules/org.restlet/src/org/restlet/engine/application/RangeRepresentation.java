@@ -43,6 +43,8 @@ import org.restlet.data.Range;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.engine.io.NioUtils;
 import org.restlet.engine.io.RangeInputStream;
+import org.restlet.engine.io.ReadableSizedChannel;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperRepresentation;
 
@@ -91,10 +93,29 @@ public class RangeRepresentation extends WrapperRepresentation {
     }
 
     // [ifndef gwt] method
+    /**
+     * Returns a channel with the content of the range. If the wrapped
+     * representation is a file, the channel exposes the range of the file
+     * channel, allowing connectors to directly transfer its content.
+     */
     @Override
     public java.nio.channels.ReadableByteChannel getChannel()
             throws IOException {
-        return org.restlet.engine.io.NioUtils.getChannel(getStream());
+        java.nio.channels.ReadableByteChannel result = null;
+        long startIndex = getStartIndex();
+
+        if ((getWrappedRepresentation() instanceof FileRepresentation)
+                && (startIndex != -1)
+                && (getAvailableSize() != UNKNOWN_SIZE)) {
+            java.nio.channels.FileChannel fileChannel = ((FileRepresentation) getWrappedRepresentation())
+                    .getChannel();
+            fileChannel.position(startIndex);
+            result = new ReadableSizedChannel(fileChannel, getAvailableSize());
+        } else {
+            result = org.restlet.engine.io.NioUtils.getChannel(getStream());
+        }
+
+        return result;
     }
 
     /**
@@ -108,6 +129,27 @@ public class RangeRepresentation extends WrapperRepresentation {
         return this.range;
     }
 
+    /**
+     * Returns the index of the first byte of the range inside the wrapped
+     * representation.
+     * 
+     * @return The index of the first byte of the range or -1 if it can't be
+     *         determined.
+     */
+    private long getStartIndex() {
+        long result = -1;
+
+        if (getRange().getIndex() != Range.INDEX_LAST) {
+            result = getRange().getIndex();
+        } else if (getRange().getSize() == Range.SIZE_MAX) {
+            result = 0;
+        } else if (getSize() != UNKNOWN_SIZE) {
+            result = Math.max(0, getSize() - getRange().getSize());
+        }
+
+        return result;
+    }
+
     @Override
     public Reader getReader() throws IOException {
         return BioUtils.getReader(getStream(), getCharacterSet());
@@ -42,6 +42,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -144,6 +145,25 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * never block, otherwise the other connections would hang.</td>
  * </tr>
  * <tr>
+ * <td>workerMode</td>
+ * <td>String</td>
+ * <td>pool</td>
+ * <td>Indicates how worker threads are provided. With "pool", a bounded pool of
+ * threads configured by "minThreads", "maxThreads" and "maxQueued" is used.
+ * With "virtual", each call is processed by a new virtual thread and the number
+ * of concurrent calls is limited by "maxVirtualThreads". The "pool" mode is
+ * used if the JVM doesn't support virtual threads.</td>
+ * </tr>
+ * <tr>
+ * <td>maxVirtualThreads</td>
+ * <td>int</td>
+ * <td>10 000</td>
+ * <td>Maximum number of virtual threads concurrently servicing calls in the
+ * "virtual" worker mode. Additional calls are rejected until a thread completes
+ * and the connector is considered overloaded, which triggers the same
+ * protection actions as the "lowThreads" parameter.</td>
+ * </tr>
+ * <tr>
  * <td>inboundBufferSize</td>
  * <td>int</td>
  * <td>16 * 1024</td>
@@ -198,6 +218,9 @@ public abstract class BaseHelper<T extends Connector> extends
     /** The queue of outbound messages. */
     protected final Queue<Response> outboundMessages;
 
+    /** The permits limiting the concurrent calls of virtual worker threads. */
+    private volatile Semaphore workerPermits;
+
     /** The worker service. */
     private volatile ThreadPoolExecutor workerService;
 
@@ -270,27 +293,38 @@ public abstract class BaseHelper<T extends Connector> extends
     }
 
     /**
-     * Creates the handler service.
+     * Creates the handler service. In the "virtual" worker mode, see
+     * {@link #createVirtualWorkerService()}.
      * 
      * @return The handler service.
      */
     protected ThreadPoolExecutor createWorkerService() {
-        int maxThreads = getMaxThreads();
-        int minThreads = getMinThreads();
-
-        BlockingQueue<Runnable> queue = null;
+        ThreadPoolExecutor result = null;
 
-        if (getMaxQueued() == 0) {
-            queue = new SynchronousQueue<Runnable>();
-        } else if (getMaxQueued() < 0) {
-            queue = new LinkedBlockingQueue<Runnable>();
+        if (isVirtualWorkers()) {
+            result = createVirtualWorkerService();
         } else {
-            queue = new ArrayBlockingQueue<Runnable>(getMaxQueued());
+            int maxThreads = getMaxThreads();
+            int minThreads = getMinThreads();
+
+            BlockingQueue<Runnable> queue = null;
+
+            if (getMaxQueued() == 0) {
+                queue = new SynchronousQueue<Runnable>();
+            } else if (getMaxQueued() < 0) {
+                queue = new LinkedBlockingQueue<Runnable>();
+            } else {
+                queue = new ArrayBlockingQueue<Runnable>(getMaxQueued());
+            }
+
+            result = new ThreadPoolExecutor(minThreads, maxThreads,
+                    getMaxThreadIdleTimeMs(), TimeUnit.MILLISECONDS, queue,
+                    new LoggingThreadFactory(getLogger(), true));
+
+            // Ensure that core threads act like a minimum number of threads
+            result.prestartAllCoreThreads();
         }
 
-        ThreadPoolExecutor result = new ThreadPoolExecutor(minThreads,
-                maxThreads, getMaxThreadIdleTimeMs(), TimeUnit.MILLISECONDS,
-                queue, new LoggingThreadFactory(getLogger(), true));
         result.setRejectedExecutionHandler(new RejectedExecutionHandler() {
             public void rejectedExecution(Runnable r,
                     ThreadPoolExecutor executor) {
@@ -302,11 +336,52 @@ public abstract class BaseHelper<T extends Connector> extends
             }
         });
 
-        // Ensure that core threads act like a minimum number of threads
-        result.prestartAllCoreThreads();
         return result;
     }
 
+    /**
+     * Creates the handler service for the "virtual" worker mode. Each task is
+     * run by a new virtual thread, once a permit has been acquired from the
+     * semaphore limiting the number of concurrent calls. The permit is
+     * acquired by the calling thread before creating the virtual thread. When
+     * no permit is available, the task is rejected without blocking the
+     * caller.
+     * 
+     * @return The handler service.
+     */
+    protected ThreadPoolExecutor createVirtualWorkerService() {
+        final Semaphore permits = getWorkerPermits();
+
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0L,
+                TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(),
+                new LoggingThreadFactory(getLogger(), true, true)) {
+
+            @Override
+            protected void afterExecute(Runnable r, Throwable t) {
+                try {
+                    super.afterExecute(r, t);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            @Override
+            public void execute(Runnable command) {
+                if (isShutdown() || !permits.tryAcquire()) {
+                    getRejectedExecutionHandler().rejectedExecution(command,
+                            this);
+                } else {
+                    try {
+                        super.execute(command);
+                    } catch (RuntimeException re) {
+                        permits.release();
+                        throw re;
+                    }
+                }
+            }
+        };
+    }
+
     /**
      * Finish stopping the helper.
      */
@@ -373,7 +448,9 @@ public abstract class BaseHelper<T extends Connector> extends
      */
     protected void execute(Runnable task) {
         try {
-            if (!getController().isOverloaded() && (getWorkerService() != null)
+            // Virtual worker threads are limited by their own permits
+            if ((!getController().isOverloaded() || (getWorkerPermits() != null))
+                    && (getWorkerService() != null)
                     && !getWorkerService().isShutdown()
                     && getController().isRunning()) {
                 getWorkerService().execute(task);
@@ -477,6 +554,18 @@ public abstract class BaseHelper<T extends Connector> extends
                 "maxThreadIdleTimeMs", "300000"));
     }
 
+    /**
+     * Returns the maximum number of virtual threads concurrently servicing
+     * calls in the "virtual" worker mode.
+     * 
+     * @return The maximum number of virtual threads concurrently servicing
+     *         calls.
+     */
+    public int getMaxVirtualThreads() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxVirtualThreads", "10000"));
+    }
+
     /**
      * Returns the maximum threads that will service requests.
      * 
@@ -557,6 +646,26 @@ public abstract class BaseHelper<T extends Connector> extends
         return getHelpedParameters().getFirstValue("transport", "TCP");
     }
 
+    /**
+     * Returns the worker mode, either "pool" or "virtual".
+     * 
+     * @return The worker mode.
+     */
+    public String getWorkerMode() {
+        return getHelpedParameters().getFirstValue("workerMode", "pool");
+    }
+
+    /**
+     * Returns the permits limiting the concurrent calls of virtual worker
+     * threads.
+     * 
+     * @return The permits limiting the concurrent calls or null if the
+     *         "virtual" worker mode isn't used.
+     */
+    protected Semaphore getWorkerPermits() {
+        return workerPermits;
+    }
+
     /**
      * Returns the connection handler service.
      * 
@@ -703,16 +812,36 @@ public abstract class BaseHelper<T extends Connector> extends
                 "tracing", "false"));
     }
 
+    /**
+     * Indicates if the "virtual" worker mode is used. It requires a JVM
+     * supporting virtual threads.
+     * 
+     * @return True if the "virtual" worker mode is used.
+     */
+    public boolean isVirtualWorkers() {
+        return "virtual".equalsIgnoreCase(getWorkerMode())
+                && Engine.isVirtualThreadSupported();
+    }
+
     /**
      * Indicates if the worker service is busy. This state is detected by
      * checking if the number of active task running is superior or equal to the
-     * maximum pool size.
+     * maximum pool size. In the "virtual" worker mode, it is detected when no
+     * more permit is available for concurrent calls.
      * 
      * @return True if the worker service is busy.
      */
     protected boolean isWorkerServiceOverloaded() {
-        return (getWorkerService() != null)
-                && getWorkerService().getActiveCount() >= getLowThreads();
+        boolean result = false;
+
+        if (getWorkerPermits() != null) {
+            result = (getWorkerPermits().availablePermits() == 0);
+        } else {
+            result = (getWorkerService() != null)
+                    && getWorkerService().getActiveCount() >= getLowThreads();
+        }
+
+        return result;
     }
 
     /**
@@ -757,6 +886,15 @@ public abstract class BaseHelper<T extends Connector> extends
         this.controllerService = createControllerService();
 
         if (hasWorkerThreads()) {
+            if ("virtual".equalsIgnoreCase(getWorkerMode())
+                    && !Engine.isVirtualThreadSupported()) {
+                getLogger()
+                        .warning(
+                                "Virtual threads aren't supported by this JVM. Using the \"pool\" worker mode instead.");
+            }
+
+            this.workerPermits = isVirtualWorkers() ? new Semaphore(
+                    getMaxVirtualThreads()) : null;
             this.workerService = createWorkerService();
         }
 
@@ -797,6 +935,15 @@ public abstract class BaseHelper<T extends Connector> extends
                             + " current size, "
                             + getWorkerService().getLargestPoolSize()
                             + " largest size");
+
+            if (getWorkerPermits() != null) {
+                getLogger().fine(
+                        "Worker service permits: "
+                                + getWorkerPermits().availablePermits()
+                                + " available, "
+                                + getWorkerPermits().getQueueLength()
+                                + " waiting calls.");
+            }
         }
     }
 
@@ -38,6 +38,8 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 
@@ -59,6 +61,22 @@ import org.restlet.data.Status;
  * <th>Description</th>
  * </tr>
  * <tr>
+ * <td>maxIdleConnectionsPerHost</td>
+ * <td>int</td>
+ * <td>-1</td>
+ * <td>Maximum number of idle connections kept open per host (IP address and
+ * port), or -1 for no limit. Connections beyond this limit are closed as soon
+ * as they become idle.</td>
+ * </tr>
+ * <tr>
+ * <td>pipeliningDepth</td>
+ * <td>int</td>
+ * <td>4</td>
+ * <td>Maximum number of requests sent on a pipelining connection before their
+ * responses are received. Only idempotent requests without entity are
+ * pipelined. See the "pipeliningConnections" parameter.</td>
+ * </tr>
+ * <tr>
  * <td>proxyHost</td>
  * <td>String</td>
  * <td>System property "http.proxyHost"</td>
@@ -84,6 +102,11 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
     protected static final String CONNECTOR_LATCH = "org.restlet.engine.connector.latch";
 
+    protected static final String CONNECTOR_RETRIED = "org.restlet.engine.connector.retried";
+
+    /** The pools of connections per host IP socket address. */
+    private final ConcurrentMap<InetSocketAddress, HostConnectionPool> hostPools;
+
     /**
      * Constructor.
      * 
@@ -92,6 +115,21 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
      */
     public ClientConnectionHelper(Client connector) {
         super(connector, true);
+        this.hostPools = new ConcurrentHashMap<InetSocketAddress, HostConnectionPool>();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void checkin(Connection<?> connection) {
+        HostConnectionPool hostPool = getHostPools().get(
+                connection.getSocketAddress());
+
+        if (hostPool != null) {
+            hostPool.remove((Connection<Client>) connection);
+            prune(hostPool);
+        }
+
+        super.checkin(connection);
     }
 
     @Override
@@ -196,6 +234,7 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
                 if (bestConn != null) {
                     bestConn.getOutboundWay().handle(response);
+                    bestConn.activate();
                 } else {
                     getLogger().log(Level.WARNING,
                             "Unable to find a connection to send the request");
@@ -228,11 +267,6 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     protected Connection<Client> getBestConnection(Request request)
             throws UnknownHostException, IOException {
         Connection<Client> result = null;
-
-        // Try to reuse an existing connection for the same host and
-        // port
-        int hostConnectionCount = 0;
-        int bestScore = Integer.MAX_VALUE;
         boolean foundConn = false;
 
         // Determine the target host domain and port of the request.
@@ -243,33 +277,18 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                     .log(Level.WARNING,
                             "Unable to create a socket address related to the request.");
         } else {
-            // Associate the given request to the first available connection
-            // opened on the same host domain and port.
-            for (Iterator<Connection<Client>> iterator = getConnections()
-                    .iterator(); !foundConn && iterator.hasNext();) {
-                Connection<Client> currConn = iterator.next();
-
-                if (socketAddress.equals(currConn.getSocketAddress())) {
-                    if (currConn.isAvailable()) {
-                        result = currConn;
-                        foundConn = true;
-                    } else if (currConn.getState().compareTo(
-                            ConnectionState.OPEN) <= 0) {
-                        // Assign the request to the busy connection that
-                        // handles the less number of messages. This is useful
-                        // in case the maximum number of connections has been
-                        // reached. As a drawback, the message will only be
-                        // handled as soon as possible.
-                        int currScore = currConn.getLoadScore();
-
-                        if (bestScore > currScore) {
-                            bestScore = currScore;
-                            result = currConn;
-                        }
-
-                        hostConnectionCount++;
-                    }
-                }
+            // Try to reuse an idle connection for the same host and port
+            HostConnectionPool hostPool = getHostPool(socketAddress);
+            HostConnectionPool reservedPool = null;
+            result = hostPool.checkout();
+            foundConn = (result != null);
+
+            if (!foundConn && isPipeliningConnections()
+                    && isPipelinable(request)) {
+                // Pipeline the request on an open connection having room for
+                // it, rather than opening a new connection
+                result = getPipeliningConnection(hostPool);
+                foundConn = (result != null);
             }
 
             // No connection has been found, try to create a new one that will
@@ -281,6 +300,11 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                                 + socketAddress);
             } else if ((getMaxTotalConnections() != -1)
                     && (getConnections().size() >= getMaxTotalConnections())) {
+                // Assign the request to the busy connection that handles the
+                // less number of messages. As a drawback, the message will
+                // only be handled as soon as possible.
+                result = getLeastBusyConnection(hostPool);
+
                 if (result == null) {
                     getLogger()
                             .log(Level.WARNING,
@@ -291,8 +315,9 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                             "Enqueue Request to an existing client connection to: "
                                     + socketAddress);
                 }
-            } else if ((getMaxConnectionsPerHost() != -1)
-                    && (hostConnectionCount >= getMaxConnectionsPerHost())) {
+            } else if ((reservedPool = reserve(hostPool)) == null) {
+                result = getLeastBusyConnection(hostPool);
+
                 if (result == null) {
                     getLogger()
                             .log(Level.WARNING,
@@ -313,16 +338,130 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                                     + socketAddress);
                 }
 
-                result = checkout(
-                        createSocketChannel(request.isConfidential(),
-                                socketAddress), getController(), socketAddress);
-                getConnections().add(result);
+                result = openConnection(reservedPool, request.isConfidential());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the pool of connections for a given host IP socket address,
+     * creating it if needed.
+     * 
+     * @param socketAddress
+     *            The host IP socket address.
+     * @return The pool of connections for the host.
+     */
+    protected HostConnectionPool getHostPool(InetSocketAddress socketAddress) {
+        HostConnectionPool result = getHostPools().get(socketAddress);
+
+        // Retired pools are about to be removed, replace them
+        while ((result == null) || result.isRetired()) {
+            HostConnectionPool created = new HostConnectionPool(socketAddress,
+                    getMaxIdleConnectionsPerHost());
+            boolean installed = (result == null) ? (getHostPools()
+                    .putIfAbsent(socketAddress, created) == null)
+                    : getHostPools().replace(socketAddress, result, created);
+            result = installed ? created : getHostPools().get(socketAddress);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the pools of connections per host IP socket address.
+     * 
+     * @return The pools of connections per host IP socket address.
+     */
+    protected ConcurrentMap<InetSocketAddress, HostConnectionPool> getHostPools() {
+        return hostPools;
+    }
+
+    /**
+     * Returns the busy connection of a host that handles the less number of
+     * messages, used once the maximum number of connections is reached.
+     * 
+     * @param hostPool
+     *            The pool of connections of the host.
+     * @return The least busy connection or null.
+     */
+    private Connection<Client> getLeastBusyConnection(
+            HostConnectionPool hostPool) {
+        Connection<Client> result = null;
+        int bestScore = Integer.MAX_VALUE;
+
+        if (hostPool.getActiveCount() > 0) {
+            for (Iterator<Connection<Client>> iterator = hostPool
+                    .getConnections().iterator(); iterator.hasNext();) {
+                Connection<Client> currConn = iterator.next();
+
+                if (currConn.getState().compareTo(ConnectionState.OPEN) <= 0) {
+                    int currScore = currConn.getLoadScore();
+
+                    if (bestScore > currScore) {
+                        bestScore = currScore;
+                        result = currConn;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of idle connections kept open per host, or -1
+     * for no limit.
+     * 
+     * @return The maximum number of idle connections kept open per host.
+     */
+    public int getMaxIdleConnectionsPerHost() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxIdleConnectionsPerHost", "-1"));
+    }
+
+    /**
+     * Returns the open pipelining connection of a host that has room for a new
+     * request and handles the less number of messages.
+     * 
+     * @param hostPool
+     *            The pool of connections of the host.
+     * @return The pipelining connection or null.
+     */
+    private Connection<Client> getPipeliningConnection(
+            HostConnectionPool hostPool) {
+        Connection<Client> result = null;
+
+        if (hostPool.getActiveCount() > 0) {
+            for (Iterator<Connection<Client>> iterator = hostPool
+                    .getConnections().iterator(); iterator.hasNext();) {
+                Connection<Client> currConn = iterator.next();
+
+                if (currConn.isPipelining()
+                        && (currConn.getState() == ConnectionState.OPEN)
+                        && (currConn.getLoadScore() < getPipeliningDepth())
+                        && ((result == null) || (currConn.getLoadScore() < result
+                                .getLoadScore()))) {
+                    result = currConn;
+                }
             }
         }
 
         return result;
     }
 
+    /**
+     * Returns the maximum number of requests sent on a pipelining connection
+     * before their responses are received.
+     * 
+     * @return The maximum number of pipelined requests per connection.
+     */
+    public int getPipeliningDepth() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "pipeliningDepth", "4"));
+    }
+
     /**
      * Returns the host name of the HTTP proxy, if specified.
      * 
@@ -471,11 +610,113 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                 "controllerDaemon", "true"));
     }
 
+    /**
+     * Indicates if a request can be pipelined, that is to say sent before the
+     * responses of previous requests are received. By default, only
+     * idempotent requests without entity are pipelined, so that they can
+     * safely be sent again if the server closes the connection. Requests that
+     * have already been sent again aren't pipelined anymore.
+     * 
+     * @param request
+     *            The request to test.
+     * @return True if the request can be pipelined.
+     */
+    public boolean isPipelinable(Request request) {
+        return (request != null) && (request.getMethod() != null)
+                && request.getMethod().isIdempotent()
+                && !request.isEntityAvailable()
+                && !request.getAttributes().containsKey(CONNECTOR_RETRIED);
+    }
+
     @Override
     public boolean isProxying() {
         return getProxyHost() != null;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void onIdle(Connection<?> connection) {
+        if (connection.isAvailable()) {
+            HostConnectionPool hostPool = getHostPools().get(
+                    connection.getSocketAddress());
+
+            if ((hostPool != null)
+                    && !hostPool.checkin((Connection<Client>) connection)) {
+                getLogger().log(
+                        Level.FINE,
+                        "Closing an idle client connection to: "
+                                + hostPool.getSocketAddress());
+                connection.close(true);
+            }
+        }
+    }
+
+    /**
+     * Opens a new connection to the host of the given pool, whose slot has
+     * already been reserved. The reservation is released on failure.
+     * 
+     * @param hostPool
+     *            The pool of connections of the target host.
+     * @param secure
+     *            Indicates if messages will be exchanged confidentially.
+     * @return The new connection.
+     * @throws IOException
+     */
+    protected Connection<Client> openConnection(HostConnectionPool hostPool,
+            boolean secure) throws IOException {
+        Connection<Client> result = null;
+
+        try {
+            result = checkout(
+                    createSocketChannel(secure, hostPool.getSocketAddress()),
+                    getController(), hostPool.getSocketAddress());
+        } finally {
+            if (result == null) {
+                hostPool.unreserve();
+                prune(hostPool);
+            }
+        }
+
+        hostPool.add(result);
+        getConnections().add(result);
+        return result;
+    }
+
+    /**
+     * Removes the pool of a host once it has no connection left, so that
+     * talking to many distinct hosts doesn't accumulate empty pools.
+     * 
+     * @param hostPool
+     *            The pool of connections of a host.
+     */
+    private void prune(HostConnectionPool hostPool) {
+        if (hostPool.retire()) {
+            getHostPools().remove(hostPool.getSocketAddress(), hostPool);
+        }
+    }
+
+    /**
+     * Reserves a slot for a new connection to the host of the given pool. If
+     * the pool has been retired meanwhile, the slot is reserved in the pool
+     * replacing it.
+     * 
+     * @param hostPool
+     *            The pool of connections of the target host.
+     * @return The pool where the slot was reserved or null if the maximum
+     *         number of connections for the host is reached.
+     */
+    private HostConnectionPool reserve(HostConnectionPool hostPool) {
+        HostConnectionPool result = hostPool;
+        boolean reserved = result.reserve(getMaxConnectionsPerHost());
+
+        while (!reserved && result.isRetired()) {
+            result = getHostPool(result.getSocketAddress());
+            reserved = result.reserve(getMaxConnectionsPerHost());
+        }
+
+        return reserved ? result : null;
+    }
+
     @Override
     public void start() throws Exception {
         getLogger().info("Starting the internal " + getProtocols() + " client");
@@ -509,4 +750,38 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         }
     }
 
+    /**
+     * Warms up the connections to a given host by opening new connections until
+     * the given number of connections is reached or the limits are hit. The
+     * connections become available for new requests once established.
+     * 
+     * @param socketAddress
+     *            The host IP socket address.
+     * @param secure
+     *            Indicates if messages will be exchanged confidentially.
+     * @param count
+     *            The number of connections to have opened to the host.
+     * @return The number of new connections.
+     * @throws IOException
+     */
+    public int warmUp(InetSocketAddress socketAddress, boolean secure,
+            int count) throws IOException {
+        int result = 0;
+        HostConnectionPool hostPool = getHostPool(socketAddress);
+
+        while ((hostPool != null)
+                && (hostPool.getConnectionsCount() < count)
+                && ((getMaxTotalConnections() == -1) || (getConnections()
+                        .size() < getMaxTotalConnections()))) {
+            hostPool = reserve(hostPool);
+
+            if (hostPool != null) {
+                openConnection(hostPool, secure);
+                result++;
+            }
+        }
+
+        return result;
+    }
+
 }
@@ -46,6 +46,7 @@ import org.restlet.engine.header.Header;
 import org.restlet.engine.header.HeaderConstants;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.io.IoState;
+import org.restlet.engine.io.LineBuffer;
 import org.restlet.util.Series;
 
 /**
@@ -179,71 +180,63 @@ public abstract class ClientInboundWay extends InboundWay {
 
     @Override
     protected void readStartLine() throws IOException {
-        String version = null;
-        int statusCode = -1;
-        String reasonPhrase = null;
+        LineBuffer line = getLineBuffer();
+        int start = line.getLineStart();
+        int end = line.getLineEnd();
 
-        int i = 0;
-        int start = 0;
-        int size = getLineBuilder().length();
-        char next;
-
-        if (size == 0) {
+        if (start == end) {
             // Skip leading empty lines per HTTP specification
         } else {
-            // Parse the protocol version
-            for (i = start; (version == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+            // Skip the protocol version
+            int space = line.indexOfSpace(start);
 
-                if (HeaderUtils.isSpace(next)) {
-                    version = getLineBuilder().substring(start, i);
-                    start = i + 1;
-                }
+            // Parse the status code
+            int statusCode = -1;
+
+            if (space != -1) {
+                start = space + 1;
+                space = line.indexOfSpace(start);
             }
 
-            // Parse the status code
-            for (i = start; (statusCode == -1) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
-
-                if (HeaderUtils.isSpace(next)) {
-                    try {
-                        statusCode = Integer.parseInt(getLineBuilder()
-                                .substring(start, i));
-                    } catch (NumberFormatException e) {
+            if (space != -1) {
+                statusCode = 0;
+
+                for (int i = start; i < space; i++) {
+                    int digit = line.getBytes()[i] - '0';
+
+                    if ((digit < 0) || (digit > 9) || (statusCode > 99999)) {
                         throw new IOException(
                                 "Unable to parse the status code. Non numeric value: "
-                                        + getLineBuilder().substring(start, i)
-                                                .toString());
+                                        + line.getString(start, space));
                     }
 
-                    start = i + 1;
+                    statusCode = (statusCode * 10) + digit;
                 }
-            }
 
-            if (statusCode == -1) {
-                throw new IOException(
-                        "Unable to parse the status code. End of line reached too early.");
-            }
-
-            // Parse the reason phrase
-            for (i = start; (reasonPhrase == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
-            }
+                if (space == start) {
+                    throw new IOException(
+                            "Unable to parse the status code. Empty value in: "
+                                    + line.getLine());
+                }
 
-            if (i == size) {
-                reasonPhrase = getLineBuilder().substring(start, i);
-                start = i + 1;
+                start = space + 1;
             }
 
-            if (reasonPhrase == null) {
+            if (statusCode == -1) {
                 throw new IOException(
-                        "Unable to parse the reason phrase. End of line reached too early.");
+                        "Unable to parse the status code. End of line reached too early: "
+                                + line.getLine());
             }
 
             // Prepare the response
             Status status = createStatus(statusCode);
             Response response = createResponse(status);
 
+            // Parse the reason phrase, reusing the standard one if possible
+            String reasonPhrase = (status.getReasonPhrase() == null) ? line
+                    .getString(start, end) : line.getString(start, end,
+                    status.getReasonPhrase());
+
             // Update the response
             response.setStatus(status, reasonPhrase);
             response.getServerInfo().setAddress(
@@ -39,6 +39,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -65,9 +66,21 @@ import org.restlet.util.SelectionRegistration;
  */
 public class Connection<T extends Connector> implements SelectionListener {
 
+    /** The IO controller owning the connection. */
+    private volatile ConnectionController controller;
+
     /** The parent connector helper. */
     private final ConnectionHelper<T> helper;
 
+    /**
+     * Indicates if the connection is idle, in which case the controller doesn't
+     * check it at each loop.
+     */
+    private final AtomicBoolean idle;
+
+    /** The tick of the controller's timeout wheel, or -1 if not scheduled. */
+    private volatile long idleTick;
+
     /** The inbound way. */
     private final InboundWay inboundWay;
 
@@ -127,16 +140,40 @@ public class Connection<T extends Connector> implements SelectionListener {
             ConnectionController controller, InetSocketAddress socketAddress,
             int inboundBufferSize, int outboundBufferSize) throws IOException {
         this.helper = helper;
+        this.idle = new AtomicBoolean(true);
+        this.idleTick = -1;
         this.inboundWay = helper.createInboundWay(this, inboundBufferSize);
         this.outboundWay = helper.createOutboundWay(this, outboundBufferSize);
         init(socketChannel, controller, socketAddress);
     }
 
+    /**
+     * Activates the connection if it was idle so that its controller checks it
+     * again at each loop. Should be called each time a state of the connection
+     * or of its ways is changed outside the controller loop.
+     * 
+     * @return True if the connection was idle.
+     */
+    public boolean activate() {
+        boolean result = false;
+        ConnectionController controller = this.controller;
+
+        if ((controller != null) && this.idle.compareAndSet(true, false)) {
+            controller.addActiveConnection(this);
+            result = true;
+        }
+
+        return result;
+    }
+
     /**
      * Clears the connection so it can be reused. Typically invoked by a
      * connection pool.
      */
     public void clear() {
+        this.controller = null;
+        this.idle.set(true);
+        this.idleTick = -1;
         this.inboundWay.clear();
         this.outboundWay.clear();
         this.readableSelectionChannel = null;
@@ -246,6 +283,13 @@ public class Connection<T extends Connector> implements SelectionListener {
                 onActivity();
                 return super.write(src);
             }
+
+            @Override
+            public long write(ByteBuffer[] srcs, int offset, int length)
+                    throws IOException {
+                onActivity();
+                return super.write(srcs, offset, length);
+            }
         };
     }
 
@@ -260,6 +304,16 @@ public class Connection<T extends Connector> implements SelectionListener {
                         .getInetAddress().getHostAddress();
     }
 
+    /**
+     * Returns the IO controller owning the connection. By default, it is the
+     * controller of the parent helper.
+     * 
+     * @return The IO controller owning the connection.
+     */
+    public ConnectionController getController() {
+        return (controller == null) ? getHelper().getController() : controller;
+    }
+
     /**
      * Returns the parent connector helper.
      * 
@@ -279,6 +333,16 @@ public class Connection<T extends Connector> implements SelectionListener {
         return getHelper().getInboundBufferSize();
     }
 
+    /**
+     * Returns the tick of the controller's timeout wheel at which the idle
+     * connection will time out, or -1 if not scheduled.
+     * 
+     * @return The tick of the controller's timeout wheel.
+     */
+    public long getIdleTick() {
+        return idleTick;
+    }
+
     /**
      * Returns the inbound way.
      * 
@@ -449,6 +513,8 @@ public class Connection<T extends Connector> implements SelectionListener {
         this.pipelining = helper.isPipeliningConnections();
         this.maxIoIdleTimeMs = helper.getMaxIoIdleTimeMs();
         this.state = ConnectionState.OPENING;
+        this.idleTick = -1;
+        this.controller = controller;
         this.socketChannel = socketChannel;
         this.socketAddress = socketAddress;
 
@@ -472,6 +538,11 @@ public class Connection<T extends Connector> implements SelectionListener {
         }
 
         onActivity();
+
+        if (controller != null) {
+            this.idle.set(false);
+            controller.addActiveConnection(this);
+        }
     }
 
     /**
@@ -503,6 +574,16 @@ public class Connection<T extends Connector> implements SelectionListener {
         return getInboundWay().isEmpty() && getOutboundWay().isEmpty();
     }
 
+    /**
+     * Indicates if the connection is idle, in which case the controller doesn't
+     * check it at each loop.
+     * 
+     * @return True if the connection is idle.
+     */
+    public boolean isIdle() {
+        return idle.get();
+    }
+
     /**
      * Indicates if the connection should be persisted across calls.
      * 
@@ -531,6 +612,17 @@ public class Connection<T extends Connector> implements SelectionListener {
                 || (getOutboundWay().getIoState() == IoState.READY);
     }
 
+    /**
+     * Indicates if the connection is open and waiting for IO operations without
+     * any pending message or byte, so that only an NIO selection, a new
+     * message or a time out can change its state.
+     * 
+     * @return True if the connection is quiet.
+     */
+    protected boolean isQuiet() {
+        return (getState() == ConnectionState.OPEN) && isEmpty() && !isReady();
+    }
+
     /**
      * Indicates if it is a server-side connection.
      * 
@@ -540,6 +632,18 @@ public class Connection<T extends Connector> implements SelectionListener {
         return getHelper().isServerSide();
     }
 
+    /**
+     * Indicates if bytes can be directly transferred to the underlying socket
+     * channel, bypassing the writable selection channel. This allows file
+     * entities to be sent without copying their content. Returns true by
+     * default.
+     * 
+     * @return True if bytes can be directly transferred to the socket channel.
+     */
+    public boolean isTransferable() {
+        return true;
+    }
+
     /**
      * Notifies the connection that a new activity has been detected and that it
      * should be kept alive.
@@ -572,7 +676,7 @@ public class Connection<T extends Connector> implements SelectionListener {
         close(false);
 
         // Give the controller a hint to clean up the closed connection
-        getHelper().getController().wakeup();
+        getController().wakeup();
     }
 
     /**
@@ -589,6 +693,7 @@ public class Connection<T extends Connector> implements SelectionListener {
             throws IOException {
         try {
             onActivity();
+            activate();
 
             if (getLogger().isLoggable(Level.FINER)) {
                 String trace = null;
@@ -720,6 +825,28 @@ public class Connection<T extends Connector> implements SelectionListener {
         init(socketChannel, controller, socketAddress);
     }
 
+    /**
+     * Indicates if the connection is idle, in which case the controller doesn't
+     * check it at each loop.
+     * 
+     * @param idle
+     *            True if the connection is idle.
+     */
+    public void setIdle(boolean idle) {
+        this.idle.set(idle);
+    }
+
+    /**
+     * Sets the tick of the controller's timeout wheel at which the idle
+     * connection will time out.
+     * 
+     * @param idleTick
+     *            The tick of the controller's timeout wheel.
+     */
+    public void setIdleTick(long idleTick) {
+        this.idleTick = idleTick;
+    }
+
     /**
      * Indicates if the connection should be persisted across calls.
      * 
@@ -768,6 +895,7 @@ public class Connection<T extends Connector> implements SelectionListener {
             }
 
             this.state = state;
+            activate();
         }
     }
 
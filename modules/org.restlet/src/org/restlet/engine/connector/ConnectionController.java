@@ -39,7 +39,9 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
@@ -57,12 +59,21 @@ import org.restlet.util.SelectionRegistration;
 public class ConnectionController extends Controller implements Runnable,
         WakeupListener {
 
+    /** The queue of active connections to check at the next loop. */
+    private final Queue<Connection<?>> activeConnections;
+
+    /** The active connections checked during the current loop. */
+    private final List<Connection<?>> controlledConnections;
+
     /** The list of new selection registrations. */
     private final Queue<SelectionRegistration> newRegistrations;
 
     /** The NIO selector. */
     private volatile Selector selector;
 
+    /** The timing wheel of the idle connections. */
+    private final TimeoutWheel timeoutWheel;
+
     /** The list of updated selection registrations. */
     private final Queue<SelectionRegistration> updatedRegistrations;
 
@@ -74,14 +85,28 @@ public class ConnectionController extends Controller implements Runnable,
      */
     public ConnectionController(ConnectionHelper<?> helper) {
         super(helper);
+        this.activeConnections = new ConcurrentLinkedQueue<Connection<?>>();
+        this.controlledConnections = new ArrayList<Connection<?>>();
+        this.timeoutWheel = new TimeoutWheel(this);
         this.newRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
         this.updatedRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
     }
 
+    /**
+     * Adds a connection to check at the next loop.
+     * 
+     * @param connection
+     *            The active connection.
+     */
+    public void addActiveConnection(Connection<?> connection) {
+        getActiveConnections().add(connection);
+    }
+
     /**
      * Controls a given connection for messages to read or write. Close inactive
      * connections, select ready connections or register interest in NIO
-     * operations.
+     * operations. Quiet connections become idle and are only checked again
+     * when activated or when their IO idle time out expires.
      * 
      * @param conn
      *            The connection to control.
@@ -93,10 +118,13 @@ public class ConnectionController extends Controller implements Runnable,
                     "Connection status: " + conn);
         }
 
+        boolean active = true;
+
         if (conn.getState() == ConnectionState.CLOSED) {
             // Detach the connection and collect it
             getHelper().getConnections().remove(conn);
             getHelper().checkin(conn);
+            active = false;
         } else if ((conn.getState() == ConnectionState.CLOSING)
                 && conn.isEmpty()) {
             conn.close(false);
@@ -106,17 +134,56 @@ public class ConnectionController extends Controller implements Runnable,
             getUpdatedRegistrations().add(conn.getRegistration());
         } else if (conn.isReady()) {
             conn.onSelected(conn.getRegistration());
+        } else {
+            conn.setIdle(true);
+            active = false;
+
+            if (conn.isQuiet()) {
+                getTimeoutWheel().schedule(conn);
+                getHelper().onIdle(conn);
+            } else {
+                conn.activate();
+            }
+        }
+
+        if (active) {
+            // Check it again at the next loop
+            addActiveConnection(conn);
         }
     }
 
     /**
-     * Controls all helper connections.
+     * Controls the active connections and the idle connections whose IO idle
+     * time out has expired.
      * 
      * @throws IOException
      */
     protected void controlConnections() throws IOException {
-        for (Connection<?> connection : getHelper().getConnections()) {
-            controlConnection(connection);
+        List<Connection<?>> expired = getTimeoutWheel().expire(
+                System.currentTimeMillis());
+
+        if (expired != null) {
+            for (Connection<?> connection : expired) {
+                connection.activate();
+            }
+        }
+
+        // Only control the connections active at the beginning of the loop
+        Connection<?> connection = getActiveConnections().poll();
+
+        while (connection != null) {
+            this.controlledConnections.add(connection);
+            connection = getActiveConnections().poll();
+        }
+
+        try {
+            for (Connection<?> controlled : this.controlledConnections) {
+                if (controlled.getController() == this) {
+                    controlConnection(controlled);
+                }
+            }
+        } finally {
+            this.controlledConnections.clear();
         }
     }
 
@@ -140,7 +207,7 @@ public class ConnectionController extends Controller implements Runnable,
 
     @Override
     protected void doInit() {
-        this.selector = createSelector();
+        setSelector(createSelector());
         // Done in the controller for thread safety reason regarding the byte
         // buffers part of the pooled connections
         getHelper().createConnectionPool();
@@ -166,11 +233,41 @@ public class ConnectionController extends Controller implements Runnable,
         registerKeys();
         getHelper().getLogger().log(Level.FINEST, "updateKeys()");
         updateKeys();
+
+        // Wake up in time for the next IO idle time out, or soon if some active
+        // connections are waiting for a state change
+        if (getActiveConnections().isEmpty()) {
+            sleepTime = getTimeoutWheel().getSleepTime(
+                    System.currentTimeMillis(), sleepTime);
+        } else if ((sleepTime <= 0)
+                || (sleepTime > getTimeoutWheel().getTickMs())) {
+            sleepTime = getTimeoutWheel().getTickMs();
+        }
+
         getHelper().getLogger().log(Level.FINEST,
                 "selectKeys(" + sleepTime + ")");
         selectKeys(sleepTime);
     }
 
+    /**
+     * Returns the queue of active connections to check at the next loop.
+     * 
+     * @return The queue of active connections to check at the next loop.
+     */
+    protected Queue<Connection<?>> getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * Returns the connections controlled. By default, it returns all the
+     * connections of the parent helper.
+     * 
+     * @return The connections controlled.
+     */
+    protected List<? extends Connection<?>> getConnections() {
+        return getHelper().getConnections();
+    }
+
     /**
      * Returns the queue of new selection registrations.
      * 
@@ -189,6 +286,15 @@ public class ConnectionController extends Controller implements Runnable,
         return selector;
     }
 
+    /**
+     * Returns the timing wheel of the idle connections.
+     * 
+     * @return The timing wheel of the idle connections.
+     */
+    protected TimeoutWheel getTimeoutWheel() {
+        return timeoutWheel;
+    }
+
     /**
      * Returns the queue of updated selection registrations.
      * 
@@ -314,6 +420,16 @@ public class ConnectionController extends Controller implements Runnable,
         }
     }
 
+    /**
+     * Sets the NIO selector.
+     * 
+     * @param selector
+     *            The NIO selector.
+     */
+    protected void setSelector(Selector selector) {
+        this.selector = selector;
+    }
+
     @Override
     public void shutdown() {
         super.shutdown();
@@ -39,12 +39,15 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.nio.channels.SocketChannel;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.restlet.Application;
 import org.restlet.Connector;
 import org.restlet.Context;
 import org.restlet.Response;
+import org.restlet.engine.io.BufferPool;
 import org.restlet.routing.VirtualHost;
 
 /**
@@ -97,6 +100,15 @@ import org.restlet.routing.VirtualHost;
  * <td>Indicates if connections should be pooled to save instantiation time.</td>
  * </tr>
  * <tr>
+ * <td>pooledBuffers</td>
+ * <td>boolean</td>
+ * <td>true</td>
+ * <td>Indicates if the IO buffers of the connections should be borrowed from
+ * pools while messages are exchanged and given back when idle. The pooled
+ * buffers are sliced from larger slabs, sized according to the
+ * "inboundBufferSize" and "outboundBufferSize" parameters.</td>
+ * </tr>
+ * <tr>
  * <td>socketKeepAlive</td>
  * <td>boolean</td>
  * <td>true</td>
@@ -157,6 +169,9 @@ import org.restlet.routing.VirtualHost;
  */
 public abstract class ConnectionHelper<T extends Connector> extends
         BaseHelper<T> {
+    /** The pools of IO buffers, by buffer size. */
+    private final ConcurrentMap<Integer, BufferPool> bufferPools;
+
     /** The connection pool. */
     private volatile ConnectionPool<T> connectionPool;
 
@@ -173,6 +188,7 @@ public abstract class ConnectionHelper<T extends Connector> extends
      */
     public ConnectionHelper(T connector, boolean clientSide) {
         super(connector, clientSide);
+        this.bufferPools = new ConcurrentHashMap<Integer, BufferPool>();
         this.connections = new CopyOnWriteArrayList<Connection<T>>();
         this.connectionPool = null;
     }
@@ -333,6 +349,29 @@ public abstract class ConnectionHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Returns the pool of IO buffers of the given size, creating it if needed.
+     * 
+     * @param bufferSize
+     *            The size of the IO buffers.
+     * @return The pool of IO buffers of the given size.
+     */
+    public BufferPool getBufferPool(int bufferSize) {
+        BufferPool result = this.bufferPools.get(bufferSize);
+
+        if (result == null) {
+            result = new BufferPool(bufferSize, isDirectBuffers());
+            BufferPool current = this.bufferPools.putIfAbsent(bufferSize,
+                    result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the connection pool.
      * 
@@ -468,6 +507,17 @@ public abstract class ConnectionHelper<T extends Connector> extends
                 "pooledConnections", "true"));
     }
 
+    /**
+     * Indicates if the IO buffers of the connections should be borrowed from
+     * pools while messages are exchanged and given back when idle.
+     * 
+     * @return True if the IO buffers should be pooled.
+     */
+    public boolean isPooledBuffers() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "pooledBuffers", "true"));
+    }
+
     /**
      * Indicates if the helper is going through a client proxy or is a server
      * proxy.
@@ -523,4 +573,16 @@ public abstract class ConnectionHelper<T extends Connector> extends
         return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
                 "socketReuseAddress", "true"));
     }
+
+    /**
+     * Called back by a controller when one of its connections becomes idle,
+     * waiting for new messages or for its IO idle time out. Does nothing by
+     * default.
+     * 
+     * @param connection
+     *            The idle connection.
+     */
+    protected void onIdle(Connection<?> connection) {
+    }
+
 }
@@ -106,6 +106,17 @@ public abstract class Controller {
         return getHelper().getWorkerService();
     }
 
+    /**
+     * Indicates if the controller should detect the overload of the worker
+     * service. By default, it returns {@link BaseHelper#hasWorkerThreads()}.
+     * 
+     * @return True if the controller should detect the overload of the worker
+     *         service.
+     */
+    protected boolean isControllingOverload() {
+        return getHelper().hasWorkerThreads();
+    }
+
     /**
      * Indicates if the controller is overloaded.
      * 
@@ -132,7 +143,7 @@ public abstract class Controller {
             doInit();
             setRunning(true);
             long sleepTime = getHelper().getControllerSleepTimeMs();
-            boolean hasWorkerThreads = getHelper().hasWorkerThreads();
+            boolean hasWorkerThreads = isControllingOverload();
             boolean isWorkerServiceOverloaded;
 
             while (isRunning()) {
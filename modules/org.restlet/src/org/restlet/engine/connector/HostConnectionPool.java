@@ -0,0 +1,289 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.connector;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Client;
+
+/**
+ * Pool of the client connections opened to a given host domain and port. Idle
+ * connections are kept in a bounded queue, so that they can be checked out
+ * and in without scanning all the connections of the parent helper. Once its
+ * last connection is removed, a pool can be retired so that the parent helper
+ * forgets it.
+ * 
+ * @author Jerome Louvel
+ */
+public class HostConnectionPool {
+
+    /** The connections count of a retired pool. */
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    /** The connections opened or being opened to the host. */
+    private final List<Connection<Client>> connections;
+
+    /** The number of connections opened or reserved. */
+    private final AtomicInteger connectionsCount;
+
+    /** The idle connections available for new requests. */
+    private final Queue<Connection<Client>> idleConnections;
+
+    /** The number of idle connections. */
+    private final AtomicInteger idleCount;
+
+    /** The index of idle connections, to prevent duplicate entries. */
+    private final ConcurrentMap<Connection<Client>, Boolean> idleIndex;
+
+    /** The maximum number of idle connections or -1 for no limit. */
+    private final int maxIdleConnections;
+
+    /** The IP socket address of the host. */
+    private final InetSocketAddress socketAddress;
+
+    /**
+     * Constructor.
+     * 
+     * @param socketAddress
+     *            The IP socket address of the host.
+     * @param maxIdleConnections
+     *            The maximum number of idle connections or -1 for no limit.
+     */
+    public HostConnectionPool(InetSocketAddress socketAddress,
+            int maxIdleConnections) {
+        this.connections = new CopyOnWriteArrayList<Connection<Client>>();
+        this.connectionsCount = new AtomicInteger();
+        this.idleConnections = new ConcurrentLinkedQueue<Connection<Client>>();
+        this.idleCount = new AtomicInteger();
+        this.idleIndex = new ConcurrentHashMap<Connection<Client>, Boolean>();
+        this.maxIdleConnections = maxIdleConnections;
+        this.socketAddress = socketAddress;
+    }
+
+    /**
+     * Adds a new connection whose slot was previously reserved with
+     * {@link #reserve(int)}.
+     * 
+     * @param connection
+     *            The new connection.
+     */
+    public void add(Connection<Client> connection) {
+        getConnections().add(connection);
+    }
+
+    /**
+     * Checks in an idle connection. If the maximum number of idle connections
+     * is reached, the connection isn't queued.
+     * 
+     * @param connection
+     *            The idle connection.
+     * @return True if the connection was queued or was already queued.
+     */
+    public boolean checkin(Connection<Client> connection) {
+        boolean result = true;
+
+        if (this.idleIndex.putIfAbsent(connection, Boolean.TRUE) == null) {
+            int count = this.idleCount.incrementAndGet();
+
+            if ((this.maxIdleConnections != -1)
+                    && (count > this.maxIdleConnections)) {
+                this.idleCount.decrementAndGet();
+                this.idleIndex.remove(connection);
+                result = false;
+            } else {
+                this.idleConnections.offer(connection);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks out an idle connection available for a new request. Returns
+     * immediately if no connection is idle.
+     * 
+     * @return An available connection or null.
+     */
+    public Connection<Client> checkout() {
+        Connection<Client> result = null;
+        Connection<Client> connection = (getIdleCount() == 0) ? null
+                : this.idleConnections.poll();
+
+        while ((result == null) && (connection != null)) {
+            if (this.idleIndex.remove(connection) != null) {
+                this.idleCount.decrementAndGet();
+
+                if (connection.isAvailable()
+                        && getSocketAddress().equals(
+                                connection.getSocketAddress())) {
+                    result = connection;
+                }
+            }
+
+            if (result == null) {
+                connection = this.idleConnections.poll();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of connections opened or reserved that aren't idle,
+     * computed from the counters without scanning the connections.
+     * 
+     * @return The number of active connections.
+     */
+    public int getActiveCount() {
+        return Math.max(0, getConnectionsCount() - getIdleCount());
+    }
+
+    /**
+     * Returns the connections opened or being opened to the host.
+     * 
+     * @return The connections opened or being opened to the host.
+     */
+    public List<Connection<Client>> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the number of connections opened or reserved.
+     * 
+     * @return The number of connections opened or reserved.
+     */
+    public int getConnectionsCount() {
+        return isRetired() ? 0 : connectionsCount.get();
+    }
+
+    /**
+     * Returns the number of idle connections.
+     * 
+     * @return The number of idle connections.
+     */
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * Returns the IP socket address of the host.
+     * 
+     * @return The IP socket address of the host.
+     */
+    public InetSocketAddress getSocketAddress() {
+        return socketAddress;
+    }
+
+    /**
+     * Indicates if the pool has been retired, in which case no new connection
+     * can be reserved.
+     * 
+     * @return True if the pool has been retired.
+     */
+    public boolean isRetired() {
+        return connectionsCount.get() == RETIRED;
+    }
+
+    /**
+     * Removes a connection, typically once closed.
+     * 
+     * @param connection
+     *            The connection to remove.
+     * @return True if the connection was part of the pool.
+     */
+    public boolean remove(Connection<Client> connection) {
+        boolean result = getConnections().remove(connection);
+
+        if (result) {
+            this.connectionsCount.decrementAndGet();
+
+            // Stale entries of the idle queue are skipped at checkout time
+            if (this.idleIndex.remove(connection) != null) {
+                this.idleCount.decrementAndGet();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reserves a slot for a new connection, unless the maximum number of
+     * connections for the host is reached.
+     * 
+     * @param maxConnections
+     *            The maximum number of connections or -1 for no limit.
+     * @return True if a slot was reserved.
+     */
+    public boolean reserve(int maxConnections) {
+        boolean result = false;
+        int count = this.connectionsCount.get();
+
+        while (!result && (count != RETIRED)
+                && ((maxConnections == -1) || (count < maxConnections))) {
+            result = this.connectionsCount.compareAndSet(count, count + 1);
+
+            if (!result) {
+                count = this.connectionsCount.get();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Retires the pool if it has no connection opened or reserved. Slots can't
+     * be reserved in a retired pool anymore.
+     * 
+     * @return True if the pool has been retired.
+     */
+    public boolean retire() {
+        return this.connectionsCount.compareAndSet(0, RETIRED);
+    }
+
+    /**
+     * Releases a slot previously reserved with {@link #reserve(int)} but left
+     * unused, for example when the connection couldn't be created.
+     */
+    public void unreserve() {
+        this.connectionsCount.decrementAndGet();
+    }
+
+}
@@ -36,10 +36,12 @@ package org.restlet.engine.connector;
 import java.io.IOException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
 
 import org.restlet.Client;
 import org.restlet.Response;
 import org.restlet.data.Status;
+import org.restlet.engine.io.Buffer;
 import org.restlet.engine.io.IoState;
 
 /**
@@ -112,14 +114,37 @@ public class HttpClientInboundWay extends ClientInboundWay {
         return super.isEmpty() && getMessages().isEmpty();
     }
 
+    @Override
+    public int onFill(Buffer buffer, Object... args) throws IOException {
+        int result = super.onFill(buffer, args);
+
+        if ((result == -1) && !getBuffer().canDrain()
+                && !getBuffer().couldDrain()) {
+            // The server closed the connection. Otherwise, the pending
+            // requests are retried once the buffered response is read.
+            retryMessages();
+        }
+
+        return result;
+    }
+
     @Override
     public void onMessageCompleted(boolean endDetected) throws IOException {
         getMessages().remove(getMessage());
         super.onMessageCompleted(endDetected);
+
+        if (getConnection().getState() != ConnectionState.OPEN) {
+            // The server asked to close the connection
+            retryMessages();
+        }
     }
 
     @Override
     public void onError(Status status) {
+        // The server might have closed the connection while pipelined
+        // requests were being sent
+        retryMessages();
+
         for (Response rsp : getMessages()) {
             if (rsp != getMessage()) {
                 getMessages().remove(rsp);
@@ -130,6 +155,67 @@ public class HttpClientInboundWay extends ClientInboundWay {
         super.onError(status);
     }
 
+    /**
+     * Sends again a request on another connection, unless it has already been
+     * retried once.
+     * 
+     * @param response
+     *            The response whose request should be sent again.
+     * @return True if the request has been sent again.
+     */
+    protected boolean retryMessage(Response response) {
+        boolean result = (response.getRequest().getAttributes().putIfAbsent(
+                ClientConnectionHelper.CONNECTOR_RETRIED, Boolean.TRUE) == null);
+
+        if (result) {
+            getHelper().addOutboundMessage(response);
+        }
+
+        return result;
+    }
+
+    /**
+     * Sends again, on other connections, the requests of a closing connection
+     * that haven't started to receive a response yet, typically pipelined
+     * requests when the server closes the connection. Sent requests are only
+     * retried if they are pipelinable, hence idempotent. Each request is
+     * retried at most once, and isn't pipelined anymore.
+     */
+    protected void retryMessages() {
+        Response current = getMessage();
+        HttpClientOutboundWay outboundWay = (HttpClientOutboundWay) getConnection()
+                .getOutboundWay();
+        Response sending = outboundWay.getMessage();
+        boolean retried = false;
+
+        // Requests sent but without response yet
+        for (Response rsp : getMessages()) {
+            if ((rsp != sending)
+                    && ((current == null) || (rsp.getRequest() != current
+                            .getRequest()))
+                    && getHelper().isPipelinable(rsp.getRequest())
+                    && getMessages().remove(rsp)) {
+                retried |= retryMessage(rsp);
+            }
+        }
+
+        // Requests not sent yet
+        for (Response rsp : outboundWay.getMessages()) {
+            if ((rsp != sending)
+                    && !rsp.getRequest().getAttributes().containsKey(
+                            ClientConnectionHelper.CONNECTOR_RETRIED)
+                    && outboundWay.getMessages().remove(rsp)) {
+                retried |= retryMessage(rsp);
+            }
+        }
+
+        if (retried && getLogger().isLoggable(Level.FINE)) {
+            getLogger().fine(
+                    "Retrying the pending requests of a connection closed by "
+                            + getConnection().getSocketAddress());
+        }
+    }
+
     @Override
     public void onTimeOut() {
         for (Response rsp : getMessages()) {
@@ -143,4 +229,15 @@ public class HttpClientInboundWay extends ClientInboundWay {
         super.onTimeOut();
     }
 
+    @Override
+    public void updateState() {
+        // Start reading the response of the next pipelined request
+        if ((getMessageState() == MessageState.IDLE)
+                && !getMessages().isEmpty()) {
+            setMessageState(MessageState.START);
+        }
+
+        super.updateState();
+    }
+
 }
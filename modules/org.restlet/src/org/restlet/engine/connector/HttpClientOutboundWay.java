@@ -34,6 +34,7 @@
 package org.restlet.engine.connector;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -94,6 +95,35 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
         return super.isEmpty() && getMessages().isEmpty();
     }
 
+    /**
+     * Indicates if the given message can be sent before the responses of the
+     * previous requests are received. This requires a pipelining connection,
+     * pipelinable requests and less in-flight requests than the pipelining
+     * depth.
+     * 
+     * @param message
+     *            The next message to send.
+     * @return True if the message can be pipelined.
+     */
+    protected boolean isPipelinable(Response message) {
+        boolean result = getConnection().isPipelining()
+                && (getConnection().getState() == ConnectionState.OPEN)
+                && getHelper().isPipelinable(message.getRequest());
+
+        if (result) {
+            Queue<Response> inboundMessages = ((HttpClientInboundWay) getConnection()
+                    .getInboundWay()).getMessages();
+            result = inboundMessages.size() < getHelper().getPipeliningDepth();
+
+            for (Iterator<Response> iter = inboundMessages.iterator(); result
+                    && iter.hasNext();) {
+                result = getHelper().isPipelinable(iter.next().getRequest());
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public void onError(Status status) {
         for (Response rsp : getMessages()) {
@@ -117,8 +147,16 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
                 Queue<Response> inboundMessages = ((HttpClientInboundWay) getConnection()
                         .getInboundWay()).getMessages();
                 inboundMessages.add(message);
-                getConnection().getInboundWay().setMessageState(
-                        MessageState.START);
+
+                // With pipelining, the inbound way might still be reading a
+                // previous response or have it buffered. In this case, the
+                // inbound way will start reading the next response by itself.
+                InboundWay inboundWay = getConnection().getInboundWay();
+
+                if ((inboundMessages.size() == 1)
+                        && (inboundWay.getMessageState() == MessageState.IDLE)) {
+                    inboundWay.setMessageState(MessageState.START);
+                }
             }
         }
 
@@ -151,9 +189,14 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
     @Override
     public void updateState() {
         // Update the IO state if necessary
-        if (getMessage() == null
-                && getConnection().getInboundWay().isAvailable()) {
-            setMessage(getMessages().peek());
+        if (getMessage() == null) {
+            Response next = getMessages().peek();
+
+            if ((next != null)
+                    && (getConnection().getInboundWay().isAvailable()
+                            || isPipelinable(next))) {
+                setMessage(next);
+            }
         }
 
         super.updateState();
@@ -40,11 +40,12 @@ import java.util.logging.Level;
 import org.restlet.Response;
 import org.restlet.data.Status;
 import org.restlet.engine.header.Header;
-import org.restlet.engine.header.HeaderReader;
 import org.restlet.engine.header.HeaderUtils;
+import org.restlet.engine.header.LazyHeader;
 import org.restlet.engine.io.Buffer;
 import org.restlet.engine.io.BufferState;
 import org.restlet.engine.io.IoState;
+import org.restlet.engine.io.LineBuffer;
 import org.restlet.engine.io.ReadableChunkedChannel;
 import org.restlet.engine.io.ReadableSelectionChannel;
 import org.restlet.engine.io.ReadableSizedSelectionChannel;
@@ -68,6 +69,9 @@ public abstract class InboundWay extends Way {
     /** The NIO selection registration of the entity. */
     private volatile SelectionRegistration entityRegistration;
 
+    /** The byte buffer of the start line and header lines. */
+    private final LineBuffer lineBuffer;
+
     /**
      * Constructor.
      * 
@@ -79,6 +83,7 @@ public abstract class InboundWay extends Way {
     public InboundWay(Connection<?> connection, int bufferSize) {
         super(connection, bufferSize);
         this.builderIndex = 0;
+        this.lineBuffer = new LineBuffer(512);
     }
 
     @Override
@@ -86,6 +91,16 @@ public abstract class InboundWay extends Way {
         super.clear();
         this.builderIndex = 0;
         this.entityRegistration = null;
+        this.lineBuffer.clear();
+    }
+
+    /**
+     * Clears the line builder and moves the line buffer to the next line.
+     */
+    @Override
+    protected void clearLineBuilder() {
+        super.clearLineBuilder();
+        getLineBuffer().nextLine();
     }
 
     /**
@@ -154,14 +169,14 @@ public abstract class InboundWay extends Way {
      */
     protected boolean fillLine() throws IOException {
         boolean result = false;
-        setLineBuilderState(getBuffer().drain(getLineBuilder(),
+        setLineBuilderState(getBuffer().drain(getLineBuffer(),
                 getLineBuilderState()));
 
         if (getLineBuilderState() == BufferState.DRAINING) {
             result = true;
 
             if (getLogger().isLoggable(Level.FINE)) {
-                getLogger().log(Level.FINE, getLineBuilder().toString());
+                getLogger().log(Level.FINE, getLineBuffer().getLine());
             }
         }
 
@@ -186,6 +201,15 @@ public abstract class InboundWay extends Way {
         return entityRegistration;
     }
 
+    /**
+     * Returns the byte buffer of the start line and header lines.
+     * 
+     * @return The byte buffer of the start line and header lines.
+     */
+    protected LineBuffer getLineBuffer() {
+        return lineBuffer;
+    }
+
     @Override
     public int getInterestOperations() {
         int result = 0;
@@ -215,7 +239,7 @@ public abstract class InboundWay extends Way {
 
         // Wakeup the controller to update the registrations,
         // since this callback can be called asynchronous
-        getHelper().getController().wakeup();
+        getConnection().getController().wakeup();
 
         if (getLogger().isLoggable(Level.FINER)) {
             getLogger().finer("Inbound message completed");
@@ -235,10 +259,10 @@ public abstract class InboundWay extends Way {
         while (continueReading && isLineReadable()) {
             // Parse next ready lines
             if (getMessageState() == MessageState.START) {
-                if (getLineBuilder().length() == 0) {
+                if (getLineBuffer().getLineLength() == 0) {
                     // Silently eat empty lines used for keep alive purpose
                     // sometimes (SIP)
-                    continueReading = false;
+                    clearLineBuilder();
                 } else {
                     if (getHelper().getLogger().isLoggable(Level.FINE)) {
                         getHelper().getLogger().fine(
@@ -253,12 +277,17 @@ public abstract class InboundWay extends Way {
 
                 if (header != null) {
                     if (getHeaders() == null) {
-                        setHeaders(new Series<Header>(Header.class));
+                        Series<Header> headers = new Series<Header>(
+                                Header.class);
+                        headers.setIndexed(true);
+                        setHeaders(headers);
                     }
 
                     getHeaders().add(header);
                 } else {
-                    // All headers received
+                    // All headers received, the bytes of the lines
+                    // are now owned by the lazily decoded headers
+                    getLineBuffer().clear();
                     onHeadersCompleted();
                 }
             }
@@ -370,9 +399,33 @@ public abstract class InboundWay extends Way {
      * @throws IOException
      */
     protected Header readHeader() throws IOException {
-        Header header = HeaderReader.readHeader(getLineBuilder());
+        Header result = null;
+        LineBuffer line = getLineBuffer();
+        int start = line.getLineStart();
+        int end = line.getLineEnd();
+
+        if (start < end) {
+            int colon = line.indexOf(':', start);
+
+            if (colon == -1) {
+                throw new IOException(
+                        "Unable to parse the header name. End of line reached too early.");
+            }
+
+            // Skip any separator space between colon and header value
+            int valueStart = colon + 1;
+
+            while ((valueStart < end)
+                    && HeaderUtils.isSpace(line.getBytes()[valueStart])) {
+                valueStart++;
+            }
+
+            result = new LazyHeader(LazyHeader.getName(line.getBytes(),
+                    start, colon), line.share(), valueStart, end);
+        }
+
         clearLineBuilder();
-        return header;
+        return result;
     }
 
     /**
@@ -433,6 +486,16 @@ public abstract class InboundWay extends Way {
             }
         } else {
             super.updateState();
+
+            // The next message might have been received with the previous
+            // one, as with pipelining, so no NIO selection will occur
+            if (getMessageState() == MessageState.START) {
+                synchronized (getBuffer().getLock()) {
+                    if (getBuffer().canDrain() || getBuffer().couldDrain()) {
+                        setIoState(IoState.READY);
+                    }
+                }
+            }
         }
     }
 }
@@ -34,7 +34,10 @@
 package org.restlet.engine.connector;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -43,10 +46,12 @@ import java.util.logging.Level;
 import org.restlet.Message;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.CharacterSet;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
 import org.restlet.engine.ConnectorHelper;
 import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderCache;
 import org.restlet.engine.header.HeaderConstants;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.io.BlockableChannel;
@@ -55,7 +60,9 @@ import org.restlet.engine.io.IoState;
 import org.restlet.engine.io.ReadableChunkingChannel;
 import org.restlet.engine.io.ReadableSizedChannel;
 import org.restlet.engine.util.StringUtils;
+import org.restlet.representation.ByteArrayRepresentation;
 import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
 import org.restlet.service.ConnectorService;
 import org.restlet.util.Series;
 
@@ -81,6 +88,9 @@ public abstract class OutboundWay extends Way {
                 + ((protocolVersion == null) ? "1.1" : protocolVersion);
     }
 
+    /** The content of a small entity to be written along with the headers. */
+    private volatile ByteBuffer entityBytes;
+
     /** The entity as a NIO readable byte channel. */
     private volatile ReadableByteChannel entityChannel;
 
@@ -106,6 +116,7 @@ public abstract class OutboundWay extends Way {
      */
     public OutboundWay(Connection<?> connection, int bufferSize) {
         super(connection, bufferSize);
+        this.entityBytes = null;
         this.entityChannel = null;
         this.entitySelectionKey = null;
         this.headerIndex = 0;
@@ -152,11 +163,103 @@ public abstract class OutboundWay extends Way {
     @Override
     public void clear() {
         super.clear();
+        this.entityBytes = null;
         this.entityChannel = null;
         this.entitySelectionKey = null;
         this.headerIndex = 0;
     }
 
+    /**
+     * Fills the IO buffer with the next header line if it is available
+     * pre-encoded from the {@link HeaderCache} and if the buffer has enough
+     * room for it. This prevents the line from being written and encoded
+     * again.
+     * 
+     * @param buffer
+     *            The IO buffer to fill.
+     * @return True if the header line was filled.
+     */
+    protected boolean fillHeaderLine(Buffer buffer) {
+        boolean result = false;
+
+        if ((getMessageState() == MessageState.HEADERS)
+                && (getHeaders() != null)
+                && (getHeaderIndex() < getHeaders().size())) {
+            Header header = getHeaders().get(getHeaderIndex());
+            byte[] line = HeaderCache.getLine(header.getName(),
+                    header.getValue());
+
+            if ((line != null) && (buffer.remaining() >= line.length)) {
+                buffer.fill(line);
+                setHeaderIndex(getHeaderIndex() + 1);
+                result = true;
+
+                if (getLogger().isLoggable(Level.FINE)) {
+                    getLogger().log(Level.FINE,
+                            header.getName() + ": " + header.getValue());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the content of a small entity to be written along with the
+     * headers.
+     * 
+     * @return The content of a small entity to be written along with the
+     *         headers.
+     */
+    protected ByteBuffer getEntityBytes() {
+        return entityBytes;
+    }
+
+    /**
+     * Returns the content of a small entity already available in memory, so
+     * that it can be written along with the start line and headers in a single
+     * gathering write, without being copied into the IO buffer. By default,
+     * supports {@link ByteArrayRepresentation} and {@link StringRepresentation}
+     * entities of known size not exceeding the IO buffer capacity, when the
+     * writable selection channel of the connection supports gathering writes.
+     * 
+     * @param entity
+     *            The entity to write.
+     * @return The entity content or null if not available.
+     */
+    protected ByteBuffer getEntityBytes(Representation entity) {
+        ByteBuffer result = null;
+
+        if ((entity.getRange() == null)
+                && (entity.getAvailableSize() != Representation.UNKNOWN_SIZE)
+                && (entity.getAvailableSize() <= getBuffer().capacity())
+                && getConnection().isTransferable()
+                && (getConnection().getWritableSelectionChannel() instanceof GatheringByteChannel)) {
+            if (entity instanceof ByteArrayRepresentation) {
+                result = ((ByteArrayRepresentation) entity).getByteBuffer();
+            } else if ((entity instanceof StringRepresentation)
+                    && (((StringRepresentation) entity).getText() != null)) {
+                CharacterSet charset = (entity.getCharacterSet() == null) ? CharacterSet.ISO_8859_1
+                        : entity.getCharacterSet();
+
+                try {
+                    result = ByteBuffer.wrap(((StringRepresentation) entity)
+                            .getText().getBytes(charset.getName()));
+                } catch (UnsupportedEncodingException e) {
+                    result = null;
+                }
+            }
+
+            // The content must match the announced size
+            if ((result != null)
+                    && (result.remaining() != entity.getAvailableSize())) {
+                result = null;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the entity as a NIO readable byte channel.
      * 
@@ -272,39 +375,12 @@ public abstract class OutboundWay extends Way {
             }
 
             setMessageState(MessageState.BODY);
-            ReadableByteChannel rbc = getActualMessage().getEntity()
-                    .getChannel();
-
-            if (rbc instanceof FileChannel) {
-                setEntityChannelType(EntityType.TRANSFERABLE);
-            } else if (rbc instanceof BlockableChannel) {
-                BlockableChannel bc = (BlockableChannel) rbc;
+            setEntityBytes(getEntityBytes(getActualMessage().getEntity()));
 
-                if (bc.isBlocking()) {
-                    setEntityChannelType(EntityType.BLOCKING);
-                } else {
-                    setEntityChannelType(EntityType.NON_BLOCKING);
-                }
-            } else if (rbc instanceof SelectableChannel) {
-                SelectableChannel sc = (SelectableChannel) rbc;
-
-                if (sc.isBlocking()) {
-                    setEntityChannelType(EntityType.BLOCKING);
-                } else {
-                    setEntityChannelType(EntityType.NON_BLOCKING);
-                }
-            } else {
-                setEntityChannelType(EntityType.BLOCKING);
-            }
-
-            if (getActualMessage().getEntity().getAvailableSize() == Representation.UNKNOWN_SIZE) {
-                setEntityChannel(new ReadableChunkingChannel(rbc, getBuffer()
-                        .capacity()));
-            } else {
-                setEntityChannel(new ReadableSizedChannel(rbc,
-                        getActualMessage().getEntity().getAvailableSize()));
+            // Small entities are written along with the headers
+            if (getEntityBytes() == null) {
+                openEntityChannel(getActualMessage().getEntity());
             }
-
         } else {
             setMessageState(MessageState.END);
         }
@@ -319,6 +395,8 @@ public abstract class OutboundWay extends Way {
                 getEntityChannel().close();
             }
 
+            setEntityBytes(null);
+
             // Release entity
             if (messageEntity != null) {
                 messageEntity.release();
@@ -344,19 +422,28 @@ public abstract class OutboundWay extends Way {
     @Override
     public int onDrain(Buffer buffer, int maxDrained, Object... args)
             throws IOException {
-        int result = getBuffer().drain(
-                getConnection().getWritableSelectionChannel());
+        int result = 0;
+
+        if ((getMessageState() == MessageState.BODY)
+                && (getEntityBytes() != null)) {
+            // Gather the headers and the entity in a single write
+            result = (int) ((GatheringByteChannel) getConnection()
+                    .getWritableSelectionChannel()).write(new ByteBuffer[] {
+                    buffer.getBytes(), getEntityBytes() });
+
+            if (!getEntityBytes().hasRemaining()) {
+                setMessageState(MessageState.END);
+            }
+        } else {
+            result = getBuffer().drain(
+                    getConnection().getWritableSelectionChannel());
+        }
 
         if (getLogger().isLoggable(Level.FINER)) {
             getLogger().log(Level.FINER, result + " bytes written");
         }
 
-        if (getHelper().getThrottleTimeMs() > 0) {
-            try {
-                Thread.sleep(getHelper().getThrottleTimeMs());
-            } catch (InterruptedException e) {
-            }
-        }
+        throttle();
 
         if (result == 0) {
             if (getIoState() == IoState.PROCESSING) {
@@ -385,11 +472,24 @@ public abstract class OutboundWay extends Way {
         // buffer
         if (getMessageState() == MessageState.BODY) {
             try {
-                int filled = buffer.fill(getEntityChannel());
+                if (getEntityBytes() != null) {
+                    // Send the rest of the entity once the headers have been
+                    // written
+                    if (buffer.isEmpty()) {
+                        writeEntityBytes();
+                    }
+                } else if (isTransferable()) {
+                    // Send the entity once the headers have been written
+                    if (buffer.isEmpty()) {
+                        transferEntity();
+                    }
+                } else {
+                    int filled = buffer.fill(getEntityChannel());
 
-                // Detect end of entity reached
-                if (filled == -1) {
-                    setMessageState(MessageState.END);
+                    // Detect end of entity reached
+                    if (filled == -1) {
+                        setMessageState(MessageState.END);
+                    }
                 }
             } catch (IOException ioe) {
                 if (getLogger().isLoggable(Level.WARNING)) {
@@ -402,7 +502,7 @@ public abstract class OutboundWay extends Way {
         } else if (getMessageState() != MessageState.END) {
             // Write the start line or the headers,
             // relying on the line builder
-            if (getLineBuilder().length() == 0) {
+            if ((getLineBuilder().length() == 0) && !fillHeaderLine(buffer)) {
                 // A new line can be written in the builder
                 writeLine();
             }
@@ -458,6 +558,50 @@ public abstract class OutboundWay extends Way {
         }
     }
 
+    /**
+     * Opens the channel from which the entity will be read, and detects its
+     * type.
+     * 
+     * @param entity
+     *            The entity to write.
+     * @throws IOException
+     */
+    protected void openEntityChannel(Representation entity) throws IOException {
+        ReadableByteChannel rbc = entity.getChannel();
+
+        if ((rbc instanceof FileChannel)
+                || ((rbc instanceof ReadableSizedChannel) && ((ReadableSizedChannel) rbc)
+                        .isTransferable())) {
+            setEntityChannelType(EntityType.TRANSFERABLE);
+        } else if (rbc instanceof BlockableChannel) {
+            BlockableChannel bc = (BlockableChannel) rbc;
+
+            if (bc.isBlocking()) {
+                setEntityChannelType(EntityType.BLOCKING);
+            } else {
+                setEntityChannelType(EntityType.NON_BLOCKING);
+            }
+        } else if (rbc instanceof SelectableChannel) {
+            SelectableChannel sc = (SelectableChannel) rbc;
+
+            if (sc.isBlocking()) {
+                setEntityChannelType(EntityType.BLOCKING);
+            } else {
+                setEntityChannelType(EntityType.NON_BLOCKING);
+            }
+        } else {
+            setEntityChannelType(EntityType.BLOCKING);
+        }
+
+        if (entity.getAvailableSize() == Representation.UNKNOWN_SIZE) {
+            setEntityChannel(new ReadableChunkingChannel(rbc, getBuffer()
+                    .capacity()));
+        } else {
+            setEntityChannel(new ReadableSizedChannel(rbc,
+                    entity.getAvailableSize()));
+        }
+    }
+
     @Override
     public int processIoBuffer() throws IOException {
         int result = super.processIoBuffer();
@@ -475,6 +619,17 @@ public abstract class OutboundWay extends Way {
         return result;
     }
 
+    /**
+     * Sets the content of a small entity to be written along with the headers.
+     * 
+     * @param entityBytes
+     *            The content of a small entity to be written along with the
+     *            headers.
+     */
+    protected void setEntityBytes(ByteBuffer entityBytes) {
+        this.entityBytes = entityBytes;
+    }
+
     /**
      * Sets the entity as a NIO readable byte channel.
      * 
@@ -516,6 +671,22 @@ public abstract class OutboundWay extends Way {
         this.headerIndex = headerIndex;
     }
 
+    /**
+     * Indicates if the entity of the current message can be directly
+     * transferred from its file channel to the socket channel, without
+     * copying its bytes into the IO buffer. This is the case for sized file
+     * entities, including ranges of file entities, unless the connection
+     * needs to process the bytes written, for example to encrypt them.
+     * 
+     * @return True if the entity can be directly transferred.
+     */
+    protected boolean isTransferable() {
+        return (getEntityChannelType() == EntityType.TRANSFERABLE)
+                && (getEntityChannel() instanceof ReadableSizedChannel)
+                && getConnection().isTransferable()
+                && (getConnection().getSocketChannel() != null);
+    }
+
     /**
      * Indicates if the entity should be chunked because its length is unknown.
      * 
@@ -528,6 +699,57 @@ public abstract class OutboundWay extends Way {
                 && (entity.getAvailableSize() == Representation.UNKNOWN_SIZE);
     }
 
+    /**
+     * Pauses the current thread if a throttling time has been configured, in
+     * order to simulate slow connections.
+     */
+    protected void throttle() {
+        if (getHelper().getThrottleTimeMs() > 0) {
+            try {
+                Thread.sleep(getHelper().getThrottleTimeMs());
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    /**
+     * Transfers the entity from its file channel directly to the socket
+     * channel, until the socket channel can't accept more bytes, the end of
+     * the entity is reached or a few buffer sizes have been transferred. In
+     * the latter case, the transfer resumes on the next writable selection so
+     * that a large entity doesn't monopolize the IO controller.
+     * 
+     * @throws IOException
+     * @see #isTransferable()
+     */
+    protected void transferEntity() throws IOException {
+        ReadableSizedChannel entityChannel = (ReadableSizedChannel) getEntityChannel();
+        long maxTransferred = 4L * getBuffer().capacity();
+        long totalTransferred = 0;
+        long transferred = 0;
+
+        do {
+            transferred = entityChannel.transferTo(getConnection()
+                    .getSocketChannel(), maxTransferred - totalTransferred);
+
+            if (transferred > 0) {
+                totalTransferred += transferred;
+            }
+
+            if (getLogger().isLoggable(Level.FINER)) {
+                getLogger().log(Level.FINER,
+                        transferred + " bytes transferred");
+            }
+
+            throttle();
+        } while ((transferred > 0) && (totalTransferred < maxTransferred));
+
+        if (transferred == -1) {
+            // Detect end of entity reached
+            setMessageState(MessageState.END);
+        }
+    }
+
     @Override
     public void updateState() {
         if ((getMessageState() == MessageState.IDLE) && (getMessage() != null)) {
@@ -537,6 +759,27 @@ public abstract class OutboundWay extends Way {
         super.updateState();
     }
 
+    /**
+     * Writes the remaining content of a small entity directly to the socket
+     * channel, once the start line and the headers have been written.
+     * 
+     * @throws IOException
+     */
+    protected void writeEntityBytes() throws IOException {
+        int written = getConnection().getWritableSelectionChannel().write(
+                getEntityBytes());
+
+        if (getLogger().isLoggable(Level.FINER)) {
+            getLogger().log(Level.FINER, written + " bytes written");
+        }
+
+        throttle();
+
+        if (!getEntityBytes().hasRemaining()) {
+            setMessageState(MessageState.END);
+        }
+    }
+
     /**
      * Write a new line into the line builder.
      * 
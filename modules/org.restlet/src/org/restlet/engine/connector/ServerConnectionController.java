@@ -112,14 +112,20 @@ public class ServerConnectionController extends ConnectionController {
                     if ((getHelper().getMaxTotalConnections() == -1)
                             || (connectionsCount <= getHelper()
                                     .getMaxTotalConnections())) {
+                        ServerSelectorController ioController = getHelper()
+                                .getNextIoController();
                         Connection<Server> connection = getHelper().checkout(
                                 socketChannel,
-                                this,
+                                (ioController == null) ? this : ioController,
                                 (InetSocketAddress) socketChannel.socket()
                                         .getRemoteSocketAddress());
                         connection.open();
                         getHelper().getConnections().add(connection);
 
+                        if (ioController != null) {
+                            ioController.addConnection(connection);
+                        }
+
                         if (getHelper().getLogger().isLoggable(Level.FINE)) {
                             getHelper().getLogger().fine(
                                     "Connection from \""
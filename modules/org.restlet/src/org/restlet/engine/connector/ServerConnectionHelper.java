@@ -39,12 +39,18 @@ import java.net.ServerSocket;
 import java.net.SocketAddress;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Server;
 import org.restlet.data.Status;
+import org.restlet.engine.log.LoggingThreadFactory;
 
 /**
  * Base server helper based on NIO non blocking sockets. Here is the list of
@@ -74,12 +80,26 @@ import org.restlet.data.Status;
  * <td>Enable/disable the SO_REUSEADDR socket option. See
  * java.io.ServerSocket#reuseAddress property for additional details.</td>
  * </tr>
+ * <tr>
+ * <td>selectorControllers</td>
+ * <td>int</td>
+ * <td>0</td>
+ * <td>Number of additional controllers, each with its own NIO selector and
+ * thread, sharing the IO work of the accepted connections. If set to 0, the
+ * controller accepting the connections also controls them.</td>
+ * </tr>
  * </table>
  * 
  * @author Jerome Louvel
  */
 public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
 
+    /** The controllers sharing the IO work of the accepted connections. */
+    private final List<ServerSelectorController> ioControllers;
+
+    /** The service running the IO controllers. */
+    private volatile ExecutorService ioControllerService;
+
     /** The server socket channel. */
     private volatile ServerSocketChannel serverSocketChannel;
 
@@ -91,6 +111,7 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
      */
     public ServerConnectionHelper(Server server) {
         super(server, false);
+        this.ioControllers = new CopyOnWriteArrayList<ServerSelectorController>();
 
         // Clear the ephemeral port
         getAttributes().put("ephemeralPort", -1);
@@ -124,6 +145,18 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
         return new ServerConnectionController(this);
     }
 
+    /**
+     * Creates the service running the IO controllers.
+     * 
+     * @param count
+     *            The number of IO controllers.
+     * @return The service running the IO controllers.
+     */
+    protected ExecutorService createIoControllerService(int count) {
+        return Executors.newFixedThreadPool(count, new LoggingThreadFactory(
+                getLogger(), isControllerDaemon()));
+    }
+
     /**
      * Creates a new request.
      * 
@@ -176,6 +209,34 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
                 .getPort());
     }
 
+    @Override
+    protected void doFinishStop() {
+        // Let the pending workers complete before stopping the IO
+        super.doFinishStop();
+
+        if (this.ioControllerService != null) {
+            // Stops the IO controllers
+            for (ServerSelectorController ioController : getIoControllers()) {
+                ioController.shutdown();
+            }
+
+            this.ioControllerService.shutdown();
+
+            try {
+                this.ioControllerService.awaitTermination(10,
+                        TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                getLogger()
+                        .log(Level.FINE,
+                                "Interruption while shutting down the IO controller service",
+                                ex);
+            }
+
+            getIoControllers().clear();
+            this.ioControllerService = null;
+        }
+    }
+
     @Override
     public void doHandleInbound(Response response) {
         if ((response != null) && (response.getRequest() != null)) {
@@ -210,6 +271,7 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
                     if (canHandle(connection, response)) {
                         // Add the response to the outbound queue
                         connection.getOutboundWay().handle(response);
+                        connection.activate();
                     } else {
                         // Put the response at the end of the queue
                         getOutboundMessages().add(response);
@@ -233,6 +295,50 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
         return (ServerConnectionController) super.getController();
     }
 
+    /**
+     * Returns the controllers sharing the IO work of the accepted connections.
+     * 
+     * @return The controllers sharing the IO work of the accepted connections.
+     */
+    public List<ServerSelectorController> getIoControllers() {
+        return ioControllers;
+    }
+
+    /**
+     * Returns the IO controller that should own the next accepted connection,
+     * the one with the fewest connections. Returns null if the accepting
+     * controller should own it.
+     * 
+     * @return The IO controller that should own the next accepted connection.
+     */
+    public ServerSelectorController getNextIoController() {
+        ServerSelectorController result = null;
+        int minCount = Integer.MAX_VALUE;
+        int count;
+
+        for (ServerSelectorController ioController : getIoControllers()) {
+            count = ioController.getConnections().size();
+
+            if (count < minCount) {
+                minCount = count;
+                result = ioController;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of additional controllers, each with its own NIO
+     * selector and thread, sharing the IO work of the accepted connections.
+     * 
+     * @return The number of additional IO controllers.
+     */
+    public int getSelectorControllers() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "selectorControllers", "0"));
+    }
+
     /**
      * Returns the server socket channel.
      * 
@@ -264,7 +370,20 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
 
     @Override
     protected void handleOutbound(Response response) {
-        handleOutbound(response, true);
+        ConnectionController controller = null;
+
+        if ((response != null) && !getIoControllers().isEmpty()) {
+            controller = ((InboundRequest) response.getRequest())
+                    .getConnection().getController();
+        }
+
+        if (controller instanceof ServerSelectorController) {
+            // Let the IO controller owning the connection handle it
+            ((ServerSelectorController) controller)
+                    .addOutboundMessage(response);
+        } else {
+            handleOutbound(response, true);
+        }
     }
 
     @Override
@@ -322,6 +441,20 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
         // Sets the ephemeral port is necessary
         setEphemeralPort(this.serverSocketChannel.socket());
 
+        // Start the IO controllers
+        int ioControllersCount = getSelectorControllers();
+
+        if (ioControllersCount > 0) {
+            this.ioControllerService = createIoControllerService(ioControllersCount);
+
+            for (int i = 0; i < ioControllersCount; i++) {
+                ServerSelectorController ioController = new ServerSelectorController(
+                        this);
+                getIoControllers().add(ioController);
+                this.ioControllerService.submit(ioController);
+            }
+        }
+
         // Start the controller
         getLogger().info(
                 "Starting the internal " + getProtocols() + " server on port "
@@ -39,8 +39,10 @@ import org.restlet.Message;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Server;
+import org.restlet.data.Method;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.io.IoState;
+import org.restlet.engine.io.LineBuffer;
 import org.restlet.representation.Representation;
 
 /**
@@ -50,6 +52,15 @@ import org.restlet.representation.Representation;
  */
 public abstract class ServerInboundWay extends InboundWay {
 
+    /** The common method names, recognized without allocation. */
+    private static final String[] METHOD_NAMES = { Method.GET.getName(),
+            Method.POST.getName(), Method.PUT.getName(),
+            Method.DELETE.getName(), Method.HEAD.getName(),
+            Method.OPTIONS.getName() };
+
+    /** The common protocol versions, recognized without allocation. */
+    private static final String[] PROTOCOLS = { "HTTP/1.1", "HTTP/1.0" };
+
     /**
      * Constructor.
      * 
@@ -143,66 +154,38 @@ public abstract class ServerInboundWay extends InboundWay {
 
     @Override
     protected void readStartLine() throws IOException {
-        String requestMethod = null;
-        String requestUri = null;
-        String protocol = null;
+        LineBuffer line = getLineBuffer();
+        int start = line.getLineStart();
+        int end = line.getLineEnd();
 
-        int i = 0;
-        int start = 0;
-        int size = getLineBuilder().length();
-        char next;
-
-        if (size == 0) {
+        if (start == end) {
             // Skip leading empty lines per HTTP specification
         } else {
             // Parse the request method
-            for (i = start; (requestMethod == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
-
-                if (HeaderUtils.isSpace(next)) {
-                    requestMethod = getLineBuilder().substring(start, i);
-                    start = i + 1;
-                }
-            }
+            int space = line.indexOfSpace(start);
 
-            if ((requestMethod == null) || (i == size)) {
+            if ((space == -1) || (space + 1 == end)) {
                 throw new IOException(
                         "Unable to parse the request method. End of line reached too early.");
             }
 
-            // Parse the request URI
-            for (i = start; (requestUri == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+            String requestMethod = line.getString(start, space, METHOD_NAMES);
+            start = space + 1;
 
-                if (HeaderUtils.isSpace(next)) {
-                    requestUri = getLineBuilder().substring(start, i);
-                    start = i + 1;
-                }
-            }
+            // Parse the request URI
+            space = line.indexOfSpace(start);
 
-            if (i == size) {
+            if ((space == -1) || (space + 1 == end)) {
                 throw new IOException(
                         "Unable to parse the request URI. End of line reached too early.");
             }
 
-            if ((requestUri == null) || (requestUri.equals(""))) {
-                requestUri = "/";
-            }
+            String requestUri = (space == start) ? "/" : line.getString(
+                    start, space);
+            start = space + 1;
 
             // Parse the protocol version
-            for (i = start; (protocol == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
-            }
-
-            if (i == size) {
-                protocol = getLineBuilder().substring(start, i);
-                start = i + 1;
-            }
-
-            if (protocol == null) {
-                throw new IOException(
-                        "Unable to parse the protocol version. End of line reached too early.");
-            }
+            String protocol = line.getString(start, end, PROTOCOLS);
 
             // Create a new request object
             Request request = getHelper().createRequest(getConnection(),
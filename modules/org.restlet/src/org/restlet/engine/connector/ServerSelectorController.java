@@ -0,0 +1,155 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.connector;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.restlet.Response;
+import org.restlet.Server;
+
+/**
+ * Controls a subset of the connections accepted by a parent server helper,
+ * using its own NIO selector. Used when the "selectorControllers" parameter is
+ * set, so that the IO work of the connections is spread across several threads
+ * while the {@link ServerConnectionController} only accepts new connections.
+ * 
+ * @author Jerome Louvel
+ */
+public class ServerSelectorController extends ConnectionController {
+
+    /** The connections owned by this controller. */
+    private final List<Connection<Server>> connections;
+
+    /** The queue of outbound messages for the owned connections. */
+    private final Queue<Response> outboundMessages;
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent server helper.
+     */
+    public ServerSelectorController(ServerConnectionHelper helper) {
+        super(helper);
+        this.connections = new CopyOnWriteArrayList<Connection<Server>>();
+        this.outboundMessages = new ConcurrentLinkedQueue<Response>();
+    }
+
+    /**
+     * Adds a connection accepted by the parent server helper and wakes up the
+     * controller so it can register it with its selector.
+     * 
+     * @param connection
+     *            The connection to add.
+     */
+    public void addConnection(Connection<Server> connection) {
+        getConnections().add(connection);
+        wakeup();
+    }
+
+    /**
+     * Adds an outbound message for one of the owned connections and wakes up
+     * the controller.
+     * 
+     * @param response
+     *            The outbound message.
+     */
+    public void addOutboundMessage(Response response) {
+        getOutboundMessages().add(response);
+        wakeup();
+    }
+
+    @Override
+    protected void controlConnection(Connection<?> conn) throws IOException {
+        if (conn.getState() == ConnectionState.CLOSED) {
+            getConnections().remove(conn);
+        }
+
+        super.controlConnection(conn);
+    }
+
+    @Override
+    protected void doInit() {
+        // The connection pool is created by the accepting controller
+        setSelector(createSelector());
+    }
+
+    @Override
+    protected void doRun(long sleepTime) throws IOException {
+        // Control pending outbound messages of the owned connections
+        int size = getOutboundMessages().size();
+
+        for (int i = 0; i < size; i++) {
+            getHelper().handleOutbound(getOutboundMessages().poll(), true);
+        }
+
+        // Control the helper messages and the owned connections
+
+        super.doRun(sleepTime);
+    }
+
+    @Override
+    protected List<Connection<Server>> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the parent server helper.
+     * 
+     * @return The parent server helper.
+     */
+    protected ServerConnectionHelper getHelper() {
+        return (ServerConnectionHelper) super.getHelper();
+    }
+
+    /**
+     * Returns the queue of outbound messages for the owned connections.
+     * 
+     * @return The queue of outbound messages.
+     */
+    protected Queue<Response> getOutboundMessages() {
+        return outboundMessages;
+    }
+
+    @Override
+    protected boolean isControllingOverload() {
+        // Already done by the accepting controller
+        return false;
+    }
+
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.connector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel tracking the IO idle time out of the idle connections of
+ * a controller. This prevents the controller from checking all its
+ * connections at each loop. Only accessed by the controller thread.
+ * 
+ * @author Jerome Louvel
+ */
+public class TimeoutWheel {
+
+    /** The default number of slots. */
+    public static final int DEFAULT_SLOTS = 512;
+
+    /** The default duration of a tick in milliseconds. */
+    public static final long DEFAULT_TICK_MS = 100;
+
+    /** The parent controller. */
+    private final ConnectionController controller;
+
+    /** The last tick processed. */
+    private long currentTick;
+
+    /**
+     * The lowest tick that might have a scheduled connection, or -1 if
+     * unknown.
+     */
+    private long nextTick;
+
+    /** The slots of connections, one per tick modulo the number of slots. */
+    private final List<List<Connection<?>>> slots;
+
+    /** The duration of a tick in milliseconds. */
+    private final long tickMs;
+
+    /**
+     * Constructor.
+     * 
+     * @param controller
+     *            The parent controller.
+     */
+    public TimeoutWheel(ConnectionController controller) {
+        this(controller, DEFAULT_SLOTS, DEFAULT_TICK_MS);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param controller
+     *            The parent controller.
+     * @param slotsCount
+     *            The number of slots.
+     * @param tickMs
+     *            The duration of a tick in milliseconds.
+     */
+    public TimeoutWheel(ConnectionController controller, int slotsCount,
+            long tickMs) {
+        this.controller = controller;
+        this.tickMs = tickMs;
+        this.currentTick = System.currentTimeMillis() / tickMs;
+        this.nextTick = Long.MAX_VALUE;
+        this.slots = new ArrayList<List<Connection<?>>>(slotsCount);
+
+        for (int i = 0; i < slotsCount; i++) {
+            this.slots.add(new ArrayList<Connection<?>>());
+        }
+    }
+
+    /**
+     * Removes the idle connections that have timed out at the given time. The
+     * connections that became active again in between are silently dropped.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @return The idle connections that have timed out.
+     */
+    public List<Connection<?>> expire(long now) {
+        List<Connection<?>> result = null;
+        long nowTick = now / this.tickMs;
+        long lastTick = Math.min(nowTick, this.currentTick + getSlots().size());
+
+        while (this.currentTick < lastTick) {
+            this.currentTick++;
+            List<Connection<?>> slot = getSlot(this.currentTick);
+            int kept = 0;
+
+            for (Connection<?> connection : slot) {
+                long idleTick = connection.getIdleTick();
+
+                if (!connection.isIdle()
+                        || (connection.getController() != this.controller)
+                        || (idleTick < 0)
+                        || (getSlot(idleTick) != slot)) {
+                    // Active again or stale entry, drop it
+                } else if (idleTick <= nowTick) {
+                    connection.setIdleTick(-1);
+
+                    if (result == null) {
+                        result = new ArrayList<Connection<?>>();
+                    }
+
+                    result.add(connection);
+                } else {
+                    // Expires during a later round
+                    slot.set(kept++, connection);
+                }
+            }
+
+            while (slot.size() > kept) {
+                slot.remove(slot.size() - 1);
+            }
+        }
+
+        this.currentTick = Math.max(this.currentTick, nowTick);
+
+        if (this.nextTick <= this.currentTick) {
+            this.nextTick = -1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the time to sleep until the next scheduled time out, within a
+     * given limit.
+     * 
+     * @param now
+     *            The current time in milliseconds.
+     * @param maxSleepTime
+     *            The maximum sleep time in milliseconds or 0 for no limit.
+     * @return The time to sleep in milliseconds.
+     */
+    public long getSleepTime(long now, long maxSleepTime) {
+        if (this.nextTick == -1) {
+            // Look for the next non empty slot
+            this.nextTick = Long.MAX_VALUE;
+
+            for (int i = 1; (i <= getSlots().size())
+                    && (this.nextTick == Long.MAX_VALUE); i++) {
+                if (!getSlot(this.currentTick + i).isEmpty()) {
+                    this.nextTick = this.currentTick + i;
+                }
+            }
+        }
+
+        long result = maxSleepTime;
+
+        if (this.nextTick != Long.MAX_VALUE) {
+            long timeOut = Math.max(1, (this.nextTick * this.tickMs) - now);
+            result = (result > 0) ? Math.min(result, timeOut) : timeOut;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the duration of a tick in milliseconds.
+     * 
+     * @return The duration of a tick in milliseconds.
+     */
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * Returns the slot of connections for a given tick.
+     * 
+     * @param tick
+     *            The tick.
+     * @return The slot of connections.
+     */
+    private List<Connection<?>> getSlot(long tick) {
+        return getSlots().get((int) (tick % getSlots().size()));
+    }
+
+    /**
+     * Returns the slots of connections.
+     * 
+     * @return The slots of connections.
+     */
+    private List<List<Connection<?>>> getSlots() {
+        return slots;
+    }
+
+    /**
+     * Schedules the time out of an idle connection, based on its last activity
+     * and its maximum IO idle time. Does nothing for connections without IO
+     * idle time out.
+     * 
+     * @param connection
+     *            The idle connection.
+     */
+    public void schedule(Connection<?> connection) {
+        if (connection.getMaxIoIdleTimeMs() > 0) {
+            long deadline = connection.getLastActivity()
+                    + connection.getMaxIoIdleTimeMs();
+            long tick = Math.max((deadline + this.tickMs - 1) / this.tickMs,
+                    this.currentTick + 1);
+            connection.setIdleTick(tick);
+            getSlot(tick).add(connection);
+
+            if ((this.nextTick != -1) && (tick < this.nextTick)) {
+                this.nextTick = tick;
+            }
+        }
+    }
+
+}
@@ -99,7 +99,9 @@ public abstract class Way implements SelectionListener, CompletionListener,
      */
     public Way(Connection<?> connection, int bufferSize) {
         this.connection = connection;
-        this.buffer = new Buffer(bufferSize, getHelper().isDirectBuffers());
+        this.buffer = getHelper().isPooledBuffers() ? new Buffer(getHelper()
+                .getBufferPool(bufferSize)) : new Buffer(bufferSize,
+                getHelper().isDirectBuffers());
         this.headers = null;
         this.ioState = IoState.IDLE;
         this.lineBuilder = new StringBuilder();
@@ -137,6 +139,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
         }
 
         this.buffer.clear();
+        this.buffer.release();
         this.headers = null;
         this.ioState = IoState.IDLE;
         clearLineBuilder();
@@ -343,6 +346,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
         setMessage(null);
         setHeaders(null);
         getBuffer().clear();
+        getBuffer().release();
     }
 
     /**
@@ -462,6 +466,12 @@ public abstract class Way implements SelectionListener, CompletionListener,
             } else if ((getIoState() == IoState.PROCESSING)) {
                 onPostProcessing();
             }
+
+            // Give back the byte buffer while waiting for the next message
+            if ((getMessageState() == MessageState.IDLE)
+                    || (getMessageState() == MessageState.START)) {
+                getBuffer().release();
+            }
         } catch (Exception e) {
             getConnection().onError("Error while processing a connection", e,
                     Status.CONNECTOR_ERROR_COMMUNICATION);
@@ -532,6 +542,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
             }
 
             this.ioState = ioState;
+            getConnection().activate();
         }
     }
 
@@ -553,6 +564,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
      */
     protected void setMessage(Response message) {
         this.message = message;
+        getConnection().activate();
     }
 
     /**
@@ -564,6 +576,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
     protected void setMessageState(MessageState messageState) {
         if (this.messageState != messageState) {
             this.messageState = messageState;
+            getConnection().activate();
 
             if (getLogger().isLoggable(Level.FINEST)) {
                 if (this instanceof OutboundWay) {
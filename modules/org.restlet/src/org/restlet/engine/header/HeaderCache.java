@@ -0,0 +1,223 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.header;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Dimension;
+import org.restlet.data.MediaType;
+
+/**
+ * Cache of frequent header values and of pre-encoded header lines. Values are
+ * keyed by the metadata they are written from, so that the same string
+ * instances are returned for the same metadata. Header lines are encoded once
+ * for the most frequent names and values, so that connectors can directly copy
+ * them into their IO buffers.<br>
+ * <br>
+ * The number of cached entries is bounded in order to resist to unusual
+ * values.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeaderCache {
+
+    // [ifndef gwt] member
+    /** The names of the headers whose lines are cached. */
+    private static final Set<String> CACHED_NAMES = new HashSet<String>(
+            Arrays.asList(HeaderConstants.HEADER_ACCEPT_RANGES,
+                    HeaderConstants.HEADER_CACHE_CONTROL,
+                    HeaderConstants.HEADER_CONNECTION,
+                    HeaderConstants.HEADER_CONTENT_ENCODING,
+                    HeaderConstants.HEADER_CONTENT_LANGUAGE,
+                    HeaderConstants.HEADER_CONTENT_TYPE,
+                    HeaderConstants.HEADER_SERVER,
+                    HeaderConstants.HEADER_TRANSFER_ENCODING,
+                    HeaderConstants.HEADER_VARY));
+
+    /** The maximum number of cached values per cache or per header name. */
+    private static final int MAX_ENTRIES = 256;
+
+    /** The "Content-Type" values per media type and character set. */
+    private static final ConcurrentMap<MediaType, ConcurrentMap<CharacterSet, String>> contentTypes = new ConcurrentHashMap<MediaType, ConcurrentMap<CharacterSet, String>>();
+
+    /** The "Content-Type" values per media type without character set. */
+    private static final ConcurrentMap<MediaType, String> mediaTypes = new ConcurrentHashMap<MediaType, String>();
+
+    /** The "Vary" values per ordered combination of dimensions. */
+    private static final ConcurrentMap<Long, String> dimensions = new ConcurrentHashMap<Long, String>();
+
+    // [ifndef gwt] member
+    /** The encoded header lines per header name and value. */
+    private static final ConcurrentMap<String, ConcurrentMap<String, byte[]>> lines = new ConcurrentHashMap<String, ConcurrentMap<String, byte[]>>();
+
+    /**
+     * Returns the "Content-Type" header value for a media type and a character
+     * set.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @param characterSet
+     *            The character set or null.
+     * @return The "Content-Type" header value.
+     * @see ContentType#writeHeader(MediaType, CharacterSet)
+     */
+    public static String getContentType(MediaType mediaType,
+            CharacterSet characterSet) {
+        String result = null;
+
+        if (characterSet == null) {
+            result = mediaTypes.get(mediaType);
+
+            if (result == null) {
+                result = ContentType.writeHeader(mediaType, null);
+
+                if (mediaTypes.size() < MAX_ENTRIES) {
+                    mediaTypes.putIfAbsent(mediaType, result);
+                }
+            }
+        } else {
+            ConcurrentMap<CharacterSet, String> values = contentTypes
+                    .get(mediaType);
+
+            if (values == null) {
+                if (contentTypes.size() < MAX_ENTRIES) {
+                    contentTypes.putIfAbsent(mediaType,
+                            new ConcurrentHashMap<CharacterSet, String>());
+                    values = contentTypes.get(mediaType);
+                }
+            } else {
+                result = values.get(characterSet);
+            }
+
+            if (result == null) {
+                result = ContentType.writeHeader(mediaType, characterSet);
+
+                if ((values != null) && (values.size() < MAX_ENTRIES)) {
+                    values.putIfAbsent(characterSet, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the "Vary" header value for a collection of dimensions.
+     * 
+     * @param dimensionList
+     *            The dimensions.
+     * @return The "Vary" header value.
+     * @see DimensionWriter#write(Collection)
+     */
+    public static String getDimensions(Collection<Dimension> dimensionList) {
+        String result = null;
+
+        if ((dimensionList != null) && !dimensionList.isEmpty()) {
+            // Each dimension is encoded on 4 bits, keeping their order
+            long key = 0;
+            int count = 0;
+
+            for (Dimension dimension : dimensionList) {
+                key = (key << 4) | (dimension.ordinal() + 1);
+                count++;
+            }
+
+            if (count <= 16) {
+                result = dimensions.get(key);
+
+                if (result == null) {
+                    result = DimensionWriter.write(dimensionList);
+
+                    if (dimensions.size() < MAX_ENTRIES) {
+                        dimensions.putIfAbsent(key, result);
+                    }
+                }
+            } else {
+                result = DimensionWriter.write(dimensionList);
+            }
+        }
+
+        return result;
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns the encoded header line, including the trailing CRLF, for a
+     * header name and value. Only lines of frequent headers are cached.
+     * 
+     * @param name
+     *            The header name.
+     * @param value
+     *            The header value.
+     * @return The encoded header line or null if it isn't cacheable.
+     */
+    public static byte[] getLine(String name, String value) {
+        byte[] result = null;
+
+        if ((name != null) && (value != null)) {
+            ConcurrentMap<String, byte[]> values = lines.get(name);
+
+            if ((values == null) && CACHED_NAMES.contains(name)) {
+                lines.putIfAbsent(name, new ConcurrentHashMap<String, byte[]>());
+                values = lines.get(name);
+            }
+
+            if (values != null) {
+                result = values.get(value);
+
+                if ((result == null) && (values.size() < MAX_ENTRIES)) {
+                    result = org.restlet.engine.util.StringUtils
+                            .getLatin1Bytes(name + ": " + value + "\r\n");
+                    values.putIfAbsent(value, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Private constructor to ensure that the class acts as a true utility
+     * class i.e. it isn't instantiable and extensible.
+     */
+    private HeaderCache() {
+    }
+
+}
@@ -181,7 +181,8 @@ public class HeaderUtils {
 
             if (entity.getMediaType() != null) {
                 addHeader(HeaderConstants.HEADER_CONTENT_TYPE,
-                        ContentType.writeHeader(entity), headers);
+                        HeaderCache.getContentType(entity.getMediaType(),
+                                entity.getCharacterSet()), headers);
             }
 
             if (entity.getExpirationDate() != null) {
@@ -571,7 +572,8 @@ public class HeaderUtils {
                 .getRequest().getClientInfo().getAgent().contains("MSIE"))) {
             // Add the Vary header if content negotiation was used
             addHeader(HeaderConstants.HEADER_VARY,
-                    DimensionWriter.write(response.getDimensions()), headers);
+                    HeaderCache.getDimensions(response.getDimensions()),
+                    headers);
         }
 
         // Set the security data
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.header;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.restlet.engine.io.LineBuffer;
+
+// [excludes gwt]
+/**
+ * HTTP header whose value is only decoded from the received bytes when it is
+ * actually read. The header names defined in {@link HeaderConstants} are
+ * recognized without allocating new strings.
+ * 
+ * @author Jerome Louvel
+ */
+public class LazyHeader extends Header {
+
+    /**
+     * The well-known header names, in their canonical and lower case forms,
+     * indexed by length.
+     */
+    private static final String[][] KNOWN_NAMES;
+
+    static {
+        List<String> names = new ArrayList<String>();
+        int maxLength = 0;
+
+        for (Field field : HeaderConstants.class.getFields()) {
+            if (field.getName().startsWith("HEADER_")
+                    && Modifier.isStatic(field.getModifiers())
+                    && (field.getType() == String.class)) {
+                try {
+                    String name = (String) field.get(null);
+                    names.add(name);
+                    names.add(name.toLowerCase().intern());
+                    maxLength = Math.max(maxLength, name.length());
+                } catch (IllegalAccessException e) {
+                    // Should not happen for public constants
+                }
+            }
+        }
+
+        KNOWN_NAMES = new String[maxLength + 1][];
+
+        for (int length = 0; length <= maxLength; length++) {
+            List<String> sameLength = new ArrayList<String>();
+
+            for (String name : names) {
+                if ((name.length() == length) && !sameLength.contains(name)) {
+                    sameLength.add(name);
+                }
+            }
+
+            KNOWN_NAMES[length] = sameLength.toArray(new String[sameLength
+                    .size()]);
+        }
+    }
+
+    /**
+     * Returns the header name matching a range of bytes. Well-known names
+     * received in their canonical or lower case forms are returned as shared
+     * constants, other names are decoded as ISO-8859-1 characters.
+     * 
+     * @param bytes
+     *            The source bytes.
+     * @param start
+     *            The index of the first byte of the name.
+     * @param end
+     *            The index after the last byte of the name.
+     * @return The header name.
+     */
+    public static String getName(byte[] bytes, int start, int end) {
+        int length = end - start;
+
+        if (length < KNOWN_NAMES.length) {
+            for (String name : KNOWN_NAMES[length]) {
+                boolean matches = true;
+
+                for (int i = 0; matches && (i < length); i++) {
+                    matches = (bytes[start + i] == (byte) name.charAt(i));
+                }
+
+                if (matches) {
+                    return name;
+                }
+            }
+        }
+
+        return LineBuffer.getString(bytes, start, end);
+    }
+
+    /** The source bytes, until the value is decoded. */
+    private volatile byte[] bytes;
+
+    /** The index after the last byte of the value. */
+    private final int valueEnd;
+
+    /** The index of the first byte of the value. */
+    private final int valueStart;
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            The header name.
+     * @param bytes
+     *            The source bytes, which must not be modified afterwards.
+     * @param valueStart
+     *            The index of the first byte of the value.
+     * @param valueEnd
+     *            The index after the last byte of the value.
+     */
+    public LazyHeader(String name, byte[] bytes, int valueStart, int valueEnd) {
+        super(name, null);
+        this.bytes = bytes;
+        this.valueEnd = valueEnd;
+        this.valueStart = valueStart;
+    }
+
+    /**
+     * Returns the value, decoding it on the first call.
+     * 
+     * @return The value.
+     */
+    @Override
+    public String getValue() {
+        if (this.bytes != null) {
+            synchronized (this) {
+                if (this.bytes != null) {
+                    super.setValue(LineBuffer.getString(this.bytes,
+                            this.valueStart, this.valueEnd));
+                    this.bytes = null;
+                }
+            }
+        }
+
+        return super.getValue();
+    }
+
+    @Override
+    public synchronized void setValue(String value) {
+        this.bytes = null;
+        super.setValue(value);
+    }
+
+}
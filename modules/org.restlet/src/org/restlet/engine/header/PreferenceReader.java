@@ -40,7 +40,9 @@ import static org.restlet.engine.header.HeaderUtils.isText;
 import static org.restlet.engine.header.HeaderUtils.isTokenChar;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.ClientInfo;
@@ -54,7 +56,13 @@ import org.restlet.util.Series;
 
 /**
  * Preference header reader. Works for character sets, encodings, languages or
- * media types.
+ * media types.<br>
+ * <br>
+ * The static methods updating a {@link ClientInfo} keep the preferences parsed
+ * from the most recently used header values, so that identical headers are
+ * only parsed once. The least recently used values are evicted when the cache
+ * of a type is full. The parsed metadata are shared while the preferences
+ * themselves are copied, as the client info lists can be modified.
  * 
  * @author Jerome Louvel
  */
@@ -71,6 +79,30 @@ public class PreferenceReader<T extends Metadata> extends
 
     public static final int TYPE_PATCH = 5;
 
+    // [ifndef gwt] member
+    /** The maximum length of the header values whose parsing is cached. */
+    private static final int CACHE_MAX_LENGTH = 512;
+
+    // [ifndef gwt] member
+    /** The maximum number of header values cached for each type. */
+    private static final int CACHE_MAX_SIZE = 256;
+
+    // [ifndef gwt] member
+    /**
+     * The parsed preferences, indexed by type then by header value. They are
+     * read without locking and an arbitrary entry is evicted when a cache is
+     * full.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final java.util.concurrent.ConcurrentMap<String, List<Preference<Metadata>>>[] CACHES = new java.util.concurrent.ConcurrentMap[TYPE_PATCH + 1];
+
+    // [ifndef gwt] instruction
+    static {
+        for (int i = 0; i < CACHES.length; i++) {
+            CACHES[i] = new java.util.concurrent.ConcurrentHashMap<String, List<Preference<Metadata>>>();
+        }
+    }
+
     /**
      * Parses character set preferences from a header.
      * 
@@ -89,10 +121,9 @@ public class PreferenceReader<T extends Metadata> extends
                 clientInfo.getAcceptedCharacterSets().add(
                         new Preference<CharacterSet>(CharacterSet.ISO_8859_1));
             } else {
-                PreferenceReader pr = new PreferenceReader(
-                        PreferenceReader.TYPE_CHARACTER_SET,
-                        acceptCharsetHeader);
-                pr.addValues(clientInfo.getAcceptedCharacterSets());
+                addPreferences(PreferenceReader.TYPE_CHARACTER_SET,
+                        acceptCharsetHeader,
+                        clientInfo.getAcceptedCharacterSets());
             }
         } else {
             clientInfo.getAcceptedCharacterSets().add(
@@ -112,9 +143,8 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addEncodings(String acceptEncodingHeader,
             ClientInfo clientInfo) {
         if (acceptEncodingHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_ENCODING, acceptEncodingHeader);
-            pr.addValues(clientInfo.getAcceptedEncodings());
+            addPreferences(PreferenceReader.TYPE_ENCODING,
+                    acceptEncodingHeader, clientInfo.getAcceptedEncodings());
         } else {
             clientInfo.getAcceptedEncodings().add(
                     new Preference(Encoding.IDENTITY));
@@ -133,9 +163,8 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addLanguages(String acceptLanguageHeader,
             ClientInfo clientInfo) {
         if (acceptLanguageHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_LANGUAGE, acceptLanguageHeader);
-            pr.addValues(clientInfo.getAcceptedLanguages());
+            addPreferences(PreferenceReader.TYPE_LANGUAGE,
+                    acceptLanguageHeader, clientInfo.getAcceptedLanguages());
         } else {
             clientInfo.getAcceptedLanguages().add(new Preference(Language.ALL));
         }
@@ -153,9 +182,8 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addMediaTypes(String acceptMediaTypeHeader,
             ClientInfo clientInfo) {
         if (acceptMediaTypeHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_MEDIA_TYPE, acceptMediaTypeHeader);
-            pr.addValues(clientInfo.getAcceptedMediaTypes());
+            addPreferences(PreferenceReader.TYPE_MEDIA_TYPE,
+                    acceptMediaTypeHeader, clientInfo.getAcceptedMediaTypes());
         } else {
             clientInfo.getAcceptedMediaTypes().add(
                     new Preference(MediaType.ALL));
@@ -174,9 +202,62 @@ public class PreferenceReader<T extends Metadata> extends
     public static void addPatches(String acceptPatchHeader,
             ClientInfo clientInfo) {
         if (acceptPatchHeader != null) {
-            PreferenceReader pr = new PreferenceReader(
-                    PreferenceReader.TYPE_PATCH, acceptPatchHeader);
-            pr.addValues(clientInfo.getAcceptedPatches());
+            addPreferences(PreferenceReader.TYPE_PATCH, acceptPatchHeader,
+                    clientInfo.getAcceptedPatches());
+        }
+    }
+
+    /**
+     * Parses preferences from a header and adds them to a list. The parsing
+     * result is cached when the header value is short enough.
+     * 
+     * @param type
+     *            The type of metadata read.
+     * @param header
+     *            The header to parse.
+     * @param values
+     *            The list of preferences to update.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void addPreferences(int type, String header, List values) {
+        boolean cached = false;
+
+        // [ifndef gwt]
+        if (header.length() <= CACHE_MAX_LENGTH) {
+            List<Preference<Metadata>> parsed = CACHES[type].get(header);
+
+            if (parsed == null) {
+                parsed = new ArrayList<Preference<Metadata>>();
+                new PreferenceReader(type, header).addValues(parsed);
+                Iterator<String> headers = CACHES[type].keySet().iterator();
+
+                while ((CACHES[type].size() >= CACHE_MAX_SIZE)
+                        && headers.hasNext()) {
+                    headers.next();
+                    headers.remove();
+                }
+
+                CACHES[type].put(header, parsed);
+            }
+
+            for (Preference<Metadata> preference : parsed) {
+                Series<Parameter> parameters = null;
+
+                if (!preference.getParameters().isEmpty()) {
+                    parameters = new Series<Parameter>(Parameter.class);
+                    parameters.addAll(preference.getParameters());
+                }
+
+                values.add(new Preference<Metadata>(preference.getMetadata(),
+                        preference.getQuality(), parameters));
+            }
+
+            cached = true;
+        }
+        // [enddef]
+
+        if (!cached) {
+            new PreferenceReader(type, header).addValues(values);
         }
     }
 
@@ -71,11 +71,17 @@ public class Buffer {
     }
 
     /** The byte buffer. */
-    private final ByteBuffer bytes;
+    private volatile ByteBuffer bytes;
 
     /** The index of the buffer's beginning while filling. */
     private volatile int fillBegin;
 
+    /** The lock on which multiple thread can synchronize. */
+    private final Object lock;
+
+    /** The optional pool lending the byte buffer. */
+    private final BufferPool pool;
+
     /** The byte buffer IO state. */
     private volatile BufferState state;
 
@@ -98,12 +104,40 @@ public class Buffer {
      *            The initial byte buffer state.
      */
     public Buffer(ByteBuffer byteBuffer, BufferState byteBufferState) {
+        this(byteBuffer, byteBufferState, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param byteBuffer
+     *            The byte buffer wrapped.
+     * @param byteBufferState
+     *            The initial byte buffer state.
+     * @param pool
+     *            The optional pool lending the byte buffer.
+     */
+    private Buffer(ByteBuffer byteBuffer, BufferState byteBufferState,
+            BufferPool pool) {
         super();
         this.fillBegin = 0;
         this.bytes = byteBuffer;
+        this.lock = new Object();
+        this.pool = pool;
         this.state = byteBufferState;
     }
 
+    /**
+     * Constructor. The byte buffer is borrowed from the given pool when bytes
+     * need to be filled and given back via the {@link #release()} method.
+     * 
+     * @param pool
+     *            The pool lending the byte buffer.
+     */
+    public Buffer(BufferPool pool) {
+        this(null, BufferState.FILLING, pool);
+    }
+
     /**
      * Constructor. Allocates a new non-direct byte buffer.
      * 
@@ -181,7 +215,8 @@ public class Buffer {
      * @return The maximum capacity of this buffer.
      */
     public final int capacity() {
-        return getBytes().capacity();
+        return isReleased() ? getPool().getBufferSize() : getBytes()
+                .capacity();
     }
 
     /**
@@ -189,7 +224,11 @@ public class Buffer {
      */
     public void clear() {
         this.fillBegin = 0;
-        this.bytes.clear();
+
+        if (this.bytes != null) {
+            this.bytes.clear();
+        }
+
         this.state = BufferState.FILLING;
     }
 
@@ -213,7 +252,8 @@ public class Buffer {
      * @return True if bytes could be drained.
      */
     public boolean couldDrain() {
-        return (isFilling() && (getBytes().position() > this.fillBegin));
+        return isFilling() && !isReleased()
+                && (getBytes().position() > this.fillBegin);
     }
 
     /**
@@ -276,6 +316,21 @@ public class Buffer {
         return NioUtils.copy(getBytes(), targetBuffer, maxDrained);
     }
 
+    /**
+     * Drains the buffer into a line buffer (start line or header line).
+     * 
+     * @param lineBuffer
+     *            The line buffer to fill.
+     * @param lineState
+     *            The line state.
+     * @return The new line state.
+     * @throws IOException
+     */
+    public BufferState drain(LineBuffer lineBuffer, BufferState lineState)
+            throws IOException {
+        return lineBuffer.drain(getBytes(), lineState);
+    }
+
     /**
      * Drains the buffer into a line builder (start line or header line).
      * 
@@ -431,12 +486,25 @@ public class Buffer {
     }
 
     /**
-     * Returns the byte buffer.
+     * Returns the byte buffer. If it was released, a new one is borrowed from
+     * the pool.
      * 
      * @return The byte buffer.
      */
     public ByteBuffer getBytes() {
-        return bytes;
+        ByteBuffer result = this.bytes;
+
+        if ((result == null) && (getPool() != null)) {
+            synchronized (getLock()) {
+                if (this.bytes == null) {
+                    this.bytes = getPool().checkout();
+                }
+
+                result = this.bytes;
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -446,7 +514,16 @@ public class Buffer {
      * @return The lock on which multiple thread can synchronize.
      */
     public Object getLock() {
-        return this.bytes;
+        return this.lock;
+    }
+
+    /**
+     * Returns the optional pool lending the byte buffer.
+     * 
+     * @return The optional pool lending the byte buffer.
+     */
+    public BufferPool getPool() {
+        return pool;
     }
 
     /**
@@ -464,7 +541,7 @@ public class Buffer {
      * @return True if the buffer has remaining bytes to be read or written.
      */
     public final boolean hasRemaining() {
-        return getBytes().hasRemaining();
+        return isReleased() || getBytes().hasRemaining();
     }
 
     /**
@@ -497,6 +574,16 @@ public class Buffer {
         return getState() == BufferState.FILLING;
     }
 
+    /**
+     * Indicates if the byte buffer was given back to the pool. In this case,
+     * the buffer is empty and in the {@link BufferState#FILLING} state.
+     * 
+     * @return True if the byte buffer was given back to the pool.
+     */
+    public boolean isReleased() {
+        return this.bytes == null;
+    }
+
     /**
      * Processes as a loop the IO event by draining or filling the IO buffer.
      * Note that synchronization of the {@link #getLock()} object is
@@ -661,7 +748,25 @@ public class Buffer {
      * @return The number of bytes that can be read or written.
      */
     public final int remaining() {
-        return getBytes().remaining();
+        return isReleased() ? capacity() : getBytes().remaining();
+    }
+
+    /**
+     * Gives back the byte buffer to the pool if the buffer is empty. A new one
+     * will be borrowed when bytes need to be filled again. Does nothing if the
+     * buffer isn't pooled.
+     */
+    public void release() {
+        if (getPool() != null) {
+            synchronized (getLock()) {
+                if (!isReleased() && isEmpty()) {
+                    getPool().checkin(this.bytes);
+                    this.bytes = null;
+                    this.fillBegin = 0;
+                    this.state = BufferState.FILLING;
+                }
+            }
+        }
     }
 
     /**
@@ -676,7 +781,8 @@ public class Buffer {
 
     @Override
     public String toString() {
-        return getBytes().toString() + ", " + getState() + ", " + isEmpty();
+        return (isReleased() ? "Released buffer" : getBytes().toString())
+                + ", " + getState() + ", " + isEmpty();
     }
 
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.io;
+
+import java.nio.ByteBuffer;
+
+import org.restlet.engine.util.Pool;
+
+/**
+ * Pool of byte buffers of the same size. Instead of allocating each byte buffer
+ * separately, larger slabs are allocated and sliced into byte buffers, which
+ * is especially useful for direct buffers as they are costly to allocate and
+ * to collect.
+ * 
+ * @author Jerome Louvel
+ */
+public class BufferPool extends Pool<ByteBuffer> {
+
+    /** The default number of byte buffers sliced from each slab. */
+    public static final int DEFAULT_SLAB_BUFFERS = 16;
+
+    /** The size of each byte buffer. */
+    private final int bufferSize;
+
+    /** Indicates if direct NIO buffers should be allocated. */
+    private final boolean direct;
+
+    /** The current slab being sliced. */
+    private ByteBuffer slab;
+
+    /** The number of byte buffers sliced from each slab. */
+    private final int slabBuffers;
+
+    /**
+     * Constructor.
+     * 
+     * @param bufferSize
+     *            The size of each byte buffer.
+     * @param direct
+     *            Indicates if direct NIO buffers should be allocated.
+     */
+    public BufferPool(int bufferSize, boolean direct) {
+        this(bufferSize, direct, DEFAULT_SLAB_BUFFERS);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param bufferSize
+     *            The size of each byte buffer.
+     * @param direct
+     *            Indicates if direct NIO buffers should be allocated.
+     * @param slabBuffers
+     *            The number of byte buffers sliced from each slab.
+     */
+    public BufferPool(int bufferSize, boolean direct, int slabBuffers) {
+        super();
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.slab = null;
+        this.slabBuffers = Math.max(1, slabBuffers);
+    }
+
+    @Override
+    protected void clear(ByteBuffer byteBuffer) {
+        byteBuffer.clear();
+    }
+
+    /**
+     * Slices a new byte buffer from the current slab, allocating a new slab if
+     * the current one is exhausted.
+     */
+    @Override
+    protected synchronized ByteBuffer createObject() {
+        if ((this.slab == null) || (this.slab.remaining() < this.bufferSize)) {
+            int slabSize = this.bufferSize * this.slabBuffers;
+            this.slab = isDirect() ? ByteBuffer.allocateDirect(slabSize)
+                    : ByteBuffer.allocate(slabSize);
+        }
+
+        this.slab.limit(this.slab.position() + this.bufferSize);
+        ByteBuffer result = this.slab.slice();
+        this.slab.position(this.slab.limit());
+        this.slab.limit(this.slab.capacity());
+        return result;
+    }
+
+    /**
+     * Returns the size of each byte buffer.
+     * 
+     * @return The size of each byte buffer.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of byte buffers sliced from each slab.
+     * 
+     * @return The number of byte buffers sliced from each slab.
+     */
+    public int getSlabBuffers() {
+        return slabBuffers;
+    }
+
+    /**
+     * Indicates if direct NIO buffers are allocated.
+     * 
+     * @return True if direct NIO buffers are allocated.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+}
@@ -0,0 +1,403 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.restlet.engine.header.HeaderUtils;
+
+// [excludes gwt]
+/**
+ * Growable byte array accumulating the lines of a message head, that is to say
+ * its start line and its header lines, as they are drained from a byte buffer.
+ * The current line is exposed as a range of offsets so that strings are only
+ * created when needed.<br>
+ * <br>
+ * Once the bytes have been shared, for example with lazily decoded headers,
+ * the byte array isn't reused and a new one is allocated for the next message.
+ * 
+ * @author Jerome Louvel
+ */
+public class LineBuffer {
+
+    /**
+     * Returns a string made of a range of bytes, decoded as ISO-8859-1
+     * characters.
+     * 
+     * @param bytes
+     *            The source bytes.
+     * @param start
+     *            The index of the first byte.
+     * @param end
+     *            The index after the last byte.
+     * @return The decoded string.
+     */
+    public static String getString(byte[] bytes, int start, int end) {
+        String result = "";
+
+        if (start < end) {
+            char[] chars = new char[end - start];
+
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (bytes[start + i] & 0xFF);
+            }
+
+            result = new String(chars);
+        }
+
+        return result;
+    }
+
+    /** The accumulated bytes. */
+    private volatile byte[] bytes;
+
+    /** The initial size of the byte array. */
+    private final int initialSize;
+
+    /** The index after the last byte of the current line. */
+    private volatile int lineEnd;
+
+    /** The index of the first byte of the current line. */
+    private volatile int lineStart;
+
+    /** Indicates if the byte array has been shared. */
+    private volatile boolean shared;
+
+    /**
+     * Constructor.
+     * 
+     * @param initialSize
+     *            The initial size of the byte array.
+     */
+    public LineBuffer(int initialSize) {
+        this.initialSize = initialSize;
+        this.bytes = null;
+        this.lineEnd = 0;
+        this.lineStart = 0;
+        this.shared = false;
+    }
+
+    /**
+     * Appends a byte to the current line, growing the byte array if needed.
+     * 
+     * @param next
+     *            The byte to append.
+     */
+    private void append(byte next) {
+        ensureCapacity(1);
+        this.bytes[this.lineEnd++] = next;
+    }
+
+    /**
+     * Appends bytes to the current line, growing the byte array if needed.
+     * 
+     * @param source
+     *            The source byte array.
+     * @param offset
+     *            The offset of the first byte to append.
+     * @param length
+     *            The number of bytes to append.
+     */
+    private void append(byte[] source, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(source, offset, this.bytes, this.lineEnd, length);
+        this.lineEnd += length;
+    }
+
+    /**
+     * Clears the buffer for a new message. A new byte array will be allocated
+     * if the current one has been shared.
+     */
+    public void clear() {
+        if (this.shared) {
+            this.bytes = null;
+            this.shared = false;
+        }
+
+        this.lineEnd = 0;
+        this.lineStart = 0;
+    }
+
+    /**
+     * Drains the byte buffer into the current line until a line end (CR LF) is
+     * found. The line end isn't accumulated.
+     * 
+     * @param source
+     *            The source byte buffer.
+     * @param lineState
+     *            The current state of the line.
+     * @return The new state of the line, {@link BufferState#DRAINING} once the
+     *         line is complete.
+     * @throws IOException
+     */
+    public BufferState drain(ByteBuffer source, BufferState lineState)
+            throws IOException {
+        if (lineState == BufferState.IDLE) {
+            lineState = BufferState.FILLING;
+        }
+
+        while ((lineState != BufferState.DRAINING) && source.hasRemaining()) {
+            if ((lineState == BufferState.FILLING) && source.hasArray()) {
+                // Directly scan the backing array for the carriage return
+                byte[] array = source.array();
+                int start = source.arrayOffset() + source.position();
+                int end = source.arrayOffset() + source.limit();
+                int index = start;
+
+                while ((index < end)
+                        && !HeaderUtils.isCarriageReturn(array[index])) {
+                    index++;
+                }
+
+                append(array, start, index - start);
+
+                if (index < end) {
+                    lineState = BufferState.FILLED;
+                    index++;
+                }
+
+                source.position(index - source.arrayOffset());
+            } else {
+                byte next = source.get();
+
+                if (lineState == BufferState.FILLING) {
+                    if (HeaderUtils.isCarriageReturn(next)) {
+                        lineState = BufferState.FILLED;
+                    } else {
+                        append(next);
+                    }
+                } else if (HeaderUtils.isLineFeed(next)) {
+                    lineState = BufferState.DRAINING;
+                } else {
+                    throw new IOException(
+                            "Missing line feed character at the end of the line. Found character \""
+                                    + (char) next + "\" (" + next
+                                    + ") instead");
+                }
+            }
+        }
+
+        return lineState;
+    }
+
+    /**
+     * Ensures that the byte array can accept additional bytes, replacing it by
+     * a larger copy if needed. Shared byte arrays are never modified in place
+     * beyond their current content.
+     * 
+     * @param length
+     *            The number of additional bytes.
+     */
+    private void ensureCapacity(int length) {
+        if (this.bytes == null) {
+            this.bytes = new byte[Math.max(this.initialSize, length)];
+        } else if (this.lineEnd + length > this.bytes.length) {
+            byte[] newBytes = new byte[Math.max(this.bytes.length * 2,
+                    this.lineEnd + length)];
+            System.arraycopy(this.bytes, 0, newBytes, 0, this.lineEnd);
+            this.bytes = newBytes;
+            this.shared = false;
+        }
+    }
+
+    /**
+     * Returns the accumulated bytes. Once shared, the content of the current
+     * byte array isn't modified anymore, except for appending new lines.
+     * 
+     * @return The accumulated bytes.
+     */
+    public byte[] getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Returns the current line.
+     * 
+     * @return The current line.
+     */
+    public String getLine() {
+        return getString(getLineStart(), getLineEnd());
+    }
+
+    /**
+     * Returns the index after the last byte of the current line.
+     * 
+     * @return The index after the last byte of the current line.
+     */
+    public int getLineEnd() {
+        return this.lineEnd;
+    }
+
+    /**
+     * Returns the length of the current line.
+     * 
+     * @return The length of the current line.
+     */
+    public int getLineLength() {
+        return this.lineEnd - this.lineStart;
+    }
+
+    /**
+     * Returns the index of the first byte of the current line.
+     * 
+     * @return The index of the first byte of the current line.
+     */
+    public int getLineStart() {
+        return this.lineStart;
+    }
+
+    /**
+     * Returns a string made of a range of bytes, decoded as ISO-8859-1
+     * characters.
+     * 
+     * @param start
+     *            The index of the first byte.
+     * @param end
+     *            The index after the last byte.
+     * @return The decoded string.
+     */
+    public String getString(int start, int end) {
+        return getString(this.bytes, start, end);
+    }
+
+    /**
+     * Returns one of the candidate strings if it exactly matches a range of
+     * bytes, or a new string otherwise. This prevents the allocation of
+     * frequent tokens.
+     * 
+     * @param start
+     *            The index of the first byte.
+     * @param end
+     *            The index after the last byte.
+     * @param candidates
+     *            The candidate strings.
+     * @return The matching candidate or a new string.
+     */
+    public String getString(int start, int end, String... candidates) {
+        String result = null;
+
+        for (int i = 0; (result == null) && (i < candidates.length); i++) {
+            if (matches(start, end, candidates[i])) {
+                result = candidates[i];
+            }
+        }
+
+        return (result == null) ? getString(start, end) : result;
+    }
+
+    /**
+     * Returns the index of the first occurrence of a byte inside the current
+     * line.
+     * 
+     * @param value
+     *            The byte to look for.
+     * @param fromIndex
+     *            The index to start from.
+     * @return The index of the byte or -1 if not found.
+     */
+    public int indexOf(int value, int fromIndex) {
+        int result = -1;
+
+        for (int i = fromIndex; (result == -1) && (i < getLineEnd()); i++) {
+            if (this.bytes[i] == value) {
+                result = i;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the index of the first space or horizontal tab inside the
+     * current line.
+     * 
+     * @param fromIndex
+     *            The index to start from.
+     * @return The index of the separator or -1 if not found.
+     */
+    public int indexOfSpace(int fromIndex) {
+        int result = -1;
+
+        for (int i = fromIndex; (result == -1) && (i < getLineEnd()); i++) {
+            if (HeaderUtils.isSpace(this.bytes[i])
+                    || HeaderUtils.isHorizontalTab(this.bytes[i])) {
+                result = i;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if a range of bytes exactly matches the ISO-8859-1 characters
+     * of a string.
+     * 
+     * @param start
+     *            The index of the first byte.
+     * @param end
+     *            The index after the last byte.
+     * @param value
+     *            The string to compare with.
+     * @return True if the bytes match the string.
+     */
+    public boolean matches(int start, int end, String value) {
+        boolean result = (value.length() == (end - start));
+
+        for (int i = 0; result && (i < value.length()); i++) {
+            result = (this.bytes[start + i] == (byte) value.charAt(i));
+        }
+
+        return result;
+    }
+
+    /**
+     * Moves to the next line, keeping the bytes of the previous lines.
+     */
+    public void nextLine() {
+        this.lineStart = this.lineEnd;
+    }
+
+    /**
+     * Marks the byte array as shared, for example because lazily decoded
+     * headers refer to it. It won't be reused for the next message.
+     * 
+     * @return The shared byte array.
+     */
+    public byte[] share() {
+        this.shared = true;
+        return this.bytes;
+    }
+
+}
@@ -118,6 +118,23 @@ public class ReadableBufferedChannel extends
         return endReached;
     }
 
+    /**
+     * Indicates if the channel is open. Once the end has been reached, or while
+     * bytes remain in the buffer, the channel stays open even if the source
+     * channel was closed, typically by a server closing the connection after
+     * its response, so that reads can return the remaining bytes then the end
+     * of the channel.
+     * 
+     * @return True if the channel is open.
+     */
+    @Override
+    public boolean isOpen() {
+        return isEndReached()
+                || super.isOpen()
+                || (!getBuffer().isReleased() && (getBuffer().canDrain() || getBuffer()
+                        .couldDrain()));
+    }
+
     /**
      * Callback invoked upon IO completion. Calls
      * {@link CompletionListener#onMessageCompleted(boolean)} if the end has been
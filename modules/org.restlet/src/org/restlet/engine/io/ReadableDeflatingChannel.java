@@ -0,0 +1,252 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// [excludes gwt]
+/**
+ * Readable byte channel compressing the bytes read from a source channel with
+ * the Deflate algorithm, either in the ZLIB format used by the "deflate"
+ * encoding or in the GZIP format. The compression is driven by the calls to
+ * {@link #read(ByteBuffer)}, so no thread is needed to push the compressed
+ * bytes. If the source channel is non blocking and has no bytes available, the
+ * read returns zero.
+ * 
+ * @author Jerome Louvel
+ */
+public class ReadableDeflatingChannel extends
+        WrapperChannel<ReadableByteChannel> implements ReadableByteChannel {
+
+    /** The size of the input and output buffers. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The GZIP header, without modification time nor extra fields. */
+    private static final byte[] GZIP_HEADER = { (byte) 0x1f, (byte) 0x8b,
+            Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    /** The checksum of the uncompressed bytes, for the GZIP format. */
+    private final CRC32 crc;
+
+    /** The deflater. */
+    private final Deflater deflater;
+
+    /** Indicates if the end of the compressed bytes has been reached. */
+    private boolean endReached;
+
+    /** Indicates if the GZIP format is used. */
+    private final boolean gzip;
+
+    /** The input buffer. */
+    private final byte[] input;
+
+    /** The input buffer wrapper used to read from the source channel. */
+    private final ByteBuffer inputBuffer;
+
+    /** The output buffer. */
+    private final byte[] output;
+
+    /** The end of the pending bytes in the output buffer. */
+    private int outputLimit;
+
+    /** The start of the pending bytes in the output buffer. */
+    private int outputPosition;
+
+    /** Indicates if the end of the source channel has been reached. */
+    private boolean sourceEnded;
+
+    /** Indicates if the GZIP trailer has been added to the output. */
+    private boolean trailerWritten;
+
+    /**
+     * Constructor.
+     * 
+     * @param source
+     *            The source channel.
+     * @param gzip
+     *            True if the GZIP format is used, false for the ZLIB format.
+     */
+    public ReadableDeflatingChannel(ReadableByteChannel source, boolean gzip) {
+        this(source, gzip, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param source
+     *            The source channel.
+     * @param gzip
+     *            True if the GZIP format is used, false for the ZLIB format.
+     * @param level
+     *            The compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public ReadableDeflatingChannel(ReadableByteChannel source, boolean gzip,
+            int level) {
+        super(source);
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+        this.deflater = new Deflater(level, gzip);
+        this.input = new byte[BUFFER_SIZE];
+        this.inputBuffer = ByteBuffer.wrap(this.input);
+        this.output = new byte[BUFFER_SIZE];
+        this.outputPosition = 0;
+        this.outputLimit = 0;
+        this.endReached = false;
+        this.sourceEnded = false;
+        this.trailerWritten = false;
+
+        if (gzip) {
+            System.arraycopy(GZIP_HEADER, 0, this.output, 0,
+                    GZIP_HEADER.length);
+            this.outputLimit = GZIP_HEADER.length;
+        }
+    }
+
+    /**
+     * Releases the deflater and closes the source channel.
+     */
+    @Override
+    public void close() throws IOException {
+        this.deflater.end();
+        super.close();
+    }
+
+    /**
+     * Callback invoked when the end of the compressed bytes has been reached.
+     * Does nothing by default.
+     * 
+     * @param inputSize
+     *            The number of bytes read from the source channel.
+     * @param outputSize
+     *            The number of compressed bytes.
+     */
+    protected void onEnd(long inputSize, long outputSize) {
+    }
+
+    /**
+     * Reads some compressed bytes and put them into the destination buffer.
+     * 
+     * @param dst
+     *            The destination buffer.
+     * @return The number of bytes read, or -1 if the end of the channel has
+     *         been reached.
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        int result = 0;
+        boolean tryAgain = true;
+
+        while (tryAgain && dst.hasRemaining()) {
+            if (this.outputPosition < this.outputLimit) {
+                // Copy the pending compressed bytes
+                int length = Math.min(dst.remaining(), this.outputLimit
+                        - this.outputPosition);
+                dst.put(this.output, this.outputPosition, length);
+                this.outputPosition += length;
+                result += length;
+            } else if (this.endReached) {
+                tryAgain = false;
+            } else if (this.deflater.finished()) {
+                if (this.gzip && !this.trailerWritten) {
+                    writeTrailer();
+                } else {
+                    this.endReached = true;
+                    long inputSize = this.deflater.getBytesRead();
+                    long outputSize = this.deflater.getBytesWritten();
+                    this.deflater.end();
+
+                    if (this.gzip) {
+                        outputSize += GZIP_HEADER.length + 8;
+                    }
+
+                    onEnd(inputSize, outputSize);
+                }
+            } else {
+                if (this.deflater.needsInput() && !this.sourceEnded) {
+                    this.inputBuffer.clear();
+                    int count = getWrappedChannel().read(this.inputBuffer);
+
+                    if (count == -1) {
+                        this.sourceEnded = true;
+                        this.deflater.finish();
+                    } else if (count == 0) {
+                        // Nothing available for now
+                        tryAgain = false;
+                    } else {
+                        this.deflater.setInput(this.input, 0, count);
+
+                        if (this.crc != null) {
+                            this.crc.update(this.input, 0, count);
+                        }
+                    }
+                }
+
+                if (tryAgain) {
+                    this.outputPosition = 0;
+                    this.outputLimit = this.deflater.deflate(this.output, 0,
+                            this.output.length);
+                }
+            }
+        }
+
+        if ((result == 0) && this.endReached) {
+            result = -1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds the GZIP trailer to the output buffer, that is the checksum and the
+     * size of the uncompressed bytes, in little endian order.
+     */
+    private void writeTrailer() {
+        long checksum = this.crc.getValue();
+        long size = this.deflater.getBytesRead();
+
+        for (int i = 0; i < 4; i++) {
+            this.output[i] = (byte) (checksum >> (8 * i));
+            this.output[i + 4] = (byte) (size >> (8 * i));
+        }
+
+        this.outputPosition = 0;
+        this.outputLimit = 8;
+        this.trailerWritten = true;
+    }
+
+}
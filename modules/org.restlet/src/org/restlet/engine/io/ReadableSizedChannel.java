@@ -35,7 +35,9 @@ package org.restlet.engine.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 
 import org.restlet.Context;
@@ -86,6 +88,20 @@ public class ReadableSizedChannel extends WrapperChannel<ReadableByteChannel>
         return endDetected;
     }
 
+    /**
+     * Indicates if the source channel is a file channel, possibly wrapped by
+     * other sized channels, whose bytes can be directly transferred to a
+     * target channel.
+     * 
+     * @return True if the source channel bytes can be directly transferred.
+     * @see #transferTo(WritableByteChannel, long)
+     */
+    public boolean isTransferable() {
+        return (getWrappedChannel() instanceof FileChannel)
+                || ((getWrappedChannel() instanceof ReadableSizedChannel) && ((ReadableSizedChannel) getWrappedChannel())
+                        .isTransferable());
+    }
+
     /**
      * Reads some bytes and put them into the destination buffer. The bytes come
      * from the underlying channel.
@@ -156,4 +172,55 @@ public class ReadableSizedChannel extends WrapperChannel<ReadableByteChannel>
             }
         }
     }
+
+    /**
+     * Transfers bytes from the source file channel directly to the target
+     * channel, without copying them into an intermediary byte buffer. This
+     * allows the operating system to send the file content to a socket
+     * channel without copying it to the user space.
+     * 
+     * @param target
+     *            The target channel.
+     * @param maxCount
+     *            The maximum number of bytes to transfer.
+     * @return The number of bytes transferred, or -1 if the end of the
+     *         channel has been reached.
+     * @throws IOException
+     * @see #isTransferable()
+     */
+    public long transferTo(WritableByteChannel target, long maxCount)
+            throws IOException {
+        long result = -1;
+
+        if (getAvailableSize() > 0) {
+            long count = Math.min(getAvailableSize(), maxCount);
+
+            if (getWrappedChannel() instanceof FileChannel) {
+                FileChannel fileChannel = (FileChannel) getWrappedChannel();
+                long position = fileChannel.position();
+
+                if (position < fileChannel.size()) {
+                    result = fileChannel.transferTo(position, count, target);
+                    fileChannel.position(position + result);
+                }
+            } else {
+                result = ((ReadableSizedChannel) getWrappedChannel())
+                        .transferTo(target, count);
+            }
+        }
+
+        if (result > 0) {
+            setAvailableSize(getAvailableSize() - result);
+
+            if (Context.getCurrentLogger().isLoggable(Level.FINER)) {
+                Context.getCurrentLogger().finer(
+                        "Bytes (transferred | available) : " + result + " | "
+                                + getAvailableSize());
+            }
+        } else if (result == -1) {
+            setEndDetected(true);
+        }
+
+        return result;
+    }
 }
@@ -36,7 +36,9 @@ package org.restlet.engine.local;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Level;
@@ -44,12 +46,15 @@ import java.util.logging.Level;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.Dimension;
+import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Preference;
 import org.restlet.data.Reference;
 import org.restlet.data.ReferenceList;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
 import org.restlet.representation.Representation;
 import org.restlet.representation.Variant;
 import org.restlet.resource.Directory;
@@ -82,6 +87,9 @@ public class DirectoryServerResource extends ServerResource {
     /** The base variant. */
     private volatile Variant baseVariant;
 
+    /** The context's references of the variants, used to locate siblings. */
+    private volatile Map<Representation, Reference> contextRefs = new IdentityHashMap<Representation, Reference>();
+
     /** The parent directory handler. */
     private volatile Directory directory;
 
@@ -490,6 +498,88 @@ public class DirectoryServerResource extends ServerResource {
         return this.directoryUri;
     }
 
+    /**
+     * Returns the pre-compressed sibling of a variant, such as "foo.css.gz"
+     * for "foo.css", if the client accepts the GZip encoding and if the
+     * sibling isn't older than the variant. The sibling takes the metadata of
+     * the variant, with the GZip encoding added.
+     * 
+     * @param variant
+     *            The selected variant.
+     * @return The pre-compressed sibling or null.
+     */
+    private Representation getPrecompressed(Representation variant) {
+        Representation result = null;
+        Reference contextRef = this.contextRefs.get(variant);
+        boolean identity = true;
+
+        for (Encoding encoding : variant.getEncodings()) {
+            identity = identity && Encoding.IDENTITY.equals(encoding);
+        }
+
+        if ((contextRef != null) && identity) {
+            boolean accepted = false;
+
+            for (Preference<Encoding> pref : getClientInfo()
+                    .getAcceptedEncodings()) {
+                if ((Encoding.GZIP.equals(pref.getMetadata()) || Encoding.ALL
+                        .equals(pref.getMetadata()))
+                        && (pref.getQuality() > 0F)) {
+                    accepted = true;
+                }
+            }
+
+            // The response depends on the accepted encodings anyway
+            getResponse().getDimensions().add(Dimension.ENCODING);
+
+            if (accepted) {
+                Response contextResponse = getRepresentation(contextRef
+                        .toString(false, false) + ".gz");
+                Representation sibling = contextResponse.getEntity();
+
+                if (contextResponse.getStatus().isSuccess()
+                        && (sibling != null)
+                        && !MediaType.TEXT_URI_LIST.equals(sibling
+                                .getMediaType())) {
+                    if ((variant.getModificationDate() != null)
+                            && (sibling.getModificationDate() != null)
+                            && sibling.getModificationDate().before(
+                                    variant.getModificationDate())) {
+                        getLogger().fine(
+                                "Ignoring outdated pre-compressed file: "
+                                        + contextRef + ".gz");
+                        sibling.release();
+                    } else {
+                        sibling.setMediaType(variant.getMediaType());
+                        sibling.setCharacterSet(variant.getCharacterSet());
+                        sibling.getLanguages().clear();
+                        sibling.getLanguages().addAll(variant.getLanguages());
+                        sibling.getEncodings().clear();
+                        sibling.getEncodings().add(Encoding.GZIP);
+                        sibling.setDisposition(variant.getDisposition());
+                        sibling.setExpirationDate(variant.getExpirationDate());
+                        sibling.setLocationRef(variant.getLocationRef());
+                        sibling.setModificationDate(variant
+                                .getModificationDate());
+
+                        if (variant.getTag() != null) {
+                            // The encoded bytes need their own tag
+                            sibling.setTag(new Tag(variant.getTag().getName()
+                                    + "-gzip", variant.getTag().isWeak()));
+                        } else {
+                            sibling.setTag(null);
+                        }
+
+                        variant.release();
+                        result = sibling;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns a representation of the resource at the target URI. Leverages the
      * client dispatcher of the parent directory's context.
@@ -631,6 +721,7 @@ public class DirectoryServerResource extends ServerResource {
                                     rep.setLocationRef(baseRef + "/" + filePath);
                                 }
 
+                                this.contextRefs.put(rep, ref);
                                 resultSet.add(rep);
                             }
                         }
@@ -686,6 +777,8 @@ public class DirectoryServerResource extends ServerResource {
                         this.fileContent.setLocationRef(getReference());
                     }
 
+                    this.contextRefs.put(this.fileContent, new Reference(
+                            this.targetUri));
                     result = new ArrayList<Variant>();
                     result.add(this.fileContent);
                 }
@@ -739,8 +832,10 @@ public class DirectoryServerResource extends ServerResource {
                                     firstDotIndex);
                         }
 
-                        // Check if the current file is a valid variant
-                        if (baseEntryName.equals(this.baseName)) {
+                        // Check if the current file is a valid variant. The
+                        // pre-compressed siblings are served separately.
+                        if (baseEntryName.equals(this.baseName)
+                                && !isPrecompressedSibling(fullEntryName)) {
                             // Test if the variant is included in the base
                             // prototype variant
                             Variant variant = new Variant();
@@ -791,6 +886,19 @@ public class DirectoryServerResource extends ServerResource {
             }
         } else {
             result = super.handle();
+
+            if (getDirectory().isPrecompressedServed()
+                    && (Method.GET.equals(getMethod()) || Method.HEAD
+                            .equals(getMethod()))
+                    && Status.SUCCESS_OK.equals(getStatus())
+                    && (getResponseEntity() != null)) {
+                Representation precompressed = getPrecompressed(getResponseEntity());
+
+                if (precompressed != null) {
+                    getResponse().setEntity(precompressed);
+                    result = precompressed;
+                }
+            }
         }
 
         return result;
@@ -805,6 +913,22 @@ public class DirectoryServerResource extends ServerResource {
         return this.directoryTarget;
     }
 
+    /**
+     * Indicates if an entry is a pre-compressed sibling that shouldn't be
+     * considered as a variant of its own, which is the case when the directory
+     * serves pre-compressed siblings and when the entry wasn't explicitly
+     * targeted.
+     * 
+     * @param entryName
+     *            The entry name.
+     * @return True if the entry is a pre-compressed sibling.
+     */
+    private boolean isPrecompressedSibling(String entryName) {
+        return getDirectory().isPrecompressedServed()
+                && entryName.endsWith(".gz")
+                && !this.targetUri.endsWith(".gz");
+    }
+
     /**
      * Indicates if the target resource is a file.
      * 
@@ -0,0 +1,432 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.data.Tag;
+
+/**
+ * Bounded cache of file system metadata. For each file or directory, it keeps
+ * the existence, the type, the last modification date, the size and a weak tag
+ * derived from them. For directories, it also keeps the names of their
+ * children, so that the resolution of variants doesn't need to list the parent
+ * directory on each call.<br>
+ * <br>
+ * Entries are checked again against the file system once their time to live
+ * has elapsed. The list of children of a directory is kept if the
+ * modification date of the directory hasn't changed. Changes made through the
+ * FILE client connector invalidate the related entries immediately. Changes
+ * made by other means can be reported via the {@link #invalidate(File)}
+ * method, otherwise they are visible after the time to live.<br>
+ * <br>
+ * Entries are read without locking. The entries are also indexed by parent
+ * directory, so that an invalidation only removes the entries of the siblings
+ * and ancestors of the changed file.
+ * 
+ * @author Jerome Louvel
+ * @see FileClientHelper
+ */
+public class FileCache {
+
+    /** Metadata of a file or directory. */
+    private static class Entry {
+
+        /** The time when the file system was checked, in milliseconds. */
+        private final long checked;
+
+        /** The names of the children if the file is a directory. */
+        private volatile String[] children;
+
+        /** Indicates if the file is a directory. */
+        private final boolean directory;
+
+        /** Indicates if the file exists. */
+        private final boolean exists;
+
+        /** The last modification date of the file, in milliseconds. */
+        private final long lastModified;
+
+        /** Indicates if the file is a normal file. */
+        private final boolean normal;
+
+        /** The size of the file. */
+        private final long size;
+
+        /** The tag of the file if it is a normal file. */
+        private final Tag tag;
+
+        /**
+         * Constructor. Checks the file system.
+         * 
+         * @param file
+         *            The file to check.
+         * @param previous
+         *            The previous entry or null.
+         * @param checked
+         *            The current time, in milliseconds.
+         */
+        public Entry(File file, Entry previous, long checked) {
+            this.checked = checked;
+            this.lastModified = file.lastModified();
+            this.directory = file.isDirectory();
+            this.normal = !this.directory && file.isFile();
+            this.exists = this.directory || this.normal || file.exists();
+            this.size = this.normal ? file.length() : 0L;
+            this.tag = this.normal ? new Tag(Long.toHexString(this.lastModified)
+                    + "-" + Long.toHexString(this.size), true) : null;
+
+            if (this.directory && (previous != null) && previous.directory
+                    && (previous.lastModified == this.lastModified)) {
+                this.children = previous.children;
+            }
+        }
+    }
+
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** The entries per absolute path. */
+    private final ConcurrentMap<String, Entry> entries;
+
+    /**
+     * The number of invalidations, so that entries checked before one of them
+     * are not stored.
+     */
+    private volatile long generation;
+
+    /** The number of cache hits. */
+    private final AtomicLong hits;
+
+    /** The maximum number of entries. */
+    private final int maxEntries;
+
+    /** The number of cache misses. */
+    private final AtomicLong misses;
+
+    /**
+     * The absolute paths of the entries per absolute path of their parent
+     * directory. Guarded by the cache's lock.
+     */
+    private final Map<String, Set<String>> siblings;
+
+    /** The time to live of an entry, in milliseconds. */
+    private final long timeToLive;
+
+    /**
+     * Constructor. Keeps up to {@link #DEFAULT_MAX_ENTRIES} entries.
+     * 
+     * @param timeToLive
+     *            The time to live of an entry, in milliseconds.
+     */
+    public FileCache(long timeToLive) {
+        this(timeToLive, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param timeToLive
+     *            The time to live of an entry, in milliseconds.
+     * @param maxEntries
+     *            The maximum number of entries.
+     */
+    public FileCache(long timeToLive, int maxEntries) {
+        this.entries = new ConcurrentHashMap<String, Entry>();
+        this.generation = 0L;
+        this.hits = new AtomicLong();
+        this.maxEntries = maxEntries;
+        this.misses = new AtomicLong();
+        this.siblings = new HashMap<String, Set<String>>();
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public synchronized void clear() {
+        this.generation++;
+        this.entries.clear();
+        this.siblings.clear();
+    }
+
+    /**
+     * Indicates if the file exists.
+     * 
+     * @param file
+     *            The file to check.
+     * @return True if the file exists.
+     * @see File#exists()
+     */
+    public boolean exists(File file) {
+        return getEntry(file).exists;
+    }
+
+    /**
+     * Returns the entry of a file, checking the file system if it is missing
+     * or expired. The new entry isn't stored if an invalidation occurred while
+     * checking the file system, as it might reflect a previous state.
+     * 
+     * @param file
+     *            The file.
+     * @return The entry of the file.
+     */
+    private Entry getEntry(File file) {
+        String key = file.getAbsolutePath();
+        long now = System.currentTimeMillis();
+        long checkedGeneration = this.generation;
+        Entry result = this.entries.get(key);
+
+        if ((result != null) && ((now - result.checked) < getTimeToLive())) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+            result = new Entry(file, result, now);
+
+            synchronized (this) {
+                if (checkedGeneration == this.generation) {
+                    put(key, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of cache hits.
+     * 
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the last modification date of the file, in milliseconds.
+     * 
+     * @param file
+     *            The file to check.
+     * @return The last modification date of the file.
+     * @see File#lastModified()
+     */
+    public long getLastModified(File file) {
+        return getEntry(file).lastModified;
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return The maximum number of entries.
+     */
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    /**
+     * Returns the number of cache misses, including the expired entries.
+     * 
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the size of the file.
+     * 
+     * @param file
+     *            The file to check.
+     * @return The size of the file.
+     * @see File#length()
+     */
+    public long getSize(File file) {
+        return getEntry(file).size;
+    }
+
+    /**
+     * Returns a weak tag derived from the last modification date and the size
+     * of a normal file.
+     * 
+     * @param file
+     *            The file to check.
+     * @return The tag of the file or null if it isn't a normal file.
+     */
+    public Tag getTag(File file) {
+        return getEntry(file).tag;
+    }
+
+    /**
+     * Returns the time to live of an entry, in milliseconds.
+     * 
+     * @return The time to live of an entry, in milliseconds.
+     */
+    public long getTimeToLive() {
+        return this.timeToLive;
+    }
+
+    /**
+     * Removes the entries of a file, of its siblings and of its ancestors. As
+     * variants are siblings, this covers the entries used to resolve them.
+     * 
+     * @param file
+     *            The file that was created, updated or deleted.
+     */
+    public synchronized void invalidate(File file) {
+        this.generation++;
+        File parent = file.getAbsoluteFile().getParentFile();
+        Set<String> keys = this.siblings.remove((parent == null) ? null
+                : parent.getPath());
+
+        if (keys != null) {
+            for (String key : keys) {
+                this.entries.remove(key);
+            }
+        }
+
+        for (File ancestor = parent; ancestor != null; ancestor = ancestor
+                .getParentFile()) {
+            remove(ancestor.getPath());
+        }
+    }
+
+    /**
+     * Indicates if the file is a directory.
+     * 
+     * @param file
+     *            The file to check.
+     * @return True if the file is a directory.
+     * @see File#isDirectory()
+     */
+    public boolean isDirectory(File file) {
+        return getEntry(file).directory;
+    }
+
+    /**
+     * Indicates if the file is a normal file.
+     * 
+     * @param file
+     *            The file to check.
+     * @return True if the file is a normal file.
+     * @see File#isFile()
+     */
+    public boolean isNormal(File file) {
+        return getEntry(file).normal;
+    }
+
+    /**
+     * Returns the names of the children of a directory.
+     * 
+     * @param file
+     *            The directory.
+     * @return The names of the children or null if the file isn't a directory.
+     * @see File#list()
+     */
+    public String[] list(File file) {
+        Entry entry = getEntry(file);
+        String[] result = null;
+
+        if (entry.directory) {
+            result = entry.children;
+
+            if (result == null) {
+                result = file.list();
+                entry.children = result;
+            }
+
+            if (result != null) {
+                result = result.clone();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Stores an entry, removing other entries if the maximum number of entries
+     * is reached. Must be called with the cache's lock held.
+     * 
+     * @param key
+     *            The absolute path of the file.
+     * @param entry
+     *            The entry to store.
+     */
+    private void put(String key, Entry entry) {
+        if (!this.entries.containsKey(key)) {
+            for (Iterator<String> iter = this.entries.keySet().iterator(); (this.entries
+                    .size() >= getMaxEntries()) && iter.hasNext();) {
+                remove(iter.next());
+            }
+
+            String parent = new File(key).getParent();
+            Set<String> keys = this.siblings.get(parent);
+
+            if (keys == null) {
+                keys = new HashSet<String>();
+                this.siblings.put(parent, keys);
+            }
+
+            keys.add(key);
+        }
+
+        this.entries.put(key, entry);
+    }
+
+    /**
+     * Removes an entry and its index. Must be called with the cache's lock
+     * held.
+     * 
+     * @param key
+     *            The absolute path of the file.
+     */
+    private void remove(String key) {
+        if (this.entries.remove(key) != null) {
+            String parent = new File(key).getParent();
+            Set<String> keys = this.siblings.get(parent);
+
+            if ((keys != null) && keys.remove(key) && keys.isEmpty()) {
+                this.siblings.remove(parent);
+            }
+        }
+    }
+
+}
@@ -90,6 +90,14 @@ import org.restlet.representation.Variant;
  * <td>Indicates if a failed upload can be resumed. This will prevent the
  * deletion of the temporary file created.</td>
  * </tr>
+ * <tr>
+ * <td>metadataTimeToLive</td>
+ * <td>long</td>
+ * <td>0</td>
+ * <td>Time to live of the cached metadata of files and directories (in
+ * milliseconds), including the lists of variants. If the value is '0', no
+ * metadata are cached. See {@link FileCache}.</td>
+ * </tr>
  * </table>
  * 
  * @author Jerome Louvel
@@ -97,6 +105,9 @@ import org.restlet.representation.Variant;
  */
 public class FileClientHelper extends EntityClientHelper {
 
+    /** The cache of file system metadata or null. */
+    private volatile FileCache cache;
+
     /**
      * Constructor.
      * 
@@ -174,12 +185,34 @@ public class FileClientHelper extends EntityClientHelper {
         return result;
     }
 
+    /**
+     * Returns the cache of file system metadata. It is created on start if the
+     * "metadataTimeToLive" parameter is positive.
+     * 
+     * @return The cache of file system metadata or null.
+     */
+    public FileCache getCache() {
+        return cache;
+    }
+
     @Override
     public Entity getEntity(String decodedPath) {
         // Take care of the file separator.
         return new FileEntity(
                 new File(LocalReference.localizePath(decodedPath)),
-                getMetadataService());
+                getMetadataService(), getCache());
+    }
+
+    /**
+     * Returns the time to live of the cached metadata of files and
+     * directories (in milliseconds). Defaults to 0, meaning that no metadata
+     * are cached.
+     * 
+     * @return The time to live of the cached metadata (in milliseconds).
+     */
+    public long getMetadataTimeToLive() {
+        return Long.parseLong(getHelpedParameters().getFirstValue(
+                "metadataTimeToLive", "0"));
     }
 
     /**
@@ -213,9 +246,18 @@ public class FileClientHelper extends EntityClientHelper {
                 || Method.HEAD.equals(request.getMethod())) {
             handleEntityGet(request, response, getEntity(decodedPath));
         } else if (Method.PUT.equals(request.getMethod())) {
-            handleFilePut(request, response, decodedPath, new File(decodedPath));
+            try {
+                handleFilePut(request, response, decodedPath, new File(
+                        decodedPath));
+            } finally {
+                invalidate(decodedPath);
+            }
         } else if (Method.DELETE.equals(request.getMethod())) {
-            handleFileDelete(response, new File(decodedPath));
+            try {
+                handleFileDelete(response, new File(decodedPath));
+            } finally {
+                invalidate(decodedPath);
+            }
         } else {
             response.setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED);
             response.getAllowedMethods().add(Method.GET);
@@ -663,6 +705,19 @@ public class FileClientHelper extends EntityClientHelper {
         }
     }
 
+    /**
+     * Invalidates the cached metadata of a file and of its variants, if any.
+     * 
+     * @param decodedPath
+     *            The decoded path of the file.
+     */
+    private void invalidate(String decodedPath) {
+        if (getCache() != null) {
+            getCache().invalidate(
+                    new File(LocalReference.localizePath(decodedPath)));
+        }
+    }
+
     /**
      * Indicates if a failed upload can be resumed. This will prevent the
      * deletion of the temporary file created. Defaults to "false".
@@ -674,6 +729,19 @@ public class FileClientHelper extends EntityClientHelper {
                 "resumeUpload", "false"));
     }
 
+    @Override
+    public synchronized void start() throws Exception {
+        super.start();
+        long timeToLive = getMetadataTimeToLive();
+        this.cache = (timeToLive > 0) ? new FileCache(timeToLive) : null;
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        this.cache = null;
+        super.stop();
+    }
+
     /**
      * Complete the given file name with the extension corresponding to the
      * given metadata.
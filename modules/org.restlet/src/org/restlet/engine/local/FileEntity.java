@@ -35,6 +35,7 @@ package org.restlet.engine.local;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.restlet.data.MediaType;
@@ -43,10 +44,14 @@ import org.restlet.representation.Representation;
 import org.restlet.service.MetadataService;
 
 /**
- * Local entity based on a regular {@link File}.
+ * Local entity based on a regular {@link File}. If a metadata cache is set,
+ * the file system is only checked when the cached metadata expire.
  */
 public class FileEntity extends Entity {
 
+    /** The cache of file system metadata or null. */
+    private final FileCache cache;
+
     /** The underlying regular file. */
     private final File file;
 
@@ -59,12 +64,32 @@ public class FileEntity extends Entity {
      *            The metadata service to use.
      */
     public FileEntity(File file, MetadataService metadataService) {
+        this(file, metadataService, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            The underlying file.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param cache
+     *            The cache of file system metadata or null.
+     */
+    public FileEntity(File file, MetadataService metadataService,
+            FileCache cache) {
         super(metadataService);
+        this.cache = cache;
         this.file = file;
     }
 
     @Override
     public boolean exists() {
+        if (getCache() != null) {
+            return getCache().exists(getFile());
+        }
+
         // [ifndef gae] instruction
         return getFile().exists();
         // [ifdef gae] uncomment
@@ -80,7 +105,18 @@ public class FileEntity extends Entity {
     public List<Entity> getChildren() {
         List<Entity> result = null;
 
-        if (isDirectory()) {
+        if (getCache() != null) {
+            String[] names = getCache().list(getFile());
+
+            if (names != null) {
+                result = new ArrayList<Entity>(names.length);
+
+                for (String name : names) {
+                    result.add(new FileEntity(new File(getFile(), name),
+                            getMetadataService(), getCache()));
+                }
+            }
+        } else if (isDirectory()) {
             result = new ArrayList<Entity>();
 
             // [ifdef gae] uncomment
@@ -98,6 +134,15 @@ public class FileEntity extends Entity {
         return result;
     }
 
+    /**
+     * Returns the cache of file system metadata.
+     * 
+     * @return The cache of file system metadata or null.
+     */
+    public FileCache getCache() {
+        return cache;
+    }
+
     /**
      * Returns the underlying regular file.
      * 
@@ -116,17 +161,32 @@ public class FileEntity extends Entity {
     public Entity getParent() {
         File parentFile = getFile().getParentFile();
         return (parentFile == null) ? null : new FileEntity(parentFile,
-                getMetadataService());
+                getMetadataService(), getCache());
     }
 
     @Override
     public Representation getRepresentation(MediaType defaultMediaType,
             int timeToLive) {
-        return new FileRepresentation(getFile(), defaultMediaType, timeToLive);
+        Representation result = null;
+
+        if (getCache() != null) {
+            result = new FileRepresentation(getFile(), defaultMediaType,
+                    timeToLive, new Date(getCache().getLastModified(getFile())));
+            result.setTag(getCache().getTag(getFile()));
+        } else {
+            result = new FileRepresentation(getFile(), defaultMediaType,
+                    timeToLive);
+        }
+
+        return result;
     }
 
     @Override
     public boolean isDirectory() {
+        if (getCache() != null) {
+            return getCache().isDirectory(getFile());
+        }
+
         // [ifndef gae] instruction
         return getFile().isDirectory();
         // [ifdef gae] uncomment
@@ -141,6 +201,10 @@ public class FileEntity extends Entity {
 
     @Override
     public boolean isNormal() {
+        if (getCache() != null) {
+            return getCache().isNormal(getFile());
+        }
+
         // [ifndef gae] instruction
         return getFile().isFile();
         // [ifdef gae] uncomment
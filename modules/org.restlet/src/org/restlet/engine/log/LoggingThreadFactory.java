@@ -37,6 +37,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.restlet.engine.Engine;
+
 /**
  * Thread factory that logs uncaught exceptions thrown by the created threads.
  * 
@@ -62,6 +64,9 @@ public class LoggingThreadFactory implements ThreadFactory {
     /** Indicates if threads should be created as daemons. */
     private final boolean daemon;
 
+    /** Indicates if virtual threads should be created when supported. */
+    private final boolean virtual;
+
     /**
      * Constructor.
      * 
@@ -81,8 +86,25 @@ public class LoggingThreadFactory implements ThreadFactory {
      *            Indicates if threads should be created as daemons.
      */
     public LoggingThreadFactory(Logger logger, boolean daemon) {
+        this(logger, daemon, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param logger
+     *            The associated logger.
+     * @param daemon
+     *            Indicates if threads should be created as daemons. Virtual
+     *            threads are always daemons.
+     * @param virtual
+     *            Indicates if virtual threads should be created when supported
+     *            by the JVM.
+     */
+    public LoggingThreadFactory(Logger logger, boolean daemon, boolean virtual) {
         this.logger = logger;
         this.daemon = daemon;
+        this.virtual = virtual;
     }
 
     /**
@@ -92,10 +114,14 @@ public class LoggingThreadFactory implements ThreadFactory {
      *            The runnable task.
      */
     public Thread newThread(Runnable r) {
-        Thread result = new Thread(r);
+        Thread result = Engine.createThread(r, null, this.virtual);
         result.setName("Restlet-" + result.hashCode());
         result.setUncaughtExceptionHandler(new LoggingExceptionHandler());
-        result.setDaemon(this.daemon);
+
+        if (!this.virtual || !Engine.isVirtualThreadSupported()) {
+            result.setDaemon(this.daemon);
+        }
+
         return result;
     }
 }
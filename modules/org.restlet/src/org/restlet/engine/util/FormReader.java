@@ -38,29 +38,58 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 import org.restlet.Context;
 import org.restlet.data.CharacterSet;
 import org.restlet.data.Form;
 import org.restlet.data.Parameter;
+import org.restlet.data.Reference;
 import org.restlet.representation.Representation;
 import org.restlet.util.Series;
 
 /**
- * Form reader.
+ * Form reader. Parameters are pulled one at a time from the underlying stream
+ * with {@link #readNextParameter()}, so large forms can be processed without
+ * holding them in memory. Parameters whose name isn't wanted can be skipped
+ * with {@link #readNextParameter(Set)} without buffering their value, and the
+ * number of bytes read can be capped with {@link #setMaxBytes(long)}.
  * 
  * @author Jerome Louvel
  */
 public class FormReader {
+    // [ifndef gwt] member
+    /** The size of the read buffer. */
+    private static final int BUFFER_SIZE = 2048;
+
+    // [ifndef gwt] member
+    /** The read buffer. */
+    private volatile byte[] buffer;
+
+    // [ifndef gwt] member
+    /** The number of bytes available in the read buffer. */
+    private volatile int bufferLength;
+
+    // [ifndef gwt] member
+    /** The position of the next byte in the read buffer. */
+    private volatile int bufferPosition;
+
+    /** The number of bytes read from the stream. */
+    private volatile long byteCount;
+
     /** The encoding to use, decoding is enabled, see {@link #decode}. */
     private volatile CharacterSet characterSet;
 
     /** Indicates if the parameters should be decoded. */
     private volatile boolean decode;
 
+    /** The maximum number of bytes to read, or -1 for no limit. */
+    private volatile long maxBytes;
+
     /** The separator character used between parameters. */
     private volatile char separator;
 
@@ -97,6 +126,7 @@ public class FormReader {
     public FormReader(Representation representation, boolean decode)
             throws IOException {
         this.decode = decode;
+        this.maxBytes = -1;
         this.stream = representation.getStream();
         this.separator = '&';
 
@@ -159,6 +189,7 @@ public class FormReader {
         // org.restlet.engine.io.StringInputStream(parametersString);
 
         this.characterSet = characterSet;
+        this.maxBytes = -1;
         this.separator = separator;
     }
 
@@ -202,6 +233,86 @@ public class FormReader {
         }
     }
 
+    /**
+     * Returns the number of bytes read so far.
+     * 
+     * @return The number of bytes read so far.
+     */
+    public long getByteCount() {
+        return this.byteCount;
+    }
+
+    /**
+     * Returns the maximum number of bytes to read. Reading beyond this limit
+     * fails with an {@link IOException}. Default value is -1, meaning no
+     * limit.
+     * 
+     * @return The maximum number of bytes to read or -1.
+     */
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    /**
+     * Indicates if a parameter should be returned based on its raw name.
+     * 
+     * @param name
+     *            The raw parameter name.
+     * @param names
+     *            The names of the parameters to return, or null for all
+     *            parameters.
+     * @return True if the parameter should be returned.
+     */
+    private boolean isWanted(CharSequence name, Set<String> names) {
+        return (names == null)
+                || names.contains(this.decode ? Reference.decode(
+                        name.toString(), this.characterSet) : name.toString());
+    }
+
+    /**
+     * Reads the next byte of the form stream, through the read buffer.
+     * 
+     * @return The next byte or -1 if the end of the stream has been reached.
+     * @throws IOException
+     *             If the stream could not be read or if the maximum number of
+     *             bytes has been exceeded.
+     */
+    private int readByte() throws IOException {
+        int result = -1;
+
+        // [ifndef gwt]
+        if (this.bufferPosition >= this.bufferLength) {
+            if (this.buffer == null) {
+                this.buffer = new byte[BUFFER_SIZE];
+            }
+
+            this.bufferPosition = 0;
+
+            do {
+                this.bufferLength = this.stream.read(this.buffer);
+            } while (this.bufferLength == 0);
+        }
+
+        if (this.bufferPosition < this.bufferLength) {
+            result = this.buffer[this.bufferPosition++] & 0xFF;
+        }
+        // [enddef]
+        // [ifdef gwt] uncomment
+        // result = this.stream.read();
+        // [enddef]
+
+        if (result != -1) {
+            this.byteCount++;
+
+            if ((this.maxBytes >= 0) && (this.byteCount > this.maxBytes)) {
+                throw new IOException("The form exceeds the maximum size of "
+                        + this.maxBytes + " bytes");
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Reads all the parameters.
      * 
@@ -211,6 +322,7 @@ public class FormReader {
      */
     public Form read() throws IOException {
         Form result = new Form();
+        result.setIndexed(true);
 
         if (this.stream != null) {
             Parameter param = readNextParameter();
@@ -238,16 +350,7 @@ public class FormReader {
         Parameter result = null;
 
         if (this.stream != null) {
-            Parameter param = readNextParameter();
-
-            while ((param != null) && (result == null)) {
-                if (param.getName().equals(name)) {
-                    result = param;
-                }
-
-                param = readNextParameter();
-            }
-
+            result = readNextParameter(Collections.singleton(name));
             this.stream.close();
         }
 
@@ -262,24 +365,45 @@ public class FormReader {
      *             If the next parameter could not be read.
      */
     public Parameter readNextParameter() throws IOException {
+        return readNextParameter(null);
+    }
+
+    /**
+     * Reads the next parameter whose name is in the given set, or null. The
+     * other parameters are skipped without buffering or decoding their value.
+     * 
+     * @param names
+     *            The names of the parameters to return, or null for all
+     *            parameters.
+     * @return The next matching parameter available or null.
+     * @throws IOException
+     *             If the next parameter could not be read.
+     */
+    public Parameter readNextParameter(Set<String> names) throws IOException {
         Parameter result = null;
 
         if (this.stream != null) {
             try {
                 boolean readingName = true;
                 boolean readingValue = false;
+                boolean skippingValue = false;
                 StringBuilder nameBuffer = new StringBuilder();
                 StringBuilder valueBuffer = new StringBuilder();
                 int nextChar = 0;
 
                 while ((result == null) && (nextChar != -1)) {
-                    nextChar = this.stream.read();
+                    nextChar = readByte();
 
                     if (readingName) {
                         if (nextChar == '=') {
                             if (nameBuffer.length() > 0) {
                                 readingName = false;
-                                readingValue = true;
+
+                                if (isWanted(nameBuffer, names)) {
+                                    readingValue = true;
+                                } else {
+                                    skippingValue = true;
+                                }
                             } else {
                                 throw new IOException(
                                         "Empty parameter name detected. Please check your form data");
@@ -287,8 +411,13 @@ public class FormReader {
                         } else if ((nextChar == this.separator)
                                 || (nextChar == -1)) {
                             if (nameBuffer.length() > 0) {
-                                result = FormUtils.create(nameBuffer, null,
-                                        this.decode, this.characterSet);
+                                if (isWanted(nameBuffer, names)) {
+                                    result = FormUtils.create(nameBuffer,
+                                            null, this.decode,
+                                            this.characterSet);
+                                } else {
+                                    nameBuffer.setLength(0);
+                                }
                             } else if (nextChar == -1) {
                                 // Do nothing return null preference
                             } else {
@@ -305,6 +434,13 @@ public class FormReader {
                         } else {
                             valueBuffer.append((char) nextChar);
                         }
+                    } else if (skippingValue) {
+                        if (nextChar == this.separator) {
+                            // Start reading the next parameter
+                            skippingValue = false;
+                            readingName = true;
+                            nameBuffer.setLength(0);
+                        }
                     }
                 }
             } catch (UnsupportedEncodingException uee) {
@@ -331,7 +467,8 @@ public class FormReader {
         Object result = null;
 
         if (this.stream != null) {
-            Parameter param = readNextParameter();
+            Set<String> wanted = Collections.singleton(name);
+            Parameter param = readNextParameter(wanted);
 
             while (param != null) {
                 if (param.getName().equals(name)) {
@@ -363,7 +500,7 @@ public class FormReader {
                     }
                 }
 
-                param = readNextParameter();
+                param = readNextParameter(wanted);
             }
 
             this.stream.close();
@@ -386,7 +523,7 @@ public class FormReader {
     public void readParameters(Map<String, Object> parameters)
             throws IOException {
         if (this.stream != null) {
-            Parameter param = readNextParameter();
+            Parameter param = readNextParameter(parameters.keySet());
             Object currentValue = null;
 
             while (param != null) {
@@ -421,10 +558,21 @@ public class FormReader {
                     }
                 }
 
-                param = readNextParameter();
+                param = readNextParameter(parameters.keySet());
             }
 
             this.stream.close();
         }
     }
+
+    /**
+     * Sets the maximum number of bytes to read. Reading beyond this limit
+     * fails with an {@link IOException}.
+     * 
+     * @param maxBytes
+     *            The maximum number of bytes to read or -1 for no limit.
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
 }
@@ -33,17 +33,292 @@
 
 package org.restlet.engine.util;
 
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
 import org.restlet.Request;
+import org.restlet.data.CharacterSet;
 import org.restlet.data.Reference;
 import org.restlet.engine.security.AuthenticatorUtils;
 
 /**
- * Utilities related to URI references.
+ * Utilities related to URI references.<br>
+ * <br>
+ * The percent-encoding methods give the same results as
+ * {@link java.net.URLDecoder} and {@link java.net.URLEncoder}. For the UTF-8
+ * character set, they work directly on the characters, return the given string
+ * when nothing needs to be decoded or encoded, and avoid the character set
+ * lookups. Malformed escape sequences are left to {@link java.net.URLDecoder}
+ * so that the same exceptions are thrown.
  * 
  * @author Jerome Louvel
  */
 public class ReferenceUtils {
 
+    /** The hexadecimal digits used for percent-encoding. */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** The UTF-8 character set. */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Appends a percent-encoded byte.
+     * 
+     * @param sb
+     *            The string builder to update.
+     * @param b
+     *            The byte to encode.
+     */
+    private static void appendEscape(StringBuilder sb, int b) {
+        sb.append('%').append(HEX_DIGITS[(b >> 4) & 0x0F])
+                .append(HEX_DIGITS[b & 0x0F]);
+    }
+
+    /**
+     * Appends the percent-encoded UTF-8 bytes of a code point.
+     * 
+     * @param sb
+     *            The string builder to update.
+     * @param codePoint
+     *            The code point to encode.
+     */
+    private static void appendUtf8(StringBuilder sb, int codePoint) {
+        if (codePoint < 0x80) {
+            appendEscape(sb, codePoint);
+        } else if (codePoint < 0x800) {
+            appendEscape(sb, 0xC0 | (codePoint >> 6));
+            appendEscape(sb, 0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            appendEscape(sb, 0xE0 | (codePoint >> 12));
+            appendEscape(sb, 0x80 | ((codePoint >> 6) & 0x3F));
+            appendEscape(sb, 0x80 | (codePoint & 0x3F));
+        } else {
+            appendEscape(sb, 0xF0 | (codePoint >> 18));
+            appendEscape(sb, 0x80 | ((codePoint >> 12) & 0x3F));
+            appendEscape(sb, 0x80 | ((codePoint >> 6) & 0x3F));
+            appendEscape(sb, 0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    /**
+     * Decodes a percent-encoded string, like {@link java.net.URLDecoder}.
+     * 
+     * @param toDecode
+     *            The string to decode.
+     * @param characterSet
+     *            The supported character encoding. Set to null to leave the
+     *            string encoded.
+     * @return The decoded string.
+     * @throws UnsupportedEncodingException
+     *             If the character set isn't supported.
+     */
+    public static String decode(CharSequence toDecode,
+            CharacterSet characterSet) throws UnsupportedEncodingException {
+        String result = null;
+
+        if (characterSet == null) {
+            result = (toDecode == null) ? null : toDecode.toString();
+        } else if (!isUtf8(characterSet)) {
+            result = java.net.URLDecoder.decode(toDecode.toString(),
+                    characterSet.getName());
+        } else {
+            int length = toDecode.length();
+            int i = 0;
+            char c = 0;
+
+            // Skip the characters that don't need decoding
+            while ((i < length) && ((c = toDecode.charAt(i)) != '%')
+                    && (c != '+')) {
+                i++;
+            }
+
+            if (i == length) {
+                result = toDecode.toString();
+            } else {
+                char[] chars = new char[length];
+                byte[] bytes = null;
+                int count = 0;
+
+                for (int j = 0; j < i; j++) {
+                    chars[count++] = toDecode.charAt(j);
+                }
+
+                while ((result == null) && (i < length)) {
+                    c = toDecode.charAt(i);
+
+                    if (c == '+') {
+                        chars[count++] = ' ';
+                        i++;
+                    } else if (c == '%') {
+                        // Decode a sequence of escaped bytes
+                        int byteCount = 0;
+                        boolean ascii = true;
+
+                        if (bytes == null) {
+                            bytes = new byte[(length - i) / 3];
+                        }
+
+                        while ((result == null) && (i + 2 < length)
+                                && (toDecode.charAt(i) == '%')) {
+                            char high = toDecode.charAt(i + 1);
+                            char low = toDecode.charAt(i + 2);
+
+                            if (!isHexDigit(high) || !isHexDigit(low)) {
+                                // Let the JDK report the malformed sequence
+                                result = java.net.URLDecoder.decode(
+                                        toDecode.toString(), "UTF-8");
+                            } else {
+                                bytes[byteCount] = (byte) ((Character.digit(
+                                        high, 16) << 4) | Character.digit(low,
+                                        16));
+                                ascii = ascii && (bytes[byteCount] >= 0);
+                                byteCount++;
+                                i += 3;
+                            }
+                        }
+
+                        if ((result == null) && (i < length)
+                                && (toDecode.charAt(i) == '%')) {
+                            // Incomplete trailing escape sequence
+                            result = java.net.URLDecoder.decode(
+                                    toDecode.toString(), "UTF-8");
+                        } else if (ascii) {
+                            for (int j = 0; j < byteCount; j++) {
+                                chars[count++] = (char) bytes[j];
+                            }
+                        } else {
+                            String decoded = new String(bytes, 0, byteCount,
+                                    UTF_8);
+                            decoded.getChars(0, decoded.length(), chars, count);
+                            count += decoded.length();
+                        }
+                    } else {
+                        chars[count++] = c;
+                        i++;
+                    }
+                }
+
+                if (result == null) {
+                    result = new String(chars, 0, count);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Encodes a string, like {@link java.net.URLEncoder}. For query strings,
+     * spaces are encoded as "%20" instead of "+", '*' is encoded and '~' is
+     * left unencoded.
+     * 
+     * @param toEncode
+     *            The string to encode.
+     * @param queryString
+     *            True if the string to encode is part of a query string.
+     * @param characterSet
+     *            The supported character encoding. Set to null to leave the
+     *            string unencoded.
+     * @return The encoded string.
+     * @throws UnsupportedEncodingException
+     *             If the character set isn't supported.
+     */
+    public static String encode(CharSequence toEncode, boolean queryString,
+            CharacterSet characterSet) throws UnsupportedEncodingException {
+        String result = null;
+
+        if ((characterSet == null) || !isUtf8(characterSet)) {
+            result = (characterSet == null) ? ((toEncode == null) ? null
+                    : toEncode.toString()) : java.net.URLEncoder.encode(toEncode.toString(),
+                            characterSet.getName());
+
+            if (queryString) {
+                result = result.replace("+", "%20").replace("*", "%2A")
+                        .replace("%7E", "~");
+            }
+        } else {
+            int length = toEncode.length();
+            int i = 0;
+
+            // Skip the characters that don't need encoding
+            while ((i < length) && isUnreserved(toEncode.charAt(i), queryString)) {
+                i++;
+            }
+
+            if (i == length) {
+                result = toEncode.toString();
+            } else {
+                StringBuilder sb = new StringBuilder(length + 16);
+                sb.append(toEncode, 0, i);
+
+                for (; i < length; i++) {
+                    char c = toEncode.charAt(i);
+
+                    if (isUnreserved(c, queryString)) {
+                        sb.append(c);
+                    } else if (c == ' ') {
+                        sb.append(queryString ? "%20" : "+");
+                    } else if (Character.isHighSurrogate(c) && (i + 1 < length)
+                            && Character.isLowSurrogate(toEncode.charAt(i + 1))) {
+                        appendUtf8(sb,
+                                Character.toCodePoint(c, toEncode.charAt(++i)));
+                    } else if ((c >= Character.MIN_SURROGATE)
+                            && (c <= Character.MAX_SURROGATE)) {
+                        // Unpaired surrogates are replaced like the JDK does
+                        appendEscape(sb, '?');
+                    } else {
+                        appendUtf8(sb, c);
+                    }
+                }
+
+                result = sb.toString();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if a character is an hexadecimal digit. Unlike
+     * {@link Character#digit(char, int)}, only ASCII digits are accepted.
+     * 
+     * @param c
+     *            The character to test.
+     * @return True if the character is an hexadecimal digit.
+     */
+    private static boolean isHexDigit(char c) {
+        return ((c >= '0') && (c <= '9')) || ((c >= 'a') && (c <= 'f'))
+                || ((c >= 'A') && (c <= 'F'));
+    }
+
+    /**
+     * Indicates if a character is left unchanged by the encoding.
+     * 
+     * @param c
+     *            The character to test.
+     * @param queryString
+     *            True if the string to encode is part of a query string.
+     * @return True if the character is left unchanged.
+     */
+    private static boolean isUnreserved(char c, boolean queryString) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))
+                || ((c >= '0') && (c <= '9')) || (c == '.') || (c == '-')
+                || (c == '_') || (queryString ? (c == '~') : (c == '*'));
+    }
+
+    /**
+     * Indicates if a character set is UTF-8.
+     * 
+     * @param characterSet
+     *            The character set to test.
+     * @return True if the character set is UTF-8.
+     */
+    private static boolean isUtf8(CharacterSet characterSet) {
+        return (characterSet == CharacterSet.UTF_8)
+                || "UTF-8".equalsIgnoreCase(characterSet.getName())
+                || "UTF8".equalsIgnoreCase(characterSet.getName());
+    }
+
     /**
      * Returns the request URI.
      * 
@@ -0,0 +1,356 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.Request;
+import org.restlet.data.Reference;
+import org.restlet.routing.Route;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
+import org.restlet.routing.Variable;
+
+/**
+ * Index of a list of routes, used to avoid scoring routes that can't match a
+ * given call. The URI template of each {@link TemplateRoute} is compiled into a
+ * prefix tree made of its literal characters and of its variables of type
+ * {@link Variable#TYPE_URI_SEGMENT}. The compilation stops at the first other
+ * kind of variable, so the index only excludes routes whose template can't
+ * match the remaining part of the resource reference. The remaining candidates
+ * are then scored as usual, using the regular expression of their template.<br>
+ * <br>
+ * Routes of other classes, including subclasses of {@link TemplateRoute} that
+ * might override the scoring logic, are always candidates.<br>
+ * <br>
+ * Note that the templates are compiled when the index is created. Later changes
+ * to the pattern or to the variable descriptors of a template aren't taken
+ * into account.
+ * 
+ * @author Jerome Louvel
+ */
+public class RouteIndex {
+
+    /**
+     * Node of the prefix tree.
+     */
+    private static class Node {
+
+        /** The child nodes reached by a literal character. */
+        private Map<Character, Node> literals;
+
+        /** The positions of the routes whose compiled template ends here. */
+        private List<Integer> routes;
+
+        /** The child node reached by a URI segment variable. */
+        private Node segment;
+
+        /**
+         * Adds a route ending at this node.
+         * 
+         * @param position
+         *            The position of the route in the list.
+         */
+        private void addRoute(int position) {
+            if (this.routes == null) {
+                this.routes = new ArrayList<Integer>();
+            }
+
+            this.routes.add(position);
+        }
+
+        /**
+         * Returns the child node reached by a literal character, creating it
+         * if needed.
+         * 
+         * @param character
+         *            The literal character.
+         * @return The child node.
+         */
+        private Node getLiteral(char character) {
+            if (this.literals == null) {
+                this.literals = new HashMap<Character, Node>();
+            }
+
+            Node result = this.literals.get(character);
+
+            if (result == null) {
+                result = new Node();
+                this.literals.put(character, result);
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the child node reached by a URI segment variable, creating
+         * it if needed.
+         * 
+         * @return The child node.
+         */
+        private Node getSegment() {
+            if (this.segment == null) {
+                this.segment = new Node();
+            }
+
+            return this.segment;
+        }
+    }
+
+    /**
+     * Indicates if a route can be indexed. Only routes of the exact
+     * {@link TemplateRoute} class, with a template, can be indexed.
+     * 
+     * @param route
+     *            The route to test.
+     * @return True if the route can be indexed.
+     */
+    private static boolean isIndexable(Route route) {
+        return (route != null) && (route.getClass() == TemplateRoute.class)
+                && (((TemplateRoute) route).getTemplate() != null)
+                && (((TemplateRoute) route).getTemplate().getPattern() != null);
+    }
+
+    /** The positions of the routes that are always candidates. */
+    private final BitSet always;
+
+    /** The root node of the prefix tree. */
+    private final Node root;
+
+    /** The indexed routes. */
+    private final Route[] routes;
+
+    /** The version of the route list that was indexed. */
+    private final int version;
+
+    /**
+     * Constructor.
+     * 
+     * @param routes
+     *            The routes to index.
+     * @param version
+     *            The version of the route list that was indexed.
+     */
+    public RouteIndex(Route[] routes, int version) {
+        this.always = new BitSet(routes.length);
+        this.root = new Node();
+        this.routes = routes;
+        this.version = version;
+
+        for (int i = 0; i < routes.length; i++) {
+            if (isIndexable(routes[i])) {
+                compile(((TemplateRoute) routes[i]).getTemplate(), i);
+            } else {
+                this.always.set(i);
+            }
+        }
+    }
+
+    /**
+     * Collects the positions of the routes that might match a remaining part,
+     * starting at a given node of the prefix tree.
+     * 
+     * @param node
+     *            The current node.
+     * @param remainingPart
+     *            The remaining part to match.
+     * @param index
+     *            The index of the next character to match.
+     * @param query
+     *            Indicates if the remaining part includes the query.
+     * @param result
+     *            The positions of the candidate routes.
+     */
+    private void collect(Node node, String remainingPart, int index,
+            boolean query, BitSet result) {
+        if (node.routes != null) {
+            for (int position : node.routes) {
+                if (((TemplateRoute) this.routes[position]).isMatchingQuery() == query) {
+                    result.set(position);
+                }
+            }
+        }
+
+        if ((node.literals != null) && (index < remainingPart.length())) {
+            Node next = node.literals.get(remainingPart.charAt(index));
+
+            if (next != null) {
+                collect(next, remainingPart, index + 1, query, result);
+            }
+        }
+
+        if (node.segment != null) {
+            // A segment variable can't contain a slash or a question mark,
+            // try each possible end of the variable value
+            int end = index;
+            boolean endReached = false;
+
+            while (!endReached) {
+                collect(node.segment, remainingPart, end, query, result);
+                endReached = (end >= remainingPart.length())
+                        || (remainingPart.charAt(end) == '/')
+                        || (remainingPart.charAt(end) == '?');
+                end++;
+            }
+        }
+    }
+
+    /**
+     * Compiles a template into the prefix tree.
+     * 
+     * @param template
+     *            The template to compile.
+     * @param position
+     *            The position of the route in the list.
+     */
+    private void compile(Template template, int position) {
+        String pattern = template.getPattern();
+        List<String> variableNames = new ArrayList<String>();
+        Node node = this.root;
+        boolean afterSegment = false;
+        boolean stop = false;
+
+        for (int i = 0; !stop && (i < pattern.length()); i++) {
+            char next = pattern.charAt(i);
+
+            if (next == '{') {
+                int end = pattern.indexOf('}', i);
+                String name = (end == -1) ? null : pattern.substring(i + 1,
+                        end);
+                Variable variable = (name == null) ? null : template
+                        .getVariables().get(name);
+
+                if (variable == null) {
+                    variable = template.getDefaultVariable();
+                }
+
+                if ((name == null) || (name.length() == 0)
+                        || !isUnreserved(name)
+                        || variableNames.contains(name)
+                        || (variable.getType() != Variable.TYPE_URI_SEGMENT)
+                        || variable.isFixed()) {
+                    // Let the regular expression handle the rest
+                    stop = true;
+                } else {
+                    variableNames.add(name);
+
+                    if (!afterSegment) {
+                        // Consecutive segment variables match the same
+                        // characters as a single one
+                        node = node.getSegment();
+                        afterSegment = true;
+                    }
+
+                    i = end;
+                }
+            } else if ((next == '}') || (next == '+')) {
+                // Not a literal character once compiled to a regular
+                // expression, let it handle the rest
+                stop = true;
+            } else {
+                node = node.getLiteral(next);
+                afterSegment = false;
+            }
+        }
+
+        node.addRoute(position);
+    }
+
+    /**
+     * Returns the routes that might match a call, in their list order.
+     * 
+     * @param request
+     *            The request to match.
+     * @return The candidate routes.
+     */
+    public List<Route> getCandidates(Request request) {
+        BitSet positions = (BitSet) this.always.clone();
+        Reference resourceRef = (request == null) ? null : request
+                .getResourceRef();
+        String remainingPart = (resourceRef == null) ? null : resourceRef
+                .getRemainingPart(false, false);
+
+        if (remainingPart != null) {
+            collect(this.root, remainingPart, 0, false, positions);
+        }
+
+        remainingPart = (resourceRef == null) ? null : resourceRef
+                .getRemainingPart(false, true);
+
+        if (remainingPart != null) {
+            collect(this.root, remainingPart, 0, true, positions);
+        }
+
+        List<Route> result = new ArrayList<Route>(positions.cardinality());
+
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions
+                .nextSetBit(i + 1)) {
+            result.add(this.routes[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the version of the route list that was indexed.
+     * 
+     * @return The version of the route list that was indexed.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Indicates if a variable name only contains unreserved characters, as
+     * expected by the template parser.
+     * 
+     * @param name
+     *            The variable name.
+     * @return True if the name only contains unreserved characters.
+     */
+    private boolean isUnreserved(String name) {
+        boolean result = true;
+
+        for (int i = 0; result && (i < name.length()); i++) {
+            result = Reference.isUnreserved(name.charAt(i));
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.data.Reference;
+import org.restlet.routing.Template;
+import org.restlet.routing.Variable;
+
+/**
+ * Matcher of simple URI templates, scanning the formatted string without
+ * relying on regular expressions. Only patterns made of literal characters and
+ * of distinct variables of type {@link Variable#TYPE_URI_SEGMENT} are
+ * supported. In addition, each variable must be followed either by the end of
+ * the pattern or by a literal starting with a character that can't be part of
+ * a segment, such as '/' or '?'. In this case, the greedy regular expression
+ * produced by {@link Template} has a single way to match, and the scanning
+ * below returns exactly the same result.<br>
+ * <br>
+ * Use the {@link #compile(String, Map, Variable)} method to obtain an instance,
+ * which returns null for unsupported patterns.
+ * 
+ * @author Jerome Louvel
+ */
+public class TemplateMatcher {
+
+    /**
+     * Compiles a URI template pattern.
+     * 
+     * @param pattern
+     *            The URI template pattern.
+     * @param variables
+     *            The variable descriptors.
+     * @param defaultVariable
+     *            The default variable descriptor.
+     * @return The matcher or null if the pattern isn't supported.
+     */
+    public static TemplateMatcher compile(String pattern,
+            Map<String, Variable> variables, Variable defaultVariable) {
+        List<String> literals = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+        List<Boolean> required = new ArrayList<Boolean>();
+        StringBuilder buffer = new StringBuilder();
+        boolean inVariable = false;
+        char next;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            next = pattern.charAt(i);
+
+            if (inVariable) {
+                if (Reference.isUnreserved(next)) {
+                    buffer.append(next);
+                } else if ((next == '}') && (buffer.length() > 0)) {
+                    String name = buffer.toString();
+                    Variable variable = variables.get(name);
+
+                    if (variable == null) {
+                        variable = defaultVariable;
+                    }
+
+                    if (names.contains(name)
+                            || (variable.getType() != Variable.TYPE_URI_SEGMENT)
+                            || variable.isFixed()) {
+                        return null;
+                    }
+
+                    names.add(name);
+                    required.add(variable.isRequired());
+                    buffer = new StringBuilder();
+                    inVariable = false;
+                } else {
+                    return null;
+                }
+            } else if (next == '{') {
+                if (!names.isEmpty() && (buffer.length() == 0)) {
+                    // Consecutive variables
+                    return null;
+                }
+
+                literals.add(buffer.toString());
+                buffer = new StringBuilder();
+                inVariable = true;
+            } else if ((next == '}') || (next == '+')) {
+                // Invalid or not quoted in the regular expression
+                return null;
+            } else {
+                if (!names.isEmpty() && (buffer.length() == 0)
+                        && (isSegmentChar(next) || (next == '%'))) {
+                    // The variable would have several ways to match
+                    return null;
+                }
+
+                buffer.append(next);
+            }
+        }
+
+        if (inVariable) {
+            return null;
+        }
+
+        literals.add(buffer.toString());
+        boolean[] requiredArray = new boolean[required.size()];
+
+        for (int i = 0; i < requiredArray.length; i++) {
+            requiredArray[i] = required.get(i);
+        }
+
+        return new TemplateMatcher(literals.toArray(new String[literals
+                .size()]), names.toArray(new String[names.size()]),
+                requiredArray);
+    }
+
+    /**
+     * Indicates if a character is an hexadecimal digit.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character is an hexadecimal digit.
+     */
+    private static boolean isHexDigit(char character) {
+        return ((character >= '0') && (character <= '9'))
+                || ((character >= 'a') && (character <= 'f'))
+                || ((character >= 'A') && (character <= 'F'));
+    }
+
+    /**
+     * Indicates if a character can be part of a URI segment, excluding the
+     * percent-encoded triplets.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the character can be part of a URI segment.
+     */
+    private static boolean isSegmentChar(char character) {
+        return Reference.isUnreserved(character)
+                || Reference.isSubDelimiter(character) || (character == ':')
+                || (character == '@');
+    }
+
+    /** The literals surrounding the variables. */
+    private final String[] literals;
+
+    /** The variable names. */
+    private final String[] names;
+
+    /** Indicates which variables are required. */
+    private final boolean[] required;
+
+    /**
+     * Constructor.
+     * 
+     * @param literals
+     *            The literals surrounding the variables.
+     * @param names
+     *            The variable names.
+     * @param required
+     *            Indicates which variables are required.
+     */
+    private TemplateMatcher(String[] literals, String[] names,
+            boolean[] required) {
+        this.literals = literals;
+        this.names = names;
+        this.required = required;
+    }
+
+    /**
+     * Returns the number of variables.
+     * 
+     * @return The number of variables.
+     */
+    public int getVariableCount() {
+        return this.names.length;
+    }
+
+    /**
+     * Returns the name of a variable.
+     * 
+     * @param index
+     *            The variable index.
+     * @return The name of the variable.
+     */
+    public String getVariableName(int index) {
+        return this.names[index];
+    }
+
+    /**
+     * Matches a formatted string.
+     * 
+     * @param formattedString
+     *            The formatted string to match.
+     * @param startsWith
+     *            True if only the beginning of the string must match, false
+     *            if the whole string must match.
+     * @param bounds
+     *            The array updated with the start and end index of each
+     *            variable value, or null.
+     * @return The number of matched characters or -1 if the match failed.
+     */
+    public int match(String formattedString, boolean startsWith, int[] bounds) {
+        String literal = this.literals[0];
+
+        if (!formattedString.startsWith(literal)) {
+            return -1;
+        }
+
+        int position = literal.length();
+        int end;
+
+        for (int i = 0; i < this.names.length; i++) {
+            end = scanSegment(formattedString, position);
+
+            if (this.required[i] && (end == position)) {
+                return -1;
+            }
+
+            if (bounds != null) {
+                bounds[2 * i] = position;
+                bounds[2 * i + 1] = end;
+            }
+
+            literal = this.literals[i + 1];
+
+            if (!formattedString.startsWith(literal, end)) {
+                return -1;
+            }
+
+            position = end + literal.length();
+        }
+
+        if (!startsWith && (position != formattedString.length())) {
+            return -1;
+        }
+
+        return position;
+    }
+
+    /**
+     * Returns the end index of the URI segment starting at a given index.
+     * 
+     * @param formattedString
+     *            The string to scan.
+     * @param start
+     *            The start index.
+     * @return The end index of the segment.
+     */
+    private int scanSegment(String formattedString, int start) {
+        int length = formattedString.length();
+        int result = start;
+        char next;
+
+        while (result < length) {
+            next = formattedString.charAt(result);
+
+            if (isSegmentChar(next)) {
+                result++;
+            } else if ((next == '%') && (result + 2 < length)
+                    && isHexDigit(formattedString.charAt(result + 1))
+                    && isHexDigit(formattedString.charAt(result + 2))) {
+                result += 3;
+            } else {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Scheduled executor service running each immediate task on a new thread,
+ * typically a virtual thread, instead of a bounded pool. Delayed and periodic
+ * tasks are still run by a scheduled pool of threads created by the same
+ * factory.
+ * 
+ * @author Jerome Louvel
+ */
+public class VirtualScheduledExecutorService extends
+        WrapperScheduledExecutorService {
+
+    /** The executor service running each immediate task on a new thread. */
+    private final ExecutorService immediate;
+
+    /**
+     * Constructor.
+     * 
+     * @param corePoolSize
+     *            The number of threads of the scheduled pool.
+     * @param threadFactory
+     *            The factory of threads, typically virtual ones.
+     */
+    public VirtualScheduledExecutorService(int corePoolSize,
+            ThreadFactory threadFactory) {
+        super(new ScheduledThreadPoolExecutor(corePoolSize, threadFactory));
+        this.immediate = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0L,
+                TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(),
+                threadFactory);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return this.immediate.awaitTermination(timeout, unit)
+                && getWrapped().awaitTermination(
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        this.immediate.execute(command);
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException {
+        return this.immediate.invokeAll(tasks);
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return this.immediate.invokeAll(tasks, timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException {
+        return this.immediate.invokeAny(tasks);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks,
+            long timeout, TimeUnit unit) throws InterruptedException,
+            ExecutionException, TimeoutException {
+        return this.immediate.invokeAny(tasks, timeout, unit);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return this.immediate.isShutdown() && getWrapped().isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return this.immediate.isTerminated() && getWrapped().isTerminated();
+    }
+
+    @Override
+    public void shutdown() {
+        this.immediate.shutdown();
+        getWrapped().shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> result = new ArrayList<Runnable>(
+                this.immediate.shutdownNow());
+        result.addAll(getWrapped().shutdownNow());
+        return result;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return this.immediate.submit(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return this.immediate.submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return this.immediate.submit(task, result);
+    }
+
+}
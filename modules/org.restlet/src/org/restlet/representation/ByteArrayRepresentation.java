@@ -44,6 +44,15 @@ import org.restlet.data.MediaType;
  */
 public class ByteArrayRepresentation extends InputRepresentation {
 
+    /** The wrapped byte array. */
+    private final byte[] byteArray;
+
+    /** The length to expose inside the byte array. */
+    private final int length;
+
+    /** The offset inside the byte array. */
+    private final int offSet;
+
     /**
      * Constructor.
      * 
@@ -51,7 +60,7 @@ public class ByteArrayRepresentation extends InputRepresentation {
      *            The byte array to wrap.
      */
     public ByteArrayRepresentation(byte[] byteArray) {
-        super(new ByteArrayInputStream(byteArray));
+        this(byteArray, 0, byteArray.length);
     }
 
     /**
@@ -64,7 +73,7 @@ public class ByteArrayRepresentation extends InputRepresentation {
      *            The length to expose inside the byte array.
      */
     public ByteArrayRepresentation(byte[] byteArray, int offSet, int length) {
-        super(new ByteArrayInputStream(byteArray, offSet, length));
+        this(byteArray, offSet, length, null);
     }
 
     /**
@@ -79,7 +88,7 @@ public class ByteArrayRepresentation extends InputRepresentation {
      */
     public ByteArrayRepresentation(byte[] byteArray, int offSet, int length,
             MediaType mediaType) {
-        super(new ByteArrayInputStream(byteArray, offSet, length), mediaType);
+        this(byteArray, offSet, length, mediaType, length);
     }
 
     /**
@@ -98,6 +107,9 @@ public class ByteArrayRepresentation extends InputRepresentation {
             MediaType mediaType, long expectedSize) {
         super(new ByteArrayInputStream(byteArray, offSet, length), mediaType,
                 expectedSize);
+        this.byteArray = byteArray;
+        this.offSet = offSet;
+        this.length = length;
     }
 
     /**
@@ -109,7 +121,7 @@ public class ByteArrayRepresentation extends InputRepresentation {
      *            The media type.
      */
     public ByteArrayRepresentation(byte[] byteArray, MediaType mediaType) {
-        super(new ByteArrayInputStream(byteArray), mediaType);
+        this(byteArray, 0, byteArray.length, mediaType);
     }
 
     /**
@@ -122,7 +134,20 @@ public class ByteArrayRepresentation extends InputRepresentation {
      */
     public ByteArrayRepresentation(byte[] byteArray, MediaType mediaType,
             long expectedSize) {
-        super(new ByteArrayInputStream(byteArray), mediaType, expectedSize);
+        this(byteArray, 0, byteArray.length, mediaType, expectedSize);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns a read-only byte buffer wrapping the exposed part of the byte
+     * array. This allows connectors to write the content without copying it
+     * and independently of the content stream.
+     * 
+     * @return A read-only byte buffer wrapping the byte array.
+     */
+    public java.nio.ByteBuffer getByteBuffer() {
+        return java.nio.ByteBuffer.wrap(this.byteArray, this.offSet,
+                this.length).asReadOnlyBuffer();
     }
 
 }
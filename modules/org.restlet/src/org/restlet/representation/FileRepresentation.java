@@ -114,9 +114,28 @@ public class FileRepresentation extends Representation {
      *            The time to live before it expires (in seconds).
      */
     public FileRepresentation(File file, MediaType mediaType, int timeToLive) {
+        this(file, mediaType, timeToLive, new Date(file.lastModified()));
+    }
+
+    /**
+     * Constructor with a known modification date, for example taken from a
+     * cache, which avoids checking the file system.
+     * 
+     * @param file
+     *            The represented file.
+     * @param mediaType
+     *            The representation's media type.
+     * @param timeToLive
+     *            The time to live before it expires (in seconds).
+     * @param modificationDate
+     *            The modification date of the file.
+     * @see #FileRepresentation(File, MediaType, int)
+     */
+    public FileRepresentation(File file, MediaType mediaType, int timeToLive,
+            Date modificationDate) {
         super(mediaType);
         this.file = file;
-        setModificationDate(new Date(file.lastModified()));
+        setModificationDate(modificationDate);
 
         if (timeToLive == 0) {
             setExpirationDate(null);
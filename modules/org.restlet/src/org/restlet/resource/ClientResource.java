@@ -176,6 +176,10 @@ public class ClientResource extends Resource {
     /** Indicates if idempotent requests should be retried on error. */
     private volatile boolean retryOnError;
 
+    // [ifndef gwt] member
+    /** The optional policy controlling the retry attempts. */
+    private volatile org.restlet.util.RetryPolicy retryPolicy;
+
     /**
      * Empty constructor.
      */
@@ -201,6 +205,7 @@ public class ClientResource extends Resource {
         this.followingRedirects = resource.isFollowingRedirects();
         this.requestEntityBuffering = resource.isRequestEntityBuffering();
         this.responseEntityBuffering = resource.isResponseEntityBuffering();
+        this.retryPolicy = resource.getRetryPolicy();
         setApplication(resource.getApplication());
         // [enddef]
         init(resource.getContext(), request, response);
@@ -572,6 +577,68 @@ public class ClientResource extends Resource {
         return new Response(request);
     }
 
+    // [ifndef gwt] method
+    /**
+     * Creates a callback wrapping the one of an asynchronous request. When a
+     * retry attempt is needed, it is scheduled on the executor service
+     * returned by {@link #getRetryExecutorService()}, otherwise the wrapped
+     * callback is invoked.
+     * 
+     * @param callback
+     *            The callback to wrap.
+     * @param references
+     *            The references that caused a redirection to prevent infinite
+     *            loops.
+     * @param retryAttempt
+     *            The number of remaining attempts.
+     * @param next
+     *            The next handler handling the call.
+     * @return The wrapping callback.
+     */
+    private Uniform createRetryCallback(final Uniform callback,
+            final List<Reference> references, final int retryAttempt,
+            final Uniform next) {
+        return new Uniform() {
+            public void handle(final Request request, final Response response) {
+                final org.restlet.util.RetryPolicy policy = getRetryPolicy();
+                boolean scheduled = false;
+                request.setOnResponse(callback);
+
+                if ((policy != null)
+                        && isRetrying(request, response, retryAttempt)
+                        && policy.acquire(request)) {
+                    long delay = policy.getDelay(getRetryDelay(),
+                            retryAttempt + 1);
+                    getLogger().log(
+                            Level.INFO,
+                            "A recoverable error was detected ("
+                                    + response.getStatus().getCode()
+                                    + "), attempting again in " + delay
+                                    + " ms.");
+
+                    try {
+                        getRetryExecutorService().schedule(new Runnable() {
+                            public void run() {
+                                policy.release(request);
+                                ClientResource.this.handle(request, response,
+                                        references, retryAttempt + 1, next);
+                            }
+                        }, delay, java.util.concurrent.TimeUnit.MILLISECONDS);
+                        scheduled = true;
+                    } catch (java.util.concurrent.RejectedExecutionException ree) {
+                        getLogger().log(Level.FINE,
+                                "Unable to schedule a retry attempt", ree);
+                        policy.release(request);
+                    }
+                }
+
+                if (!scheduled && (callback != null)) {
+                    callback.handle(request, response);
+                }
+            }
+        };
+    }
+
     /**
      * Deletes the target resource and all its representations. If a success
      * status is not returned, then a resource exception is thrown.
@@ -942,6 +1009,32 @@ public class ClientResource extends Resource {
         return retryDelay;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Returns the executor service scheduling the asynchronous retry attempts.
+     * By default, it returns the executor service of the context, if any.
+     * 
+     * @return The executor service scheduling the retry attempts or null.
+     */
+    protected java.util.concurrent.ScheduledExecutorService getRetryExecutorService() {
+        return (getContext() == null) ? null : getContext()
+                .getExecutorService();
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns the optional policy controlling the retry attempts. When set,
+     * the delay between two attempts grows according to the policy and the
+     * number of pending retries per host is limited. For asynchronous calls,
+     * the retry attempts are also scheduled on the executor service of the
+     * context instead of being ignored. Default value is null.
+     * 
+     * @return The policy controlling the retry attempts or null.
+     */
+    public org.restlet.util.RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     /**
      * Handles the call by invoking the next handler. The prototype request is
      * retrieved via {@link #getRequest()} and cloned and the response is set as
@@ -1143,15 +1236,24 @@ public class ClientResource extends Resource {
             }
             // [enddef]
 
+            boolean retryScheduled = false;
+            // [ifndef gwt]
+            // Check if asynchronous retry attempts must be scheduled
+            if (request.isAsynchronous() && isRetryOnError()
+                    && (getRetryPolicy() != null)
+                    && (getRetryExecutorService() != null)) {
+                request.setOnResponse(createRetryCallback(
+                        request.getOnResponse(), references, retryAttempt,
+                        next));
+                retryScheduled = true;
+            }
+            // [enddef]
+
             // Actually handle the call
             next.handle(request, response);
 
-            if (isRetryOnError()
-                    && response.getStatus().isRecoverableError()
-                    && request.getMethod().isIdempotent()
-                    && (retryAttempt < getRetryAttempts())
-                    && ((request.getEntity() == null) || request.getEntity()
-                            .isAvailable())) {
+            if (!retryScheduled
+                    && isRetrying(request, response, retryAttempt)) {
                 retry(request, response, references, retryAttempt, next);
             }
             // [ifndef gwt]
@@ -1341,6 +1443,29 @@ public class ClientResource extends Resource {
         return responseEntityBuffering;
     }
 
+    /**
+     * Indicates if a call should be retried, based on the response status,
+     * the request method, the number of attempts and the availability of the
+     * request entity.
+     * 
+     * @param request
+     *            The request sent.
+     * @param response
+     *            The response received.
+     * @param retryAttempt
+     *            The number of remaining attempts.
+     * @return True if the call should be retried.
+     */
+    private boolean isRetrying(Request request, Response response,
+            int retryAttempt) {
+        return isRetryOnError()
+                && response.getStatus().isRecoverableError()
+                && request.getMethod().isIdempotent()
+                && (retryAttempt < getRetryAttempts())
+                && ((request.getEntity() == null) || request.getEntity()
+                        .isAvailable());
+    }
+
     /**
      * Indicates if idempotent requests should be retried on error. Default
      * value is true.
@@ -1702,17 +1827,35 @@ public class ClientResource extends Resource {
      */
     protected void retry(Request request, Response response,
             List<Reference> references, int retryAttempt, Uniform next) {
+        long delay = getRetryDelay();
+        // [ifndef gwt]
+        org.restlet.util.RetryPolicy policy = getRetryPolicy();
+
+        if (policy != null) {
+            if (!policy.acquire(request)) {
+                getLogger().log(
+                        Level.FINE,
+                        "A recoverable error was detected ("
+                                + response.getStatus().getCode()
+                                + ") but the retry budget of the host is exhausted.");
+                return;
+            }
+
+            delay = policy.getDelay(getRetryDelay(), retryAttempt + 1);
+        }
+        // [enddef]
+
         getLogger().log(
                 Level.INFO,
                 "A recoverable error was detected ("
                         + response.getStatus().getCode()
-                        + "), attempting again in " + getRetryDelay() + " ms.");
+                        + "), attempting again in " + delay + " ms.");
 
         // Wait before attempting again
-        if (getRetryDelay() > 0) {
+        if (delay > 0) {
             // [ifndef gwt]
             try {
-                Thread.sleep(getRetryDelay());
+                Thread.sleep(delay);
             } catch (InterruptedException e) {
                 getLogger().log(Level.FINE,
                         "Retry delay sleep was interrupted", e);
@@ -1727,6 +1870,12 @@ public class ClientResource extends Resource {
             // [enddef]
         }
 
+        // [ifndef gwt]
+        if (policy != null) {
+            policy.release(request);
+        }
+        // [enddef]
+
         // Retry the call
         handle(request, response, references, ++retryAttempt, next);
     }
@@ -2103,6 +2252,19 @@ public class ClientResource extends Resource {
         this.retryOnError = retryOnError;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Sets the optional policy controlling the retry attempts.
+     * 
+     * @param retryPolicy
+     *            The policy controlling the retry attempts or null.
+     * @see #getRetryPolicy()
+     */
+    public void setRetryPolicy(
+            org.restlet.util.RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     // [ifndef gwt] method
     /**
      * Wraps the client resource to proxy calls to the given Java interface into
@@ -115,6 +115,13 @@ public class Directory extends Finder {
     /** Indicates if the best content is automatically negotiated. */
     private volatile boolean negotiatingContent;
 
+    /**
+     * Indicates if pre-compressed siblings of files, such as "foo.css.gz" for
+     * "foo.css", are served to clients accepting the GZip encoding (false by
+     * default).
+     */
+    private volatile boolean precompressedServed;
+
     /** The absolute root reference (file, clap URI). */
     private volatile Reference rootRef;
 
@@ -148,6 +155,7 @@ public class Directory extends Finder {
         this.listingAllowed = false;
         this.modifiable = false;
         this.negotiatingContent = true;
+        this.precompressedServed = false;
         setTargetClass(DirectoryServerResource.class);
     }
 
@@ -287,6 +295,19 @@ public class Directory extends Finder {
         return this.negotiatingContent;
     }
 
+    /**
+     * Indicates if pre-compressed siblings of files, such as "foo.css.gz" for
+     * "foo.css", are served to clients accepting the GZip encoding. The sibling
+     * is only used if it isn't older than the original file. In this mode, the
+     * siblings aren't considered as variants of their own. Default value is
+     * false.
+     * 
+     * @return True if pre-compressed siblings are served.
+     */
+    public boolean isPrecompressedServed() {
+        return this.precompressedServed;
+    }
+
     /**
      * Sets the reference comparator used to sort index pages.
      * 
@@ -350,6 +371,17 @@ public class Directory extends Finder {
         this.negotiatingContent = negotiatingContent;
     }
 
+    /**
+     * Indicates if pre-compressed siblings of files, such as "foo.css.gz" for
+     * "foo.css", are served to clients accepting the GZip encoding.
+     * 
+     * @param precompressedServed
+     *            True if pre-compressed siblings are served.
+     */
+    public void setPrecompressedServed(boolean precompressedServed) {
+        this.precompressedServed = precompressedServed;
+    }
+
     /**
      * Sets the root URI from which the relative resource URIs will be lookep
      * up.
@@ -33,8 +33,12 @@
 
 package org.restlet.routing;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
+import org.restlet.Application;
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
@@ -43,6 +47,7 @@ import org.restlet.data.Status;
 import org.restlet.resource.Directory;
 import org.restlet.resource.Finder;
 import org.restlet.resource.ServerResource;
+import org.restlet.util.RetryPolicy;
 import org.restlet.util.RouteList;
 
 /**
@@ -68,6 +73,19 @@ import org.restlet.util.RouteList;
  * patterns. Finally, you can modify the list of routes while handling incoming
  * calls as the delegation code is ensured to be thread-safe.<br>
  * <br>
+ * When many routes are attached, the indexing of routes can be enabled with
+ * {@link #setIndexing(boolean)}. In the best, first and last match modes, only
+ * the routes whose URI template might match the remaining part of the resource
+ * reference are then scored. See {@link RouteList#getIndex()} for details.<br>
+ * <br>
+ * When several attempts are allowed with {@link #setMaxAttempts(int)}, the
+ * current thread sleeps between two attempts by default. If a
+ * {@link RetryPolicy} is set and the context provides an executor service, the
+ * next attempts are instead scheduled on this executor service, releasing the
+ * current thread, and the response is committed asynchronously. The policy
+ * also controls the backoff of the delays and the budget of pending retry
+ * attempts per host.<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -145,6 +163,9 @@ public class Router extends Restlet {
     /** The default route tested if no other one was available. */
     private volatile Route defaultRoute;
 
+    /** Indicates if the routes should be indexed. */
+    private volatile boolean indexing;
+
     /**
      * The maximum number of attempts if no attachment could be matched on the
      * first attempt.
@@ -157,6 +178,9 @@ public class Router extends Restlet {
     /** The delay (in milliseconds) before a new attempt. */
     private volatile long retryDelay;
 
+    /** The optional policy controlling the retry attempts. */
+    private volatile RetryPolicy retryPolicy;
+
     /** The modifiable list of routes. */
     private volatile RouteList routes;
 
@@ -185,10 +209,12 @@ public class Router extends Restlet {
         this.defaultMatchingMode = Template.MODE_EQUALS;
         this.defaultMatchingQuery = false;
         this.defaultRoute = null;
+        this.indexing = false;
         this.routingMode = MODE_FIRST_MATCH;
         this.requiredScore = 0.5F;
         this.maxAttempts = 1;
         this.retryDelay = 500L;
+        this.retryPolicy = null;
     }
 
     /**
@@ -532,46 +558,32 @@ public class Router extends Restlet {
                 // Before attempting another time, let's
                 // sleep during the "retryDelay" set.
                 try {
-                    Thread.sleep(getRetryDelay());
+                    Thread.sleep(getRetryDelay(i));
                 } catch (InterruptedException e) {
                 }
             }
 
-            if (this.routes != null) {
-                // Select the routing mode
-                switch (getRoutingMode()) {
-                case MODE_BEST_MATCH:
-                    result = getRoutes().getBest(request, response,
-                            getRequiredScore());
-                    break;
-
-                case MODE_FIRST_MATCH:
-                    result = getRoutes().getFirst(request, response,
-                            getRequiredScore());
-                    break;
-
-                case MODE_LAST_MATCH:
-                    result = getRoutes().getLast(request, response,
-                            getRequiredScore());
-                    break;
-
-                case MODE_NEXT_MATCH:
-                    result = getRoutes().getNext(request, response,
-                            getRequiredScore());
-                    break;
-
-                case MODE_RANDOM_MATCH:
-                    result = getRoutes().getRandom(request, response,
-                            getRequiredScore());
-                    break;
-
-                case MODE_CUSTOM:
-                    result = getCustom(request, response);
-                    break;
-                }
-            }
+            result = getRoute(request, response);
         }
 
+        return getNext(result, request, response);
+    }
+
+    /**
+     * Returns the next Restlet given the route matched, if any. If no route
+     * was matched, the default route is tested.
+     * 
+     * @param route
+     *            The route matched or null.
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @return The next Restlet if available or null.
+     */
+    private Restlet getNext(Route route, Request request, Response response) {
+        Route result = route;
+
         if (result == null) {
             // If nothing matched in the routes list,
             // check the default route
@@ -611,6 +623,81 @@ public class Router extends Restlet {
         return this.retryDelay;
     }
 
+    /**
+     * Returns the delay in milliseconds before a given retry attempt. By
+     * default, it returns {@link #getRetryDelay()}, adjusted by the retry
+     * policy if one is set.
+     * 
+     * @param attempt
+     *            The index of the retry attempt, starting at 1.
+     * @return The delay in milliseconds before the retry attempt.
+     */
+    protected long getRetryDelay(int attempt) {
+        RetryPolicy policy = getRetryPolicy();
+        return (policy == null) ? getRetryDelay() : policy.getDelay(
+                getRetryDelay(), attempt);
+    }
+
+    /**
+     * Returns the optional policy controlling the retry attempts. By default,
+     * it returns null.
+     * 
+     * @return The policy controlling the retry attempts or null.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return this.retryPolicy;
+    }
+
+    /**
+     * Returns the route matched by a single attempt, according to the routing
+     * mode.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @return The route matched or null.
+     */
+    private Route getRoute(Request request, Response response) {
+        Route result = null;
+
+        if (this.routes != null) {
+            // Select the routing mode
+            switch (getRoutingMode()) {
+            case MODE_BEST_MATCH:
+                result = getRoutes().getBest(request, response,
+                        getRequiredScore(), isIndexing());
+                break;
+
+            case MODE_FIRST_MATCH:
+                result = getRoutes().getFirst(request, response,
+                        getRequiredScore(), isIndexing());
+                break;
+
+            case MODE_LAST_MATCH:
+                result = getRoutes().getLast(request, response,
+                        getRequiredScore(), isIndexing());
+                break;
+
+            case MODE_NEXT_MATCH:
+                result = getRoutes().getNext(request, response,
+                        getRequiredScore());
+                break;
+
+            case MODE_RANDOM_MATCH:
+                result = getRoutes().getRandom(request, response,
+                        getRequiredScore());
+                break;
+
+            case MODE_CUSTOM:
+                result = getCustom(request, response);
+                break;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the modifiable list of routes. Creates a new instance if no one
      * has been set.
@@ -642,13 +729,109 @@ public class Router extends Restlet {
     @Override
     public void handle(Request request, Response response) {
         super.handle(request, response);
-        Restlet next = getNext(request, response);
+        ScheduledExecutorService executor = (getContext() == null) ? null
+                : getContext().getExecutorService();
 
-        if (next != null) {
-            doHandle(next, request, response);
+        if ((getRetryPolicy() != null) && (getMaxAttempts() > 1)
+                && (executor != null)) {
+            handle(request, response, 0, executor);
         } else {
-            response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+            Restlet next = getNext(request, response);
+
+            if (next != null) {
+                doHandle(next, request, response);
+            } else {
+                response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+            }
+        }
+    }
+
+    /**
+     * Handles a call attempt. If no route matches and the retry policy allows
+     * it, the next attempt is scheduled on the executor service and the
+     * response won't be automatically committed.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @param attempt
+     *            The index of the attempt, starting at 0.
+     * @param executor
+     *            The executor service scheduling the next attempts.
+     */
+    private void handle(final Request request, final Response response,
+            final int attempt, final ScheduledExecutorService executor) {
+        final Application application = Application.getCurrent();
+        Route route = getRoute(request, response);
+        boolean scheduled = false;
+
+        if ((route == null) && (attempt + 1 < getMaxAttempts())) {
+            final RetryPolicy policy = getRetryPolicy();
+
+            if ((policy != null) && policy.acquire(request)) {
+                response.setAutoCommitting(false);
+
+                try {
+                    executor.schedule(new Runnable() {
+                        public void run() {
+                            policy.release(request);
+                            Application.setCurrent(application);
+                            Response.setCurrent(response);
+
+                            if (getContext() != null) {
+                                Context.setCurrent(getContext());
+                            }
+
+                            response.setAutoCommitting(true);
+
+                            try {
+                                handle(request, response, attempt + 1,
+                                        executor);
+                            } catch (Throwable t) {
+                                getLogger().log(Level.WARNING,
+                                        "Unable to handle a retry attempt", t);
+                                response.setStatus(Status.SERVER_ERROR_INTERNAL,
+                                        t);
+                            } finally {
+                                if (response.isAutoCommitting()
+                                        && !response.isCommitted()) {
+                                    response.commit();
+                                }
+                            }
+                        }
+                    }, getRetryDelay(attempt + 1), TimeUnit.MILLISECONDS);
+                    scheduled = true;
+                } catch (RejectedExecutionException ree) {
+                    getLogger().log(Level.FINE,
+                            "Unable to schedule a retry attempt", ree);
+                    policy.release(request);
+                    response.setAutoCommitting(true);
+                }
+            }
         }
+
+        if (!scheduled) {
+            Restlet next = getNext(route, request, response);
+
+            if (next != null) {
+                doHandle(next, request, response);
+            } else {
+                response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+            }
+        }
+    }
+
+    /**
+     * Indicates if the routes should be indexed. In the best, first and last
+     * match modes, only the routes whose URI template might match the remaining
+     * part of the resource reference are then scored. By default, it returns
+     * false.
+     * 
+     * @return True if the routes should be indexed.
+     */
+    public boolean isIndexing() {
+        return indexing;
     }
 
     /**
@@ -758,6 +941,19 @@ public class Router extends Restlet {
         this.defaultRoute = defaultRoute;
     }
 
+    /**
+     * Indicates if the routes should be indexed. In the best, first and last
+     * match modes, only the routes whose URI template might match the remaining
+     * part of the resource reference are then scored. The routing result is
+     * unchanged.
+     * 
+     * @param indexing
+     *            True if the routes should be indexed.
+     */
+    public void setIndexing(boolean indexing) {
+        this.indexing = indexing;
+    }
+
     /**
      * Sets the maximum number of attempts if no attachment could be matched on
      * the first attempt. This is useful when the attachment scoring is dynamic
@@ -792,6 +988,18 @@ public class Router extends Restlet {
         this.retryDelay = retryDelay;
     }
 
+    /**
+     * Sets the optional policy controlling the retry attempts. When set and
+     * the context provides an executor service, the retry attempts are
+     * scheduled instead of blocking the current thread.
+     * 
+     * @param retryPolicy
+     *            The policy controlling the retry attempts or null.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     /**
      * Sets the modifiable list of routes.
      * 
@@ -46,6 +46,7 @@ import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Reference;
+import org.restlet.engine.util.TemplateMatcher;
 import org.restlet.util.Resolver;
 
 /**
@@ -58,6 +59,11 @@ import org.restlet.util.Resolver;
  * Note that the variable descriptors can be changed before the first parsing or
  * matching call. After that point, changes won't be taken into account.<br>
  * <br>
+ * Simple patterns, only made of literals and of URI segment variables (see
+ * {@link Variable#TYPE_URI_SEGMENT}) separated by characters such as '/', are
+ * matched and parsed by directly scanning the formatted string. Other patterns
+ * are compiled into a regular expression.<br>
+ * <br>
  * Format and parsing methods are specially available to deal with requests and
  * response. See {@link #format(Request, Response)} and
  * {@link #parse(String, Request)}.
@@ -255,6 +261,12 @@ public class Template {
     /** The pattern to use for formatting or parsing. */
     private volatile String pattern;
 
+    /** The matcher of simple patterns or null. */
+    private volatile TemplateMatcher patternMatcher;
+
+    /** Indicates if the pattern has been checked for the simple matcher. */
+    private volatile boolean patternMatcherChecked;
+
     /** The internal Regex pattern. */
     private volatile Pattern regexPattern;
 
@@ -492,6 +504,26 @@ public class Template {
         return this.pattern;
     }
 
+    /**
+     * Returns the matcher of simple patterns, without regular expressions.
+     * 
+     * @return The matcher of simple patterns or null if the pattern requires
+     *         a regular expression.
+     */
+    private TemplateMatcher getPatternMatcher() {
+        if (!this.patternMatcherChecked) {
+            synchronized (this) {
+                if (!this.patternMatcherChecked) {
+                    this.patternMatcher = TemplateMatcher.compile(getPattern(),
+                            getVariables(), getDefaultVariable());
+                    this.patternMatcherChecked = true;
+                }
+            }
+        }
+
+        return this.patternMatcher;
+    }
+
     /**
      * Compiles the URI pattern into a Regex pattern.
      * 
@@ -672,6 +704,16 @@ public class Template {
         return this.encodingVariables;
     }
 
+    /**
+     * Indicates if the matching mode is one of the supported modes.
+     * 
+     * @return True if the matching mode is supported.
+     */
+    private boolean isValidMatchingMode() {
+        return (getMatchingMode() == MODE_EQUALS)
+                || (getMatchingMode() == MODE_STARTS_WITH);
+    }
+
     /**
      * Indicates if the current pattern matches the given formatted string.
      * 
@@ -681,9 +723,14 @@ public class Template {
      */
     public int match(String formattedString) {
         int result = -1;
+        TemplateMatcher patternMatcher = getPatternMatcher();
 
-        try {
-            if (formattedString != null) {
+        if ((formattedString != null) && (patternMatcher != null)
+                && isValidMatchingMode()) {
+            result = patternMatcher.match(formattedString,
+                    getMatchingMode() == MODE_STARTS_WITH, null);
+        } else if (formattedString != null) {
+            try {
                 final Matcher matcher = getRegexPattern().matcher(
                         formattedString);
 
@@ -693,11 +740,11 @@ public class Template {
                         && matcher.lookingAt()) {
                     result = matcher.end();
                 }
+            } catch (StackOverflowError soe) {
+                getLogger().warning(
+                        "StackOverflowError exception encountered while matching this string : "
+                                + formattedString);
             }
-        } catch (StackOverflowError soe) {
-            getLogger().warning(
-                    "StackOverflowError exception encountered while matching this string : "
-                            + formattedString);
         }
 
         return result;
@@ -740,8 +787,23 @@ public class Template {
     public int parse(String formattedString, Map<String, Object> variables,
             boolean loggable) {
         int result = -1;
-
-        if (formattedString != null) {
+        TemplateMatcher patternMatcher = getPatternMatcher();
+
+        if ((formattedString != null) && (patternMatcher != null)
+                && isValidMatchingMode()) {
+            int[] bounds = new int[2 * patternMatcher.getVariableCount()];
+            result = patternMatcher.match(formattedString,
+                    getMatchingMode() == MODE_STARTS_WITH, bounds);
+
+            if (result != -1) {
+                for (int i = 0; i < patternMatcher.getVariableCount(); i++) {
+                    updateVariable(variables,
+                            patternMatcher.getVariableName(i), formattedString
+                                    .substring(bounds[2 * i],
+                                            bounds[2 * i + 1]), loggable);
+                }
+            }
+        } else if (formattedString != null) {
             try {
                 Matcher matcher = getRegexPattern().matcher(formattedString);
                 boolean matched = ((getMatchingMode() == MODE_EQUALS) && matcher
@@ -754,26 +816,9 @@ public class Template {
                     result = matcher.end();
 
                     // Update the attributes with the variables value
-                    String attributeName = null;
-                    String attributeValue = null;
-
                     for (int i = 0; i < getRegexVariables().size(); i++) {
-                        attributeName = getRegexVariables().get(i);
-                        attributeValue = matcher.group(i + 1);
-                        Variable var = getVariables().get(attributeName);
-
-                        if ((var != null) && var.isDecodingOnParse()) {
-                            attributeValue = Reference.decode(attributeValue);
-                        }
-
-                        if (loggable) {
-                            getLogger().fine(
-                                    "Template variable \"" + attributeName
-                                            + "\" matched with value \""
-                                            + attributeValue + "\"");
-                        }
-
-                        variables.put(attributeName, attributeValue);
+                        updateVariable(variables, getRegexVariables().get(i),
+                                matcher.group(i + 1), loggable);
                     }
                 }
             } catch (StackOverflowError soe) {
@@ -901,6 +946,8 @@ public class Template {
     public void setPattern(String pattern) {
         this.pattern = pattern;
         this.regexPattern = null;
+        this.patternMatcher = null;
+        this.patternMatcherChecked = false;
     }
 
     /**
@@ -921,4 +968,34 @@ public class Template {
         }
     }
 
+    /**
+     * Updates the map of variables with a parsed value.
+     * 
+     * @param variables
+     *            The map of variables to update.
+     * @param attributeName
+     *            The variable name.
+     * @param attributeValue
+     *            The parsed value.
+     * @param loggable
+     *            True if the parsing should be logged.
+     */
+    private void updateVariable(Map<String, Object> variables,
+            String attributeName, String attributeValue, boolean loggable) {
+        Variable var = getVariables().get(attributeName);
+
+        if ((var != null) && var.isDecodingOnParse()) {
+            attributeValue = Reference.decode(attributeValue);
+        }
+
+        if (loggable) {
+            getLogger().fine(
+                    "Template variable \"" + attributeName
+                            + "\" matched with value \"" + attributeValue
+                            + "\"");
+        }
+
+        variables.put(attributeName, attributeValue);
+    }
+
 }
@@ -33,23 +33,56 @@
 
 package org.restlet.service;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.restlet.Request;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Metadata;
+import org.restlet.data.Preference;
 import org.restlet.engine.application.Conneg;
 import org.restlet.engine.application.FlexibleConneg;
 import org.restlet.engine.application.StrictConneg;
+import org.restlet.engine.resource.VariantInfo;
 import org.restlet.representation.Variant;
 
 /**
  * Application service negotiating the preferred resource variants. This service
  * is leveraged by server-side and client-side content negotiation, annotated
- * method dispatching, and so on.
+ * method dispatching, and so on.<br>
+ * <br>
+ * As clients usually send a small number of distinct preference combinations,
+ * the results of negotiations are kept in a bounded concurrent cache, read
+ * without locking. Once the cache is full, an arbitrary entry is evicted for
+ * each new result. The cache key is a fingerprint of the accepted client
+ * preferences, of the metadata consulted for each variant and of the default
+ * metadata. Each entry records the index of the preferred variant, which is
+ * valid for any list of variants having the same fingerprint. See the
+ * {@link #setCacheSize(int)} method to disable it.
  * 
  * @author Jerome Louvel
  */
 public class ConnegService extends Service {
 
+    /** The default maximum number of cached negotiation results. */
+    public static final int DEFAULT_CACHE_SIZE = 128;
+
+    /** The cached negotiation results. */
+    private final ConcurrentMap<List<Object>, Integer> cache;
+
+    /** The number of negotiations answered by the cache. */
+    private final AtomicLong cacheHits;
+
+    /** The number of negotiations that had to be computed. */
+    private final AtomicLong cacheMisses;
+
+    /** The maximum number of cached negotiation results. */
+    private volatile int cacheSize;
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -72,6 +105,142 @@ public class ConnegService extends Service {
     public ConnegService(boolean enabled) {
         super(enabled);
         this.strict = false;
+        this.cacheSize = DEFAULT_CACHE_SIZE;
+        this.cacheHits = new AtomicLong();
+        this.cacheMisses = new AtomicLong();
+        this.cache = new ConcurrentHashMap<List<Object>, Integer>();
+    }
+
+    /**
+     * Adds the metadata of a variant to the fingerprint, preceded by their
+     * number so that consecutive lists can't be confused.
+     * 
+     * @param key
+     *            The fingerprint to update.
+     * @param metadata
+     *            The metadata to add.
+     */
+    private void addMetadata(List<Object> key,
+            List<? extends Metadata> metadata) {
+        key.add(metadata.size());
+
+        for (int i = 0; i < metadata.size(); i++) {
+            key.add(metadata.get(i));
+        }
+    }
+
+    /**
+     * Adds the metadata and quality of each preference to the fingerprint.
+     * 
+     * @param key
+     *            The fingerprint to update.
+     * @param preferences
+     *            The preferences to add.
+     */
+    private <T extends Metadata> void addPreferences(List<Object> key,
+            List<Preference<T>> preferences) {
+        key.add(preferences.size());
+
+        for (Preference<T> preference : preferences) {
+            key.add(preference.getMetadata());
+            key.add(preference.getQuality());
+        }
+    }
+
+    /**
+     * Clears the cached negotiation results and resets the hit and miss
+     * counters.
+     */
+    public void clearCache() {
+        this.cache.clear();
+
+        this.cacheHits.set(0);
+        this.cacheMisses.set(0);
+    }
+
+    /**
+     * Returns the number of negotiations answered by the cache.
+     * 
+     * @return The number of negotiations answered by the cache.
+     */
+    public long getCacheHits() {
+        return this.cacheHits.get();
+    }
+
+    /**
+     * Returns the fingerprint of a negotiation, covering all the inputs of the
+     * conneg algorithms.
+     * 
+     * @param variants
+     *            The list of variants to compare.
+     * @param request
+     *            The request including client preferences.
+     * @param metadataService
+     *            The metadata service used to get default metadata values.
+     * @return The fingerprint of the negotiation.
+     */
+    private List<Object> getCacheKey(List<? extends Variant> variants,
+            Request request, MetadataService metadataService) {
+        List<Object> result = new ArrayList<Object>(32 + 8 * variants.size());
+        ClientInfo clientInfo = request.getClientInfo();
+        boolean annotated = false;
+        result.add(isStrict());
+
+        if (metadataService != null) {
+            result.add(metadataService.getDefaultCharacterSet());
+            result.add(metadataService.getDefaultEncoding());
+            result.add(metadataService.getDefaultLanguage());
+            result.add(metadataService.getDefaultMediaType());
+        }
+
+        addPreferences(result, clientInfo.getAcceptedCharacterSets());
+        addPreferences(result, clientInfo.getAcceptedEncodings());
+        addPreferences(result, clientInfo.getAcceptedLanguages());
+        addPreferences(result, clientInfo.getAcceptedMediaTypes());
+
+        for (Variant variant : variants) {
+            result.add(variant.getCharacterSet());
+            addMetadata(result, variant.getEncodings());
+            addMetadata(result, variant.getLanguages());
+            result.add(variant.getMediaType());
+
+            if (variant instanceof VariantInfo) {
+                VariantInfo variantInfo = (VariantInfo) variant;
+                result.add(variantInfo.getAnnotationInfo());
+                result.add(variantInfo.getInputScore());
+                annotated = true;
+            } else {
+                result.add(null);
+            }
+        }
+
+        if (annotated) {
+            // The annotation scores depend on the query string
+            result.add((request.getResourceRef() == null) ? null : request
+                    .getResourceRef().getQuery());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of negotiations that had to be computed while the
+     * cache was enabled.
+     * 
+     * @return The number of negotiations that had to be computed.
+     */
+    public long getCacheMisses() {
+        return this.cacheMisses.get();
+    }
+
+    /**
+     * Returns the maximum number of cached negotiation results. Value is 128
+     * by default.
+     * 
+     * @return The maximum number of cached negotiation results.
+     */
+    public int getCacheSize() {
+        return this.cacheSize;
     }
 
     /**
@@ -93,9 +262,31 @@ public class ConnegService extends Service {
      */
     public Variant getPreferredVariant(List<? extends Variant> variants,
             Request request, MetadataService metadataService) {
-        Conneg conneg = isStrict() ? new StrictConneg(request, metadataService)
-                : new FlexibleConneg(request, metadataService);
-        return conneg.getPreferredVariant(variants);
+        Variant result = null;
+
+        if ((getCacheSize() > 0) && (variants != null)
+                && (request.getClientInfo() != null)) {
+            List<Object> key = getCacheKey(variants, request, metadataService);
+            Integer index = this.cache.get(key);
+
+            if (index == null) {
+                this.cacheMisses.incrementAndGet();
+                result = negotiate(variants, request, metadataService);
+                index = (result == null) ? -1 : variants.indexOf(result);
+
+                // Only cache results that can be mapped back to a variant
+                if ((result == null) || (variants.get(index) == result)) {
+                    putCache(key, index);
+                }
+            } else {
+                this.cacheHits.incrementAndGet();
+                result = (index < 0) ? null : variants.get(index);
+            }
+        } else {
+            result = negotiate(variants, request, metadataService);
+        }
+
+        return result;
     }
 
     /**
@@ -109,6 +300,59 @@ public class ConnegService extends Service {
         return strict;
     }
 
+    /**
+     * Runs the conneg algorithm, without looking at the cache.
+     * 
+     * @param variants
+     *            The list of variants to compare.
+     * @param request
+     *            The request including client preferences.
+     * @param metadataService
+     *            The metadata service used to get default metadata values.
+     * @return The preferred variant.
+     */
+    private Variant negotiate(List<? extends Variant> variants,
+            Request request, MetadataService metadataService) {
+        Conneg conneg = isStrict() ? new StrictConneg(request, metadataService)
+                : new FlexibleConneg(request, metadataService);
+        return conneg.getPreferredVariant(variants);
+    }
+
+    /**
+     * Caches a negotiation result. When the cache is full, an arbitrary entry
+     * is evicted first.
+     * 
+     * @param key
+     *            The fingerprint of the negotiation.
+     * @param index
+     *            The index of the preferred variant or -1.
+     */
+    private void putCache(List<Object> key, Integer index) {
+        Iterator<List<Object>> keys = this.cache.keySet().iterator();
+
+        while ((this.cache.size() >= getCacheSize()) && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+
+        this.cache.put(key, index);
+    }
+
+    /**
+     * Sets the maximum number of cached negotiation results. A zero value
+     * disables the cache.
+     * 
+     * @param cacheSize
+     *            The maximum number of cached negotiation results.
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+
+        if (cacheSize <= 0) {
+            this.cache.clear();
+        }
+    }
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -37,27 +37,125 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
 
 import org.restlet.Context;
 import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
+import org.restlet.engine.application.EncodeCache;
 import org.restlet.engine.application.Encoder;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 
 /**
- * Application service automatically encoding or compressing request entities.
+ * Application service automatically encoding or compressing request entities.<br>
+ * <br>
+ * Besides the size and media type criteria, the service adapts to the
+ * measured compressibility of the previous entities of each media type and to
+ * the system load. Media types that compress poorly are only encoded from time
+ * to time, in order to keep measuring them. When the load gets high, the
+ * fastest compression level is used. Compression can also be skipped
+ * altogether above a maximum load, when sending bigger entities is preferable
+ * to queuing requests. The encoding decisions are recorded and exposed as
+ * metrics.
  * 
  * @author Jerome Louvel
  */
 public class EncoderService extends Service {
 
+    /**
+     * Measured compressibility of a media type.
+     */
+    private static class Compressibility {
+
+        /** The number of encoding candidates. */
+        private long candidates;
+
+        /** The average ratio of encoded size to original size or -1. */
+        private float ratio = -1F;
+
+        /**
+         * Returns the average ratio of encoded size to original size.
+         * 
+         * @return The average ratio or -1 if not measured yet.
+         */
+        public synchronized float getRatio() {
+            return this.ratio;
+        }
+
+        /**
+         * Indicates if a candidate should be skipped, given the maximum ratio.
+         * Every {@link EncoderService#RATIO_SAMPLING} candidates, one is
+         * encoded anyway to update the measure.
+         * 
+         * @param maxRatio
+         *            The maximum ratio.
+         * @return True if the candidate should be skipped.
+         */
+        public synchronized boolean isSkipped(float maxRatio) {
+            this.candidates++;
+            return (this.ratio > maxRatio)
+                    && ((this.candidates % RATIO_SAMPLING) != 0);
+        }
+
+        /**
+         * Updates the average ratio with a new measure.
+         * 
+         * @param newRatio
+         *            The new measure.
+         */
+        public synchronized void update(float newRatio) {
+            if (this.ratio < 0) {
+                this.ratio = newRatio;
+            } else {
+                this.ratio += (newRatio - this.ratio) * RATIO_SMOOTHING;
+            }
+        }
+    }
+
     /** Indicates if the encoding should always occur, regardless of the size. */
     public static final int ANY_SIZE = -1;
 
+    /**
+     * The default load above which the fastest compression level is used.
+     */
+    public static final float DEFAULT_FAST_LOAD = 1.0F;
+
+    /**
+     * The default size above which the fastest compression level is used.
+     */
+    public static final long DEFAULT_FAST_SIZE = 1024 * 1024;
+
+    /**
+     * The default load above which compression is skipped, -1 to disable this
+     * criterion.
+     */
+    public static final float DEFAULT_MAX_LOAD = -1F;
+
+    /**
+     * The default ratio of encoded size to original size above which a media
+     * type is considered as poorly compressible.
+     */
+    public static final float DEFAULT_MAX_RATIO = 0.9F;
+
     /** Indicates if the default minimum size for encoding to occur. */
     public static final int DEFAULT_MINIMUM_SIZE = 1000;
 
+    /** The minimum delay in milliseconds between two load measures. */
+    private static final long LOAD_PERIOD = 1000L;
+
+    /** The maximum number of media types whose compressibility is measured. */
+    private static final int MAX_MEDIA_TYPES = 256;
+
+    /** One poorly compressible candidate out of this number is encoded. */
+    private static final int RATIO_SAMPLING = 16;
+
+    /** The weight of a new ratio measure in the average ratio. */
+    private static final float RATIO_SMOOTHING = 0.2F;
+
     /**
      * Returns the list of default encoded media types. This can be overridden
      * by subclasses. By default, all media types are encoded (except those
@@ -93,16 +191,92 @@ public class EncoderService extends Service {
      */
     private volatile List<MediaType> acceptedMediaTypes;
 
+    /**
+     * The cache of encoded entities or null.
+     */
+    private volatile EncodeCache cache;
+
+    /**
+     * The measured compressibility per media type name.
+     */
+    private final ConcurrentMap<String, Compressibility> compressibilities;
+
+    /**
+     * The number of encoded entities.
+     */
+    private final AtomicLong encodedCount;
+
+    /**
+     * The total size of the encoded entities, before encoding.
+     */
+    private final AtomicLong encodedInputSize;
+
+    /**
+     * The total size of the encoded entities, after encoding.
+     */
+    private final AtomicLong encodedOutputSize;
+
+    /**
+     * The load above which the fastest compression level is used.
+     */
+    private volatile float fastLoad;
+
+    /**
+     * The size above which the fastest compression level is used.
+     */
+    private volatile long fastSize;
+
     /**
      * The media types that should be ignored.
      */
     private volatile List<MediaType> ignoredMediaTypes;
 
+    /**
+     * The compression level.
+     */
+    private volatile int level;
+
+    /**
+     * The last measured load.
+     */
+    private volatile float load;
+
+    /**
+     * The time of the last load measure.
+     */
+    private volatile long loadTime;
+
+    /**
+     * The load above which compression is skipped.
+     */
+    private volatile float maxLoad;
+
+    /**
+     * The ratio of encoded size to original size above which a media type is
+     * considered as poorly compressible.
+     */
+    private volatile float maxRatio;
+
     /**
      * The minimal size necessary for encoding.
      */
     private volatile long mininumSize;
 
+    /**
+     * The number of entities not encoded due to the load.
+     */
+    private final AtomicLong skippedForLoad;
+
+    /**
+     * The number of entities not encoded due to a poor compressibility.
+     */
+    private final AtomicLong skippedForRatio;
+
+    /**
+     * The number of entities not encoded due to their size.
+     */
+    private final AtomicLong skippedForSize;
+
     /**
      * Constructor.
      */
@@ -118,19 +292,52 @@ public class EncoderService extends Service {
      */
     public EncoderService(boolean enabled) {
         super(enabled);
+        this.cache = null;
+        this.compressibilities = new ConcurrentHashMap<String, Compressibility>();
+        this.encodedCount = new AtomicLong();
+        this.encodedInputSize = new AtomicLong();
+        this.encodedOutputSize = new AtomicLong();
+        this.fastLoad = DEFAULT_FAST_LOAD;
+        this.fastSize = DEFAULT_FAST_SIZE;
+        this.level = Deflater.DEFAULT_COMPRESSION;
+        this.load = -1F;
+        this.loadTime = 0L;
+        this.maxLoad = DEFAULT_MAX_LOAD;
+        this.maxRatio = DEFAULT_MAX_RATIO;
         this.mininumSize = DEFAULT_MINIMUM_SIZE;
+        this.skippedForLoad = new AtomicLong();
+        this.skippedForRatio = new AtomicLong();
+        this.skippedForSize = new AtomicLong();
         this.acceptedMediaTypes = getDefaultAcceptedMediaTypes();
         this.ignoredMediaTypes = getDefaultIgnoredMediaTypes();
     }
 
     /**
-     * Indicates if a representation can be encoded.
+     * Indicates if a representation can be encoded, based on its existing
+     * encodings, its size and its media type. This query has no side effect,
+     * the compressibility and load criteria being applied by
+     * {@link #select(Representation)} on the encoding path.
      * 
      * @param representation
      *            The representation to test.
      * @return True if the call can be encoded.
      */
     public boolean canEncode(Representation representation) {
+        return canEncode(representation, true);
+    }
+
+    /**
+     * Indicates if a representation can be encoded, optionally ignoring its
+     * size.
+     * 
+     * @param representation
+     *            The representation to test.
+     * @param checkSize
+     *            True if the size of the representation should be tested.
+     * @return True if the call can be encoded.
+     */
+    private boolean canEncode(Representation representation,
+            boolean checkSize) {
         // Test the existence of the representation and that no existing
         // encoding applies
         boolean result = false;
@@ -146,11 +353,9 @@ public class EncoderService extends Service {
             result = identity;
         }
 
-        if (result) {
+        if (result && checkSize) {
             // Test the size of the representation
-            result = (getMinimumSize() == EncoderService.ANY_SIZE)
-                    || (representation.getSize() == Representation.UNKNOWN_SIZE)
-                    || (representation.getSize() >= getMinimumSize());
+            result = !isSmall(representation);
         }
 
         if (result) {
@@ -201,6 +406,92 @@ public class EncoderService extends Service {
         return this.acceptedMediaTypes;
     }
 
+    /**
+     * Returns the cache of encoded entities. When set, the encoded bytes of
+     * identifiable response entities are reused instead of being encoded again
+     * for each response. Null by default.
+     * 
+     * @return The cache of encoded entities or null.
+     */
+    public EncodeCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Returns the measured compressibility of a media type.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @param create
+     *            Indicates if a missing entry should be created.
+     * @return The measured compressibility or null.
+     */
+    private Compressibility getCompressibility(MediaType mediaType,
+            boolean create) {
+        String name = (mediaType == null) ? "" : mediaType.getName();
+        Compressibility result = this.compressibilities.get(name);
+
+        if ((result == null) && create
+                && (this.compressibilities.size() < MAX_MEDIA_TYPES)) {
+            result = new Compressibility();
+            Compressibility existing = this.compressibilities.putIfAbsent(
+                    name, result);
+
+            if (existing != null) {
+                result = existing;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of encoded entities.
+     * 
+     * @return The number of encoded entities.
+     */
+    public long getEncodedCount() {
+        return this.encodedCount.get();
+    }
+
+    /**
+     * Returns the total size of the encoded entities, before encoding.
+     * 
+     * @return The total size of the encoded entities, before encoding.
+     */
+    public long getEncodedInputSize() {
+        return this.encodedInputSize.get();
+    }
+
+    /**
+     * Returns the total size of the encoded entities, after encoding.
+     * 
+     * @return The total size of the encoded entities, after encoding.
+     */
+    public long getEncodedOutputSize() {
+        return this.encodedOutputSize.get();
+    }
+
+    /**
+     * Returns the load above which the fastest compression level is used. A
+     * negative value disables this criterion.
+     * 
+     * @return The load above which the fastest compression level is used.
+     */
+    public float getFastLoad() {
+        return this.fastLoad;
+    }
+
+    /**
+     * Returns the size above which the fastest compression level is used.
+     * {@link #ANY_SIZE} disables this criterion.
+     * 
+     * @return The size above which the fastest compression level is used.
+     */
+    public long getFastSize() {
+        return this.fastSize;
+    }
+
     /**
      * Returns the media types that should be ignored.
      * 
@@ -210,6 +501,89 @@ public class EncoderService extends Service {
         return this.ignoredMediaTypes;
     }
 
+    /**
+     * Returns the default compression level of the GZip and Deflate encodings,
+     * {@link Deflater#DEFAULT_COMPRESSION} by default.
+     * 
+     * @return The default compression level.
+     */
+    public int getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Returns the compression level to use for a representation. The fastest
+     * level is used for large representations or when the load is high,
+     * otherwise the default level is used.
+     * 
+     * @param representation
+     *            The representation to encode.
+     * @return The compression level.
+     */
+    public int getLevel(Representation representation) {
+        int result = getLevel();
+        float currentLoad = getLoad();
+
+        if ((getFastSize() != ANY_SIZE)
+                && (representation.getSize() > getFastSize())) {
+            result = Deflater.BEST_SPEED;
+        } else if ((currentLoad >= 0) && (getFastLoad() >= 0)
+                && (currentLoad > getFastLoad())) {
+            result = Deflater.BEST_SPEED;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the current load, that is the system load average divided by the
+     * number of processors. The measure is refreshed at most once per second.
+     * Can be overridden to rely on another measure, for example the activity
+     * of the connectors' workers.
+     * 
+     * @return The current load or -1 if not available.
+     */
+    public float getLoad() {
+        long now = System.currentTimeMillis();
+
+        if ((now - this.loadTime) > LOAD_PERIOD) {
+            float result = -1F;
+            // [ifndef android,gae]
+            java.lang.management.OperatingSystemMXBean os = java.lang.management.ManagementFactory
+                    .getOperatingSystemMXBean();
+            double average = os.getSystemLoadAverage();
+
+            if (average >= 0) {
+                result = (float) (average / os.getAvailableProcessors());
+            }
+            // [enddef]
+            this.load = result;
+            this.loadTime = now;
+        }
+
+        return this.load;
+    }
+
+    /**
+     * Returns the load above which compression is skipped. A negative value
+     * disables this criterion.
+     * 
+     * @return The load above which compression is skipped.
+     */
+    public float getMaxLoad() {
+        return this.maxLoad;
+    }
+
+    /**
+     * Returns the ratio of encoded size to original size above which a media
+     * type is considered as poorly compressible.
+     * 
+     * @return The maximum ratio.
+     */
+    public float getMaxRatio() {
+        return this.maxRatio;
+    }
+
     /**
      * Returns the minimum size a representation must have before compression is
      * done.
@@ -221,6 +595,195 @@ public class EncoderService extends Service {
         return this.mininumSize;
     }
 
+    /**
+     * Returns the measured ratio of encoded size to original size for a media
+     * type.
+     * 
+     * @param mediaType
+     *            The media type.
+     * @return The measured ratio or -1 if not measured yet.
+     */
+    public float getRatio(MediaType mediaType) {
+        Compressibility compressibility = getCompressibility(mediaType, false);
+        return (compressibility == null) ? -1F : compressibility.getRatio();
+    }
+
+    /**
+     * Returns the number of entities not encoded due to the load.
+     * 
+     * @return The number of entities not encoded due to the load.
+     */
+    public long getSkippedForLoad() {
+        return this.skippedForLoad.get();
+    }
+
+    /**
+     * Returns the number of entities not encoded due to a poor
+     * compressibility of their media type.
+     * 
+     * @return The number of entities not encoded due to a poor
+     *         compressibility.
+     */
+    public long getSkippedForRatio() {
+        return this.skippedForRatio.get();
+    }
+
+    /**
+     * Returns the number of entities not encoded due to their size.
+     * 
+     * @return The number of entities not encoded due to their size.
+     */
+    public long getSkippedForSize() {
+        return this.skippedForSize.get();
+    }
+
+    /**
+     * Indicates if a representation is too small to be encoded.
+     * 
+     * @param representation
+     *            The representation to test.
+     * @return True if the representation is too small to be encoded.
+     */
+    private boolean isSmall(Representation representation) {
+        return (getMinimumSize() != EncoderService.ANY_SIZE)
+                && (representation.getSize() != Representation.UNKNOWN_SIZE)
+                && (representation.getSize() < getMinimumSize());
+    }
+
+    /**
+     * Records the sizes of an encoded entity, updating the metrics and the
+     * compressibility of its media type.
+     * 
+     * @param mediaType
+     *            The media type of the entity.
+     * @param inputSize
+     *            The size before encoding.
+     * @param outputSize
+     *            The size after encoding.
+     */
+    public void onEncoded(MediaType mediaType, long inputSize, long outputSize) {
+        this.encodedCount.incrementAndGet();
+        this.encodedInputSize.addAndGet(inputSize);
+        this.encodedOutputSize.addAndGet(outputSize);
+
+        if (inputSize > 0) {
+            Compressibility compressibility = getCompressibility(mediaType,
+                    true);
+
+            if (compressibility != null) {
+                compressibility.update((float) outputSize / inputSize);
+            }
+        }
+    }
+
+    /**
+     * Decides if a representation is encoded, on the encoding path. Besides the
+     * criteria of {@link #canEncode(Representation)}, poorly compressible
+     * media types and high loads prevent the encoding. Unlike
+     * {@link #canEncode(Representation)}, each call counts as an encoding
+     * candidate, updating the skip counters and the sampling of poorly
+     * compressible media types.
+     * 
+     * @param representation
+     *            The representation to encode.
+     * @return True if the representation should be encoded.
+     */
+    public boolean select(Representation representation) {
+        boolean result = canEncode(representation, false);
+
+        if (result && isSmall(representation)) {
+            this.skippedForSize.incrementAndGet();
+            result = false;
+        }
+
+        if (result) {
+            // Test the compressibility of the media type
+            Compressibility compressibility = getCompressibility(
+                    representation.getMediaType(), false);
+
+            if ((compressibility != null)
+                    && compressibility.isSkipped(getMaxRatio())) {
+                this.skippedForRatio.incrementAndGet();
+                result = false;
+            }
+        }
+
+        if (result) {
+            // Test the load
+            float currentLoad = getLoad();
+
+            if ((currentLoad >= 0) && (getMaxLoad() >= 0)
+                    && (currentLoad > getMaxLoad())) {
+                this.skippedForLoad.incrementAndGet();
+                result = false;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the cache of encoded entities.
+     * 
+     * @param cache
+     *            The cache of encoded entities or null.
+     */
+    public void setCache(EncodeCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the load above which the fastest compression level is used.
+     * 
+     * @param fastLoad
+     *            The load above which the fastest compression level is used.
+     */
+    public void setFastLoad(float fastLoad) {
+        this.fastLoad = fastLoad;
+    }
+
+    /**
+     * Sets the size above which the fastest compression level is used.
+     * 
+     * @param fastSize
+     *            The size above which the fastest compression level is used.
+     */
+    public void setFastSize(long fastSize) {
+        this.fastSize = fastSize;
+    }
+
+    /**
+     * Sets the default compression level of the GZip and Deflate encodings.
+     * 
+     * @param level
+     *            The default compression level, from 0 to 9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Sets the load above which compression is skipped.
+     * 
+     * @param maxLoad
+     *            The load above which compression is skipped.
+     */
+    public void setMaxLoad(float maxLoad) {
+        this.maxLoad = maxLoad;
+    }
+
+    /**
+     * Sets the ratio of encoded size to original size above which a media
+     * type is considered as poorly compressible.
+     * 
+     * @param maxRatio
+     *            The maximum ratio.
+     */
+    public void setMaxRatio(float maxRatio) {
+        this.maxRatio = maxRatio;
+    }
+
     /**
      * Sets the minimum size a representation must have before compression is
      * done.
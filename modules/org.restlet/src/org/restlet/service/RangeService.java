@@ -48,11 +48,17 @@ import org.restlet.routing.Filter;
  */
 public class RangeService extends Service {
 
+    /** The default maximum number of ranges requested at once. */
+    public static final int DEFAULT_MAX_RANGES = 32;
+
+    /** The maximum number of ranges requested at once. */
+    private volatile int maxRanges;
+
     /**
      * Constructor.
      */
     public RangeService() {
-        super();
+        this(true);
     }
 
     /**
@@ -63,6 +69,7 @@ public class RangeService extends Service {
      */
     public RangeService(boolean enabled) {
         super(enabled);
+        this.maxRanges = DEFAULT_MAX_RANGES;
     }
 
     @Override
@@ -70,4 +77,25 @@ public class RangeService extends Service {
         return new RangeFilter(context);
     }
 
+    /**
+     * Returns the maximum number of ranges requested at once. When a request
+     * has more ranges, the full entity is returned instead, before the ranges
+     * are resolved, sorted and coalesced.
+     * 
+     * @return The maximum number of ranges requested at once.
+     */
+    public int getMaxRanges() {
+        return this.maxRanges;
+    }
+
+    /**
+     * Sets the maximum number of ranges requested at once.
+     * 
+     * @param maxRanges
+     *            The maximum number of ranges requested at once.
+     */
+    public void setMaxRanges(int maxRanges) {
+        this.maxRanges = maxRanges;
+    }
+
 }
@@ -53,7 +53,9 @@ import org.restlet.Application;
 import org.restlet.Context;
 import org.restlet.Response;
 import org.restlet.engine.Engine;
+import org.restlet.engine.log.LoggingThreadFactory;
 import org.restlet.engine.util.ContextualRunnable;
+import org.restlet.engine.util.VirtualScheduledExecutorService;
 import org.restlet.routing.VirtualHost;
 
 /**
@@ -70,7 +72,12 @@ import org.restlet.routing.VirtualHost;
  * Resources that are part of your context. In general this context corresponds
  * to a parent Application's context. If you want to have your own service
  * instance, you can use the {@link TaskService#wrap(ScheduledExecutorService)}
- * method to ensure that thread local variables are correctly set.
+ * method to ensure that thread local variables are correctly set.<br>
+ * <br>
+ * When the worker mode is set to "virtual" and the JVM supports virtual
+ * threads, each task submitted for immediate execution runs on a new virtual
+ * thread, which suits tasks blocking on IO such as JDBC or outbound client
+ * calls. Scheduled tasks are still run by a pool of "corePoolSize" threads.
  * 
  * @author Jerome Louvel
  * @author Doug Lea (docs of ExecutorService in public domain)
@@ -245,6 +252,9 @@ public class TaskService extends Service implements ScheduledExecutorService {
     /** The core pool size defining the maximum number of threads. */
     private volatile int corePoolSize;
 
+    /** The worker mode, either "pool" or "virtual". */
+    private volatile String workerMode;
+
     /**
      * Constructor. Enables the service and set the core pool size to 4 by
      * default.
@@ -275,6 +285,7 @@ public class TaskService extends Service implements ScheduledExecutorService {
         super(enabled);
         this.corePoolSize = corePoolSize;
         this.shutdownAllowed = false;
+        this.workerMode = "pool";
     }
 
     /**
@@ -308,24 +319,37 @@ public class TaskService extends Service implements ScheduledExecutorService {
     /**
      * Creates a new JDK executor service that will be wrapped. By default it
      * calls {@link Executors#newCachedThreadPool(ThreadFactory)}, passing the
-     * result of {@link #createThreadFactory()} as a parameter.
+     * result of {@link #createThreadFactory()} as a parameter. In the "virtual"
+     * worker mode, a {@link VirtualScheduledExecutorService} is returned
+     * instead.
      * 
      * @param corePoolSize
      *            The core pool size defining the maximum number of threads.
      * @return A new JDK executor service.
      */
     protected ScheduledExecutorService createExecutorService(int corePoolSize) {
+        if (isVirtualWorkers()) {
+            return new VirtualScheduledExecutorService(corePoolSize,
+                    createThreadFactory());
+        }
+
         return Executors.newScheduledThreadPool(corePoolSize,
                 createThreadFactory());
     }
 
     /**
      * Creates a new thread factory that will properly name the Restlet created
-     * threads with a "restlet-" prefix.
+     * threads with a "restlet-" prefix. In the "virtual" worker mode, the
+     * factory creates virtual threads.
      * 
      * @return A new thread factory.
      */
     protected ThreadFactory createThreadFactory() {
+        if (isVirtualWorkers()) {
+            return new LoggingThreadFactory(Context.getCurrentLogger(), true,
+                    true);
+        }
+
         return new RestletThreadFactory();
     }
 
@@ -349,6 +373,15 @@ public class TaskService extends Service implements ScheduledExecutorService {
         return corePoolSize;
     }
 
+    /**
+     * Returns the worker mode, either "pool" or "virtual".
+     * 
+     * @return The worker mode.
+     */
+    public String getWorkerMode() {
+        return workerMode;
+    }
+
     /**
      * Returns the wrapped JDK executor service.
      * 
@@ -487,6 +520,17 @@ public class TaskService extends Service implements ScheduledExecutorService {
         return (getWrapped() == null) || getWrapped().isTerminated();
     }
 
+    /**
+     * Indicates if the "virtual" worker mode is used. It requires a JVM
+     * supporting virtual threads.
+     * 
+     * @return True if the "virtual" worker mode is used.
+     */
+    public boolean isVirtualWorkers() {
+        return "virtual".equalsIgnoreCase(getWorkerMode())
+                && Engine.isVirtualThreadSupported();
+    }
+
     /**
      * Creates and executes a ScheduledFuture that becomes enabled after the
      * given delay.
@@ -619,6 +663,18 @@ public class TaskService extends Service implements ScheduledExecutorService {
         this.shutdownAllowed = allowShutdown;
     }
 
+    /**
+     * Sets the worker mode, either "pool" or "virtual". The "pool" mode is used
+     * if the JVM doesn't support virtual threads. The new mode is taken into
+     * account when the service is (re)started.
+     * 
+     * @param workerMode
+     *            The worker mode.
+     */
+    public void setWorkerMode(String workerMode) {
+        this.workerMode = workerMode;
+    }
+
     /**
      * Sets the wrapped JDK executor service.
      * 
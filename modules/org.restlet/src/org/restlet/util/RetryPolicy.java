@@ -0,0 +1,345 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.util;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Request;
+import org.restlet.data.Reference;
+import org.restlet.resource.ClientResource;
+import org.restlet.routing.Router;
+
+/**
+ * Policy controlling the retry attempts of {@link Router} and
+ * {@link ClientResource} instances. It computes an exponential backoff delay
+ * with random jitter based on the initial retry delay, and limits the number
+ * of retry attempts pending at the same time for each target host.<br>
+ * <br>
+ * When a policy is set and an executor service is available in the context,
+ * the next attempt is scheduled on this executor service instead of sleeping
+ * in the current thread. Note that the same instance can be shared by several
+ * routers or client resources in order to share the retry budgets.<br>
+ * <br>
+ * Concurrency note: instances of this class are thread-safe.
+ * 
+ * @author Jerome Louvel
+ */
+public class RetryPolicy {
+
+    /** The random number generator of each thread, used for the jitter. */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /** The multiplier applied to the delay after each attempt. */
+    private volatile double backoffFactor;
+
+    /** The maximum number of pending retry attempts per host. */
+    private volatile int hostBudget;
+
+    /** The fraction of each delay that is randomly removed. */
+    private volatile double jitter;
+
+    /** The maximum delay in milliseconds before a retry attempt. */
+    private volatile long maxDelay;
+
+    /** The number of pending retry attempts per host identifier. */
+    private final ConcurrentMap<String, AtomicInteger> pendingRetries;
+
+    /**
+     * Constructor. Uses a backoff factor of 2, a jitter of 0.2, a maximum
+     * delay of 30 seconds and a budget of 16 pending retry attempts per host.
+     */
+    public RetryPolicy() {
+        this(2D, 0.2D, 30000L, 16);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param backoffFactor
+     *            The multiplier applied to the delay after each attempt.
+     * @param jitter
+     *            The fraction of each delay that is randomly removed, between
+     *            0 and 1.
+     * @param maxDelay
+     *            The maximum delay in milliseconds before a retry attempt.
+     * @param hostBudget
+     *            The maximum number of pending retry attempts per host, or 0
+     *            for no limit.
+     */
+    public RetryPolicy(double backoffFactor, double jitter, long maxDelay,
+            int hostBudget) {
+        this.backoffFactor = backoffFactor;
+        this.hostBudget = hostBudget;
+        this.jitter = jitter;
+        this.maxDelay = maxDelay;
+        this.pendingRetries = new ConcurrentHashMap<String, AtomicInteger>();
+    }
+
+    /**
+     * Attempts to reserve a retry attempt in the budget of the target host of
+     * a request. When it succeeds, the {@link #release(Request)} method must
+     * be called once the attempt starts.
+     * 
+     * @param request
+     *            The request to retry.
+     * @return True if the retry attempt was reserved.
+     */
+    public boolean acquire(Request request) {
+        boolean result = true;
+
+        if (getHostBudget() > 0) {
+            boolean reserved = false;
+
+            while (result && !reserved) {
+                AtomicInteger pending = getPendingRetries(request);
+                int current = pending.get();
+
+                if (current < 0) {
+                    // The counter is being removed, use a new one
+                    this.pendingRetries.remove(getHost(request), pending);
+                } else if (current >= getHostBudget()) {
+                    result = false;
+                } else {
+                    reserved = pending.compareAndSet(current, current + 1);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the multiplier applied to the delay after each attempt.
+     * 
+     * @return The multiplier applied to the delay after each attempt.
+     */
+    public double getBackoffFactor() {
+        return backoffFactor;
+    }
+
+    /**
+     * Returns the delay in milliseconds before a given retry attempt. The
+     * initial delay is multiplied by the backoff factor for each previous
+     * attempt, limited by the maximum delay, then reduced by a random part
+     * controlled by the jitter.
+     * 
+     * @param initialDelay
+     *            The delay in milliseconds before the first retry attempt.
+     * @param attempt
+     *            The index of the retry attempt, starting at 1.
+     * @return The delay in milliseconds.
+     */
+    public long getDelay(long initialDelay, int attempt) {
+        double result = initialDelay
+                * Math.pow(getBackoffFactor(), Math.max(0, attempt - 1));
+
+        if (result > getMaxDelay()) {
+            result = getMaxDelay();
+        }
+
+        if (getJitter() > 0) {
+            result -= result * getJitter() * RANDOM.get().nextDouble();
+        }
+
+        return Math.max(0L, (long) result);
+    }
+
+    /**
+     * Returns the identifier of the target host of a request.
+     * 
+     * @param request
+     *            The request.
+     * @return The host identifier.
+     */
+    private String getHost(Request request) {
+        Reference ref = request.getResourceRef();
+        String result = (ref == null) ? null : ref.getHostIdentifier();
+        return (result == null) ? "" : result;
+    }
+
+    /**
+     * Returns the maximum number of pending retry attempts per host, or 0 for
+     * no limit.
+     * 
+     * @return The maximum number of pending retry attempts per host.
+     */
+    public int getHostBudget() {
+        return hostBudget;
+    }
+
+    /**
+     * Returns the fraction of each delay that is randomly removed.
+     * 
+     * @return The fraction of each delay that is randomly removed.
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Returns the maximum delay in milliseconds before a retry attempt.
+     * 
+     * @return The maximum delay in milliseconds before a retry attempt.
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Returns the number of pending retry attempts for the target host of a
+     * request.
+     * 
+     * @param request
+     *            The request.
+     * @return The number of pending retry attempts.
+     */
+    public int getPendingCount(Request request) {
+        AtomicInteger pending = this.pendingRetries.get(getHost(request));
+        return (pending == null) ? 0 : Math.max(0, pending.get());
+    }
+
+    /**
+     * Returns the counter of pending retry attempts for the target host of a
+     * request, creating it if needed.
+     * 
+     * @param request
+     *            The request.
+     * @return The counter of pending retry attempts.
+     */
+    private AtomicInteger getPendingRetries(Request request) {
+        String host = getHost(request);
+        AtomicInteger result = this.pendingRetries.get(host);
+
+        if (result == null) {
+            result = new AtomicInteger();
+            AtomicInteger existing = this.pendingRetries.putIfAbsent(host,
+                    result);
+
+            if (existing != null) {
+                result = existing;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of hosts with pending retry attempts.
+     * 
+     * @return The number of hosts with pending retry attempts.
+     */
+    public int getPendingHostsCount() {
+        return this.pendingRetries.size();
+    }
+
+    /**
+     * Releases a retry attempt previously reserved with
+     * {@link #acquire(Request)}. The counter of the host is removed once no
+     * retry attempt is pending anymore.
+     * 
+     * @param request
+     *            The retried request.
+     */
+    public void release(Request request) {
+        if (getHostBudget() > 0) {
+            AtomicInteger pending = this.pendingRetries.get(getHost(request));
+
+            if (pending != null) {
+                int current;
+
+                do {
+                    current = pending.get();
+                } while ((current > 0)
+                        && !pending.compareAndSet(current, current - 1));
+
+                // Mark the counter as removed so that it isn't reused
+                if ((current == 1) && pending.compareAndSet(0, -1)) {
+                    this.pendingRetries.remove(getHost(request), pending);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the multiplier applied to the delay after each attempt. A value of
+     * 1 keeps a constant delay.
+     * 
+     * @param backoffFactor
+     *            The multiplier applied to the delay after each attempt.
+     */
+    public void setBackoffFactor(double backoffFactor) {
+        this.backoffFactor = backoffFactor;
+    }
+
+    /**
+     * Sets the maximum number of pending retry attempts per host, or 0 for no
+     * limit.
+     * 
+     * @param hostBudget
+     *            The maximum number of pending retry attempts per host.
+     */
+    public void setHostBudget(int hostBudget) {
+        this.hostBudget = hostBudget;
+    }
+
+    /**
+     * Sets the fraction of each delay that is randomly removed, between 0 and
+     * 1.
+     * 
+     * @param jitter
+     *            The fraction of each delay that is randomly removed.
+     */
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    /**
+     * Sets the maximum delay in milliseconds before a retry attempt.
+     * 
+     * @param maxDelay
+     *            The maximum delay in milliseconds before a retry attempt.
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+}
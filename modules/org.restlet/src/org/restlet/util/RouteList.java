@@ -33,14 +33,17 @@
 
 package org.restlet.util;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.engine.util.RouteIndex;
 import org.restlet.routing.Route;
 
 /**
@@ -50,22 +53,74 @@ import org.restlet.routing.Route;
  * {@link List}, in particular all the helper methods in {@link Collections}.<br>
  * <br>
  * Note that structural changes to this list are thread-safe, using an
- * underlying {@link CopyOnWriteArrayList}.
+ * underlying {@link CopyOnWriteArrayList}.<br>
+ * <br>
+ * The first, best and last match lookups can optionally use a
+ * {@link RouteIndex} to only score the routes that might match a call. The
+ * index is lazily rebuilt after structural changes.<br>
+ * <br>
+ * The last, next and random match lookups don't lock the list. They work on
+ * an array snapshot of the routes that is also refreshed after structural
+ * changes, the round robin position being maintained by an atomic cursor.
  * 
  * @author Jerome Louvel
  * @see java.util.Collections
  * @see java.util.List
  */
 public final class RouteList extends WrapperList<Route> {
-    /** The index of the last route used in the round robin mode. */
-    private volatile int lastIndex;
+
+    /**
+     * Immutable snapshot of the routes, associated to a version of the list.
+     */
+    private static final class Snapshot {
+
+        /** The routes. */
+        private final Route[] routes;
+
+        /** The version of the list. */
+        private final int version;
+
+        /**
+         * Constructor.
+         * 
+         * @param routes
+         *            The routes.
+         * @param version
+         *            The version of the list.
+         */
+        private Snapshot(Route[] routes, int version) {
+            this.routes = routes;
+            this.version = version;
+        }
+    }
+
+    /** The random number generator of each thread, used in the random mode. */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /** The position of the next route to try in the round robin mode. */
+    private final AtomicInteger cursor;
+
+    /** The index of the routes, lazily created. */
+    private volatile RouteIndex index;
+
+    /** The snapshot of the routes, lazily created. */
+    private volatile Snapshot snapshot;
+
+    /** The version of the list, incremented after each structural change. */
+    private final AtomicInteger version;
 
     /**
      * Constructor.
      */
     public RouteList() {
         super(new CopyOnWriteArrayList<Route>());
-        this.lastIndex = -1;
+        this.cursor = new AtomicInteger();
+        this.version = new AtomicInteger();
     }
 
     /**
@@ -76,7 +131,53 @@ public final class RouteList extends WrapperList<Route> {
      */
     public RouteList(List<Route> delegate) {
         super(new CopyOnWriteArrayList<Route>(delegate));
-        this.lastIndex = -1;
+        this.cursor = new AtomicInteger();
+        this.version = new AtomicInteger();
+    }
+
+    @Override
+    public boolean add(Route element) {
+        try {
+            return super.add(element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void add(int index, Route element) {
+        try {
+            super.add(index, element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Route> elements) {
+        try {
+            return super.addAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Route> elements) {
+        try {
+            return super.addAll(index, elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            this.version.incrementAndGet();
+        }
     }
 
     /**
@@ -91,11 +192,30 @@ public final class RouteList extends WrapperList<Route> {
      * @return The best route match or null.
      */
     public Route getBest(Request request, Response response, float requiredScore) {
+        return getBest(request, response, requiredScore, false);
+    }
+
+    /**
+     * Returns the best route match for a given call.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @param indexed
+     *            True if only the candidates returned by the route index
+     *            should be scored.
+     * @return The best route match or null.
+     */
+    public Route getBest(Request request, Response response,
+            float requiredScore, boolean indexed) {
         Route result = null;
         float bestScore = 0F;
         float score;
 
-        for (Route current : this) {
+        for (Route current : getCandidates(request, indexed)) {
             score = current.score(request, response);
 
             if ((score > bestScore) && (score >= requiredScore)) {
@@ -107,6 +227,21 @@ public final class RouteList extends WrapperList<Route> {
         return result;
     }
 
+    /**
+     * Returns the routes that should be scored for a given call, in their list
+     * order.
+     * 
+     * @param request
+     *            The request to score.
+     * @param indexed
+     *            True if only the candidates returned by the route index
+     *            should be returned.
+     * @return The routes that should be scored.
+     */
+    private List<Route> getCandidates(Request request, boolean indexed) {
+        return indexed ? getIndex().getCandidates(request) : this;
+    }
+
     /**
      * Returns the first route match for a given call.
      * 
@@ -120,7 +255,26 @@ public final class RouteList extends WrapperList<Route> {
      */
     public Route getFirst(Request request, Response response,
             float requiredScore) {
-        for (Route current : this) {
+        return getFirst(request, response, requiredScore, false);
+    }
+
+    /**
+     * Returns the first route match for a given call.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @param indexed
+     *            True if only the candidates returned by the route index
+     *            should be scored.
+     * @return The first route match or null.
+     */
+    public Route getFirst(Request request, Response response,
+            float requiredScore, boolean indexed) {
+        for (Route current : getCandidates(request, indexed)) {
             if (current.score(request, response) >= requiredScore) {
                 return current;
             }
@@ -130,6 +284,24 @@ public final class RouteList extends WrapperList<Route> {
         return null;
     }
 
+    /**
+     * Returns the index of the routes, rebuilding it if the list was
+     * structurally modified since its creation.
+     * 
+     * @return The index of the routes.
+     */
+    public RouteIndex getIndex() {
+        RouteIndex result = this.index;
+        int currentVersion = this.version.get();
+
+        if ((result == null) || (result.getVersion() != currentVersion)) {
+            result = new RouteIndex(toArray(new Route[0]), currentVersion);
+            this.index = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the last route match for a given call.
      * 
@@ -141,12 +313,43 @@ public final class RouteList extends WrapperList<Route> {
      *            The minimum score required to have a match.
      * @return The last route match or null.
      */
-    public synchronized Route getLast(Request request, Response response,
+    public Route getLast(Request request, Response response,
             float requiredScore) {
-        for (int j = size() - 1; (j >= 0); j--) {
-            final Route route = get(j);
-            if (route.score(request, response) >= requiredScore) {
-                return route;
+        return getLast(request, response, requiredScore, false);
+    }
+
+    /**
+     * Returns the last route match for a given call.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @param indexed
+     *            True if only the candidates returned by the route index
+     *            should be scored.
+     * @return The last route match or null.
+     */
+    public Route getLast(Request request, Response response,
+            float requiredScore, boolean indexed) {
+        if (indexed) {
+            List<Route> candidates = getIndex().getCandidates(request);
+
+            for (int j = candidates.size() - 1; (j >= 0); j--) {
+                final Route route = candidates.get(j);
+                if (route.score(request, response) >= requiredScore) {
+                    return route;
+                }
+            }
+        } else {
+            Route[] routes = getSnapshot();
+
+            for (int j = routes.length - 1; (j >= 0); j--) {
+                if (routes[j].score(request, response) >= requiredScore) {
+                    return routes[j];
+                }
             }
         }
 
@@ -155,7 +358,9 @@ public final class RouteList extends WrapperList<Route> {
     }
 
     /**
-     * Returns a next route match in a round robin mode for a given call.
+     * Returns a next route match in a round robin mode for a given call. Each
+     * call starts with the route following the previously returned one and
+     * tries each route at most once.
      * 
      * @param request
      *            The request to score.
@@ -165,16 +370,26 @@ public final class RouteList extends WrapperList<Route> {
      *            The minimum score required to have a match.
      * @return A next route or null.
      */
-    public synchronized Route getNext(Request request, Response response,
+    public Route getNext(Request request, Response response,
             float requiredScore) {
-        if (!isEmpty()) {
-            for (final int initialIndex = this.lastIndex++; initialIndex != this.lastIndex; this.lastIndex++) {
-                if (this.lastIndex >= size()) {
-                    this.lastIndex = 0;
-                }
+        Route[] routes = getSnapshot();
+        int length = routes.length;
+
+        if (length > 0) {
+            int position = this.cursor.getAndIncrement();
+            int start = (position & Integer.MAX_VALUE) % length;
+
+            for (int i = 0; i < length; i++) {
+                final Route route = routes[(start + i) % length];
 
-                final Route route = get(this.lastIndex);
                 if (route.score(request, response) >= requiredScore) {
+                    if (i > 0) {
+                        // Skip the routes that didn't match, unless other
+                        // calls already moved the cursor
+                        this.cursor.compareAndSet(position + 1, position + 1
+                                + i);
+                    }
+
                     return route;
                 }
             }
@@ -197,38 +412,63 @@ public final class RouteList extends WrapperList<Route> {
      *            The minimum score required to have a match.
      * @return A random route or null.
      */
-    public synchronized Route getRandom(Request request, Response response,
+    public Route getRandom(Request request, Response response,
             float requiredScore) {
-        int length = size();
+        Route[] routes = getSnapshot();
+        int length = routes.length;
 
         if (length > 0) {
-            int j = new Random().nextInt(length);
-            Route route = get(j);
+            int start = RANDOM.get().nextInt(length);
 
-            if (route.score(request, response) >= requiredScore) {
-                return route;
-            }
-
-            boolean loopedAround = false;
-
-            do {
-                if ((j == length) && (loopedAround == false)) {
-                    j = 0;
-                    loopedAround = true;
-                }
-
-                route = get(j++);
+            for (int i = 0; i < length; i++) {
+                final Route route = routes[(start + i) % length];
 
                 if (route.score(request, response) >= requiredScore) {
                     return route;
                 }
-            } while ((j < length) || !loopedAround);
+            }
         }
 
         // No match found
         return null;
     }
 
+    /**
+     * Returns an array snapshot of the routes, refreshed after structural
+     * changes.
+     * 
+     * @return The array snapshot of the routes.
+     */
+    private Route[] getSnapshot() {
+        int currentVersion = this.version.get();
+        Snapshot result = this.snapshot;
+
+        if ((result == null) || (result.version != currentVersion)) {
+            result = new Snapshot(toArray(new Route[0]), currentVersion);
+            this.snapshot = result;
+        }
+
+        return result.routes;
+    }
+
+    @Override
+    public Route remove(int index) {
+        try {
+            return super.remove(index);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        try {
+            return super.remove(element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
     /**
      * Removes all routes routing to a given target.
      * 
@@ -243,6 +483,33 @@ public final class RouteList extends WrapperList<Route> {
         }
     }
 
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        try {
+            return super.removeAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        try {
+            return super.retainAll(elements);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Route set(int index, Route element) {
+        try {
+            return super.set(index, element);
+        } finally {
+            this.version.incrementAndGet();
+        }
+    }
+
     /**
      * Returns a view of the portion of this list between the specified
      * fromIndex, inclusive, and toIndex, exclusive.
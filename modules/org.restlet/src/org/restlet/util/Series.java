@@ -34,10 +34,14 @@
 package org.restlet.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -48,7 +52,15 @@ import org.restlet.Context;
  * Modifiable list of entries with many helper methods. Note that this class
  * uses the Parameter class as the template type. This allows you to use an
  * instance of this class as any other java.util.List, in particular all the
- * helper methods in java.util.Collections.
+ * helper methods in java.util.Collections.<br>
+ * <br>
+ * Large series that are frequently searched by name, like the headers of a
+ * message, can be indexed by calling {@link #setIndexed(boolean)}. The index
+ * maps case-folded names to entries, is lazily built and is kept in sync with
+ * the modifications made through the series, including its iterators. It
+ * doesn't track the renaming of entries or the modifications made to the
+ * delegate list directly or through sub-list views, and isn't meant for
+ * series modified concurrently.
  * 
  * @author Jerome Louvel
  * @param <T>
@@ -64,12 +76,113 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
     // WrapperList<T>
     // {
     // [enddef]
+    /**
+     * List iterator invalidating the name index when the series is modified.
+     */
+    private class IndexedIterator implements ListIterator<T> {
+
+        /** The wrapped iterator. */
+        private final ListIterator<T> iterator;
+
+        /**
+         * Constructor.
+         * 
+         * @param iterator
+         *            The wrapped iterator.
+         */
+        public IndexedIterator(ListIterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        public void add(T element) {
+            this.iterator.add(element);
+            invalidateIndex();
+        }
+
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        public boolean hasPrevious() {
+            return this.iterator.hasPrevious();
+        }
+
+        public T next() {
+            return this.iterator.next();
+        }
+
+        public int nextIndex() {
+            return this.iterator.nextIndex();
+        }
+
+        public T previous() {
+            return this.iterator.previous();
+        }
+
+        public int previousIndex() {
+            return this.iterator.previousIndex();
+        }
+
+        public void remove() {
+            this.iterator.remove();
+            invalidateIndex();
+        }
+
+        public void set(T element) {
+            this.iterator.set(element);
+            invalidateIndex();
+        }
+    }
+
     /**
      * A marker for empty values to differentiate from non existing values
      * (null).
      */
     public static final Object EMPTY_VALUE = new Object();
 
+    /** The minimum number of entries before the name index is built. */
+    private static final int INDEX_THRESHOLD = 8;
+
+    /**
+     * Returns a case-folded name, such as two names equal when ignoring the
+     * case always have the same folded name.
+     * 
+     * @param name
+     *            The name to fold.
+     * @return The case-folded name.
+     */
+    private static String fold(String name) {
+        String result = name;
+
+        if (name != null) {
+            StringBuilder sb = null;
+            int codePoint;
+            int folded;
+
+            for (int i = 0; i < name.length(); i += Character
+                    .charCount(codePoint)) {
+                codePoint = name.codePointAt(i);
+                folded = Character.toLowerCase(Character
+                        .toUpperCase(codePoint));
+
+                if ((sb == null) && (folded != codePoint)) {
+                    sb = new StringBuilder(name.length());
+                    sb.append(name, 0, i);
+                }
+
+                if (sb != null) {
+                    sb.appendCodePoint(folded);
+                }
+            }
+
+            if (sb != null) {
+                result = sb.toString();
+            }
+        }
+
+        return result;
+    }
+
     // [ifndef gwt] method
     /**
      * Returns an unmodifiable view of the specified series. Attempts to call a
@@ -89,6 +202,12 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
     /** The entry class. */
     private final Class<T> entryClass;
 
+    /** The entries by case-folded name, in the series order. */
+    private volatile Map<String, List<T>> nameIndex;
+
+    /** Indicates if lookups by name should use an index. */
+    private volatile boolean indexed;
+
     /**
      * Constructor.
      */
@@ -132,6 +251,64 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return add(createEntry(name, value));
     }
 
+    @Override
+    public boolean add(T element) {
+        boolean result = super.add(element);
+        Map<String, List<T>> currentIndex = this.nameIndex;
+
+        if (result && (currentIndex != null)) {
+            addToIndex(currentIndex, element);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        super.add(index, element);
+        invalidateIndex();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> elements) {
+        boolean result = super.addAll(elements);
+        invalidateIndex();
+        return result;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> elements) {
+        boolean result = super.addAll(index, elements);
+        invalidateIndex();
+        return result;
+    }
+
+    /**
+     * Adds an entry at the end of its list of entries in the index.
+     * 
+     * @param nameIndex
+     *            The index to update.
+     * @param entry
+     *            The entry to add.
+     */
+    private void addToIndex(Map<String, List<T>> nameIndex, T entry) {
+        String key = (entry == null) ? null : fold(entry.getName());
+        List<T> entries = nameIndex.get(key);
+
+        if (entries == null) {
+            entries = new ArrayList<T>(1);
+            nameIndex.put(key, entries);
+        }
+
+        entries.add(entry);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        invalidateIndex();
+    }
+
     /**
      * Copies the parameters whose name is a key in the given map.<br>
      * If a matching parameter is found, its value is put in the map.<br>
@@ -275,7 +452,9 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
      * @return The first parameter found with the given name.
      */
     public T getFirst(String name, boolean ignoreCase) {
-        for (T param : this) {
+        List<T> entries = getIndexedEntries(name);
+
+        for (T param : (entries == null) ? this : entries) {
             if (equals(param.getName(), name, ignoreCase)) {
                 return param;
             }
@@ -348,6 +527,41 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return getFirstValue(name, false, defaultValue);
     }
 
+    /**
+     * Returns the entries whose case-folded name matches the given one, in the
+     * series order. Builds the index if needed. Returns null if the index isn't
+     * used, in which case the whole series should be scanned.
+     * 
+     * @param name
+     *            The name to look up.
+     * @return The entries with the same case-folded name or null.
+     */
+    private List<T> getIndexedEntries(String name) {
+        List<T> result = null;
+
+        if (isIndexed() && (size() >= INDEX_THRESHOLD)) {
+            Map<String, List<T>> currentIndex = this.nameIndex;
+
+            if (currentIndex == null) {
+                currentIndex = new HashMap<String, List<T>>();
+
+                for (T entry : getDelegate()) {
+                    addToIndex(currentIndex, entry);
+                }
+
+                this.nameIndex = currentIndex;
+            }
+
+            result = currentIndex.get(fold(name));
+
+            if (result == null) {
+                result = Collections.emptyList();
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the set of parameter names (case sensitive).
      * 
@@ -392,8 +606,9 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
     public String getValues(String name, String separator, boolean ignoreCase) {
         String result = null;
         StringBuilder sb = null;
+        List<T> entries = getIndexedEntries(name);
 
-        for (final T param : this) {
+        for (final T param : (entries == null) ? this : entries) {
             if ((ignoreCase && param.getName().equalsIgnoreCase(name))
                     || param.getName().equals(name)) {
                 if (sb == null) {
@@ -509,6 +724,78 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return result;
     }
 
+    /**
+     * Invalidates the name index, which will be rebuilt on the next lookup.
+     */
+    private void invalidateIndex() {
+        this.nameIndex = null;
+    }
+
+    /**
+     * Indicates if lookups by name should use an index. False by default.
+     * 
+     * @return True if lookups by name should use an index.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return isIndexed() ? listIterator() : super.iterator();
+    }
+
+    /**
+     * Returns an iterator over the series, or over an empty list if the index
+     * shows that no entry has the given name.
+     * 
+     * @param name
+     *            The name of the entries to iterate over.
+     * @return The iterator.
+     */
+    private Iterator<T> iterator(String name) {
+        List<T> entries = getIndexedEntries(name);
+        return ((entries != null) && entries.isEmpty()) ? entries.iterator()
+                : iterator();
+    }
+
+    @Override
+    public ListIterator<T> listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<T> listIterator(int index) {
+        ListIterator<T> result = super.listIterator(index);
+
+        if (isIndexed()) {
+            result = new IndexedIterator(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public T remove(int index) {
+        T result = super.remove(index);
+        invalidateIndex();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        boolean result = super.remove(element);
+        invalidateIndex();
+        return result;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        boolean result = super.removeAll(elements);
+        invalidateIndex();
+        return result;
+    }
+
     /**
      * Removes all the parameters with a given name.
      * 
@@ -533,7 +820,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         boolean changed = false;
         NamedValue<String> param = null;
 
-        for (Iterator<T> iter = iterator(); iter.hasNext();) {
+        for (Iterator<T> iter = iterator(name); iter.hasNext();) {
             param = iter.next();
 
             if (equals(param.getName(), name, ignoreCase)) {
@@ -571,7 +858,8 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         boolean changed = false;
         NamedValue<String> param = null;
 
-        for (final Iterator<T> iter = iterator(); iter.hasNext() && !changed;) {
+        for (final Iterator<T> iter = iterator(name); iter.hasNext()
+                && !changed;) {
             param = iter.next();
             if (equals(param.getName(), name, ignoreCase)) {
                 iter.remove();
@@ -582,6 +870,13 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return changed;
     }
 
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        boolean result = super.retainAll(elements);
+        invalidateIndex();
+        return result;
+    }
+
     /**
      * Replaces the value of the first parameter with the given name and removes
      * all other parameters with the same name. The name matching is case
@@ -614,7 +909,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         T param = null;
         boolean found = false;
 
-        for (final Iterator<T> iter = iterator(); iter.hasNext();) {
+        for (final Iterator<T> iter = iterator(name); iter.hasNext();) {
             param = iter.next();
 
             if (equals(param.getName(), name, ignoreCase)) {
@@ -637,6 +932,25 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         return result;
     }
 
+    @Override
+    public T set(int index, T element) {
+        T result = super.set(index, element);
+        invalidateIndex();
+        return result;
+    }
+
+    /**
+     * Indicates if lookups by name should use an index. The index is only
+     * built for series with enough entries.
+     * 
+     * @param indexed
+     *            True if lookups by name should use an index.
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        invalidateIndex();
+    }
+
     /**
      * Returns a view of the portion of this list between the specified
      * fromIndex, inclusive, and toIndex, exclusive.
@@ -683,8 +997,9 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
         Series<T> result = new Series<T>(this.entryClass);
         // [ifdef gwt] instruction uncomment
         // Series<T> result = createSeries(null);
+        List<T> entries = getIndexedEntries(name);
 
-        for (T param : this) {
+        for (T param : (entries == null) ? this : entries) {
             if (equals(param.getName(), name, ignoreCase)) {
                 result.add(param);
             }